@@ -1,28 +1,55 @@
 package com.barclays.api.controllers;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 import javax.validation.Valid;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.barclays.api.domain.Account;
 import com.barclays.api.domain.Transaction;
+import com.barclays.api.domain.balance.BalanceAsOf;
+import com.barclays.api.domain.batch.TransactionBatchRequest;
+import com.barclays.api.domain.batch.TransactionBatchResponse;
+import com.barclays.api.domain.enums.ExportFormat;
+import com.barclays.api.domain.enums.RollupPeriod;
+import com.barclays.api.domain.enums.TransactionType;
+import com.barclays.api.domain.page.TransactionFilter;
+import com.barclays.api.domain.page.TransactionPage;
+import com.barclays.api.domain.summary.AccountSummary;
+import com.barclays.api.domain.transfer.TransferRequest;
+import com.barclays.api.domain.transfer.TransferResponse;
+import com.barclays.api.domain.view.AccountView;
+import com.barclays.api.domain.view.TransactionView;
 import com.barclays.api.facade.AccountsFacade;
 
 @RestController
 @RequestMapping("/v1/accounts")
 public class AccountsController {
 
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+    static final String NEXT_CURSOR = "Next-Cursor";
+
     private final AccountsFacade accountFacade;
 
     @Autowired
@@ -43,10 +70,10 @@ public class AccountsController {
     }
 
     @GetMapping
-    public ResponseEntity<List<Account>> getAccounts(Authentication authentication) {
+    public ResponseEntity<List<AccountView>> getAccounts(Authentication authentication) {
 
         String principalEmail = authentication.getName();
-        List<Account> accounts = accountFacade.getAccounts(principalEmail);
+        List<AccountView> accounts = accountFacade.getAccounts(principalEmail);
         return ResponseEntity.status(HttpStatus.OK).body(accounts);
     }
 
@@ -60,17 +87,113 @@ public class AccountsController {
 
     @PostMapping("/{accountId}/transactions")
     public ResponseEntity<Void> createTransaction(@PathVariable Long accountId, @Valid @RequestBody Transaction transaction, 
+        @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
         Authentication authentication) {
 
         String principalEmail = authentication.getName();
-        accountFacade.createTransaction(accountId, transaction, principalEmail);
+        boolean replayed = accountFacade.createTransaction(accountId, transaction, principalEmail, idempotencyKey);
+        if (replayed) {
+            return ResponseEntity.status(HttpStatus.OK).header(IDEMPOTENT_REPLAYED, "true").build();
+        }
         return ResponseEntity.status(HttpStatus.OK).build();
     }
 
+    @PostMapping("/{accountId}/transactions:batch")
+    public ResponseEntity<TransactionBatchResponse> createTransactionBatch(@PathVariable Long accountId,
+        @Valid @RequestBody TransactionBatchRequest request, Authentication authentication) {
+
+        String principalEmail = authentication.getName();
+        TransactionBatchResponse response = accountFacade.createTransactions(accountId, request, principalEmail);
+        return ResponseEntity.status(batchStatus(response)).body(response);
+    }
+
+    @PostMapping("/transactions:batch")
+    public ResponseEntity<TransactionBatchResponse> createCrossAccountTransactionBatch(
+        @Valid @RequestBody TransactionBatchRequest request, Authentication authentication) {
+
+        String principalEmail = authentication.getName();
+        TransactionBatchResponse response = accountFacade.createTransactions(null, request, principalEmail);
+        return ResponseEntity.status(batchStatus(response)).body(response);
+    }
+
+    @PostMapping("/{accountId}/transfers")
+    public ResponseEntity<TransferResponse> createTransfer(@PathVariable Long accountId,
+        @Valid @RequestBody TransferRequest request, Authentication authentication) {
+
+        String principalEmail = authentication.getName();
+        TransferResponse response = accountFacade.createTransfer(accountId, request, principalEmail);
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    // an atomic batch with a rejected item posted nothing, so it fails as a whole
+    private static HttpStatus batchStatus(TransactionBatchResponse response) {
+        if (response.isAtomic() && response.getRejected() > 0) {
+            return HttpStatus.UNPROCESSABLE_ENTITY;
+        }
+        return HttpStatus.OK;
+    }
+
+    // the whole history, written row by row as it's read - format is ndjson (default) or csv
+    @GetMapping("/{accountId}/transactions:export")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(@PathVariable Long accountId,
+        @RequestParam(defaultValue = "ndjson") String format, Authentication authentication) {
+
+        String principalEmail = authentication.getName();
+        ExportFormat exportFormat = ExportFormat.fromValue(format);
+        StreamingResponseBody body = accountFacade.exportTransactions(accountId, exportFormat, principalEmail);
+        return ResponseEntity.status(HttpStatus.OK)
+            .contentType(MediaType.parseMediaType(exportFormat.getMediaType()))
+            .header(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"account-" + accountId + "-transactions." + exportFormat.getValue() + "\"")
+            .body(body);
+    }
+
+    // the body stays a plain array; the cursor for the next page, if there is one, comes back in a header
     @GetMapping("/{accountId}/transactions")
-    public ResponseEntity<List<Transaction>> getTransactions(@PathVariable Long accountId, Authentication authentication) {
+    public ResponseEntity<List<TransactionView>> getTransactions(@PathVariable Long accountId,
+        @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime from,
+        @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime to,
+        @RequestParam(required = false) String type,
+        @RequestParam(required = false) BigDecimal minAmount, @RequestParam(required = false) BigDecimal maxAmount,
+        @RequestParam(required = false) String cursor, @RequestParam(required = false) Integer limit,
+        Authentication authentication) {
+
+        String principalEmail = authentication.getName();
+        TransactionFilter filter = TransactionFilter.Builder.create()
+            .withFrom(from)
+            .withTo(to)
+            .withType(type == null ? null : TransactionType.fromValue(type))
+            .withMinAmount(minAmount)
+            .withMaxAmount(maxAmount)
+            .build();
+        TransactionPage page = accountFacade.getTransactions(accountId, filter, cursor, limit, principalEmail);
+        if (page.hasNext()) {
+            return ResponseEntity.status(HttpStatus.OK).header(NEXT_CURSOR, page.getNextCursor().encode())
+                .body(page.getTransactions());
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(page.getTransactions());
+    }
+
+    // what the balance was just before asOf, e.g. the next midnight for a day's closing balance
+    @GetMapping("/{accountId}/balance")
+    public ResponseEntity<BalanceAsOf> getBalanceAsOf(@PathVariable Long accountId,
+        @RequestParam @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime asOf, Authentication authentication) {
+
+        String principalEmail = authentication.getName();
+        BalanceAsOf balance = accountFacade.getBalanceAsOf(accountId, asOf, principalEmail);
+        return ResponseEntity.status(HttpStatus.OK).body(balance);
+    }
+
+    // deposit and withdrawal totals per day or month, for every period overlapping from (inclusive) to (exclusive)
+    @GetMapping("/{accountId}/summary")
+    public ResponseEntity<AccountSummary> getSummary(@PathVariable Long accountId,
+        @RequestParam(defaultValue = "day") String period,
+        @RequestParam @DateTimeFormat(iso = ISO.DATE) LocalDate from,
+        @RequestParam @DateTimeFormat(iso = ISO.DATE) LocalDate to, Authentication authentication) {
+
         String principalEmail = authentication.getName();
-        List<Transaction> transactions = accountFacade.getTransactions(accountId, principalEmail);
-        return ResponseEntity.status(HttpStatus.OK).body(transactions);
+        AccountSummary summary = accountFacade.getSummary(accountId, RollupPeriod.fromValue(period), from, to,
+            principalEmail);
+        return ResponseEntity.status(HttpStatus.OK).body(summary);
     }
 }
@@ -1,5 +1,6 @@
 package com.barclays.api.controllers;
 
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -33,6 +34,16 @@ public class GlobalExceptionHandler {
 
     }
 
+    // optimistic retries ran out - the account is too busy right now, but the request itself is fine
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    @ResponseBody
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ErrorResponse handleOptimisticLockingFailure(OptimisticLockingFailureException ex) {
+
+        return new ErrorResponse("The account was changed by another request, please try again.");
+
+    }
+
     @ExceptionHandler(SecurityException.class)
     @ResponseBody
     @ResponseStatus(HttpStatus.FORBIDDEN)
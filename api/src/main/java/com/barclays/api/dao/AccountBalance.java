@@ -0,0 +1,20 @@
+package com.barclays.api.dao;
+
+import java.math.BigDecimal;
+
+import com.barclays.api.domain.Money;
+import com.barclays.api.domain.enums.Currency;
+
+// id and balance only - what a balance snapshot needs from each account row
+public interface AccountBalance {
+
+    Long getId();
+
+    BigDecimal getBalance();
+
+    Currency getCurrency();
+
+    default Money toMoney() {
+        return Money.of(getBalance(), getCurrency());
+    }
+}
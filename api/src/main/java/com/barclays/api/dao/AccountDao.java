@@ -1,23 +1,95 @@
 package com.barclays.api.dao;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.barclays.api.domain.Account;
+import com.barclays.api.domain.Money;
+import com.barclays.api.domain.view.AccountView;
 
 public interface AccountDao extends CrudRepository<Account, Long> {
     List<Account> findByUserEmail(String email);
+
+    @Query("SELECT new com.barclays.api.domain.view.AccountView(a.id, a.accountNumber, a.sortCode, a.name,"
+        + " a.accountType, a.balance, a.currency, a.balanceSlots, a.createdTimestamp, a.updatedTimestamp)"
+        + " FROM Account a WHERE a.user.email = :email ORDER BY a.id")
+    List<AccountView> findViewsByUserEmail(@Param("email") String email);
+
+    // numbers already held in a range, e.g. by accounts numbered before blocks were reserved
+    @Query("SELECT a.accountNumber FROM Account a WHERE a.accountNumber BETWEEN :low AND :high")
+    List<String> findAccountNumbersBetween(@Param("low") String low, @Param("high") String high);
+
+    // with its user and their address in the one statement, for copies that are read after the session has closed
+    @Query("SELECT a FROM Account a JOIN FETCH a.user u JOIN FETCH u.address WHERE a.id = :accountId")
+    Optional<Account> findWithUserById(@Param("accountId") Long accountId);
+
+    @Query("SELECT a.balance FROM Account a WHERE a.id = :accountId")
+    BigDecimal findBalanceById(@Param("accountId") Long accountId);
+
+    @Query("SELECT new com.barclays.api.domain.Money(a.balance, a.currency) FROM Account a WHERE a.id = :accountId")
+    Money findMoneyById(@Param("accountId") Long accountId);
+
+    // must be consumed inside a transaction and closed
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("SELECT a.id AS id, a.balance AS balance, a.currency AS currency FROM Account a ORDER BY a.id")
+    Stream<AccountBalance> streamAllBalances();
+
+    @Query("SELECT a.user.id FROM Account a WHERE a.id = :accountId")
+    Long findOwnerIdById(@Param("accountId") Long accountId);
+
+    @Query("SELECT a.id AS id, a.user.id AS userId FROM Account a WHERE a.id IN :accountIds")
+    List<AccountOwner> findOwnersByIds(@Param("accountIds") Collection<Long> accountIds);
+
+    // must be consumed inside a transaction and closed
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("SELECT a.id AS id, a.user.id AS userId FROM Account a")
+    Stream<AccountOwner> streamAllOwners();
+
+    // striped accounts have no running balances to fill in, see LedgerService#postStriped
+    @Query("SELECT a.id FROM Account a WHERE a.balanceSlots IS NULL AND EXISTS"
+        + " (SELECT t.id FROM Transaction t WHERE t.account = a AND t.balanceAfter IS NULL) ORDER BY a.id")
+    List<Long> findIdsMissingRunningBalances();
+
+    // keyset chunks of ids, for jobs that work through every account
+    @Query("SELECT a.id FROM Account a WHERE a.id > :after ORDER BY a.id")
+    List<Long> findIdsAfter(@Param("after") Long after, Pageable pageable);
+
+    // row locks are always taken in id order so overlapping callers can't deadlock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.id IN :accountIds ORDER BY a.id")
+    List<Account> findAllByIdForUpdate(@Param("accountIds") Collection<Long> accountIds);
     
     @Modifying
     @Transactional
-    @Query("UPDATE Account a SET a.balance = :balance WHERE a.id = :accountId")
+    @Query("UPDATE Account a SET a.balance = :balance, a.version = a.version + 1 WHERE a.id = :accountId")
     void updateBalance(@Param("accountId") Long accountId, @Param("balance") BigDecimal balance);
-    
+
+    // returns 0 when the delta would take the balance below zero (or the account doesn't exist)
+    @Modifying
+    @Transactional
+    @Query("UPDATE Account a SET a.balance = a.balance + :delta, a.version = a.version + 1 WHERE a.id = :accountId AND a.balance + :delta >= 0")
+    int applyBalanceDelta(@Param("accountId") Long accountId, @Param("delta") BigDecimal delta);
+
+    // returns 0 when the account has been written since it was read at expectedVersion
+    @Modifying
+    @Transactional
+    @Query("UPDATE Account a SET a.balance = :balance, a.version = a.version + 1 WHERE a.id = :accountId AND a.version = :expectedVersion")
+    int updateBalanceIfVersion(@Param("accountId") Long accountId, @Param("balance") BigDecimal balance,
+        @Param("expectedVersion") Long expectedVersion);
 
 }
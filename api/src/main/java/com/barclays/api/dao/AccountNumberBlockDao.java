@@ -0,0 +1,8 @@
+package com.barclays.api.dao;
+
+import org.springframework.data.repository.CrudRepository;
+
+import com.barclays.api.domain.AccountNumberBlock;
+
+public interface AccountNumberBlockDao extends CrudRepository<AccountNumberBlock, Long> {
+}
@@ -0,0 +1,9 @@
+package com.barclays.api.dao;
+
+// an account id and its owner's - all an ownership check needs from each account row
+public interface AccountOwner {
+
+    Long getId();
+
+    Long getUserId();
+}
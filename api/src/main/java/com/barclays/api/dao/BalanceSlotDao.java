@@ -0,0 +1,43 @@
+package com.barclays.api.dao;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+
+import javax.persistence.LockModeType;
+
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.barclays.api.domain.BalanceSlot;
+
+public interface BalanceSlotDao extends CrudRepository<BalanceSlot, Long> {
+
+    // returns 0 if the account has no such slot
+    @Modifying
+    @Transactional
+    @Query("UPDATE BalanceSlot s SET s.balance = s.balance + :amount WHERE s.account.id = :accountId AND s.slot = :slot")
+    int addToSlot(@Param("accountId") Long accountId, @Param("slot") int slot, @Param("amount") BigDecimal amount);
+
+    // slot order, so two withdrawals on the same account lock the slots in the same order
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM BalanceSlot s WHERE s.account.id = :accountId ORDER BY s.slot")
+    List<BalanceSlot> findByAccountIdForUpdate(@Param("accountId") Long accountId);
+
+    // without locking them, for reads that take one snapshot
+    List<BalanceSlot> findByAccountIdOrderBySlot(Long accountId);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE BalanceSlot s SET s.balance = 0 WHERE s.account.id = :accountId")
+    int clearSlots(@Param("accountId") Long accountId);
+
+    // account balance plus its slots, read in one statement so a withdrawal emptying the slots can't be seen half done
+    @Query("SELECT a.id AS id, a.balance + SUM(s.balance) AS balance, a.currency AS currency "
+        + "FROM BalanceSlot s JOIN s.account a WHERE a.id IN :accountIds GROUP BY a.id, a.balance, a.currency")
+    List<AccountBalance> findTotalBalances(@Param("accountIds") Collection<Long> accountIds);
+}
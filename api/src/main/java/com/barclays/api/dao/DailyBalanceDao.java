@@ -0,0 +1,25 @@
+package com.barclays.api.dao;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+import com.barclays.api.domain.DailyBalance;
+
+public interface DailyBalanceDao extends CrudRepository<DailyBalance, Long> {
+
+    // the last checkpoint strictly before the day
+    Optional<DailyBalance> findFirstByAccountIdAndBalanceDateLessThanOrderByBalanceDateDesc(Long accountId,
+        LocalDate balanceDate);
+
+    // the first checkpoint on or after the day
+    Optional<DailyBalance> findFirstByAccountIdAndBalanceDateGreaterThanEqualOrderByBalanceDateAsc(Long accountId,
+        LocalDate balanceDate);
+
+    boolean existsByAccountIdAndBalanceDate(Long accountId, LocalDate balanceDate);
+
+    @Query("SELECT MAX(d.balanceDate) FROM DailyBalance d")
+    LocalDate findLatestBalanceDate();
+}
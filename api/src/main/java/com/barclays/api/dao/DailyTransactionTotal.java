@@ -0,0 +1,19 @@
+package com.barclays.api.dao;
+
+import java.time.LocalDate;
+
+// a TransactionTotal for one account on one calendar day; the date comes back in parts, the portable way to group on it
+public interface DailyTransactionTotal extends TransactionTotal {
+
+    Long getAccountId();
+
+    int getYear();
+
+    int getMonth();
+
+    int getDay();
+
+    default LocalDate getDate() {
+        return LocalDate.of(getYear(), getMonth(), getDay());
+    }
+}
@@ -0,0 +1,28 @@
+package com.barclays.api.dao;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.barclays.api.domain.IdempotencyRecord;
+
+public interface IdempotencyRecordDao extends CrudRepository<IdempotencyRecord, String>, IdempotencyRecordDaoCustom {
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.createdTimestamp < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+
+    // re-claims a key whose claim was made before the cutoff and never completed, for a posting with a new id;
+    // 1 if this caller got it
+    @Modifying
+    @Transactional
+    @Query("UPDATE IdempotencyRecord r SET r.createdTimestamp = :now, r.transactionRef = :transactionRef WHERE r.id = :id"
+        + " AND r.status = com.barclays.api.domain.enums.IdempotencyStatus.PENDING AND r.createdTimestamp < :cutoff")
+    int takeOverPending(@Param("id") String id, @Param("cutoff") LocalDateTime cutoff, @Param("now") LocalDateTime now,
+        @Param("transactionRef") String transactionRef);
+}
@@ -0,0 +1,9 @@
+package com.barclays.api.dao;
+
+import com.barclays.api.domain.IdempotencyRecord;
+
+public interface IdempotencyRecordDaoCustom {
+
+    // plain INSERT, so a key another request already claimed fails on the primary key instead of being merged over
+    void insert(IdempotencyRecord record);
+}
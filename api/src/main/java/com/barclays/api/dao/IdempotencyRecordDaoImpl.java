@@ -0,0 +1,22 @@
+package com.barclays.api.dao;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import com.barclays.api.domain.IdempotencyRecord;
+
+public class IdempotencyRecordDaoImpl implements IdempotencyRecordDaoCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public void insert(IdempotencyRecord record) {
+        entityManager.persist(record);
+        // flush inside the transaction so a duplicate key surfaces here
+        entityManager.flush();
+    }
+}
@@ -0,0 +1,9 @@
+package com.barclays.api.dao;
+
+import org.springframework.data.repository.CrudRepository;
+
+import com.barclays.api.domain.JournalRejection;
+
+public interface JournalRejectionDao extends CrudRepository<JournalRejection, Long> {
+    boolean existsBySequenceGreaterThan(Long sequence);
+}
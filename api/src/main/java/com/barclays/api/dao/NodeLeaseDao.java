@@ -0,0 +1,35 @@
+package com.barclays.api.dao;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.barclays.api.domain.NodeLease;
+
+public interface NodeLeaseDao extends CrudRepository<NodeLease, Integer> {
+
+    // returns 0 when another node has the row already
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO node_leases (node_id, holder, expires_millis) VALUES (:nodeId, :holder, :expiresMillis)"
+        + " ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertLease(@Param("nodeId") int nodeId, @Param("holder") String holder,
+        @Param("expiresMillis") long expiresMillis);
+
+    // returns 0 unless the lease had expired by now
+    @Modifying
+    @Transactional
+    @Query("UPDATE NodeLease l SET l.holder = :holder, l.expiresMillis = :expiresMillis"
+        + " WHERE l.nodeId = :nodeId AND l.expiresMillis < :now")
+    int takeExpiredLease(@Param("nodeId") int nodeId, @Param("holder") String holder,
+        @Param("expiresMillis") long expiresMillis, @Param("now") long now);
+
+    // returns 0 when the lease has been taken over
+    @Modifying
+    @Transactional
+    @Query("UPDATE NodeLease l SET l.expiresMillis = :expiresMillis WHERE l.nodeId = :nodeId AND l.holder = :holder")
+    int renewLease(@Param("nodeId") int nodeId, @Param("holder") String holder,
+        @Param("expiresMillis") long expiresMillis);
+}
@@ -0,0 +1,18 @@
+package com.barclays.api.dao;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// an account's rollups for one period, summed over their stripes
+public interface PeriodTotal {
+
+    LocalDate getPeriodStart();
+
+    BigDecimal getDeposits();
+
+    BigDecimal getWithdrawals();
+
+    long getDepositCount();
+
+    long getWithdrawalCount();
+}
@@ -1,12 +1,51 @@
 package com.barclays.api.dao;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
 import com.barclays.api.domain.Transaction;
+import com.barclays.api.domain.enums.TransactionType;
 
-public interface  TransactionDao extends CrudRepository<Transaction, Long> {
+public interface  TransactionDao extends CrudRepository<Transaction, Long>, TransactionDaoCustom {
     List<Transaction> findByAccountId(Long accountId);
 
+    boolean existsByTransactionId(String transactionId);
+
+    // by the posting id - CrudRepository's existsById is typed to this repository's Long key
+    boolean existsTransactionById(String id);
+
+    @Query("SELECT COALESCE(SUM(t.amount), 0) FROM Transaction t WHERE t.account.id = :accountId AND t.type = :type")
+    BigDecimal sumAmountsByAccountIdAndType(@Param("accountId") Long accountId, @Param("type") TransactionType type);
+
+    // per type; transactions created from (inclusive) up to (exclusive)
+    @Query("SELECT t.type AS type, SUM(t.amount) AS amount, COUNT(t) AS count FROM Transaction t"
+        + " WHERE t.account.id = :accountId AND t.createdTimestamp >= :from AND t.createdTimestamp < :to GROUP BY t.type")
+    List<TransactionTotal> findTotalsCreatedBetween(@Param("accountId") Long accountId,
+        @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("SELECT t.type AS type, SUM(t.amount) AS amount, COUNT(t) AS count FROM Transaction t"
+        + " WHERE t.account.id = :accountId AND t.createdTimestamp >= :from GROUP BY t.type")
+    List<TransactionTotal> findTotalsCreatedSince(@Param("accountId") Long accountId,
+        @Param("from") LocalDateTime from);
+
+    @Query("SELECT DISTINCT t.account.id FROM Transaction t WHERE t.createdTimestamp >= :from AND t.createdTimestamp < :to")
+    List<Long> findAccountIdsCreatedBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // where the next activity is, so quiet stretches of days can be skipped in one seek
+    @Query("SELECT MIN(t.createdTimestamp) FROM Transaction t WHERE t.createdTimestamp >= :from")
+    LocalDateTime findFirstCreatedTimestampFrom(@Param("from") LocalDateTime from);
+
+    // per account, calendar day and type - what the rollups are rebuilt from
+    @Query("SELECT t.account.id AS accountId, YEAR(t.createdTimestamp) AS year, MONTH(t.createdTimestamp) AS month,"
+        + " DAY(t.createdTimestamp) AS day, t.type AS type, SUM(t.amount) AS amount, COUNT(t) AS count"
+        + " FROM Transaction t WHERE t.account.id IN :accountIds GROUP BY t.account.id,"
+        + " YEAR(t.createdTimestamp), MONTH(t.createdTimestamp), DAY(t.createdTimestamp), t.type")
+    List<DailyTransactionTotal> findDailyTotalsByAccountIds(@Param("accountIds") Collection<Long> accountIds);
+
 }
@@ -0,0 +1,35 @@
+package com.barclays.api.dao;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.barclays.api.domain.Transaction;
+import com.barclays.api.domain.page.TransactionCursor;
+import com.barclays.api.domain.page.TransactionFilter;
+import com.barclays.api.domain.view.TransactionView;
+
+public interface TransactionDaoCustom {
+
+    // plain INSERT - save() would merge (SELECT + INSERT) because the id is assigned
+    void insert(Transaction transaction);
+
+    /**
+     * Up to {@code limit} of the account's transactions that match the
+     * filter (all of them when {@code limit} is 0), oldest first, starting
+     * after {@code after} (from the start when null). Only the criteria that are set go into the query, so each
+     * combination is one plain range scan on the index that fits it.
+     */
+    List<Transaction> findPage(Long accountId, TransactionFilter filter, TransactionCursor after, int limit);
+
+    // the same page read into views, for callers that only return it
+    List<TransactionView> findViewPage(Long accountId, TransactionFilter filter, TransactionCursor after, int limit);
+
+    /**
+     * Hands every transaction of the account up to now to {@code consumer},
+     * oldest first, reading them through a forward-only cursor. Postings
+     * made while it runs are left out. Each one is detached once the
+     * consumer returns, so memory stays flat however long the account's
+     * history is. Must run inside a transaction.
+     */
+    void forEachByAccountId(Long accountId, Consumer<Transaction> consumer);
+}
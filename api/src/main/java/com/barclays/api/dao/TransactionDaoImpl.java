@@ -0,0 +1,124 @@
+package com.barclays.api.dao;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+
+import org.hibernate.jpa.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.barclays.api.domain.Account;
+import com.barclays.api.domain.Transaction;
+import com.barclays.api.domain.page.TransactionCursor;
+import com.barclays.api.domain.page.TransactionFilter;
+import com.barclays.api.domain.view.TransactionView;
+
+public class TransactionDaoImpl implements TransactionDaoCustom {
+
+    private static final int EXPORT_FETCH_SIZE = 1000;
+    private static final String VIEW = "new com.barclays.api.domain.view.TransactionView(t.id, t.transactionId,"
+            + " t.amount, t.currency, t.type, t.balanceAfter, t.createdTimestamp)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public void insert(Transaction transaction) {
+        // an id-only account (journal replay, engine batches) has no version, which Hibernate reads as a new account
+        Account account = transaction.getAccount();
+        if (account != null && account.getVersion() == null && account.getId() != null) {
+            transaction.setAccount(entityManager.getReference(Account.class, account.getId()));
+        }
+        entityManager.persist(transaction);
+    }
+
+    @Override
+    public List<Transaction> findPage(Long accountId, TransactionFilter filter, TransactionCursor after, int limit) {
+        return findPage("t", Transaction.class, accountId, filter, after, limit);
+    }
+
+    @Override
+    public List<TransactionView> findViewPage(Long accountId, TransactionFilter filter, TransactionCursor after,
+            int limit) {
+        return findPage(VIEW, TransactionView.class, accountId, filter, after, limit);
+    }
+
+    private <T> List<T> findPage(String select, Class<T> resultType, Long accountId, TransactionFilter filter,
+            TransactionCursor after, int limit) {
+        StringBuilder jpql = new StringBuilder("SELECT ").append(select)
+                .append(" FROM Transaction t WHERE t.account.id = :accountId");
+        if (filter.getType() != null) {
+            jpql.append(" AND t.type = :type");
+        }
+        if (filter.getFrom() != null) {
+            jpql.append(" AND t.createdTimestamp >= :from");
+        }
+        if (filter.getTo() != null) {
+            jpql.append(" AND t.createdTimestamp < :to");
+        }
+        if (filter.getMinAmount() != null) {
+            jpql.append(" AND t.amount >= :minAmount");
+        }
+        if (filter.getMaxAmount() != null) {
+            jpql.append(" AND t.amount <= :maxAmount");
+        }
+        if (after != null) {
+            jpql.append(" AND (t.createdTimestamp > :afterTimestamp"
+                    + " OR (t.createdTimestamp = :afterTimestamp AND t.id > :afterId))");
+        }
+        jpql.append(" ORDER BY t.createdTimestamp, t.id");
+
+        TypedQuery<T> query = entityManager.createQuery(jpql.toString(), resultType)
+                .setParameter("accountId", accountId);
+        if (limit > 0) {
+            query.setMaxResults(limit);
+        }
+        if (filter.getType() != null) {
+            query.setParameter("type", filter.getType());
+        }
+        if (filter.getFrom() != null) {
+            query.setParameter("from", filter.getFrom());
+        }
+        if (filter.getTo() != null) {
+            query.setParameter("to", filter.getTo());
+        }
+        if (filter.getMinAmount() != null) {
+            query.setParameter("minAmount", filter.getMinAmount());
+        }
+        if (filter.getMaxAmount() != null) {
+            query.setParameter("maxAmount", filter.getMaxAmount());
+        }
+        if (after != null) {
+            query.setParameter("afterTimestamp", after.getCreatedTimestamp());
+            query.setParameter("afterId", after.getId());
+        }
+        return query.getResultList();
+    }
+
+    @Override
+    public void forEachByAccountId(Long accountId, Consumer<Transaction> consumer) {
+        // Hibernate streams a query through a FORWARD_ONLY ScrollableResults. Bounding the history at the start
+        // of the export and ordering by the account too is what lets H2 walk idx_transactions_account_created
+        // in order; otherwise it picks the narrower foreign key index and sorts the whole history in memory
+        try (Stream<Transaction> transactions = entityManager
+                .createQuery("SELECT t FROM Transaction t WHERE t.account.id = :accountId"
+                        + " AND t.createdTimestamp <= :asOf"
+                        + " ORDER BY t.account.id, t.createdTimestamp, t.id", Transaction.class)
+                .setParameter("accountId", accountId)
+                .setParameter("asOf", LocalDateTime.now())
+                .setHint(QueryHints.HINT_FETCH_SIZE, EXPORT_FETCH_SIZE)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .getResultStream()) {
+            transactions.forEach(transaction -> {
+                consumer.accept(transaction);
+                entityManager.detach(transaction);
+            });
+        }
+    }
+}
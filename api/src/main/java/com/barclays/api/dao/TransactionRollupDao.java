@@ -0,0 +1,52 @@
+package com.barclays.api.dao;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.barclays.api.domain.TransactionRollup;
+import com.barclays.api.domain.enums.RollupPeriod;
+
+public interface TransactionRollupDao extends CrudRepository<TransactionRollup, Long> {
+
+    // returns 0 when the period has no row for the stripe yet
+    @Modifying
+    @Transactional
+    @Query("UPDATE TransactionRollup r SET r.deposits = r.deposits + :deposits,"
+        + " r.withdrawals = r.withdrawals + :withdrawals, r.depositCount = r.depositCount + :depositCount,"
+        + " r.withdrawalCount = r.withdrawalCount + :withdrawalCount WHERE r.account.id = :accountId"
+        + " AND r.period = :period AND r.periodStart = :periodStart AND r.stripe = :stripe")
+    int addToRollup(@Param("accountId") Long accountId, @Param("period") RollupPeriod period,
+        @Param("periodStart") LocalDate periodStart, @Param("stripe") int stripe,
+        @Param("deposits") BigDecimal deposits, @Param("withdrawals") BigDecimal withdrawals,
+        @Param("depositCount") long depositCount, @Param("withdrawalCount") long withdrawalCount);
+
+    // an empty row for the period's stripe unless there is one already; a racing first posting doesn't fail on the unique key
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO account_rollups (account_id, period, period_start, stripe, deposits, withdrawals,"
+        + " deposit_count, withdrawal_count) VALUES (:accountId, :period, :periodStart, :stripe, 0, 0, 0, 0)"
+        + " ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertEmptyRollup(@Param("accountId") Long accountId, @Param("period") String period,
+        @Param("periodStart") LocalDate periodStart, @Param("stripe") int stripe);
+
+    // periods starting from (inclusive) up to (exclusive), oldest first
+    @Query("SELECT r.periodStart AS periodStart, SUM(r.deposits) AS deposits, SUM(r.withdrawals) AS withdrawals,"
+        + " SUM(r.depositCount) AS depositCount, SUM(r.withdrawalCount) AS withdrawalCount FROM TransactionRollup r"
+        + " WHERE r.account.id = :accountId AND r.period = :period AND r.periodStart >= :from AND r.periodStart < :to"
+        + " GROUP BY r.periodStart ORDER BY r.periodStart")
+    List<PeriodTotal> findTotals(@Param("accountId") Long accountId, @Param("period") RollupPeriod period,
+        @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM TransactionRollup r WHERE r.account.id IN :accountIds")
+    int deleteByAccountIds(@Param("accountIds") Collection<Long> accountIds);
+}
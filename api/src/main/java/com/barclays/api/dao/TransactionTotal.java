@@ -0,0 +1,25 @@
+package com.barclays.api.dao;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+
+import com.barclays.api.domain.enums.TransactionType;
+
+// how much and how many of one type of transaction a range of an account's history holds
+public interface TransactionTotal {
+
+    TransactionType getType();
+
+    BigDecimal getAmount();
+
+    long getCount();
+
+    // deposits less withdrawals
+    static BigDecimal net(Collection<? extends TransactionTotal> totals) {
+        BigDecimal net = BigDecimal.ZERO;
+        for (TransactionTotal total : totals) {
+            net = total.getType() == TransactionType.WITHDRAWAL ? net.subtract(total.getAmount()) : net.add(total.getAmount());
+        }
+        return net;
+    }
+}
@@ -1,8 +1,12 @@
 package com.barclays.api.dao;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
 import com.barclays.api.domain.User;
 
 public interface UserDao extends CrudRepository<User, Long> {
-    User findByEmail(String email);
+    // the address is eager, and would otherwise cost a second statement
+    @Query("SELECT u FROM User u JOIN FETCH u.address WHERE u.email = :email")
+    User findByEmail(@Param("email") String email);
 }
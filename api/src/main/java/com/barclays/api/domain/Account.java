@@ -14,7 +14,10 @@ import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import javax.validation.constraints.Digits;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 
@@ -33,6 +36,8 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 @Table(name = "accounts")
 public class Account {
 
+    public static final int MAX_BALANCE_SLOTS = 64;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -63,11 +68,22 @@ public class Account {
     @Column(nullable = false)
     private Currency currency = Currency.GBP;
 
+    // set for hot accounts: deposits are spread over this many BalanceSlot rows
+    @Min(2)
+    @Max(MAX_BALANCE_SLOTS)
+    @Column(updatable = false)
+    private Integer balanceSlots;
+
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "user_id", nullable = false)
     @JsonIgnore
     private User user;
 
+    // bumped by every balance write, so a writer can tell whether the balance it read is still current
+    @Version
+    @JsonIgnore
+    private Long version;
+
     @CreationTimestamp
     @Column(nullable = false, updatable = false)
     private Calendar createdTimestamp;
@@ -145,6 +161,18 @@ public class Account {
         this.currency = currency;
     }
 
+    /**
+     * The number of sub-balances deposits to this account are spread over, or
+     * null if the account isn't striped.
+     */
+    public Integer getBalanceSlots() {
+        return balanceSlots;
+    }
+
+    public void setBalanceSlots(Integer balanceSlots) {
+        this.balanceSlots = balanceSlots;
+    }
+
     public User getUser() {
         return user;
     }
@@ -153,6 +181,14 @@ public class Account {
         this.user = user;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public Calendar getCreatedTimestamp() {
         return createdTimestamp;
     }
@@ -188,6 +224,7 @@ public class Account {
         private AccountType accountType;
         private BigDecimal balance;
         private Currency currency;
+        private Integer balanceSlots;
         private User user;
 
         public static Builder create() {
@@ -224,13 +261,20 @@ public class Account {
             return this;
         }
 
+        public Builder withBalanceSlots(Integer balanceSlots) {
+            this.balanceSlots = balanceSlots;
+            return this;
+        }
+
         public Builder withUser(User user) {
             this.user = user;
             return this;
         }
 
         public Account build() {
-            return new Account(accountNumber, sortCode, name, accountType, balance, currency, user);
+            Account account = new Account(accountNumber, sortCode, name, accountType, balance, currency, user);
+            account.setBalanceSlots(balanceSlots);
+            return account;
         }
     }
 }
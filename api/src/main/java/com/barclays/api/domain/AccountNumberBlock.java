@@ -0,0 +1,49 @@
+package com.barclays.api.domain;
+
+import java.util.Calendar;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.hibernate.annotations.CreationTimestamp;
+
+/**
+ * A block of account numbers reserved by one API node. The row is all there
+ * is to the reservation: block {@code id} holds the numbers from
+ * {@code id * BLOCK_SIZE} (see {@code AccountNumberAllocator}), and the
+ * identity column never hands the same id out twice.
+ */
+@Entity
+@Table(name = "account_number_blocks")
+public class AccountNumberBlock {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private Calendar reservedTimestamp;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Calendar getReservedTimestamp() {
+        return reservedTimestamp;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
@@ -0,0 +1,75 @@
+package com.barclays.api.domain;
+
+import java.math.BigDecimal;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+/**
+ * One of the sub-balances of a striped account (see
+ * {@link Account#getBalanceSlots()}). Deposits are spread over the slots so
+ * they don't all queue on the account row; the account's balance is its own
+ * balance column plus the sum of its slots. Slots never go negative -
+ * withdrawals move their money back into the account row first.
+ */
+@Entity
+@Table(name = "account_balance_slots", uniqueConstraints = @UniqueConstraint(columnNames = { "account_id", "slot" }))
+public class BalanceSlot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "account_id", nullable = false)
+    private Account account;
+
+    @Column(nullable = false)
+    private int slot;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal balance = BigDecimal.ZERO;
+
+    public BalanceSlot() {
+    }
+
+    public BalanceSlot(Account account, int slot) {
+        this.account = account;
+        this.slot = slot;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Account getAccount() {
+        return account;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public void setBalance(BigDecimal balance) {
+        this.balance = balance;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
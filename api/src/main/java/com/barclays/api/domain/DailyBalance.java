@@ -0,0 +1,74 @@
+package com.barclays.api.domain;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+/**
+ * An account's closing balance on a day it had transactions: its balance
+ * after every transaction created before midnight at the end of
+ * {@code balanceDate}. Days without transactions get no row - their closing
+ * balance is that of the last day before them that has one.
+ */
+@Entity
+// the unique index is also the one "latest checkpoint before a date" lookups seek on
+@Table(name = "account_daily_balances",
+    uniqueConstraints = @UniqueConstraint(columnNames = { "account_id", "balanceDate" }))
+public class DailyBalance {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "account_id", nullable = false)
+    private Account account;
+
+    @Column(nullable = false)
+    private LocalDate balanceDate;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal closingBalance;
+
+    public DailyBalance() {
+    }
+
+    public DailyBalance(Account account, LocalDate balanceDate, BigDecimal closingBalance) {
+        this.account = account;
+        this.balanceDate = balanceDate;
+        this.closingBalance = closingBalance;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Account getAccount() {
+        return account;
+    }
+
+    public LocalDate getBalanceDate() {
+        return balanceDate;
+    }
+
+    public BigDecimal getClosingBalance() {
+        return closingBalance;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
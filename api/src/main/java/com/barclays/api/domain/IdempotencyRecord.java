@@ -0,0 +1,126 @@
+package com.barclays.api.domain;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import com.barclays.api.domain.enums.IdempotencyStatus;
+
+/**
+ * The outcome of a request sent with an Idempotency-Key, kept so a retry of
+ * the same request gets the same answer. The id is the key scoped to the
+ * user that sent it.
+ */
+@Entity
+@Table(name = "idempotency_keys", indexes = @Index(name = "idx_idempotency_keys_created", columnList = "createdTimestamp"))
+public class IdempotencyRecord {
+
+    public static final int MAX_MESSAGE_LENGTH = 1000;
+
+    @Id
+    @Column(length = 320)
+    private String id;
+
+    @Column(nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private int fingerprint;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private IdempotencyStatus status;
+
+    // id of the posted transaction
+    private String transactionRef;
+
+    // why the request was rejected
+    @Column(length = MAX_MESSAGE_LENGTH)
+    private String message;
+
+    @Column(nullable = false)
+    private LocalDateTime createdTimestamp;
+
+    public IdempotencyRecord() {
+    }
+
+    public IdempotencyRecord(String id, Long userId, int fingerprint, IdempotencyStatus status,
+            String transactionRef, String message, LocalDateTime createdTimestamp) {
+        this.id = id;
+        this.userId = userId;
+        this.fingerprint = fingerprint;
+        this.status = status;
+        this.transactionRef = transactionRef;
+        this.message = message;
+        this.createdTimestamp = createdTimestamp;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public int getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(int fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    public IdempotencyStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(IdempotencyStatus status) {
+        this.status = status;
+    }
+
+    public String getTransactionRef() {
+        return transactionRef;
+    }
+
+    public void setTransactionRef(String transactionRef) {
+        this.transactionRef = transactionRef;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public LocalDateTime getCreatedTimestamp() {
+        return createdTimestamp;
+    }
+
+    public void setCreatedTimestamp(LocalDateTime createdTimestamp) {
+        this.createdTimestamp = createdTimestamp;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
@@ -0,0 +1,54 @@
+package com.barclays.api.domain;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+/**
+ * How far a journal projector has got. Written in the same DB transaction as
+ * the records it covers, so it never disagrees with the applied data.
+ */
+@Entity
+@Table(name = "journal_checkpoints")
+public class JournalCheckpoint {
+
+    public static final String LEDGER_PROJECTOR = "ledger";
+
+    @Id
+    private String id;
+
+    @Column(nullable = false)
+    private long appliedSequence;
+
+    public JournalCheckpoint() {
+    }
+
+    public JournalCheckpoint(String id, long appliedSequence) {
+        this.id = id;
+        this.appliedSequence = appliedSequence;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    public void setAppliedSequence(long appliedSequence) {
+        this.appliedSequence = appliedSequence;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
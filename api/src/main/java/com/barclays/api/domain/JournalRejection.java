@@ -0,0 +1,132 @@
+package com.barclays.api.domain;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import com.barclays.api.domain.enums.Currency;
+import com.barclays.api.domain.enums.TransactionType;
+
+/**
+ * A journal record the projector could never apply - a duplicate
+ * transaction id, or a withdrawal the database balance can't cover - set
+ * aside so the records after it are applied. Written in the same DB
+ * transaction that moves the projector's checkpoint past it.
+ */
+@Entity
+@Table(name = "journal_rejections")
+public class JournalRejection {
+
+    public static final int MAX_REASON_LENGTH = 1000;
+
+    @Id
+    private Long sequence;
+
+    @Column(nullable = false)
+    private String transactionId;
+
+    @Column(nullable = false)
+    private String postingId;
+
+    @Column(nullable = false)
+    private Long accountId;
+
+    @Column(nullable = false)
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TransactionType type;
+
+    @Column(nullable = false, precision = 7, scale = 2)
+    private BigDecimal amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Currency currency;
+
+    @Column(nullable = false)
+    private LocalDateTime createdTimestamp;
+
+    @Column(length = MAX_REASON_LENGTH)
+    private String reason;
+
+    @Column(nullable = false)
+    private LocalDateTime rejectedTimestamp;
+
+    public JournalRejection() {
+    }
+
+    public JournalRejection(long sequence, Transaction transaction, String reason) {
+        this.sequence = sequence;
+        this.transactionId = transaction.getTransactionId();
+        this.postingId = transaction.getId();
+        this.accountId = transaction.getAccount().getId();
+        this.userId = transaction.getUser().getId();
+        this.type = transaction.getType();
+        this.amount = transaction.getAmount();
+        this.currency = transaction.getCurrency();
+        this.createdTimestamp = transaction.getCreatedTimestamp();
+        this.reason = reason != null && reason.length() > MAX_REASON_LENGTH
+            ? reason.substring(0, MAX_REASON_LENGTH)
+            : reason;
+        this.rejectedTimestamp = LocalDateTime.now();
+    }
+
+    public Long getSequence() {
+        return sequence;
+    }
+
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    public String getPostingId() {
+        return postingId;
+    }
+
+    public Long getAccountId() {
+        return accountId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public TransactionType getType() {
+        return type;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public LocalDateTime getCreatedTimestamp() {
+        return createdTimestamp;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public LocalDateTime getRejectedTimestamp() {
+        return rejectedTimestamp;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
@@ -0,0 +1,129 @@
+package com.barclays.api.domain;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Objects;
+
+import com.barclays.api.domain.enums.Currency;
+
+/**
+ * An amount of money as a whole number of minor units (pence) in one
+ * currency. Immutable, and arithmetic is plain {@code long} maths, so the
+ * posting path doesn't allocate a BigDecimal (and its BigInteger) per step.
+ *
+ * Entities and JSON keep BigDecimal; convert with {@link #of} and
+ * {@link #toBigDecimal()} at those edges only.
+ */
+public final class Money implements Comparable<Money> {
+
+    public static final int SCALE = 2;
+
+    private final long pence;
+    private final Currency currency;
+
+    private Money(long pence, Currency currency) {
+        this.pence = pence;
+        this.currency = Objects.requireNonNull(currency, "currency");
+    }
+
+    /**
+     * For JPQL constructor expressions - same as {@link #of}.
+     */
+    public Money(BigDecimal amount, Currency currency) {
+        this(toPence(amount), currency);
+    }
+
+    public static Money ofPence(long pence, Currency currency) {
+        return new Money(pence, currency);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the amount has more than two
+     *         decimal places or doesn't fit in a long number of pence
+     */
+    public static Money of(BigDecimal amount, Currency currency) {
+        return new Money(toPence(amount), currency);
+    }
+
+    public static Money zero(Currency currency) {
+        return new Money(0, currency);
+    }
+
+    public long getPence() {
+        return pence;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public Money plus(Money other) {
+        checkSameCurrency(other);
+        return new Money(Math.addExact(pence, other.pence), currency);
+    }
+
+    public Money minus(Money other) {
+        checkSameCurrency(other);
+        return new Money(Math.subtractExact(pence, other.pence), currency);
+    }
+
+    public Money negate() {
+        return new Money(Math.negateExact(pence), currency);
+    }
+
+    public int signum() {
+        return Long.signum(pence);
+    }
+
+    public boolean isNegative() {
+        return pence < 0;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(pence, SCALE);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        checkSameCurrency(other);
+        return Long.compare(pence, other.pence);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof Money)) {
+            return false;
+        }
+        Money other = (Money) obj;
+        return pence == other.pence && currency == other.currency;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(pence) + currency.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString() + " " + currency.getValue();
+    }
+
+    private void checkSameCurrency(Money other) {
+        if (other.currency != currency) {
+            throw new IllegalArgumentException("Can't combine amounts in " + currency.getValue() + " and "
+                    + other.currency.getValue() + ".");
+        }
+    }
+
+    private static long toPence(BigDecimal amount) {
+        try {
+            return amount.setScale(SCALE, RoundingMode.UNNECESSARY).movePointRight(SCALE).longValueExact();
+        } catch (ArithmeticException ex) {
+            throw new IllegalArgumentException("Amount " + amount.toPlainString()
+                    + " must have at most " + SCALE + " decimal places and fit in " + Long.MAX_VALUE + " pence.");
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.barclays.api.domain;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+/**
+ * An API node's claim on an id-generator node id (see {@code NodeIdLease}).
+ * The node that holds the row may use {@code nodeId} until
+ * {@code expiresMillis}; after that any node may take the row over.
+ */
+@Entity
+@Table(name = "node_leases")
+public class NodeLease {
+
+    @Id
+    private Integer nodeId;
+
+    @Column(nullable = false, length = 36)
+    private String holder;
+
+    @Column(nullable = false)
+    private long expiresMillis;
+
+    public Integer getNodeId() {
+        return nodeId;
+    }
+
+    public String getHolder() {
+        return holder;
+    }
+
+    public long getExpiresMillis() {
+        return expiresMillis;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
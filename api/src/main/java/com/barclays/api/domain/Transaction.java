@@ -9,8 +9,10 @@ import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
 import javax.persistence.FetchType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.PrePersist;
 import javax.persistence.Table;
 import javax.validation.constraints.DecimalMax;
 import javax.validation.constraints.DecimalMin;
@@ -19,16 +21,22 @@ import javax.validation.constraints.NotNull;
 
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
-import org.hibernate.annotations.CreationTimestamp;
 
 import com.barclays.api.domain.enums.Currency;
 import com.barclays.api.domain.enums.TransactionType;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 @JsonInclude(JsonInclude.Include.NON_EMPTY)
 @Entity
-@Table(name = "transactions")
+// the first two return rows in page order, the second narrowed to one type, e.g. only withdrawals;
+// the third finds which accounts had activity on a day (DailyBalanceCheckpointer)
+@Table(name = "transactions", indexes = {
+    @Index(name = "idx_transactions_account_created", columnList = "account_id, createdTimestamp, id"),
+    @Index(name = "idx_transactions_account_type_created", columnList = "account_id, type, createdTimestamp, id"),
+    @Index(name = "idx_transactions_created", columnList = "createdTimestamp")
+})
 public class Transaction {
 
     @Id
@@ -66,7 +74,15 @@ public class Transaction {
     @JsonIgnore
     private Account account;
 
-    @CreationTimestamp
+    // the account's balance straight after this transaction, recorded when it is posted. Null for striped
+    // accounts, and for rows posted before the column existed until RunningBalanceBackfill has filled them in
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(precision = 19, scale = 2)
+    private BigDecimal balanceAfter;
+
+    // stamped on insert unless already set - journal replays keep the time the posting was accepted.
+    // Never taken from a request body: cursors, filters, rollups and as-of balances all trust it
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdTimestamp;
 
@@ -139,6 +155,21 @@ public class Transaction {
         this.account = account;
     }
 
+    public BigDecimal getBalanceAfter() {
+        return balanceAfter;
+    }
+
+    public void setBalanceAfter(BigDecimal balanceAfter) {
+        this.balanceAfter = balanceAfter;
+    }
+
+    @PrePersist
+    void stampCreatedTimestamp() {
+        if (createdTimestamp == null) {
+            createdTimestamp = LocalDateTime.now();
+        }
+    }
+
     public LocalDateTime getCreatedTimestamp() {
         return createdTimestamp;
     }
@@ -0,0 +1,124 @@
+package com.barclays.api.domain;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import com.barclays.api.domain.enums.RollupPeriod;
+
+/**
+ * Running totals of an account's deposits and withdrawals over one day or
+ * one month, kept up to date by every posting. Periods without transactions
+ * get no row.
+ *
+ * A striped account's deposits go to one row per balance slot ({@code stripe}
+ * is the slot + 1), so they contend on the same rows their slots do and no
+ * more; everything else goes to stripe 0. A period's totals are the sum of
+ * its stripes.
+ */
+@Entity
+// the unique index is also the one summary range reads seek on
+@Table(name = "account_rollups",
+    uniqueConstraints = @UniqueConstraint(columnNames = { "account_id", "period", "periodStart", "stripe" }))
+public class TransactionRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "account_id", nullable = false)
+    private Account account;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 8)
+    private RollupPeriod period;
+
+    @Column(nullable = false)
+    private LocalDate periodStart;
+
+    @Column(nullable = false)
+    private int stripe;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal deposits;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal withdrawals;
+
+    @Column(nullable = false)
+    private long depositCount;
+
+    @Column(nullable = false)
+    private long withdrawalCount;
+
+    public TransactionRollup() {
+    }
+
+    public TransactionRollup(Account account, RollupPeriod period, LocalDate periodStart, int stripe,
+            BigDecimal deposits, BigDecimal withdrawals, long depositCount, long withdrawalCount) {
+        this.account = account;
+        this.period = period;
+        this.periodStart = periodStart;
+        this.stripe = stripe;
+        this.deposits = deposits;
+        this.withdrawals = withdrawals;
+        this.depositCount = depositCount;
+        this.withdrawalCount = withdrawalCount;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Account getAccount() {
+        return account;
+    }
+
+    public RollupPeriod getPeriod() {
+        return period;
+    }
+
+    public LocalDate getPeriodStart() {
+        return periodStart;
+    }
+
+    public int getStripe() {
+        return stripe;
+    }
+
+    public BigDecimal getDeposits() {
+        return deposits;
+    }
+
+    public BigDecimal getWithdrawals() {
+        return withdrawals;
+    }
+
+    public long getDepositCount() {
+        return depositCount;
+    }
+
+    public long getWithdrawalCount() {
+        return withdrawalCount;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
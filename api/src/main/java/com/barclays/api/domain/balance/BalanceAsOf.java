@@ -0,0 +1,38 @@
+package com.barclays.api.domain.balance;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import com.barclays.api.domain.enums.Currency;
+
+public class BalanceAsOf {
+
+    private final Long accountId;
+    // the balance takes in every transaction created before this
+    private final LocalDateTime asOf;
+    private final BigDecimal balance;
+    private final Currency currency;
+
+    public BalanceAsOf(Long accountId, LocalDateTime asOf, BigDecimal balance, Currency currency) {
+        this.accountId = accountId;
+        this.asOf = asOf;
+        this.balance = balance;
+        this.currency = currency;
+    }
+
+    public Long getAccountId() {
+        return accountId;
+    }
+
+    public LocalDateTime getAsOf() {
+        return asOf;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+}
@@ -0,0 +1,86 @@
+package com.barclays.api.domain.batch;
+
+import java.math.BigDecimal;
+
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Digits;
+import javax.validation.constraints.NotNull;
+
+import com.barclays.api.domain.enums.Currency;
+import com.barclays.api.domain.enums.TransactionType;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// one entry of a batch submission - same constraints as Transaction, plus the target account
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class TransactionBatchItem {
+
+    // required for cross-account batches, ignored when the account is in the path
+    private Long accountId;
+
+    private String transactionId;
+
+    @NotNull
+    @DecimalMin(value = "0.00", message = "Amount must be greater than or equal to 0.00")
+    @DecimalMax(value = "10000.00", message = "Amount must be less than or equal to 10000.00")
+    @Digits(integer = 5, fraction = 2)
+    private BigDecimal amount;
+
+    @NotNull
+    private Currency currency = Currency.GBP;
+
+    @NotNull
+    private TransactionType type;
+
+    public TransactionBatchItem() {
+    }
+
+    public TransactionBatchItem(Long accountId, String transactionId, BigDecimal amount, Currency currency,
+                                TransactionType type) {
+        this.accountId = accountId;
+        this.transactionId = transactionId;
+        this.amount = amount;
+        this.currency = currency;
+        this.type = type;
+    }
+
+    public Long getAccountId() {
+        return accountId;
+    }
+
+    public void setAccountId(Long accountId) {
+        this.accountId = accountId;
+    }
+
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    public void setTransactionId(String transactionId) {
+        this.transactionId = transactionId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(Currency currency) {
+        this.currency = currency;
+    }
+
+    public TransactionType getType() {
+        return type;
+    }
+
+    public void setType(TransactionType type) {
+        this.type = type;
+    }
+}
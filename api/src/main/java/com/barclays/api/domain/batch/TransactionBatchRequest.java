@@ -0,0 +1,43 @@
+package com.barclays.api.domain.batch;
+
+import java.util.List;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class TransactionBatchRequest {
+
+    @NotEmpty
+    @Valid
+    private List<TransactionBatchItem> transactions;
+
+    // true: if any item is rejected nothing is posted. false: every item is posted or rejected on its own
+    private boolean atomic;
+
+    public TransactionBatchRequest() {
+    }
+
+    public TransactionBatchRequest(List<TransactionBatchItem> transactions, boolean atomic) {
+        this.transactions = transactions;
+        this.atomic = atomic;
+    }
+
+    public List<TransactionBatchItem> getTransactions() {
+        return transactions;
+    }
+
+    public void setTransactions(List<TransactionBatchItem> transactions) {
+        this.transactions = transactions;
+    }
+
+    public boolean isAtomic() {
+        return atomic;
+    }
+
+    public void setAtomic(boolean atomic) {
+        this.atomic = atomic;
+    }
+}
@@ -0,0 +1,44 @@
+package com.barclays.api.domain.batch;
+
+import java.util.List;
+
+public class TransactionBatchResponse {
+
+    private final boolean atomic;
+    private final int posted;
+    private final int rejected;
+    private final List<TransactionBatchResult> results;
+
+    public TransactionBatchResponse(boolean atomic, List<TransactionBatchResult> results) {
+        this.atomic = atomic;
+        this.results = results;
+
+        int postedCount = 0;
+        int rejectedCount = 0;
+        for (TransactionBatchResult result : results) {
+            if (result.getStatus() == TransactionBatchResult.Status.POSTED) {
+                postedCount++;
+            } else if (result.getStatus() == TransactionBatchResult.Status.REJECTED) {
+                rejectedCount++;
+            }
+        }
+        this.posted = postedCount;
+        this.rejected = rejectedCount;
+    }
+
+    public boolean isAtomic() {
+        return atomic;
+    }
+
+    public int getPosted() {
+        return posted;
+    }
+
+    public int getRejected() {
+        return rejected;
+    }
+
+    public List<TransactionBatchResult> getResults() {
+        return results;
+    }
+}
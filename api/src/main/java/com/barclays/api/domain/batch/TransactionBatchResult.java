@@ -0,0 +1,96 @@
+package com.barclays.api.domain.batch;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TransactionBatchResult {
+
+    public enum Status {
+        // the transaction was posted and the balance moved
+        POSTED("posted"),
+        // this item failed (e.g. insufficient funds) and was not posted
+        REJECTED("rejected"),
+        // this item was fine but not posted because another item of an atomic batch was rejected
+        NOT_POSTED("not_posted");
+
+        private final String value;
+
+        Status(String value) {
+            this.value = value;
+        }
+
+        @JsonValue
+        public String getValue() {
+            return value;
+        }
+
+        @JsonCreator
+        public static Status fromValue(String value) {
+            for (Status status : Status.values()) {
+                if (status.value.equals(value)) {
+                    return status;
+                }
+            }
+            throw new IllegalArgumentException("Unknown enum value: " + value);
+        }
+    }
+
+    private int index;
+    private Long accountId;
+    private String id;
+    private String transactionId;
+    private Status status;
+    private String message;
+
+    public TransactionBatchResult() {
+    }
+
+    public TransactionBatchResult(int index, Long accountId, String transactionId) {
+        this.index = index;
+        this.accountId = accountId;
+        this.transactionId = transactionId;
+    }
+
+    public void posted(String id) {
+        this.id = id;
+        this.status = Status.POSTED;
+        this.message = null;
+    }
+
+    public void rejected(String message) {
+        this.status = Status.REJECTED;
+        this.message = message;
+    }
+
+    public void notPosted() {
+        this.id = null;
+        this.status = Status.NOT_POSTED;
+        this.message = "Not posted because another transaction in the batch was rejected.";
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public Long getAccountId() {
+        return accountId;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,36 @@
+package com.barclays.api.domain.enums;
+
+public enum ExportFormat {
+    NDJSON("ndjson", "application/x-ndjson"),
+    CSV("csv", "text/csv");
+
+    private final String value;
+    private final String mediaType;
+
+    ExportFormat(String value, String mediaType) {
+        this.value = value;
+        this.mediaType = mediaType;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public static ExportFormat fromValue(String value) {
+        for (ExportFormat format : ExportFormat.values()) {
+            if (format.value.equals(value)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown export format " + value);
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+}
@@ -0,0 +1,8 @@
+package com.barclays.api.domain.enums;
+
+public enum IdempotencyStatus {
+    // claimed by a request that hasn't finished yet
+    PENDING,
+    POSTED,
+    REJECTED
+}
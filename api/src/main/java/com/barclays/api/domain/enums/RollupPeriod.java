@@ -0,0 +1,40 @@
+package com.barclays.api.domain.enums;
+
+import java.time.LocalDate;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+public enum RollupPeriod {
+    DAY("day"),
+    MONTH("month");
+
+    private final String value;
+
+    RollupPeriod(String value) {
+        this.value = value;
+    }
+
+    @JsonValue
+    public String getValue() {
+        return value;
+    }
+
+    // the first day of the period the date falls in
+    public LocalDate startOf(LocalDate date) {
+        return this == MONTH ? date.withDayOfMonth(1) : date;
+    }
+
+    public static RollupPeriod fromValue(String value) {
+        for (RollupPeriod period : RollupPeriod.values()) {
+            if (period.value.equals(value)) {
+                return period;
+            }
+        }
+        throw new IllegalArgumentException("Unknown rollup period " + value);
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+}
@@ -0,0 +1,91 @@
+package com.barclays.api.domain.page;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Objects;
+
+import com.barclays.api.domain.Transaction;
+import com.barclays.api.domain.view.TransactionView;
+
+/**
+ * Position in an account's transaction list: the (createdTimestamp, id) of
+ * the last transaction a page returned. The next page starts strictly after
+ * it, so it can be read from the (account_id, created_timestamp, id) index
+ * without skipping rows, however deep the page.
+ *
+ * Clients see it as an opaque URL-safe string.
+ */
+public final class TransactionCursor {
+
+    private static final char SEPARATOR = '|';
+
+    private final LocalDateTime createdTimestamp;
+    private final String id;
+
+    public TransactionCursor(LocalDateTime createdTimestamp, String id) {
+        this.createdTimestamp = Objects.requireNonNull(createdTimestamp, "createdTimestamp");
+        this.id = Objects.requireNonNull(id, "id");
+    }
+
+    public static TransactionCursor after(Transaction transaction) {
+        return new TransactionCursor(transaction.getCreatedTimestamp(), transaction.getId());
+    }
+
+    public static TransactionCursor after(TransactionView transaction) {
+        return new TransactionCursor(transaction.getCreatedTimestamp(), transaction.getId());
+    }
+
+    /**
+     * @throws IllegalArgumentException if the value wasn't produced by {@link #encode()}
+     */
+    public static TransactionCursor decode(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf(SEPARATOR);
+            if (separator > 0 && separator < decoded.length() - 1) {
+                return new TransactionCursor(LocalDateTime.parse(decoded.substring(0, separator)),
+                        decoded.substring(separator + 1));
+            }
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            // falls through to the same error as a malformed value
+        }
+        throw new IllegalArgumentException("Invalid cursor.");
+    }
+
+    public String encode() {
+        String raw = createdTimestamp.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LocalDateTime getCreatedTimestamp() {
+        return createdTimestamp;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof TransactionCursor)) {
+            return false;
+        }
+        TransactionCursor other = (TransactionCursor) obj;
+        return createdTimestamp.equals(other.createdTimestamp) && id.equals(other.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(createdTimestamp, id);
+    }
+
+    @Override
+    public String toString() {
+        return encode();
+    }
+}
@@ -0,0 +1,108 @@
+package com.barclays.api.domain.page;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import com.barclays.api.domain.enums.TransactionType;
+
+/**
+ * Which of an account's transactions a page is drawn from. Every criterion
+ * is optional; {@code from} is inclusive, {@code to} exclusive and both
+ * amount bounds inclusive.
+ */
+public final class TransactionFilter {
+
+    private static final TransactionFilter NONE = new TransactionFilter(null, null, null, null, null);
+
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+    private final TransactionType type;
+    private final BigDecimal minAmount;
+    private final BigDecimal maxAmount;
+
+    private TransactionFilter(LocalDateTime from, LocalDateTime to, TransactionType type, BigDecimal minAmount,
+                              BigDecimal maxAmount) {
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new IllegalArgumentException("from must be before to.");
+        }
+        if (minAmount != null && maxAmount != null && minAmount.compareTo(maxAmount) > 0) {
+            throw new IllegalArgumentException("minAmount must not be more than maxAmount.");
+        }
+        this.from = from;
+        this.to = to;
+        this.type = type;
+        this.minAmount = minAmount;
+        this.maxAmount = maxAmount;
+    }
+
+    public static TransactionFilter none() {
+        return NONE;
+    }
+
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    public TransactionType getType() {
+        return type;
+    }
+
+    public BigDecimal getMinAmount() {
+        return minAmount;
+    }
+
+    public BigDecimal getMaxAmount() {
+        return maxAmount;
+    }
+
+    // -------- Builder --------
+
+    public static final class Builder {
+        private LocalDateTime from;
+        private LocalDateTime to;
+        private TransactionType type;
+        private BigDecimal minAmount;
+        private BigDecimal maxAmount;
+
+        public static Builder create() {
+            return new Builder();
+        }
+
+        public Builder withFrom(LocalDateTime from) {
+            this.from = from;
+            return this;
+        }
+
+        public Builder withTo(LocalDateTime to) {
+            this.to = to;
+            return this;
+        }
+
+        public Builder withType(TransactionType type) {
+            this.type = type;
+            return this;
+        }
+
+        public Builder withMinAmount(BigDecimal minAmount) {
+            this.minAmount = minAmount;
+            return this;
+        }
+
+        public Builder withMaxAmount(BigDecimal maxAmount) {
+            this.maxAmount = maxAmount;
+            return this;
+        }
+
+        /**
+         * @throws IllegalArgumentException if {@code from} isn't before
+         *         {@code to} or {@code minAmount} is more than {@code maxAmount}
+         */
+        public TransactionFilter build() {
+            return new TransactionFilter(from, to, type, minAmount, maxAmount);
+        }
+    }
+}
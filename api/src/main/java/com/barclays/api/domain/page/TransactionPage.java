@@ -0,0 +1,29 @@
+package com.barclays.api.domain.page;
+
+import java.util.List;
+
+import com.barclays.api.domain.view.TransactionView;
+
+public class TransactionPage {
+
+    private final List<TransactionView> transactions;
+    // null on the last page
+    private final TransactionCursor nextCursor;
+
+    public TransactionPage(List<TransactionView> transactions, TransactionCursor nextCursor) {
+        this.transactions = transactions;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<TransactionView> getTransactions() {
+        return transactions;
+    }
+
+    public TransactionCursor getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
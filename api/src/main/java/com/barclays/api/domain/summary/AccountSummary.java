@@ -0,0 +1,38 @@
+package com.barclays.api.domain.summary;
+
+import java.util.List;
+
+import com.barclays.api.domain.enums.Currency;
+import com.barclays.api.domain.enums.RollupPeriod;
+
+public class AccountSummary {
+
+    private final Long accountId;
+    private final RollupPeriod period;
+    private final Currency currency;
+    // oldest first; periods without transactions are left out
+    private final List<PeriodSummary> periods;
+
+    public AccountSummary(Long accountId, RollupPeriod period, Currency currency, List<PeriodSummary> periods) {
+        this.accountId = accountId;
+        this.period = period;
+        this.currency = currency;
+        this.periods = periods;
+    }
+
+    public Long getAccountId() {
+        return accountId;
+    }
+
+    public RollupPeriod getPeriod() {
+        return period;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public List<PeriodSummary> getPeriods() {
+        return periods;
+    }
+}
@@ -0,0 +1,50 @@
+package com.barclays.api.domain.summary;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import com.barclays.api.dao.PeriodTotal;
+
+public class PeriodSummary {
+
+    // the first day of the day or month
+    private final LocalDate periodStart;
+    private final BigDecimal deposits;
+    private final BigDecimal withdrawals;
+    private final long depositCount;
+    private final long withdrawalCount;
+
+    public PeriodSummary(LocalDate periodStart, BigDecimal deposits, BigDecimal withdrawals, long depositCount,
+            long withdrawalCount) {
+        this.periodStart = periodStart;
+        this.deposits = deposits;
+        this.withdrawals = withdrawals;
+        this.depositCount = depositCount;
+        this.withdrawalCount = withdrawalCount;
+    }
+
+    public static PeriodSummary of(PeriodTotal total) {
+        return new PeriodSummary(total.getPeriodStart(), total.getDeposits(), total.getWithdrawals(),
+            total.getDepositCount(), total.getWithdrawalCount());
+    }
+
+    public LocalDate getPeriodStart() {
+        return periodStart;
+    }
+
+    public BigDecimal getDeposits() {
+        return deposits;
+    }
+
+    public BigDecimal getWithdrawals() {
+        return withdrawals;
+    }
+
+    public long getDepositCount() {
+        return depositCount;
+    }
+
+    public long getWithdrawalCount() {
+        return withdrawalCount;
+    }
+}
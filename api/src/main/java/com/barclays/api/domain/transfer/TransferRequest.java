@@ -0,0 +1,77 @@
+package com.barclays.api.domain.transfer;
+
+import java.math.BigDecimal;
+
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Digits;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+
+import com.barclays.api.domain.enums.Currency;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// money moved from the account in the path to toAccountId - same amount constraints as Transaction
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class TransferRequest {
+
+    @NotNull
+    private Long toAccountId;
+
+    // the client's reference; the two legs are recorded as <transferId>-debit and <transferId>-credit
+    @NotBlank
+    @Size(max = 200)
+    private String transferId;
+
+    @NotNull
+    @DecimalMin(value = "0.01", message = "Amount must be greater than or equal to 0.01")
+    @DecimalMax(value = "10000.00", message = "Amount must be less than or equal to 10000.00")
+    @Digits(integer = 5, fraction = 2)
+    private BigDecimal amount;
+
+    @NotNull
+    private Currency currency = Currency.GBP;
+
+    public TransferRequest() {
+    }
+
+    public TransferRequest(Long toAccountId, String transferId, BigDecimal amount, Currency currency) {
+        this.toAccountId = toAccountId;
+        this.transferId = transferId;
+        this.amount = amount;
+        this.currency = currency;
+    }
+
+    public Long getToAccountId() {
+        return toAccountId;
+    }
+
+    public void setToAccountId(Long toAccountId) {
+        this.toAccountId = toAccountId;
+    }
+
+    public String getTransferId() {
+        return transferId;
+    }
+
+    public void setTransferId(String transferId) {
+        this.transferId = transferId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(Currency currency) {
+        this.currency = currency;
+    }
+}
@@ -0,0 +1,56 @@
+package com.barclays.api.domain.transfer;
+
+import java.math.BigDecimal;
+
+import com.barclays.api.domain.enums.Currency;
+
+public class TransferResponse {
+
+    private final String transferId;
+    private final Long fromAccountId;
+    private final Long toAccountId;
+    private final BigDecimal amount;
+    private final Currency currency;
+    // ids of the withdrawal and deposit that make up the transfer
+    private final String debitId;
+    private final String creditId;
+
+    public TransferResponse(String transferId, Long fromAccountId, Long toAccountId, BigDecimal amount,
+                            Currency currency, String debitId, String creditId) {
+        this.transferId = transferId;
+        this.fromAccountId = fromAccountId;
+        this.toAccountId = toAccountId;
+        this.amount = amount;
+        this.currency = currency;
+        this.debitId = debitId;
+        this.creditId = creditId;
+    }
+
+    public String getTransferId() {
+        return transferId;
+    }
+
+    public Long getFromAccountId() {
+        return fromAccountId;
+    }
+
+    public Long getToAccountId() {
+        return toAccountId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public String getDebitId() {
+        return debitId;
+    }
+
+    public String getCreditId() {
+        return creditId;
+    }
+}
@@ -0,0 +1,91 @@
+package com.barclays.api.domain.view;
+
+import java.math.BigDecimal;
+import java.util.Calendar;
+
+import com.barclays.api.domain.Account;
+import com.barclays.api.domain.enums.AccountType;
+import com.barclays.api.domain.enums.Currency;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * An {@link Account} as list endpoints return it, read straight from its
+ * columns by a constructor expression: never managed, so there is nothing
+ * to snapshot or dirty-check and no proxy for its user. Serialises the same
+ * as the entity.
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class AccountView {
+
+    private final Long id;
+    private final String accountNumber;
+    private final String sortCode;
+    private final String name;
+    private final AccountType accountType;
+    private final BigDecimal balance;
+    private final Currency currency;
+    private final Integer balanceSlots;
+    private final Calendar createdTimestamp;
+    private final Calendar updatedTimestamp;
+
+    public AccountView(Long id, String accountNumber, String sortCode, String name, AccountType accountType,
+            BigDecimal balance, Currency currency, Integer balanceSlots, Calendar createdTimestamp,
+            Calendar updatedTimestamp) {
+        this.id = id;
+        this.accountNumber = accountNumber;
+        this.sortCode = sortCode;
+        this.name = name;
+        this.accountType = accountType;
+        this.balance = balance;
+        this.currency = currency;
+        this.balanceSlots = balanceSlots;
+        this.createdTimestamp = createdTimestamp;
+        this.updatedTimestamp = updatedTimestamp;
+    }
+
+    // the same account with another balance, e.g. a striped account's total
+    public AccountView withBalance(BigDecimal balance) {
+        return new AccountView(id, accountNumber, sortCode, name, accountType, balance, currency, balanceSlots,
+            createdTimestamp, updatedTimestamp);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+
+    public String getSortCode() {
+        return sortCode;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public AccountType getAccountType() {
+        return accountType;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public Integer getBalanceSlots() {
+        return balanceSlots;
+    }
+
+    public Calendar getCreatedTimestamp() {
+        return createdTimestamp;
+    }
+
+    public Calendar getUpdatedTimestamp() {
+        return updatedTimestamp;
+    }
+}
@@ -0,0 +1,66 @@
+package com.barclays.api.domain.view;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import com.barclays.api.domain.Transaction;
+import com.barclays.api.domain.enums.Currency;
+import com.barclays.api.domain.enums.TransactionType;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * A {@link Transaction} as list endpoints return it, read straight from its
+ * columns by a constructor expression: never managed, so a page costs no
+ * snapshots, dirty-checking or proxies for its account and user. Serialises
+ * the same as the entity.
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class TransactionView {
+
+    private final String id;
+    private final String transactionId;
+    private final BigDecimal amount;
+    private final Currency currency;
+    private final TransactionType type;
+    private final BigDecimal balanceAfter;
+    private final LocalDateTime createdTimestamp;
+
+    public TransactionView(String id, String transactionId, BigDecimal amount, Currency currency,
+            TransactionType type, BigDecimal balanceAfter, LocalDateTime createdTimestamp) {
+        this.id = id;
+        this.transactionId = transactionId;
+        this.amount = amount;
+        this.currency = currency;
+        this.type = type;
+        this.balanceAfter = balanceAfter;
+        this.createdTimestamp = createdTimestamp;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public TransactionType getType() {
+        return type;
+    }
+
+    public BigDecimal getBalanceAfter() {
+        return balanceAfter;
+    }
+
+    public LocalDateTime getCreatedTimestamp() {
+        return createdTimestamp;
+    }
+}
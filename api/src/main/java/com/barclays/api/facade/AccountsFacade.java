@@ -1,19 +1,62 @@
 package com.barclays.api.facade;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.validation.annotation.Validated;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.barclays.api.domain.Account;
 import com.barclays.api.domain.Transaction;
 import com.barclays.api.domain.User;
+import com.barclays.api.domain.balance.BalanceAsOf;
+import com.barclays.api.domain.batch.TransactionBatchItem;
+import com.barclays.api.domain.batch.TransactionBatchRequest;
+import com.barclays.api.domain.batch.TransactionBatchResponse;
+import com.barclays.api.domain.batch.TransactionBatchResult;
+import com.barclays.api.domain.enums.ExportFormat;
+import com.barclays.api.domain.enums.RollupPeriod;
+import com.barclays.api.domain.enums.TransactionType;
+import com.barclays.api.domain.page.TransactionCursor;
+import com.barclays.api.domain.page.TransactionFilter;
+import com.barclays.api.domain.page.TransactionPage;
+import com.barclays.api.domain.summary.AccountSummary;
+import com.barclays.api.domain.summary.PeriodSummary;
+import com.barclays.api.domain.transfer.TransferRequest;
+import com.barclays.api.domain.transfer.TransferResponse;
+import com.barclays.api.domain.view.AccountView;
+import com.barclays.api.exceptions.ResourceNotFoundException;
+import com.barclays.api.idempotency.IdempotencyStore;
+import com.barclays.api.idempotency.IdempotentResult;
+import com.barclays.api.ledger.AccountLockManager;
+import com.barclays.api.ledger.GroupCommitter;
+import com.barclays.api.ledger.LedgerEngine;
+import com.barclays.api.ledger.OptimisticRetryPolicy;
+import com.barclays.api.ledger.PostingMode;
+import com.barclays.api.ledger.PostingTimeoutException;
 import com.barclays.api.services.AccountService;
+import com.barclays.api.services.BalanceHistoryService;
 import com.barclays.api.services.IdService;
+import com.barclays.api.services.LedgerService;
+import com.barclays.api.services.TransactionExportService;
+import com.barclays.api.services.TransactionRollupService;
 import com.barclays.api.services.TransactionService;
 import com.barclays.api.services.UserService;
 
@@ -21,25 +64,70 @@ import com.barclays.api.services.UserService;
 @Validated
 public class AccountsFacade {
 
+    // endpoint tags for the optimistic retry metrics
+    static final String TRANSACTIONS_ENDPOINT = "/v1/accounts/{accountId}/transactions";
+    static final String BATCH_ENDPOINT = "/v1/accounts/{accountId}/transactions:batch";
+    static final String CROSS_ACCOUNT_BATCH_ENDPOINT = "/v1/accounts/transactions:batch";
+
+    private static final Logger log = LoggerFactory.getLogger(AccountsFacade.class);
+
     private final AccountService accountService;
     private final UserService userService;
     private final TransactionService transactionService;
+    private final TransactionExportService transactionExportService;
+    private final BalanceHistoryService balanceHistoryService;
+    private final TransactionRollupService transactionRollupService;
     private final IdService idService;
+    private final LedgerService ledgerService;
+    private final LedgerEngine ledgerEngine;
+    private final AccountLockManager accountLockManager;
+    private final GroupCommitter groupCommitter;
+    private final IdempotencyStore idempotencyStore;
+    private final OptimisticRetryPolicy optimisticRetryPolicy;
+    private final PostingMode postingMode;
+    private final int maxBatchSize;
 
     @Autowired
     public AccountsFacade(
         AccountService accountService,
         UserService userService,
         TransactionService transactionService,
-        IdService idService
+        TransactionExportService transactionExportService,
+        BalanceHistoryService balanceHistoryService,
+        TransactionRollupService transactionRollupService,
+        IdService idService,
+        LedgerService ledgerService,
+        LedgerEngine ledgerEngine,
+        AccountLockManager accountLockManager,
+        GroupCommitter groupCommitter,
+        IdempotencyStore idempotencyStore,
+        OptimisticRetryPolicy optimisticRetryPolicy,
+        @Value("${api.ledger.posting-mode:legacy}") PostingMode postingMode,
+        @Value("${api.transactions.max-batch-size:1000}") int maxBatchSize
     ) {
         this.accountService = accountService;
         this.userService = userService;
         this.transactionService = transactionService;
+        this.transactionExportService = transactionExportService;
+        this.balanceHistoryService = balanceHistoryService;
+        this.transactionRollupService = transactionRollupService;
         this.idService = idService;
+        this.ledgerService = ledgerService;
+        this.ledgerEngine = ledgerEngine;
+        this.accountLockManager = accountLockManager;
+        this.groupCommitter = groupCommitter;
+        this.idempotencyStore = idempotencyStore;
+        this.optimisticRetryPolicy = optimisticRetryPolicy;
+        this.postingMode = postingMode;
+        this.maxBatchSize = maxBatchSize;
     }
 
     public Account createAccount(@NotNull Account account, @NotBlank String principalEmail) {
+        if (account.getBalanceSlots() != null && (postingMode == PostingMode.ENGINE || postingMode == PostingMode.JOURNAL)) {
+            // the engine keeps one in-memory balance per account and would never see the slots
+            throw new IllegalArgumentException("Balance slots are not supported by the ledger engine.");
+        }
+
         String sortCode = accountService.getNewSortCode();
         account.setSortCode(sortCode);
 
@@ -53,22 +141,33 @@ public class AccountsFacade {
         return account;
     }
 
-    public List<Account> getAccounts(@NotBlank String principalEmail) {
-        return accountService.getAccounts(principalEmail);
+    public List<AccountView> getAccounts(@NotBlank String principalEmail) {
+        return accountService.getAccountViews(principalEmail);
     }
 
     public Account getAccount(@NotNull Long accountId, @NotBlank String principalEmail) {
-        Account account = accountService.getById(accountId);
-        if (!account.getUser().getEmail().equals(principalEmail)) {
-            throw new SecurityException("Authenticated user does not have access to this account.");
-        }
+        Account account = getOwnedAccount(accountId, userService.findByEmail(principalEmail));
 
+        accountService.includeBalanceSlots(Collections.singletonList(account));
         return account;
     }
 
     public void createTransaction(@NotNull Long accountId, @NotNull Transaction transaction,
         @NotBlank String principalEmail) {
 
+        createTransaction(accountId, transaction, principalEmail, null);
+    }
+
+    /**
+     * Posts a transaction. With an {@code idempotencyKey} a repeat of an
+     * earlier request gets that request's outcome again - a rejection is
+     * thrown again - and the ledger isn't touched.
+     *
+     * @return true if the outcome was replayed from an earlier request
+     */
+    public boolean createTransaction(@NotNull Long accountId, @NotNull Transaction transaction,
+        @NotBlank String principalEmail, String idempotencyKey) {
+
 
         User user = userService.findByEmail(principalEmail);
         transaction.setUser(user);
@@ -77,23 +176,362 @@ public class AccountsFacade {
             throw new SecurityException("Authenticated user does not have access to this account.");
         }
 
-        Account account = accountService.getById(accountId);
+        if (idempotencyKey == null) {
+            post(accountId, transaction, null);
+            return false;
+        }
+
+        // the claim records the posting's id, so a request taking it over can tell whether the posting landed
+        String postingId = idService.generateId("tan");
+        int fingerprint = fingerprint(accountId, transaction);
+        IdempotentResult earlier = idempotencyStore.claim(user.getId(), idempotencyKey, fingerprint, postingId);
+        if (earlier != null) {
+            if (!earlier.isPosted()) {
+                throw new IllegalArgumentException(earlier.getMessage());
+            }
+            transaction.setId(earlier.getTransactionRef());
+            return true;
+        }
+
+        try {
+            post(accountId, transaction, postingId);
+        } catch (IllegalArgumentException ex) {
+            idempotencyStore.rejected(user.getId(), idempotencyKey, fingerprint, ex.getMessage());
+            throw ex;
+        } catch (PostingTimeoutException ex) {
+            // the posting may still land, so the key stays claimed rather than open to a second posting
+            throw ex;
+        } catch (RuntimeException ex) {
+            idempotencyStore.release(user.getId(), idempotencyKey);
+            throw ex;
+        }
+        idempotencyStore.posted(user.getId(), idempotencyKey, fingerprint, transaction.getId());
+        return false;
+    }
+
+    // postingId is generated here when the caller hasn't already picked one
+    private void post(Long accountId, Transaction transaction, String postingId) {
+        Account account = getOwnedAccount(accountId, transaction.getUser());
 
         transaction.setAccount(account);
+        transaction.setId(postingId != null ? postingId : idService.generateId("tan"));
+
+        if (account.getBalanceSlots() != null && postingMode != PostingMode.ENGINE
+                && postingMode != PostingMode.JOURNAL) {
+            postStriped(transaction);
+            return;
+        }
+
+        switch (postingMode) {
+            case ATOMIC:
+                ledgerService.post(transaction);
+                break;
+            case LOCKED:
+                ledgerService.postLocked(transaction);
+                break;
+            case OPTIMISTIC:
+                optimisticRetryPolicy.execute(TRANSACTIONS_ENDPOINT, () -> ledgerService.postOptimistic(transaction));
+                break;
+            case ENGINE:
+            case JOURNAL:
+                ledgerEngine.post(transaction);
+                break;
+            case GROUP_COMMIT:
+                groupCommitter.post(transaction);
+                break;
+            default:
+                transactionService.createTransaction(transaction);
+                accountService.updateBalance(account);
+        }
+    }
+
+    /**
+     * The account, if the principal owns it (see {@link #checkOwner}).
+     */
+    private Account getOwnedAccount(Long accountId, User principal) {
+        checkOwner(accountId, principal);
+        return accountService.getById(accountId);
+    }
+
+    /**
+     * Throws unless the principal owns the account - a missing account is a
+     * 404 whoever asks. Owners are compared by user id, as held in memory by
+     * {@code AccountOwnerIndex}, so the check itself rarely needs a query.
+     */
+    private void checkOwner(Long accountId, User principal) {
+        long ownerId = accountService.getOwnerId(accountId);
+        if (principal == null || principal.getId() == null || principal.getId() != ownerId) {
+            throw new SecurityException("Authenticated user does not have access to this account.");
+        }
+    }
+
+    private void postStriped(Transaction transaction) {
+        if (postingMode == PostingMode.LOCKED && transaction.getType() == TransactionType.WITHDRAWAL) {
+            // a withdrawal writes the account row, which locked postings read and write back under the in-process lock
+            accountLockManager.withLock(transaction.getAccount().getId(), () -> ledgerService.postStriped(transaction));
+        } else {
+            ledgerService.postStriped(transaction);
+        }
+    }
+
+    // identifies the request behind an idempotency key; only stable hash codes, since it is stored
+    private static int fingerprint(Long accountId, Transaction transaction) {
+        return Objects.hash(accountId, transaction.getTransactionId(),
+            transaction.getType() == null ? null : transaction.getType().name(),
+            transaction.getCurrency() == null ? null : transaction.getCurrency().name(),
+            transaction.getAmount() == null ? null : transaction.getAmount().stripTrailingZeros());
+    }
+
+    /**
+     * Posts a batch of transactions. With an {@code accountId} every item goes
+     * to that account; without one each item names its own account.
+     * Items on accounts the principal doesn't own are rejected individually.
+     */
+    public TransactionBatchResponse createTransactions(Long accountId, @NotNull TransactionBatchRequest request,
+        @NotBlank String principalEmail) {
+
+        List<TransactionBatchItem> items = request.getTransactions();
+        if (items.size() > maxBatchSize) {
+            throw new IllegalArgumentException("A batch can contain at most " + maxBatchSize + " transactions.");
+        }
+
+        User user = userService.findByEmail(principalEmail);
+        if (user == null || user.getEmail() == null || !user.getEmail().equals(principalEmail)) {
+            throw new SecurityException("Authenticated user does not have access to this account.");
+        }
+
+        Set<Long> requestedIds = new LinkedHashSet<>();
+        for (TransactionBatchItem item : items) {
+            Long target = accountId != null ? accountId : item.getAccountId();
+            if (target != null) {
+                requestedIds.add(target);
+            }
+        }
+        Set<Long> ownedIds = accountService.findOwnedAccountIds(requestedIds, user.getId());
+
+        List<TransactionBatchResult> results = new ArrayList<>(items.size());
+        List<TransactionBatchResult> postableResults = new ArrayList<>(items.size());
+        List<Transaction> postable = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            TransactionBatchItem item = items.get(i);
+            Long target = accountId != null ? accountId : item.getAccountId();
+            TransactionBatchResult result = new TransactionBatchResult(i, target, item.getTransactionId());
+            results.add(result);
+
+            if (target == null) {
+                result.rejected("An account ID is required for every transaction in a cross-account batch.");
+            } else if (!ownedIds.contains(target)) {
+                result.rejected("Authenticated user does not have access to this account.");
+            } else {
+                postable.add(toTransaction(item, target, user));
+                postableResults.add(result);
+            }
+        }
 
-        String transactionId = idService.generateId("tan");
-        transaction.setId(transactionId);
-        transactionService.createTransaction(transaction);
+        boolean atomic = request.isAtomic();
+        if (atomic && postable.size() < items.size()) {
+            postableResults.forEach(TransactionBatchResult::notPosted);
+            return new TransactionBatchResponse(true, results);
+        }
+
+        String endpoint = accountId != null ? BATCH_ENDPOINT : CROSS_ACCOUNT_BATCH_ENDPOINT;
+        List<String> rejections = postBatch(postable, requestedIds, atomic, endpoint);
+        boolean anyRejected = rejections.stream().anyMatch(rejection -> rejection != null);
+        for (int i = 0; i < postable.size(); i++) {
+            TransactionBatchResult result = postableResults.get(i);
+            if (rejections.get(i) != null) {
+                result.rejected(rejections.get(i));
+            } else if (atomic && anyRejected) {
+                result.notPosted();
+            } else {
+                result.posted(postable.get(i).getId());
+            }
+        }
+        return new TransactionBatchResponse(atomic, results);
+    }
+
+    private List<String> postBatch(List<Transaction> transactions, Set<Long> accountIds, boolean atomic,
+        String endpoint) {
+        if (transactions.isEmpty()) {
+            return new ArrayList<>();
+        }
 
-        accountService.updateBalance(account);
+        switch (postingMode) {
+            case ENGINE:
+            case JOURNAL:
+                if (atomic) {
+                    throw new IllegalArgumentException("Atomic batches are not supported by the ledger engine.");
+                }
+                return postToEngine(transactions);
+            case OPTIMISTIC:
+                return optimisticRetryPolicy.execute(endpoint, () -> ledgerService.postBatchOptimistic(transactions, atomic));
+            case LOCKED:
+                // keep single postings, which only hold the in-process lock, out while the batch runs
+                return accountLockManager.withLocks(accountIds, () -> ledgerService.postBatch(transactions, atomic));
+            default:
+                return ledgerService.postBatch(transactions, atomic);
+        }
     }
 
-    public List<Transaction> getTransactions(@NotNull Long accountId, @NotBlank String principalEmail) {
-        Account account = accountService.getById(accountId);
-        if (!account.getUser().getEmail().equals(principalEmail)) {
+    /**
+     * Hands a non-atomic batch to the ledger engine item by item. If the
+     * engine refuses an item (its ring is full) that item and every one after
+     * it are rejected without being submitted; the items already handed over
+     * still post. The outcomes are waited for within one engine timeout.
+     */
+    private List<String> postToEngine(List<Transaction> transactions) {
+        List<CompletableFuture<Transaction>> outcomes = new ArrayList<>(transactions.size());
+        String refusal = null;
+        for (Transaction transaction : transactions) {
+            try {
+                outcomes.add(ledgerEngine.submit(transaction));
+            } catch (IllegalStateException ex) {
+                refusal = "The ledger is too busy to take the transaction, try again later.";
+                break;
+            }
+        }
+
+        List<String> rejections = new ArrayList<>(transactions.size());
+        for (RuntimeException failure : ledgerEngine.awaitAll(outcomes)) {
+            rejections.add(engineRejection(failure));
+        }
+        while (rejections.size() < transactions.size()) {
+            rejections.add(refusal);
+        }
+        return rejections;
+    }
+
+    // the rejection reasons LedgerService.postBatch gives; anything unexpected isn't passed on to the client
+    private static String engineRejection(RuntimeException failure) {
+        if (failure == null) {
+            return null;
+        }
+        if (failure instanceof PostingTimeoutException) {
+            return "Timed out waiting for the ledger, the transaction may still be posted.";
+        }
+        if (failure instanceof IllegalArgumentException || failure instanceof ResourceNotFoundException) {
+            return failure.getMessage();
+        }
+        log.warn("Ledger engine failed a batch item", failure);
+        return "The ledger could not post the transaction.";
+    }
+
+    /**
+     * Moves money from one of the principal's accounts to any other account,
+     * as a withdrawal and a deposit posted in one DB transaction.
+     */
+    public TransferResponse createTransfer(@NotNull Long accountId, @NotNull TransferRequest request,
+        @NotBlank String principalEmail) {
+
+        User user = userService.findByEmail(principalEmail);
+        if (user == null || user.getEmail() == null || !user.getEmail().equals(principalEmail)) {
             throw new SecurityException("Authenticated user does not have access to this account.");
         }
 
-        return transactionService.getTransactionsByAccountId(accountId);
+        Account from = getOwnedAccount(accountId, user);
+        if (accountId.equals(request.getToAccountId())) {
+            throw new IllegalArgumentException("A transfer needs two different accounts.");
+        }
+        Account to = accountService.getById(request.getToAccountId());
+        if (from.getCurrency() != request.getCurrency() || to.getCurrency() != request.getCurrency()) {
+            throw new IllegalArgumentException("Both accounts must be in the transfer currency.");
+        }
+
+        Transaction debit = transferLeg(request, from, user, TransactionType.WITHDRAWAL, "-debit");
+        Transaction credit = transferLeg(request, to, user, TransactionType.DEPOSIT, "-credit");
+
+        switch (postingMode) {
+            case ENGINE:
+            case JOURNAL:
+                // the engine keeps balances in memory per partition and can't move money between two of them
+                throw new IllegalArgumentException("Transfers are not supported by the ledger engine.");
+            case LOCKED:
+                // keep single postings, which only hold the in-process lock, out while the transfer runs
+                accountLockManager.withLocks(Arrays.asList(from.getId(), to.getId()), () -> {
+                    ledgerService.transfer(debit, credit);
+                    return null;
+                });
+                break;
+            default:
+                ledgerService.transfer(debit, credit);
+        }
+
+        return new TransferResponse(request.getTransferId(), from.getId(), to.getId(), request.getAmount(),
+            request.getCurrency(), debit.getId(), credit.getId());
+    }
+
+    private Transaction transferLeg(TransferRequest request, Account account, User user, TransactionType type,
+        String suffix) {
+
+        Transaction leg = Transaction.Builder.create()
+            .withTransactionId(request.getTransferId() + suffix)
+            .withAmount(request.getAmount())
+            .withCurrency(request.getCurrency())
+            .withType(type)
+            .withUser(user)
+            .withAccount(account)
+            .build();
+        leg.setId(idService.generateId("tan"));
+        return leg;
+    }
+
+    private Transaction toTransaction(TransactionBatchItem item, Long accountId, User user) {
+        Account account = new Account();
+        account.setId(accountId);
+
+        Transaction transaction = Transaction.Builder.create()
+            .withTransactionId(item.getTransactionId())
+            .withAmount(item.getAmount())
+            .withCurrency(item.getCurrency())
+            .withType(item.getType())
+            .withUser(user)
+            .withAccount(account)
+            .build();
+        transaction.setId(idService.generateId("tan"));
+        return transaction;
+    }
+
+    /**
+     * One page of the account's transactions that match {@code filter},
+     * oldest first. {@code cursor} is the next-page cursor of the previous
+     * page (null for the first page) and {@code limit} the page size (null
+     * for the configured maximum).
+     */
+    public TransactionPage getTransactions(@NotNull Long accountId, @NotNull TransactionFilter filter, String cursor,
+            Integer limit, @NotBlank String principalEmail) {
+        checkOwner(accountId, userService.findByEmail(principalEmail));
+
+        TransactionCursor after = cursor == null ? null : TransactionCursor.decode(cursor);
+        return transactionService.getTransactionPage(accountId, filter, after, limit);
+    }
+
+    /**
+     * Checks access straight away, while the request can still fail with an
+     * error response; the returned body then streams every transaction of
+     * the account once the response is being written.
+     */
+    public StreamingResponseBody exportTransactions(@NotNull Long accountId, @NotNull ExportFormat format,
+            @NotBlank String principalEmail) {
+        checkOwner(accountId, userService.findByEmail(principalEmail));
+
+        return out -> transactionExportService.export(accountId, format, out);
+    }
+
+    public BalanceAsOf getBalanceAsOf(@NotNull Long accountId, @NotNull LocalDateTime asOf,
+            @NotBlank String principalEmail) {
+        Account account = getOwnedAccount(accountId, userService.findByEmail(principalEmail));
+
+        return new BalanceAsOf(accountId, asOf, balanceHistoryService.getBalanceAsOf(accountId, asOf),
+            account.getCurrency());
+    }
+
+    public AccountSummary getSummary(@NotNull Long accountId, @NotNull RollupPeriod period, @NotNull LocalDate from,
+            @NotNull LocalDate to, @NotBlank String principalEmail) {
+        Account account = getOwnedAccount(accountId, userService.findByEmail(principalEmail));
+
+        List<PeriodSummary> periods = transactionRollupService.getTotals(accountId, period, from, to).stream()
+            .map(PeriodSummary::of)
+            .collect(Collectors.toList());
+        return new AccountSummary(accountId, period, account.getCurrency(), periods);
     }
 }
@@ -3,6 +3,7 @@ package com.barclays.api.facade;
 import javax.validation.constraints.NotNull;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.annotation.Validated;
 
@@ -32,7 +33,12 @@ public class UserFacade {
             throw new DuplicateResourceException("User with email " + user.getEmail() + " already exists.");
         }
 
-        return userService.saveUser(user);
+        try {
+            return userService.saveUser(user);
+        } catch (DataIntegrityViolationException ex) {
+            // created by a concurrent request since the check above, caught by the unique index on email
+            throw new DuplicateResourceException("User with email " + user.getEmail() + " already exists.");
+        }
     }
 
     public User getUser(@NotNull Long userId, @NotNull String principalEmail) {
@@ -0,0 +1,218 @@
+package com.barclays.api.idempotency;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Bounded in-memory cache of recent idempotency outcomes. Keys are hashed onto
+ * a fixed number of segments, each an insertion-ordered map guarded by its own
+ * monitor, so unrelated keys don't contend and nothing needs a background
+ * thread: entries leave when they are older than {@code ttl-ms} (checked on
+ * every access, oldest first) or when a segment is full (oldest first again).
+ *
+ * A lookup allocates nothing; an insert allocates the map node and nothing
+ * else, since {@link IdempotentResult} carries its own timestamp. Expired
+ * entries are only swept once the oldest one in a segment is due.
+ */
+@Component
+public class IdempotencyCache {
+
+    private static final int MAX_SEGMENTS = 64;
+
+    private final Segment[] segments;
+    private final int mask;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter expiredCounter;
+    private final Counter evictedCounter;
+
+    @Autowired
+    public IdempotencyCache(
+        @Value("${api.idempotency.cache.max-entries:100000}") int maxEntries,
+        @Value("${api.idempotency.cache.ttl-ms:600000}") long ttlMillis,
+        MeterRegistry meterRegistry
+    ) {
+        this(maxEntries, ttlMillis, meterRegistry, System::currentTimeMillis);
+    }
+
+    IdempotencyCache(int maxEntries, long ttlMillis, MeterRegistry meterRegistry, LongSupplier clock) {
+        if (maxEntries <= 0 || ttlMillis <= 0) {
+            throw new IllegalArgumentException("Idempotency cache size and TTL must be positive.");
+        }
+        // a power of two no larger than the capacity, so every segment holds at least one entry
+        int count = Math.min(MAX_SEGMENTS, Integer.highestOneBit(maxEntries));
+        int segmentCapacity = (maxEntries + count - 1) / count;
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+        this.mask = count - 1;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+
+        this.hitCounter = Counter.builder("idempotency.cache.requests").tag("result", "hit")
+                .description("Idempotency key lookups answered from memory")
+                .register(meterRegistry);
+        this.missCounter = Counter.builder("idempotency.cache.requests").tag("result", "miss")
+                .description("Idempotency key lookups that had to go to the database")
+                .register(meterRegistry);
+        this.expiredCounter = Counter.builder("idempotency.cache.evictions").tag("cause", "expired")
+                .description("Idempotency outcomes dropped from memory")
+                .register(meterRegistry);
+        this.evictedCounter = Counter.builder("idempotency.cache.evictions").tag("cause", "size")
+                .description("Idempotency outcomes dropped from memory")
+                .register(meterRegistry);
+        Gauge.builder("idempotency.cache.size", this, IdempotencyCache::size)
+                .description("Idempotency outcomes held in memory")
+                .register(meterRegistry);
+        Gauge.builder("idempotency.cache.hit.ratio", this, IdempotencyCache::hitRatio)
+                .description("Share of idempotency key lookups answered from memory")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Stores {@code value} unless an unexpired entry is already there.
+     *
+     * @return the entry that was already there (a hit), or null if
+     *         {@code value} was stored (a miss)
+     */
+    public IdempotentResult putIfAbsent(String key, IdempotentResult value) {
+        Segment segment = segmentFor(key);
+        long now = clock.getAsLong();
+        IdempotentResult existing;
+        synchronized (segment) {
+            segment.expire(now);
+            existing = segment.get(key);
+            if (existing != null && now - existing.getRecordedAtMillis() >= ttlMillis) {
+                segment.remove(key);
+                expiredCounter.increment();
+                existing = null;
+            }
+            if (existing == null) {
+                segment.put(key, value);
+            }
+        }
+        if (existing != null) {
+            hits.increment();
+            hitCounter.increment();
+        } else {
+            misses.increment();
+            missCounter.increment();
+        }
+        return existing;
+    }
+
+    public void put(String key, IdempotentResult value) {
+        Segment segment = segmentFor(key);
+        long now = clock.getAsLong();
+        synchronized (segment) {
+            segment.expire(now);
+            // re-insert rather than replace, so the entry moves to the back with its new timestamp
+            segment.remove(key);
+            segment.put(key, value);
+        }
+    }
+
+    public void remove(String key) {
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            segment.remove(key);
+        }
+    }
+
+    /**
+     * Removes the entry for {@code key} if it is still {@code expected}.
+     */
+    public void remove(String key, IdempotentResult expected) {
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            segment.remove(key, expected);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public double hitRatio() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    private Segment segmentFor(String key) {
+        int h = key.hashCode();
+        return segments[(h ^ (h >>> 16)) & mask];
+    }
+
+    private final class Segment extends LinkedHashMap<String, IdempotentResult> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+        // when the head entry expires; sweeping before then would find nothing
+        private long nextExpiry = Long.MAX_VALUE;
+
+        private Segment(int capacity) {
+            super(16, 0.75f, false);
+            this.capacity = capacity;
+        }
+
+        // insertion order is expiry order, so only the head ever needs looking at
+        private void expire(long now) {
+            if (now < nextExpiry) {
+                return;
+            }
+            Iterator<IdempotentResult> iterator = values().iterator();
+            while (iterator.hasNext()) {
+                long recordedAt = iterator.next().getRecordedAtMillis();
+                if (now - recordedAt < ttlMillis) {
+                    nextExpiry = recordedAt + ttlMillis;
+                    return;
+                }
+                iterator.remove();
+                expiredCounter.increment();
+            }
+            nextExpiry = Long.MAX_VALUE;
+        }
+
+        @Override
+        public IdempotentResult put(String key, IdempotentResult value) {
+            if (isEmpty()) {
+                nextExpiry = value.getRecordedAtMillis() + ttlMillis;
+            }
+            return super.put(key, value);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, IdempotentResult> eldest) {
+            if (size() <= capacity) {
+                return false;
+            }
+            evictedCounter.increment();
+            return true;
+        }
+    }
+}
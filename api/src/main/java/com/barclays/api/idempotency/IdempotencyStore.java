@@ -0,0 +1,222 @@
+package com.barclays.api.idempotency;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import com.barclays.api.dao.IdempotencyRecordDao;
+import com.barclays.api.dao.TransactionDao;
+import com.barclays.api.domain.IdempotencyRecord;
+import com.barclays.api.domain.enums.IdempotencyStatus;
+import com.barclays.api.exceptions.DuplicateResourceException;
+
+/**
+ * Remembers the outcome of requests sent with an Idempotency-Key. Recent
+ * outcomes are answered from {@link IdempotencyCache}; the
+ * {@code idempotency_keys} table is the fallback for keys the cache has
+ * dropped, for restarts and for other api nodes, and is what makes a claim
+ * exclusive: a key is only claimed once its row has been inserted.
+ *
+ * A request {@link #claim claims} its key before it posts anything, then
+ * records {@link #posted} or {@link #rejected}, or {@link #release releases}
+ * the key if it failed without an outcome worth repeating. A claim that is
+ * still pending after {@code pending-lease-ms} - its node crashed, or
+ * couldn't store the outcome - is taken to be abandoned. The claim holds the
+ * id its posting was given, so the next request with the key first looks
+ * for that posting: if it landed, the key is recorded as posted and that is
+ * the answer; only if it didn't is the claim taken over and posted again.
+ */
+@Component
+public class IdempotencyStore {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    public static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyCache cache;
+    private final IdempotencyRecordDao idempotencyRecordDao;
+    private final TransactionDao transactionDao;
+    private final Duration retention;
+    private final Duration pendingLease;
+    private final long purgeIntervalMillis;
+    private final AtomicLong lastPurgeMillis = new AtomicLong(System.currentTimeMillis());
+
+    @Autowired
+    public IdempotencyStore(
+        IdempotencyCache cache,
+        IdempotencyRecordDao idempotencyRecordDao,
+        TransactionDao transactionDao,
+        @Value("${api.idempotency.retention-hours:24}") long retentionHours,
+        @Value("${api.idempotency.pending-lease-ms:300000}") long pendingLeaseMillis,
+        @Value("${api.idempotency.purge-interval-ms:60000}") long purgeIntervalMillis
+    ) {
+        this.cache = cache;
+        this.idempotencyRecordDao = idempotencyRecordDao;
+        this.transactionDao = transactionDao;
+        this.retention = Duration.ofHours(retentionHours);
+        this.pendingLease = Duration.ofMillis(pendingLeaseMillis);
+        this.purgeIntervalMillis = purgeIntervalMillis;
+    }
+
+    /**
+     * Claims {@code key} for a request with the given fingerprint, whose
+     * posting will have the id {@code transactionRef}.
+     *
+     * @return null if the caller now owns the key and should go ahead, or the
+     *         outcome of the earlier request with the same key
+     * @throws IllegalArgumentException if the key is invalid or was used for a
+     *         different request
+     * @throws DuplicateResourceException if the earlier request is still in
+     *         progress
+     */
+    public IdempotentResult claim(Long userId, String key, int fingerprint, String transactionRef) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be between 1 and " + MAX_KEY_LENGTH + " characters.");
+        }
+        String id = scopedKey(userId, key);
+        long now = System.currentTimeMillis();
+        IdempotentResult pending = new IdempotentResult(IdempotencyStatus.PENDING, fingerprint, transactionRef, null, now);
+
+        IdempotentResult cached = cache.putIfAbsent(id, pending);
+        if (cached != null) {
+            return verify(cached, fingerprint);
+        }
+
+        // this node hadn't seen the key recently - the table decides
+        try {
+            purgeExpired(now);
+            IdempotencyRecord stored = idempotencyRecordDao.findById(id).orElse(null);
+            if (stored != null && !isExpired(stored)) {
+                IdempotentResult earlier = IdempotentResult.of(stored, now);
+                if (earlier.getStatus() == IdempotencyStatus.PENDING) {
+                    if (earlier.getFingerprint() == fingerprint && isAbandoned(stored)) {
+                        if (hasPosted(stored)) {
+                            // the abandoned request did post, it just never said so
+                            return complete(userId, key, fingerprint, IdempotencyStatus.POSTED,
+                                    stored.getTransactionRef(), null);
+                        }
+                        if (takeOver(stored, transactionRef)) {
+                            return null;
+                        }
+                    }
+                    cache.remove(id, pending);
+                } else {
+                    cache.put(id, earlier);
+                }
+                return verify(earlier, fingerprint);
+            }
+            if (stored != null) {
+                idempotencyRecordDao.delete(stored);
+            }
+            idempotencyRecordDao.insert(new IdempotencyRecord(id, userId, fingerprint, IdempotencyStatus.PENDING,
+                    transactionRef, null, LocalDateTime.now()));
+            return null;
+        } catch (DataIntegrityViolationException ex) {
+            // another node claimed it between our read and insert
+            cache.remove(id, pending);
+            throw inProgress();
+        } catch (RuntimeException ex) {
+            cache.remove(id, pending);
+            throw ex;
+        }
+    }
+
+    public void posted(Long userId, String key, int fingerprint, String transactionRef) {
+        complete(userId, key, fingerprint, IdempotencyStatus.POSTED, transactionRef, null);
+    }
+
+    public void rejected(Long userId, String key, int fingerprint, String message) {
+        if (message != null && message.length() > IdempotencyRecord.MAX_MESSAGE_LENGTH) {
+            message = message.substring(0, IdempotencyRecord.MAX_MESSAGE_LENGTH);
+        }
+        complete(userId, key, fingerprint, IdempotencyStatus.REJECTED, null, message);
+    }
+
+    /**
+     * Gives up a claimed key, so the request can be tried again with it.
+     */
+    public void release(Long userId, String key) {
+        String id = scopedKey(userId, key);
+        cache.remove(id);
+        try {
+            idempotencyRecordDao.deleteById(id);
+        } catch (RuntimeException ex) {
+            log.warn("Could not release idempotency key {}", id, ex);
+        }
+    }
+
+    private IdempotentResult complete(Long userId, String key, int fingerprint, IdempotencyStatus status,
+            String transactionRef, String message) {
+        String id = scopedKey(userId, key);
+        IdempotentResult result = new IdempotentResult(status, fingerprint, transactionRef, message,
+                System.currentTimeMillis());
+        cache.put(id, result);
+        try {
+            idempotencyRecordDao.save(new IdempotencyRecord(id, userId, fingerprint, status, transactionRef, message,
+                    LocalDateTime.now()));
+        } catch (RuntimeException ex) {
+            // the outcome stands; other nodes, and this one once the cache drops it, will see the key as in progress
+            log.warn("Could not store the outcome for idempotency key {}", id, ex);
+        }
+        return result;
+    }
+
+    private static IdempotentResult verify(IdempotentResult earlier, int fingerprint) {
+        if (earlier.getFingerprint() != fingerprint) {
+            throw new IllegalArgumentException("Idempotency-Key was already used for a different request.");
+        }
+        if (earlier.getStatus() == IdempotencyStatus.PENDING) {
+            throw inProgress();
+        }
+        return earlier;
+    }
+
+    private static DuplicateResourceException inProgress() {
+        return new DuplicateResourceException("A request with this Idempotency-Key is still being processed.");
+    }
+
+    private boolean isAbandoned(IdempotencyRecord record) {
+        return record.getCreatedTimestamp().isBefore(LocalDateTime.now().minus(pendingLease));
+    }
+
+    private boolean hasPosted(IdempotencyRecord record) {
+        return record.getTransactionRef() != null && transactionDao.existsTransactionById(record.getTransactionRef());
+    }
+
+    // the conditional update lets only one of the requests racing for an abandoned claim have it
+    private boolean takeOver(IdempotencyRecord record, String transactionRef) {
+        LocalDateTime now = LocalDateTime.now();
+        if (idempotencyRecordDao.takeOverPending(record.getId(), now.minus(pendingLease), now, transactionRef) != 1) {
+            return false;
+        }
+        log.info("Took over idempotency key {}, abandoned since {}", record.getId(), record.getCreatedTimestamp());
+        return true;
+    }
+
+    private boolean isExpired(IdempotencyRecord record) {
+        return record.getCreatedTimestamp().isBefore(LocalDateTime.now().minus(retention));
+    }
+
+    // at most once per interval, and only by whichever request gets there first
+    private void purgeExpired(long now) {
+        long last = lastPurgeMillis.get();
+        if (now - last < purgeIntervalMillis || !lastPurgeMillis.compareAndSet(last, now)) {
+            return;
+        }
+        int purged = idempotencyRecordDao.deleteCreatedBefore(LocalDateTime.now().minus(retention));
+        if (purged > 0) {
+            log.debug("Purged {} expired idempotency keys", purged);
+        }
+    }
+
+    private static String scopedKey(Long userId, String key) {
+        return userId + ":" + key;
+    }
+}
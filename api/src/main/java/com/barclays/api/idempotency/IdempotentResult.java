@@ -0,0 +1,56 @@
+package com.barclays.api.idempotency;
+
+import com.barclays.api.domain.IdempotencyRecord;
+import com.barclays.api.domain.enums.IdempotencyStatus;
+
+/**
+ * What happened to a request sent with an Idempotency-Key. Immutable, and the
+ * only object the cache keeps per key; {@code recordedAtMillis} is what it
+ * expires by.
+ */
+public final class IdempotentResult {
+
+    private final IdempotencyStatus status;
+    private final int fingerprint;
+    private final String transactionRef;
+    private final String message;
+    private final long recordedAtMillis;
+
+    public IdempotentResult(IdempotencyStatus status, int fingerprint, String transactionRef, String message,
+            long recordedAtMillis) {
+        this.status = status;
+        this.fingerprint = fingerprint;
+        this.transactionRef = transactionRef;
+        this.message = message;
+        this.recordedAtMillis = recordedAtMillis;
+    }
+
+    static IdempotentResult of(IdempotencyRecord record, long recordedAtMillis) {
+        return new IdempotentResult(record.getStatus(), record.getFingerprint(), record.getTransactionRef(),
+                record.getMessage(), recordedAtMillis);
+    }
+
+    public boolean isPosted() {
+        return status == IdempotencyStatus.POSTED;
+    }
+
+    public IdempotencyStatus getStatus() {
+        return status;
+    }
+
+    public int getFingerprint() {
+        return fingerprint;
+    }
+
+    public String getTransactionRef() {
+        return transactionRef;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public long getRecordedAtMillis() {
+        return recordedAtMillis;
+    }
+}
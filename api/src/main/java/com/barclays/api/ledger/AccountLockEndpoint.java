@@ -0,0 +1,26 @@
+package com.barclays.api.ledger;
+
+import java.util.List;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+// GET /actuator/ledgerlocks - the stripes with the most accumulated wait time
+@Component
+@Endpoint(id = "ledgerlocks")
+public class AccountLockEndpoint {
+
+    private static final int MAX_STRIPES = 20;
+
+    private final AccountLockManager accountLockManager;
+
+    public AccountLockEndpoint(AccountLockManager accountLockManager) {
+        this.accountLockManager = accountLockManager;
+    }
+
+    @ReadOperation
+    public List<AccountLockManager.StripeStats> hottestStripes() {
+        return accountLockManager.hottestStripes(MAX_STRIPES);
+    }
+}
@@ -0,0 +1,247 @@
+package com.barclays.api.ledger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * In-process locks that serialise work on the same account while unrelated
+ * accounts proceed in parallel. Accounts are hashed onto a fixed number of
+ * stripes, so memory doesn't grow with the number of accounts.
+ *
+ * Only serialises callers inside this JVM - it is not a substitute for
+ * database locking when several api nodes write to the same account.
+ */
+@Component
+public class AccountLockManager {
+
+    private final Stripe[] stripes;
+    private final int mask;
+
+    private final Timer waitTimer;
+    private final Counter contendedCounter;
+
+    @Autowired
+    public AccountLockManager(
+        @Value("${api.ledger.lock-stripes:1024}") int stripeCount,
+        MeterRegistry meterRegistry
+    ) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("Lock stripe count must be positive.");
+        }
+        // round up to a power of two so the stripe index is a mask, not a modulo
+        int size = Integer.highestOneBit(stripeCount - 1) << 1;
+        if (stripeCount == 1) {
+            size = 1;
+        }
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Stripe(i);
+        }
+        this.mask = size - 1;
+
+        this.waitTimer = Timer.builder("ledger.lock.wait")
+                .description("Time spent waiting for a contended account lock")
+                .register(meterRegistry);
+        this.contendedCounter = Counter.builder("ledger.lock.contended")
+                .description("Account lock acquisitions that had to wait")
+                .register(meterRegistry);
+        Gauge.builder("ledger.lock.queue.depth", this, AccountLockManager::totalQueueDepth)
+                .description("Threads currently waiting for any account lock")
+                .register(meterRegistry);
+        Gauge.builder("ledger.lock.queue.depth.max", this, AccountLockManager::maxQueueDepth)
+                .description("Threads currently waiting on the hottest stripe")
+                .register(meterRegistry);
+    }
+
+    public <T> T withLock(Long accountId, Supplier<T> work) {
+        Stripe stripe = stripeFor(accountId);
+        stripe.acquire();
+        try {
+            return work.get();
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    public void withLock(Long accountId, Runnable work) {
+        withLock(accountId, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Holds the locks of all the given accounts while {@code work} runs.
+     * Stripes are taken in index order, so two callers with overlapping
+     * account sets can't deadlock.
+     */
+    public <T> T withLocks(Collection<Long> accountIds, Supplier<T> work) {
+        TreeSet<Integer> indexes = new TreeSet<>();
+        for (Long accountId : accountIds) {
+            indexes.add(indexFor(accountId));
+        }
+
+        List<Stripe> held = new ArrayList<>(indexes.size());
+        try {
+            for (Integer index : indexes) {
+                Stripe stripe = stripes[index];
+                stripe.acquire();
+                held.add(stripe);
+            }
+            return work.get();
+        } finally {
+            for (int i = held.size() - 1; i >= 0; i--) {
+                held.get(i).lock.unlock();
+            }
+        }
+    }
+
+    public boolean isHeldByCurrentThread(Long accountId) {
+        return stripeFor(accountId).lock.isHeldByCurrentThread();
+    }
+
+    public int stripeCount() {
+        return stripes.length;
+    }
+
+    /**
+     * Per-stripe contention counters for the {@code limit} stripes with the
+     * most accumulated wait time.
+     */
+    public List<StripeStats> hottestStripes(int limit) {
+        List<StripeStats> stats = new ArrayList<>(stripes.length);
+        for (Stripe stripe : stripes) {
+            if (stripe.contended.sum() > 0 || stripe.queueDepth.get() > 0) {
+                stats.add(stripe.snapshot());
+            }
+        }
+        stats.sort(Comparator.comparingLong(StripeStats::getWaitNanos).reversed());
+        return stats.size() > limit ? stats.subList(0, limit) : stats;
+    }
+
+    int indexFor(Long accountId) {
+        long h = accountId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private Stripe stripeFor(Long accountId) {
+        return stripes[indexFor(accountId)];
+    }
+
+    private double totalQueueDepth() {
+        long total = 0;
+        for (Stripe stripe : stripes) {
+            total += stripe.queueDepth.get();
+        }
+        return total;
+    }
+
+    private double maxQueueDepth() {
+        int max = 0;
+        for (Stripe stripe : stripes) {
+            max = Math.max(max, stripe.queueDepth.get());
+        }
+        return max;
+    }
+
+    private final class Stripe {
+        private final int index;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LongAdder acquisitions = new LongAdder();
+        private final LongAdder contended = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+        private final AtomicInteger queueDepth = new AtomicInteger();
+        private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+        private Stripe(int index) {
+            this.index = index;
+        }
+
+        private void acquire() {
+            acquisitions.increment();
+            // fast path: a single CAS when nobody holds the stripe
+            if (lock.tryLock()) {
+                return;
+            }
+
+            int depth = queueDepth.incrementAndGet();
+            maxQueueDepth.accumulateAndGet(depth, Math::max);
+            long start = System.nanoTime();
+            try {
+                lock.lock();
+            } finally {
+                queueDepth.decrementAndGet();
+                long waited = System.nanoTime() - start;
+                waitNanos.add(waited);
+                contended.increment();
+                contendedCounter.increment();
+                waitTimer.record(waited, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private StripeStats snapshot() {
+            return new StripeStats(index, acquisitions.sum(), contended.sum(), waitNanos.sum(),
+                    queueDepth.get(), maxQueueDepth.get());
+        }
+    }
+
+    public static final class StripeStats {
+        private final int stripe;
+        private final long acquisitions;
+        private final long contended;
+        private final long waitNanos;
+        private final int queueDepth;
+        private final int maxQueueDepth;
+
+        public StripeStats(int stripe, long acquisitions, long contended, long waitNanos,
+                int queueDepth, int maxQueueDepth) {
+            this.stripe = stripe;
+            this.acquisitions = acquisitions;
+            this.contended = contended;
+            this.waitNanos = waitNanos;
+            this.queueDepth = queueDepth;
+            this.maxQueueDepth = maxQueueDepth;
+        }
+
+        public int getStripe() {
+            return stripe;
+        }
+
+        public long getAcquisitions() {
+            return acquisitions;
+        }
+
+        public long getContended() {
+            return contended;
+        }
+
+        public long getWaitNanos() {
+            return waitNanos;
+        }
+
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        public int getMaxQueueDepth() {
+            return maxQueueDepth;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.barclays.api.ledger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.barclays.api.domain.Transaction;
+import com.barclays.api.services.LedgerService;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Group commit for postings. Request threads enqueue their transaction and
+ * block; a single committer thread collects whatever arrives within
+ * {@code max-wait-micros} of the first posting (up to {@code max-batch-size})
+ * and commits the group with {@link LedgerService#postBatch}, so N postings
+ * pay for one DB transaction and one flush. Each caller is released only
+ * after its group has committed. If the group's commit fails, its postings
+ * are committed again one at a time, so the failure reaches only the
+ * postings that cause it. At most {@code queue-size} postings wait for the
+ * committer; past that, postings are refused.
+ */
+@Component
+public class GroupCommitter implements Runnable {
+
+    private final LedgerService ledgerService;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final long timeoutMillis;
+
+    private final BlockingQueue<Posting> queue;
+    private final DistributionSummary batchSizes;
+    private final Timer commitLatency;
+
+    private volatile boolean running;
+    private Thread committer;
+
+    @Autowired
+    public GroupCommitter(
+        LedgerService ledgerService,
+        MeterRegistry meterRegistry,
+        @Value("${api.ledger.posting-mode:legacy}") PostingMode postingMode,
+        @Value("${api.ledger.group-commit.max-batch-size:256}") int maxBatchSize,
+        @Value("${api.ledger.group-commit.max-wait-micros:500}") long maxWaitMicros,
+        @Value("${api.ledger.group-commit.queue-size:4096}") int queueSize,
+        @Value("${api.ledger.group-commit.timeout-ms:5000}") long timeoutMillis
+    ) {
+        this.ledgerService = ledgerService;
+        this.enabled = postingMode == PostingMode.GROUP_COMMIT;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+        this.timeoutMillis = timeoutMillis;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+
+        this.batchSizes = DistributionSummary.builder("ledger.group-commit.batch.size")
+                .description("Postings committed per group")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.commitLatency = Timer.builder("ledger.group-commit.latency")
+                .description("Time to commit one group")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled || committer != null) {
+            return;
+        }
+        running = true;
+        committer = new Thread(this, "ledger-group-committer");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (committer == null) {
+            return;
+        }
+        running = false;
+        committer.interrupt();
+        try {
+            committer.join(5000);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        committer = null;
+
+        List<Posting> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        for (Posting posting : pending) {
+            posting.outcome.completeExceptionally(new IllegalStateException("Group committer stopped."));
+        }
+    }
+
+    /**
+     * @throws IllegalStateException if the committer isn't running or too
+     *         many postings are already waiting; the posting was not taken
+     */
+    public Transaction post(Transaction transaction) {
+        if (committer == null) {
+            throw new IllegalStateException("Group committer is not running.");
+        }
+        Posting posting = new Posting(transaction);
+        if (!queue.offer(posting)) {
+            throw new IllegalStateException("Group committer is saturated, try again later.");
+        }
+        return PostingFutures.await(posting.outcome, timeoutMillis);
+    }
+
+    @Override
+    public void run() {
+        List<Posting> group = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                collect(group);
+                commit(group);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                for (Posting posting : group) {
+                    posting.outcome.completeExceptionally(new IllegalStateException("Group committer stopped."));
+                }
+                return;
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void collect(List<Posting> group) throws InterruptedException {
+        group.add(queue.take());
+        long deadline = System.nanoTime() + maxWaitNanos;
+        while (group.size() < maxBatchSize) {
+            // take whatever is already queued before deciding to wait
+            queue.drainTo(group, maxBatchSize - group.size());
+            long remaining = deadline - System.nanoTime();
+            if (group.size() >= maxBatchSize || remaining <= 0) {
+                return;
+            }
+            Posting next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            group.add(next);
+        }
+    }
+
+    private void commit(List<Posting> group) {
+        List<Transaction> transactions = new ArrayList<>(group.size());
+        for (Posting posting : group) {
+            transactions.add(posting.transaction);
+        }
+
+        List<String> rejections;
+        long start = System.nanoTime();
+        try {
+            rejections = ledgerService.postBatch(transactions, false);
+        } catch (RuntimeException ex) {
+            if (group.size() == 1) {
+                group.get(0).outcome.completeExceptionally(ex);
+            } else {
+                commitOneByOne(group);
+            }
+            return;
+        } finally {
+            commitLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            batchSizes.record(group.size());
+        }
+
+        for (int i = 0; i < group.size(); i++) {
+            complete(group.get(i), rejections.get(i));
+        }
+    }
+
+    // after a failed group: each posting in a DB transaction of its own, so one bad posting fails alone
+    private void commitOneByOne(List<Posting> group) {
+        for (Posting posting : group) {
+            try {
+                complete(posting, ledgerService.postBatch(List.of(posting.transaction), false).get(0));
+            } catch (RuntimeException ex) {
+                posting.outcome.completeExceptionally(ex);
+            }
+        }
+    }
+
+    private static void complete(Posting posting, String rejection) {
+        if (rejection == null) {
+            posting.outcome.complete(posting.transaction);
+        } else {
+            posting.outcome.completeExceptionally(new IllegalArgumentException(rejection));
+        }
+    }
+
+    private static final class Posting {
+        private final Transaction transaction;
+        private final CompletableFuture<Transaction> outcome = new CompletableFuture<>();
+
+        private Posting(Transaction transaction) {
+            this.transaction = transaction;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.barclays.api.ledger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.barclays.api.dao.AccountDao;
+import com.barclays.api.domain.Money;
+import com.barclays.api.domain.Transaction;
+import com.barclays.api.exceptions.DuplicateResourceException;
+import com.barclays.api.ledger.journal.JournalProjector;
+import com.barclays.api.ledger.journal.TransactionJournal;
+import com.barclays.api.ledger.snapshot.BalanceSnapshotStore;
+import com.barclays.api.ledger.snapshot.SnapshotBalances;
+import com.barclays.api.services.LedgerService;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Single-writer posting pipeline. Each account hashes to one partition, and
+ * each partition owns a bounded ring of pending postings, an in-memory view
+ * of its accounts' balances and the only thread allowed to change them. The
+ * writer applies postings in arrival order and persists them in batches, so
+ * the hot path never waits on a DB row lock.
+ *
+ * Each partition keeps at most {@code max-cached-balances} balances, the
+ * accounts posted to most recently, and reloads the others on their next
+ * posting. How many are held is published as
+ * {@code ledger.engine.balances.cached}.
+ *
+ * The engine assumes it is the only writer of balances for the accounts it
+ * has cached - run it on a single api node and don't mix it with the other
+ * posting modes against the same database.
+ *
+ * In {@link PostingMode#JOURNAL} mode a batch is written to the
+ * {@link TransactionJournal} instead of the database, and the
+ * {@link JournalProjector} applies it later. Balances are then first looked
+ * up in the newest balance snapshot plus the journal tail after it, so a
+ * restarted node doesn't have to wait on the database to warm up. A
+ * posting whose transaction id is already in the database or the journal
+ * is refused before it is journalled.
+ */
+@Component
+public class LedgerEngine {
+
+    private final LedgerService ledgerService;
+    private final AccountDao accountDao;
+    private final TransactionJournal journal;
+    private final JournalProjector journalProjector;
+    private final BalanceSnapshotStore snapshotStore;
+    private final boolean enabled;
+    private final boolean journalled;
+    private final int partitionCount;
+    private final int ringSize;
+    private final int maxBatchSize;
+    private final int maxCachedBalances;
+    private final long timeoutMillis;
+
+    private LedgerPartition[] partitions;
+    private volatile SnapshotBalances snapshotBalances;
+
+    @Autowired
+    public LedgerEngine(
+        LedgerService ledgerService,
+        AccountDao accountDao,
+        TransactionJournal journal,
+        JournalProjector journalProjector,
+        BalanceSnapshotStore snapshotStore,
+        MeterRegistry meterRegistry,
+        @Value("${api.ledger.posting-mode:legacy}") PostingMode postingMode,
+        @Value("${api.ledger.engine.partitions:4}") int partitionCount,
+        @Value("${api.ledger.engine.ring-size:4096}") int ringSize,
+        @Value("${api.ledger.engine.max-batch-size:256}") int maxBatchSize,
+        @Value("${api.ledger.engine.max-cached-balances:250000}") int maxCachedBalances,
+        @Value("${api.ledger.engine.timeout-ms:5000}") long timeoutMillis
+    ) {
+        this.ledgerService = ledgerService;
+        this.accountDao = accountDao;
+        this.journal = journal;
+        this.journalProjector = journalProjector;
+        this.snapshotStore = snapshotStore;
+        this.enabled = postingMode == PostingMode.ENGINE || postingMode == PostingMode.JOURNAL;
+        this.journalled = postingMode == PostingMode.JOURNAL;
+        this.partitionCount = partitionCount;
+        this.ringSize = ringSize;
+        this.maxBatchSize = maxBatchSize;
+        this.maxCachedBalances = maxCachedBalances;
+        this.timeoutMillis = timeoutMillis;
+
+        Gauge.builder("ledger.engine.balances.cached", this, LedgerEngine::cachedBalances)
+                .description("Account balances held in memory across the engine's partitions")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled || partitions != null) {
+            return;
+        }
+        BiConsumer<List<Transaction>, Map<Long, Money>> batchWriter = journalled
+            ? (transactions, balances) -> appendToJournal(transactions)
+            : ledgerService::persistBatch;
+        if (journalled) {
+            SnapshotBalances warm = SnapshotBalances.load(snapshotStore, journal);
+            // the tail would count a record the projector set aside
+            if (warm != null && ledgerService.hasJournalRejectionsAfter(warm.getSequence())) {
+                warm = null;
+            }
+            snapshotBalances = warm;
+            journalProjector.addRejectionListener(this::journalRecordRejected);
+        }
+
+        partitions = new LedgerPartition[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            partitions[i] = new LedgerPartition(i, ringSize, maxBatchSize, maxCachedBalances, this::loadBalance,
+                batchWriter, this::balancesEvicted);
+            partitions[i].start();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (partitions == null) {
+            return;
+        }
+        for (LedgerPartition partition : partitions) {
+            partition.stop();
+        }
+        partitions = null;
+    }
+
+    /**
+     * Hands the posting to the account's partition and waits for the outcome.
+     * Refused withdrawals surface as the same IllegalArgumentException the
+     * other posting modes throw.
+     */
+    public Transaction post(Transaction transaction) {
+        return PostingFutures.await(submit(transaction), timeoutMillis);
+    }
+
+    /**
+     * Waits for postings submitted together, all of them within one engine
+     * timeout rather than one each.
+     *
+     * @return each posting's failure, in order, or null where it was posted;
+     *         a posting still pending at the deadline fails with
+     *         {@link PostingTimeoutException}
+     */
+    public List<RuntimeException> awaitAll(List<CompletableFuture<Transaction>> outcomes) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        List<RuntimeException> failures = new ArrayList<>(outcomes.size());
+        for (CompletableFuture<Transaction> outcome : outcomes) {
+            long remaining = Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+            try {
+                PostingFutures.await(outcome, remaining);
+                failures.add(null);
+            } catch (RuntimeException ex) {
+                failures.add(ex);
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Hands the posting to the account's partition without waiting. In
+     * journal mode a transaction id already posted fails the posting with
+     * {@link DuplicateResourceException}.
+     *
+     * @throws IllegalStateException if the engine isn't running or the
+     *         partition's ring is full; the posting was not taken
+     */
+    public CompletableFuture<Transaction> submit(Transaction transaction) {
+        if (partitions == null) {
+            throw new IllegalStateException("Ledger engine is not running.");
+        }
+        LedgerPartition partition = partitions[partitionFor(transaction.getAccount().getId())];
+        if (!journalled) {
+            return partition.submit(transaction);
+        }
+
+        String transactionId = transaction.getTransactionId();
+        try {
+            journal.checkAppendable(transaction);
+            journalProjector.claimTransactionId(transactionId);
+        } catch (IllegalArgumentException | DuplicateResourceException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+        CompletableFuture<Transaction> outcome;
+        try {
+            outcome = partition.submit(transaction);
+        } catch (RuntimeException ex) {
+            journalProjector.releaseTransactionId(transactionId);
+            throw ex;
+        }
+        // a posting that didn't make it into the journal leaves its id free - before the caller hears of it
+        return outcome.whenComplete((posted, ex) -> {
+            if (ex != null) {
+                journalProjector.releaseTransactionId(transactionId);
+            }
+        });
+    }
+
+    int partitionFor(Long accountId) {
+        return Math.floorMod(Long.hashCode(accountId), partitionCount);
+    }
+
+    private void appendToJournal(List<Transaction> transactions) {
+        try {
+            journal.append(transactions);
+        } catch (RuntimeException ex) {
+            // the partition reloads what it touched, and only the DB has seen appends made since start-up
+            snapshotBalances = null;
+            throw ex;
+        }
+    }
+
+    private double cachedBalances() {
+        LedgerPartition[] running = partitions;
+        if (running == null) {
+            return 0;
+        }
+        long cached = 0;
+        for (LedgerPartition partition : running) {
+            cached += partition.cachedBalances();
+        }
+        return cached;
+    }
+
+    private void balancesEvicted() {
+        // the snapshot doesn't have what an evicted account posted since start-up; from now on the DB is the source
+        snapshotBalances = null;
+    }
+
+    private void journalRecordRejected(Long accountId) {
+        // the journal's balance for the account counted a record the database never will
+        snapshotBalances = null;
+        LedgerPartition[] running = partitions;
+        if (running != null) {
+            running[partitionFor(accountId)].reload(accountId);
+        }
+    }
+
+    private Money loadBalance(Long accountId) {
+        if (journalled) {
+            SnapshotBalances warm = snapshotBalances;
+            Money balance = warm == null ? null : warm.balanceOf(accountId);
+            if (balance != null) {
+                return balance;
+            }
+            // the DB balance is only current once everything journalled so far is applied
+            journalProjector.awaitProjected(journal.lastSequence(), timeoutMillis);
+        }
+        return accountDao.findMoneyById(accountId);
+    }
+}
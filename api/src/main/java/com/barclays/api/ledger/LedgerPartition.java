@@ -0,0 +1,263 @@
+package com.barclays.api.ledger;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import com.barclays.api.domain.Money;
+import com.barclays.api.domain.Transaction;
+import com.barclays.api.exceptions.ResourceNotFoundException;
+import com.barclays.api.services.LedgerService;
+
+/**
+ * One partition of the {@link LedgerEngine}. Producers only touch the ring;
+ * the balances map and the batch buffers belong to the writer thread.
+ *
+ * The balances map holds at most {@code maxBalances} accounts. Once a batch
+ * has been written, the least recently posted-to accounts past that are
+ * dropped, and loaded again on their next posting.
+ *
+ * A batch that fails to write is written again one posting at a time, from
+ * reloaded balances, so only the posting at fault fails.
+ */
+class LedgerPartition implements Runnable {
+
+    private final int index;
+    private final BlockingQueue<Posting> ring;
+    private final int maxBatchSize;
+    private final int maxBalances;
+    private final Function<Long, Money> balanceLoader;
+    private final BiConsumer<List<Transaction>, Map<Long, Money>> batchWriter;
+    private final Runnable evictionListener;
+    // accounts other threads want reloaded, dropped by the writer before its next batch
+    private final Queue<Long> stale = new ConcurrentLinkedQueue<>();
+
+    // writer-thread state, in least recently used order
+    private final Map<Long, Money> balances = new LinkedHashMap<>(16, 0.75f, true);
+    private final List<Posting> drained;
+    private final List<Posting> accepted;
+
+    private volatile int cachedBalances;
+    private volatile boolean running;
+    private Thread writer;
+
+    LedgerPartition(int index, int ringSize, int maxBatchSize, int maxBalances,
+            Function<Long, Money> balanceLoader,
+            BiConsumer<List<Transaction>, Map<Long, Money>> batchWriter,
+            Runnable evictionListener) {
+        this.index = index;
+        this.ring = new ArrayBlockingQueue<>(ringSize);
+        this.maxBatchSize = maxBatchSize;
+        this.maxBalances = maxBalances;
+        this.balanceLoader = balanceLoader;
+        this.batchWriter = batchWriter;
+        this.evictionListener = evictionListener;
+        this.drained = new ArrayList<>(maxBatchSize);
+        this.accepted = new ArrayList<>(maxBatchSize);
+    }
+
+    void start() {
+        running = true;
+        writer = new Thread(this, "ledger-partition-" + index);
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    void stop() {
+        running = false;
+        writer.interrupt();
+        try {
+            writer.join(5000);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        failAll(ring, new IllegalStateException("Ledger engine stopped."));
+    }
+
+    CompletableFuture<Transaction> submit(Transaction transaction) {
+        Posting posting = new Posting(transaction);
+        if (!ring.offer(posting)) {
+            throw new IllegalStateException("Ledger engine is saturated, try again later.");
+        }
+        return posting.outcome;
+    }
+
+    // the balance held for the account is wrong; it is loaded again on its next posting
+    void reload(Long accountId) {
+        stale.add(accountId);
+    }
+
+    // how many accounts' balances the writer holds, as of its last batch
+    int cachedBalances() {
+        return cachedBalances;
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                drained.add(ring.take());
+                ring.drainTo(drained, maxBatchSize - 1);
+                apply();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException ex) {
+                // never let one bad batch kill the partition's only writer
+                failAll(drained, ex);
+            } finally {
+                drained.clear();
+                accepted.clear();
+            }
+        }
+    }
+
+    private void apply() {
+        for (Long accountId = stale.poll(); accountId != null; accountId = stale.poll()) {
+            balances.remove(accountId);
+        }
+        Map<Long, Money> touched = new LinkedHashMap<>();
+        List<Transaction> transactions = new ArrayList<>(drained.size());
+
+        for (Posting posting : drained) {
+            Money newBalance = admit(posting, touched);
+            if (newBalance == null) {
+                continue;
+            }
+            touched.put(posting.transaction.getAccount().getId(), newBalance);
+            transactions.add(posting.transaction);
+            accepted.add(posting);
+        }
+
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        try {
+            batchWriter.accept(transactions, touched);
+        } catch (RuntimeException ex) {
+            // the in-memory balances may have run ahead of what was written - reload them on next use
+            balances.keySet().removeAll(touched.keySet());
+            if (accepted.size() == 1) {
+                accepted.get(0).outcome.completeExceptionally(ex);
+            } else {
+                applyOneByOne();
+            }
+            evictEldest();
+            cachedBalances = balances.size();
+            return;
+        }
+        balances.putAll(touched);
+        evictEldest();
+        cachedBalances = balances.size();
+
+        for (Posting posting : accepted) {
+            posting.outcome.complete(posting.transaction);
+        }
+    }
+
+    // after a failed batch: each accepted posting written on its own, so one bad posting fails alone
+    private void applyOneByOne() {
+        for (Posting posting : accepted) {
+            Money newBalance = admit(posting, Map.of());
+            if (newBalance == null) {
+                continue;
+            }
+            Long accountId = posting.transaction.getAccount().getId();
+            try {
+                batchWriter.accept(List.of(posting.transaction), Map.of(accountId, newBalance));
+            } catch (RuntimeException ex) {
+                balances.remove(accountId);
+                posting.outcome.completeExceptionally(ex);
+                continue;
+            }
+            balances.put(accountId, newBalance);
+            posting.outcome.complete(posting.transaction);
+        }
+    }
+
+    /**
+     * Checks the posting against its account's balance - as left by the
+     * postings ahead of it in {@code pending}, else as held or loaded - and
+     * sets its running balance.
+     *
+     * @return the account's balance after the posting, or null if it was
+     *         refused, in which case its outcome is already completed
+     */
+    private Money admit(Posting posting, Map<Long, Money> pending) {
+        Transaction transaction = posting.transaction;
+        Long accountId = transaction.getAccount().getId();
+
+        Money balance = pending.get(accountId);
+        if (balance == null) {
+            balance = balances.get(accountId);
+        }
+        if (balance == null) {
+            try {
+                balance = balanceLoader.apply(accountId);
+            } catch (RuntimeException ex) {
+                posting.outcome.completeExceptionally(ex);
+                return null;
+            }
+            if (balance == null) {
+                posting.outcome.completeExceptionally(
+                    new ResourceNotFoundException("Account with ID " + accountId + " not found."));
+                return null;
+            }
+        }
+
+        Money newBalance;
+        try {
+            newBalance = balance.plus(LedgerService.signedMoney(transaction));
+        } catch (IllegalArgumentException ex) {
+            // not in the account's currency; worded as LedgerService.postBatch words it
+            posting.outcome.completeExceptionally(
+                new IllegalArgumentException("Transaction currency does not match the account."));
+            return null;
+        }
+        if (newBalance.isNegative()) {
+            posting.outcome.completeExceptionally(new IllegalArgumentException("Insufficient funds for withdrawal."));
+            return null;
+        }
+        transaction.setBalanceAfter(newBalance.toBigDecimal());
+        return newBalance;
+    }
+
+    // only once a batch is written, so an account is never reloaded while a posting to it is unwritten
+    private void evictEldest() {
+        int excess = balances.size() - maxBalances;
+        if (excess <= 0) {
+            return;
+        }
+        Iterator<Long> eldest = balances.keySet().iterator();
+        for (int i = 0; i < excess; i++) {
+            eldest.next();
+            eldest.remove();
+        }
+        evictionListener.run();
+    }
+
+    private static void failAll(Iterable<Posting> postings, RuntimeException ex) {
+        for (Posting posting : postings) {
+            posting.outcome.completeExceptionally(ex);
+        }
+    }
+
+    private static final class Posting {
+        private final Transaction transaction;
+        private final CompletableFuture<Transaction> outcome = new CompletableFuture<>();
+
+        private Posting(Transaction transaction) {
+            this.transaction = transaction;
+        }
+    }
+}
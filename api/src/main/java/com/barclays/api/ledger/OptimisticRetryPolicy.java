@@ -0,0 +1,93 @@
+package com.barclays.api.ledger;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Re-runs work that lost an optimistic write race. Each attempt must be a
+ * complete DB transaction, so the retry re-reads what the failed one read.
+ * Between attempts it sleeps for a random time up to an exponentially growing
+ * ceiling ("full jitter"), so writers that collided once don't collide again
+ * in lockstep.
+ *
+ * Retries and give-ups are counted per endpoint; an endpoint that keeps
+ * retrying is serving an account hot enough to need a different posting mode.
+ */
+@Component
+public class OptimisticRetryPolicy {
+
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public OptimisticRetryPolicy(
+        @Value("${api.ledger.optimistic.max-attempts:5}") int maxAttempts,
+        @Value("${api.ledger.optimistic.base-backoff-ms:2}") long baseBackoffMillis,
+        @Value("${api.ledger.optimistic.max-backoff-ms:50}") long maxBackoffMillis,
+        MeterRegistry meterRegistry
+    ) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("Optimistic retry attempts must be positive.");
+        }
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Runs {@code work} until it doesn't throw
+     * {@link OptimisticLockingFailureException}, at most {@code max-attempts}
+     * times; the last failure is rethrown.
+     */
+    public <T> T execute(String endpoint, Supplier<T> work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return work.get();
+            } catch (OptimisticLockingFailureException ex) {
+                if (attempt >= maxAttempts) {
+                    counter("ledger.optimistic.exhausted", endpoint, "Postings that ran out of optimistic retries").increment();
+                    throw ex;
+                }
+                counter("ledger.optimistic.retries", endpoint, "Postings re-run after losing an optimistic write race").increment();
+                backOff(attempt);
+            }
+        }
+    }
+
+    long backoffCeiling(int attempt) {
+        long ceiling = baseBackoffMillis << Math.min(attempt - 1, 30);
+        return ceiling < 0 ? maxBackoffMillis : Math.min(ceiling, maxBackoffMillis);
+    }
+
+    private void backOff(int attempt) {
+        long ceiling = backoffCeiling(attempt);
+        if (ceiling <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry the posting.");
+        }
+    }
+
+    private Counter counter(String name, String endpoint, String description) {
+        // registering an existing meter just looks it up
+        return Counter.builder(name)
+                .tag("endpoint", endpoint)
+                .description(description)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,31 @@
+package com.barclays.api.ledger;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.barclays.api.domain.Transaction;
+
+// blocks a request thread on an asynchronous posting and rethrows its failure as-is
+final class PostingFutures {
+
+    private PostingFutures() {
+    }
+
+    static Transaction await(CompletableFuture<Transaction> outcome, long timeoutMillis) {
+        try {
+            return outcome.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new IllegalStateException("Posting failed.", ex.getCause());
+        } catch (TimeoutException ex) {
+            throw new PostingTimeoutException("Timed out waiting for the ledger to post the transaction.");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new PostingTimeoutException("Interrupted while waiting for the ledger to post the transaction.");
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.barclays.api.ledger;
+
+/**
+ * How POST /v1/accounts/{accountId}/transactions moves money.
+ * Selected with the {@code api.ledger.posting-mode} property.
+ */
+public enum PostingMode {
+
+    /**
+     * Balance is changed in Java and written back as an absolute value.
+     * Not safe with concurrent writers on the same account.
+     */
+    LEGACY,
+
+    /**
+     * Transaction insert and a conditional {@code balance = balance + delta} update
+     * run in one DB transaction, so concurrent writers never lose updates.
+     */
+    ATOMIC,
+
+    /**
+     * Legacy read-modify-write, serialised per account by {@link AccountLockManager}.
+     * Correct for a single api node only.
+     */
+    LOCKED,
+
+    /**
+     * Balance is read without a lock and written back only if the account's
+     * version hasn't changed; a posting that loses the race is retried by
+     * {@link OptimisticRetryPolicy}.
+     */
+    OPTIMISTIC,
+
+    /**
+     * Postings are handed to {@link LedgerEngine}, which applies them in memory
+     * on one writer thread per partition and persists them in batches.
+     */
+    ENGINE,
+
+    /**
+     * Concurrent postings are collected by {@link GroupCommitter} for up to a
+     * configured wait and committed together in one DB transaction.
+     */
+    GROUP_COMMIT,
+
+    /**
+     * Like {@link #ENGINE}, but a batch is acknowledged once it is in the
+     * memory-mapped transaction journal; the database is updated
+     * asynchronously by the journal projector.
+     */
+    JOURNAL
+}
@@ -0,0 +1,14 @@
+package com.barclays.api.ledger;
+
+/**
+ * The caller stopped waiting for an asynchronous posting. The posting itself
+ * may still go through, so its outcome is unknown rather than failed.
+ */
+public class PostingTimeoutException extends IllegalStateException {
+
+    private static final long serialVersionUID = 1L;
+
+    public PostingTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,168 @@
+package com.barclays.api.ledger.journal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.zip.CRC32C;
+
+import com.barclays.api.domain.Money;
+import com.barclays.api.domain.Transaction;
+import com.barclays.api.domain.enums.Currency;
+import com.barclays.api.domain.enums.TransactionType;
+
+/**
+ * Fixed-layout binary form of a {@link JournalRecord}. Every record takes
+ * {@link #RECORD_SIZE} bytes, so record N of a segment is at a known offset:
+ *
+ * <pre>
+ *   0  long   sequence
+ *   8  long   accountId
+ *  16  long   userId
+ *  24  long   amount, in pence
+ *  32  long   createdTimestamp, microseconds since the epoch (UTC)
+ *  40  byte   type code
+ *  41  byte   currency code
+ *  42  byte   id length
+ *  43  byte   transactionId length
+ *  44  96     id, UTF-8
+ * 140  96     transactionId, UTF-8
+ * 236  16     reserved
+ * 252  int    CRC32C of bytes 0-251
+ * </pre>
+ *
+ * A slot whose checksum doesn't match, or whose sequence isn't the one
+ * expected there, is the end of the journal.
+ */
+final class JournalCodec {
+
+    static final int RECORD_SIZE = 256;
+    static final int MAX_ID_BYTES = 96;
+
+    private static final int ID_OFFSET = 44;
+    private static final int TRANSACTION_ID_OFFSET = ID_OFFSET + MAX_ID_BYTES;
+    private static final int CRC_OFFSET = RECORD_SIZE - 4;
+
+    // codes are part of the file format - only ever append to these
+    private static final TransactionType[] TYPES = { TransactionType.DEPOSIT, TransactionType.WITHDRAWAL };
+    private static final Currency[] CURRENCIES = { Currency.GBP };
+
+    private JournalCodec() {
+    }
+
+    /**
+     * Throws IllegalArgumentException if the transaction can't be stored in a
+     * fixed-size record.
+     */
+    static void checkEncodable(Transaction transaction) {
+        if (transaction.getId() == null || transaction.getTransactionId() == null) {
+            throw new IllegalArgumentException("Transaction ID is required.");
+        }
+        if (utf8Length(transaction.getId()) > MAX_ID_BYTES
+                || utf8Length(transaction.getTransactionId()) > MAX_ID_BYTES) {
+            throw new IllegalArgumentException("Transaction IDs can be at most " + MAX_ID_BYTES + " bytes long.");
+        }
+        if (transaction.getUser() == null || transaction.getUser().getId() == null) {
+            throw new IllegalArgumentException("Transaction has no user.");
+        }
+        if (transaction.getAmount() == null || transaction.getCurrency() == null) {
+            throw new IllegalArgumentException("Transaction amount and currency are required.");
+        }
+        // whole pence only
+        Money.of(transaction.getAmount(), transaction.getCurrency());
+    }
+
+    static void encode(ByteBuffer buffer, int offset, JournalRecord record) {
+        buffer.putLong(offset, record.getSequence());
+        buffer.putLong(offset + 8, record.getAccountId());
+        buffer.putLong(offset + 16, record.getUserId());
+        buffer.putLong(offset + 24, record.getAmount().getPence());
+        buffer.putLong(offset + 32, toEpochMicros(record.getCreatedTimestamp()));
+        buffer.put(offset + 40, code(TYPES, record.getType()));
+        buffer.put(offset + 41, code(CURRENCIES, record.getCurrency()));
+        putString(buffer, offset + 42, offset + ID_OFFSET, record.getId());
+        putString(buffer, offset + 43, offset + TRANSACTION_ID_OFFSET, record.getTransactionId());
+        buffer.putInt(offset + CRC_OFFSET, checksum(buffer, offset));
+    }
+
+    /**
+     * @return the record in the slot, or null if the slot doesn't hold a
+     *         complete record with the expected sequence
+     */
+    static JournalRecord decode(ByteBuffer buffer, int offset, long expectedSequence) {
+        if (buffer.getLong(offset) != expectedSequence || buffer.getInt(offset + CRC_OFFSET) != checksum(buffer, offset)) {
+            return null;
+        }
+        return new JournalRecord(
+            expectedSequence,
+            getString(buffer, offset + 42, offset + ID_OFFSET),
+            getString(buffer, offset + 43, offset + TRANSACTION_ID_OFFSET),
+            buffer.getLong(offset + 8),
+            buffer.getLong(offset + 16),
+            TYPES[buffer.get(offset + 40) - 1],
+            Money.ofPence(buffer.getLong(offset + 24), CURRENCIES[buffer.get(offset + 41) - 1]),
+            fromEpochMicros(buffer.getLong(offset + 32)));
+    }
+
+    static boolean isEmpty(ByteBuffer buffer, int offset) {
+        for (int i = 0; i < RECORD_SIZE; i += 8) {
+            if (buffer.getLong(offset + i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static void clear(ByteBuffer buffer, int offset) {
+        for (int i = 0; i < RECORD_SIZE; i += 8) {
+            buffer.putLong(offset + i, 0);
+        }
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset) {
+        ByteBuffer slot = buffer.duplicate();
+        slot.limit(offset + CRC_OFFSET).position(offset);
+        CRC32C crc = new CRC32C();
+        crc.update(slot);
+        return (int) crc.getValue();
+    }
+
+    private static <T> byte code(T[] values, T value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == value) {
+                return (byte) (i + 1);
+            }
+        }
+        throw new IllegalArgumentException("No journal code for " + value);
+    }
+
+    private static void putString(ByteBuffer buffer, int lengthOffset, int offset, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.put(lengthOffset, (byte) bytes.length);
+        for (int i = 0; i < MAX_ID_BYTES; i++) {
+            buffer.put(offset + i, i < bytes.length ? bytes[i] : 0);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer, int lengthOffset, int offset) {
+        byte[] bytes = new byte[buffer.get(lengthOffset) & 0xFF];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(offset + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int utf8Length(String value) {
+        return value.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static long toEpochMicros(LocalDateTime timestamp) {
+        return ChronoUnit.MICROS.between(LocalDateTime.ofEpochSecond(0, 0, ZoneOffset.UTC), timestamp);
+    }
+
+    private static LocalDateTime fromEpochMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1000, ZoneOffset.UTC);
+    }
+}
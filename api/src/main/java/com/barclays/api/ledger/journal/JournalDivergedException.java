@@ -0,0 +1,14 @@
+package com.barclays.api.ledger.journal;
+
+/**
+ * A journal record that doesn't fit the database it is being applied to,
+ * and never will: retrying it can't help.
+ */
+public class JournalDivergedException extends IllegalStateException {
+
+    private static final long serialVersionUID = 1L;
+
+    public JournalDivergedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,119 @@
+package com.barclays.api.ledger.journal;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Read-only command-line view of a journal directory: one line per segment
+ * with its record range, and optionally the records themselves. Safe to run
+ * against the journal of a live node or one that crashed.
+ *
+ * <pre>
+ * java -cp api.jar -Dloader.main=com.barclays.api.ledger.journal.JournalInspector \
+ *     org.springframework.boot.loader.PropertiesLauncher &lt;journal-dir&gt; [--records] [--from N] [--account ID]
+ * </pre>
+ */
+public final class JournalInspector {
+
+    private final boolean printRecords;
+    private final long fromSequence;
+    private final Long accountId;
+
+    JournalInspector(boolean printRecords, long fromSequence, Long accountId) {
+        this.printRecords = printRecords;
+        this.fromSequence = fromSequence;
+        this.accountId = accountId;
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("usage: JournalInspector <journal-dir> [--records] [--from N] [--account ID]");
+            System.exit(2);
+        }
+
+        boolean printRecords = false;
+        long fromSequence = 1;
+        Long accountId = null;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--records":
+                    printRecords = true;
+                    break;
+                case "--from":
+                    fromSequence = Long.parseLong(args[++i]);
+                    printRecords = true;
+                    break;
+                case "--account":
+                    accountId = Long.valueOf(args[++i]);
+                    printRecords = true;
+                    break;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        new JournalInspector(printRecords, fromSequence, accountId).inspect(Paths.get(args[0]), System.out);
+    }
+
+    void inspect(Path directory, PrintStream out) {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(JournalSegment::isSegmentFile).sorted().collect(Collectors.toList());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        long first = -1;
+        long last = -1;
+        for (Path file : files) {
+            JournalSegment segment = JournalSegment.open(file, false);
+            try {
+                long lastInSegment = segment.scanLastSequence();
+                long records = lastInSegment - segment.getBaseSequence() + 1;
+                out.printf("%s  records %d-%d (%d of %d slots)%s%n", file.getFileName(),
+                        segment.getBaseSequence(), lastInSegment, records, segment.getCapacity(),
+                        describeTail(segment, lastInSegment));
+
+                if (records > 0) {
+                    first = first < 0 ? segment.getBaseSequence() : first;
+                    last = lastInSegment;
+                }
+                if (printRecords) {
+                    for (long sequence = Math.max(fromSequence, segment.getBaseSequence()); sequence <= lastInSegment; sequence++) {
+                        JournalRecord record = segment.read(sequence);
+                        if (accountId == null || accountId.equals(record.getAccountId())) {
+                            out.println(record);
+                        }
+                    }
+                }
+            } finally {
+                segment.close();
+            }
+        }
+
+        if (first < 0) {
+            out.printf("%d segment(s), no records%n", files.size());
+        } else {
+            out.printf("%d segment(s), records %d-%d%n", files.size(), first, last);
+        }
+    }
+
+    // anything after the last good record is a torn write, or was never acknowledged
+    private static String describeTail(JournalSegment segment, long lastInSegment) {
+        long dirty = 0;
+        for (long sequence = lastInSegment + 1; sequence <= segment.lastSlot(); sequence++) {
+            if (!segment.isEmpty(sequence)) {
+                dirty++;
+            }
+        }
+        return dirty == 0 ? "" : "  " + dirty + " unreadable slot(s) after the last record";
+    }
+}
@@ -0,0 +1,323 @@
+package com.barclays.api.ledger.journal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import com.barclays.api.domain.Transaction;
+import com.barclays.api.exceptions.DuplicateResourceException;
+import com.barclays.api.ledger.PostingMode;
+import com.barclays.api.ledger.snapshot.BalanceSnapshotStore;
+import com.barclays.api.services.LedgerService;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Applies journal records to the accounts and transactions tables on a
+ * background thread, in journal order and in batches. Where it got to is
+ * stored with the data ({@link LedgerService#projectJournal}), so on startup
+ * it replays exactly the records the last run didn't apply - before the
+ * ledger engine accepts any new posting.
+ *
+ * Being the only writer of balances in journal mode, it is also where
+ * balance snapshots are taken: between two batches the accounts table holds
+ * exactly the balances as of the last applied record.
+ *
+ * A record that can never be applied - its transaction id is already in the
+ * database, or it would overdraw the account - is set aside in
+ * {@code journal_rejections} instead of being retried, counted in
+ * {@code ledger.journal.rejected}, and the records after it are applied as
+ * usual. To keep duplicates out of the journal in the first place, the
+ * transaction ids accepted but not yet applied are held here, for the engine
+ * to check new postings against ({@link #claimTransactionId}).
+ */
+@Component
+public class JournalProjector implements Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(JournalProjector.class);
+
+    private static final long IDLE_WAIT_MILLIS = 100;
+    private static final long RETRY_BACKOFF_MILLIS = 1000;
+
+    private final TransactionJournal journal;
+    private final LedgerService ledgerService;
+    private final BalanceSnapshotStore snapshots;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final boolean deleteAppliedSegments;
+    private final Counter rejectedCounter;
+
+    // accepted but not yet applied - applied ones are found in the database instead
+    private final Set<String> pendingTransactionIds = ConcurrentHashMap.newKeySet();
+    private final List<Consumer<Long>> rejectionListeners = new CopyOnWriteArrayList<>();
+
+    private final Object progress = new Object();
+    private volatile long appliedSequence;
+    private volatile boolean running;
+    private Thread projector;
+
+    @Autowired
+    public JournalProjector(
+        TransactionJournal journal,
+        LedgerService ledgerService,
+        BalanceSnapshotStore snapshots,
+        MeterRegistry meterRegistry,
+        @Value("${api.ledger.posting-mode:legacy}") PostingMode postingMode,
+        @Value("${api.ledger.journal.projector.max-batch-size:500}") int maxBatchSize,
+        @Value("${api.ledger.journal.projector.delete-applied-segments:true}") boolean deleteAppliedSegments
+    ) {
+        this.journal = journal;
+        this.ledgerService = ledgerService;
+        this.snapshots = snapshots;
+        this.enabled = postingMode == PostingMode.JOURNAL;
+        this.maxBatchSize = maxBatchSize;
+        this.deleteAppliedSegments = deleteAppliedSegments;
+
+        Gauge.builder("ledger.journal.lag", this, JournalProjector::lag)
+                .description("Journal records acknowledged but not yet applied to the database")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("ledger.journal.rejected")
+                .description("Journal records set aside because they could never be applied")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled || projector != null) {
+            return;
+        }
+        journal.start();
+        appliedSequence = ledgerService.journalCheckpoint();
+
+        // replay whatever the last run acknowledged but didn't apply
+        long target = journal.lastSequence();
+        if (appliedSequence > target) {
+            throw new IllegalStateException("The database has applied journal records up to " + appliedSequence
+                    + " but the journal in " + journal.getDirectory() + " ends at " + target + ".");
+        }
+        while (appliedSequence < target) {
+            projectNext(target);
+        }
+
+        running = true;
+        projector = new Thread(this, "ledger-journal-projector");
+        projector.setDaemon(true);
+        projector.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (projector == null) {
+            return;
+        }
+        running = false;
+        projector.interrupt();
+        try {
+            projector.join(5000);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        projector = null;
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                journal.awaitAppended(appliedSequence, IDLE_WAIT_MILLIS);
+                long target = journal.lastSequence();
+                if (target > appliedSequence) {
+                    projectNext(target);
+                }
+                if (snapshots.isDue()) {
+                    takeSnapshot();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException ex) {
+                if (!running) {
+                    return;
+                }
+                // the batch rolled back as a whole - try it again from the same record
+                log.warn("Projecting journal record {} failed, retrying", appliedSequence + 1, ex);
+                try {
+                    Thread.sleep(RETRY_BACKOFF_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Blocks until every record up to {@code sequence} has been applied to the
+     * database.
+     */
+    public void awaitProjected(long sequence, long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (progress) {
+            while (appliedSequence < sequence) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throw new IllegalStateException("Timed out waiting for the journal to be applied to the database.");
+                }
+                try {
+                    progress.wait(remaining);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for the journal to be applied to the database.");
+                }
+            }
+        }
+    }
+
+    public long appliedSequence() {
+        return appliedSequence;
+    }
+
+    /**
+     * Reserves a transaction id for a posting about to be journalled, until
+     * its record has been applied; release it if the posting doesn't make it
+     * into the journal.
+     *
+     * @throws DuplicateResourceException if the id is already in the
+     *         database or waiting in the journal
+     */
+    public void claimTransactionId(String transactionId) {
+        if (!pendingTransactionIds.add(transactionId)) {
+            throw duplicate(transactionId);
+        }
+        boolean posted;
+        try {
+            posted = ledgerService.hasTransaction(transactionId);
+        } catch (RuntimeException ex) {
+            pendingTransactionIds.remove(transactionId);
+            throw ex;
+        }
+        if (posted) {
+            pendingTransactionIds.remove(transactionId);
+            throw duplicate(transactionId);
+        }
+    }
+
+    public void releaseTransactionId(String transactionId) {
+        pendingTransactionIds.remove(transactionId);
+    }
+
+    /**
+     * Registers a callback told the account id of every record set aside,
+     * whose balance in the journal then no longer matches the database's.
+     */
+    public void addRejectionListener(Consumer<Long> listener) {
+        rejectionListeners.add(listener);
+    }
+
+    private void projectNext(long target) {
+        List<JournalRecord> records = journal.read(appliedSequence + 1, (int) Math.min(maxBatchSize, target - appliedSequence));
+        List<Transaction> transactions = new ArrayList<>(records.size());
+        for (JournalRecord record : records) {
+            transactions.add(record.toTransaction());
+        }
+        long last = records.get(records.size() - 1).getSequence();
+
+        try {
+            ledgerService.projectJournal(transactions, last);
+        } catch (RuntimeException ex) {
+            if (!isUnappliable(ex)) {
+                throw ex;
+            }
+            // the batch rolled back - apply it record by record, so only the one at fault is set aside
+            for (JournalRecord record : records) {
+                projectOne(record);
+            }
+            return;
+        }
+        applied(records, last);
+    }
+
+    // anything but an unappliable record is left to propagate, and is retried from this record
+    private void projectOne(JournalRecord record) {
+        try {
+            ledgerService.projectJournal(List.of(record.toTransaction()), record.getSequence());
+        } catch (RuntimeException ex) {
+            if (!isUnappliable(ex)) {
+                throw ex;
+            }
+            reject(record, ex);
+        }
+        applied(List.of(record), record.getSequence());
+    }
+
+    private void reject(JournalRecord record, RuntimeException cause) {
+        ledgerService.rejectJournalRecord(record.toTransaction(), record.getSequence(), cause.getMessage());
+        rejectedCounter.increment();
+        log.error("Journal record {} can never be applied and was set aside: {}", record, cause.getMessage());
+        for (Consumer<Long> listener : rejectionListeners) {
+            listener.accept(record.getAccountId());
+        }
+    }
+
+    private void applied(List<JournalRecord> records, long last) {
+        synchronized (progress) {
+            appliedSequence = last;
+            progress.notifyAll();
+        }
+        // only now the database answers for them
+        for (JournalRecord record : records) {
+            pendingTransactionIds.remove(record.getTransactionId());
+        }
+        if (deleteAppliedSegments) {
+            // keep what a restart needs to bring the newest snapshot up to date
+            journal.release(snapshots.isEnabled() ? Math.min(last, snapshots.latestSequence()) : last);
+        }
+    }
+
+    // a record that breaks a constraint or overdraws an account fails the same way however often it is retried
+    private static boolean isUnappliable(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DataIntegrityViolationException || cause instanceof JournalDivergedException
+                    || cause instanceof org.hibernate.exception.ConstraintViolationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static DuplicateResourceException duplicate(String transactionId) {
+        return new DuplicateResourceException("Transaction with ID " + transactionId + " already exists.");
+    }
+
+    private void takeSnapshot() {
+        long sequence = appliedSequence;
+        long start = System.currentTimeMillis();
+        try {
+            snapshots.write(sequence, writer -> ledgerService.forEachBalance(writer::append));
+        } catch (RuntimeException ex) {
+            // projection carries on; the next attempt is an interval away
+            log.warn("Writing a balance snapshot at journal record {} failed", sequence, ex);
+            return;
+        }
+        log.info("Wrote balance snapshot at journal record {} in {} ms", sequence, System.currentTimeMillis() - start);
+    }
+
+    private double lag() {
+        return enabled ? journal.lastSequence() - appliedSequence : 0;
+    }
+}
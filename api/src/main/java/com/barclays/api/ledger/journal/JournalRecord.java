@@ -0,0 +1,114 @@
+package com.barclays.api.ledger.journal;
+
+import java.time.LocalDateTime;
+
+import com.barclays.api.domain.Account;
+import com.barclays.api.domain.Money;
+import com.barclays.api.domain.Transaction;
+import com.barclays.api.domain.User;
+import com.barclays.api.domain.enums.Currency;
+import com.barclays.api.domain.enums.TransactionType;
+
+/**
+ * One accepted posting as it is stored in the journal. {@code sequence} is
+ * the record's position in the journal, starting at 1.
+ */
+public final class JournalRecord {
+
+    private final long sequence;
+    private final String id;
+    private final String transactionId;
+    private final Long accountId;
+    private final Long userId;
+    private final TransactionType type;
+    private final Money amount;
+    private final LocalDateTime createdTimestamp;
+
+    public JournalRecord(long sequence, String id, String transactionId, Long accountId, Long userId,
+            TransactionType type, Money amount, LocalDateTime createdTimestamp) {
+        this.sequence = sequence;
+        this.id = id;
+        this.transactionId = transactionId;
+        this.accountId = accountId;
+        this.userId = userId;
+        this.type = type;
+        this.amount = amount;
+        this.createdTimestamp = createdTimestamp;
+    }
+
+    static JournalRecord of(long sequence, Transaction transaction) {
+        return new JournalRecord(sequence, transaction.getId(), transaction.getTransactionId(),
+                transaction.getAccount().getId(), transaction.getUser().getId(),
+                transaction.getType(), Money.of(transaction.getAmount(), transaction.getCurrency()),
+                transaction.getCreatedTimestamp());
+    }
+
+    /**
+     * Rebuilds the transaction for projection. Account and user are id-only
+     * references - the projector never needs more than their keys.
+     */
+    public Transaction toTransaction() {
+        Account account = new Account();
+        account.setId(accountId);
+        User user = new User();
+        user.setId(userId);
+
+        Transaction transaction = Transaction.Builder.create()
+            .withTransactionId(transactionId)
+            .withAmount(amount.toBigDecimal())
+            .withCurrency(amount.getCurrency())
+            .withType(type)
+            .withUser(user)
+            .withAccount(account)
+            .build();
+        transaction.setId(id);
+        transaction.setCreatedTimestamp(createdTimestamp);
+        return transaction;
+    }
+
+    public Money signedAmount() {
+        return type == TransactionType.WITHDRAWAL ? amount.negate() : amount;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    public Long getAccountId() {
+        return accountId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public TransactionType getType() {
+        return type;
+    }
+
+    public Currency getCurrency() {
+        return amount.getCurrency();
+    }
+
+    public Money getAmount() {
+        return amount;
+    }
+
+    public LocalDateTime getCreatedTimestamp() {
+        return createdTimestamp;
+    }
+
+    @Override
+    public String toString() {
+        return sequence + " " + createdTimestamp + " account=" + accountId + " user=" + userId + " " + type
+                + " " + amount + " id=" + id + " transactionId=" + transactionId;
+    }
+}
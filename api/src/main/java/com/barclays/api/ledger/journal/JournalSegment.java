@@ -0,0 +1,154 @@
+package com.barclays.api.ledger.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One memory-mapped journal file. The file is named after the sequence of
+ * its first record and is sized up front to hold {@code capacity} records.
+ */
+final class JournalSegment {
+
+    private static final Pattern FILE_NAME = Pattern.compile("(\\d{20})\\.journal");
+
+    private final Path file;
+    private final long baseSequence;
+    private final int capacity;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+
+    private JournalSegment(Path file, long baseSequence, int capacity, FileChannel channel, MappedByteBuffer buffer) {
+        this.file = file;
+        this.baseSequence = baseSequence;
+        this.capacity = capacity;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    static JournalSegment create(Path directory, long baseSequence, int capacity) {
+        return open(directory.resolve(fileName(baseSequence)), baseSequence, capacity, true);
+    }
+
+    static JournalSegment open(Path file, boolean writable) {
+        try {
+            long size = Files.size(file);
+            if (size == 0 || size % JournalCodec.RECORD_SIZE != 0) {
+                throw new IllegalStateException("Journal segment " + file + " has an invalid size of " + size + " bytes.");
+            }
+            return open(file, baseSequenceOf(file), (int) (size / JournalCodec.RECORD_SIZE), writable);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static JournalSegment open(Path file, long baseSequence, int capacity, boolean writable) {
+        try {
+            FileChannel channel = writable
+                ? FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(file, StandardOpenOption.READ);
+            MappedByteBuffer buffer = channel.map(writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY,
+                    0, (long) capacity * JournalCodec.RECORD_SIZE);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return new JournalSegment(file, baseSequence, capacity, channel, buffer);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    static boolean isSegmentFile(Path file) {
+        return FILE_NAME.matcher(file.getFileName().toString()).matches();
+    }
+
+    static long baseSequenceOf(Path file) {
+        Matcher matcher = FILE_NAME.matcher(file.getFileName().toString());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException(file + " is not a journal segment.");
+        }
+        return Long.parseLong(matcher.group(1));
+    }
+
+    static String fileName(long baseSequence) {
+        return String.format("%020d.journal", baseSequence);
+    }
+
+    void write(JournalRecord record) {
+        JournalCodec.encode(buffer, offsetOf(record.getSequence()), record);
+    }
+
+    JournalRecord read(long sequence) {
+        return JournalCodec.decode(buffer, offsetOf(sequence), sequence);
+    }
+
+    void clear(long sequence) {
+        JournalCodec.clear(buffer, offsetOf(sequence));
+    }
+
+    boolean isEmpty(long sequence) {
+        return JournalCodec.isEmpty(buffer, offsetOf(sequence));
+    }
+
+    /**
+     * @return the sequence of the last readable record, or
+     *         {@code baseSequence - 1} if the segment holds none
+     */
+    long scanLastSequence() {
+        long sequence = baseSequence;
+        while (sequence <= lastSlot() && read(sequence) != null) {
+            sequence++;
+        }
+        return sequence - 1;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    void close() {
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    void delete() {
+        close();
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    boolean contains(long sequence) {
+        return sequence >= baseSequence && sequence <= lastSlot();
+    }
+
+    long lastSlot() {
+        return baseSequence + capacity - 1;
+    }
+
+    long getBaseSequence() {
+        return baseSequence;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    private int offsetOf(long sequence) {
+        return (int) (sequence - baseSequence) * JournalCodec.RECORD_SIZE;
+    }
+}
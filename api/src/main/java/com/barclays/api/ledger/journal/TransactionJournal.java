@@ -0,0 +1,257 @@
+package com.barclays.api.ledger.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.barclays.api.domain.Transaction;
+import com.barclays.api.ledger.PostingMode;
+
+/**
+ * Append-only log of accepted postings, kept in memory-mapped segment files
+ * under {@code api.ledger.journal.dir}. A posting is acknowledged once its
+ * record is in the journal (and, with {@code fsync}, on disk);
+ * {@link JournalProjector} applies it to the database afterwards.
+ *
+ * Appends are serialised on the journal's monitor. Reads don't take it: a
+ * record is only readable once {@link #lastSequence()} has moved past it.
+ */
+@Component
+public class TransactionJournal {
+
+    private final Path directory;
+    private final boolean enabled;
+    private final int segmentCapacity;
+    private final boolean fsync;
+
+    private final ConcurrentSkipListMap<Long, JournalSegment> segments = new ConcurrentSkipListMap<>();
+    private JournalSegment active;
+    private volatile long lastSequence;
+    private volatile boolean open;
+
+    @Autowired
+    public TransactionJournal(
+        @Value("${api.ledger.posting-mode:legacy}") PostingMode postingMode,
+        @Value("${api.ledger.journal.dir:data/journal}") String directory,
+        @Value("${api.ledger.journal.segment-bytes:67108864}") long segmentBytes,
+        @Value("${api.ledger.journal.fsync:true}") boolean fsync
+    ) {
+        if (segmentBytes < JournalCodec.RECORD_SIZE || segmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Journal segment size must be between "
+                    + JournalCodec.RECORD_SIZE + " bytes and 2GB.");
+        }
+        this.directory = Paths.get(directory);
+        this.enabled = postingMode == PostingMode.JOURNAL;
+        this.segmentCapacity = (int) (segmentBytes / JournalCodec.RECORD_SIZE);
+        this.fsync = fsync;
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        if (!enabled || open) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            List<Path> files;
+            try (Stream<Path> listing = Files.list(directory)) {
+                files = listing.filter(JournalSegment::isSegmentFile).sorted().collect(Collectors.toList());
+            }
+            for (Path file : files) {
+                JournalSegment segment = JournalSegment.open(file, true);
+                segments.put(segment.getBaseSequence(), segment);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        recoverTail();
+        open = true;
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (!open) {
+            return;
+        }
+        open = false;
+        for (JournalSegment segment : segments.values()) {
+            segment.close();
+        }
+        segments.clear();
+        active = null;
+        notifyAll();
+    }
+
+    /**
+     * Throws IllegalArgumentException if the transaction can't be journalled,
+     * so the caller can refuse it before it is accepted.
+     */
+    public void checkAppendable(Transaction transaction) {
+        JournalCodec.checkEncodable(transaction);
+    }
+
+    /**
+     * Appends the transactions in order. When this returns normally every
+     * record is readable (and durable, with {@code fsync}); when it throws
+     * none of them is.
+     *
+     * @return the sequence of the last record appended
+     */
+    public synchronized long append(List<Transaction> transactions) {
+        if (!open) {
+            throw new IllegalStateException("Transaction journal is not open.");
+        }
+        long first = lastSequence + 1;
+        long sequence = lastSequence;
+        try {
+            for (Transaction transaction : transactions) {
+                if (transaction.getCreatedTimestamp() == null) {
+                    transaction.setCreatedTimestamp(LocalDateTime.now());
+                }
+                sequence++;
+                if (!active.contains(sequence)) {
+                    active = JournalSegment.create(directory, sequence, segmentCapacity);
+                    segments.put(sequence, active);
+                }
+                active.write(JournalRecord.of(sequence, transaction));
+            }
+            if (fsync) {
+                for (JournalSegment segment : segments.tailMap(segments.floorKey(first)).values()) {
+                    segment.force();
+                }
+            }
+        } catch (RuntimeException ex) {
+            // don't leave records behind that a replay would apply but the caller was told failed
+            for (long written = first; written <= sequence; written++) {
+                segmentFor(written).clear(written);
+            }
+            throw ex;
+        }
+
+        lastSequence = sequence;
+        notifyAll();
+        return sequence;
+    }
+
+    /**
+     * Reads up to {@code max} records starting at {@code fromSequence}, never
+     * past the last appended record.
+     */
+    public List<JournalRecord> read(long fromSequence, int max) {
+        long to = Math.min(lastSequence, fromSequence + max - 1);
+        List<JournalRecord> records = new ArrayList<>((int) Math.max(0, to - fromSequence + 1));
+        for (long sequence = fromSequence; sequence <= to; sequence++) {
+            JournalSegment segment = segmentFor(sequence);
+            JournalRecord record = segment == null ? null : segment.read(sequence);
+            if (record == null) {
+                throw new IllegalStateException("Journal record " + sequence + " is missing or corrupt.");
+            }
+            records.add(record);
+        }
+        return records;
+    }
+
+    /**
+     * Waits until a record after {@code sequence} has been appended, or the
+     * timeout passes.
+     */
+    public synchronized void awaitAppended(long sequence, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        long remaining = timeoutMillis;
+        while (open && lastSequence <= sequence && remaining > 0) {
+            wait(remaining);
+            remaining = deadline - System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Deletes the segments whose records have all been applied, except the
+     * one being written to.
+     */
+    public synchronized void release(long appliedSequence) {
+        Iterator<Map.Entry<Long, JournalSegment>> iterator = segments.entrySet().iterator();
+        while (iterator.hasNext()) {
+            JournalSegment segment = iterator.next().getValue();
+            if (segment == active || segment.lastSlot() > appliedSequence) {
+                return;
+            }
+            iterator.remove();
+            segment.delete();
+        }
+    }
+
+    public long lastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * The sequence of the oldest record still on disk; records before it have
+     * been applied and released.
+     */
+    public long firstSequence() {
+        Map.Entry<Long, JournalSegment> first = segments.firstEntry();
+        return first == null ? lastSequence + 1 : first.getKey();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    int segmentCount() {
+        return segments.size();
+    }
+
+    private JournalSegment segmentFor(long sequence) {
+        Map.Entry<Long, JournalSegment> entry = segments.floorEntry(sequence);
+        return entry == null ? null : entry.getValue();
+    }
+
+    /**
+     * Finds the end of the journal after a restart and wipes anything past it,
+     * so a torn record or one that was never acknowledged can't be replayed.
+     */
+    private void recoverTail() {
+        if (segments.isEmpty()) {
+            active = JournalSegment.create(directory, 1, segmentCapacity);
+            segments.put(1L, active);
+            lastSequence = 0;
+            return;
+        }
+
+        // a segment created just before a crash may not hold any record yet
+        while (segments.size() > 1) {
+            JournalSegment last = segments.lastEntry().getValue();
+            if (last.scanLastSequence() >= last.getBaseSequence()) {
+                break;
+            }
+            segments.pollLastEntry();
+            last.delete();
+        }
+
+        active = segments.lastEntry().getValue();
+        lastSequence = active.scanLastSequence();
+        for (long sequence = lastSequence + 1; sequence <= active.lastSlot(); sequence++) {
+            if (!active.isEmpty(sequence)) {
+                active.clear(sequence);
+            }
+        }
+        active.force();
+    }
+}
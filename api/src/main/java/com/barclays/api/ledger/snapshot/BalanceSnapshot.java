@@ -0,0 +1,138 @@
+package com.barclays.api.ledger.snapshot;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+import com.barclays.api.domain.Money;
+import com.barclays.api.domain.enums.Currency;
+
+/**
+ * A read-only, memory-mapped balance snapshot: every account's balance as of
+ * journal record {@link #getSequence()}. Entries are sorted by account id, so
+ * a lookup is a binary search over the mapped file and nothing has to be
+ * loaded up front.
+ *
+ * <pre>
+ *  0  int    magic "BSNP"
+ *  4  int    format version
+ *  8  long   journal sequence the balances include
+ * 16  long   entry count
+ * 24  int    CRC32C of the entries
+ * 28  int    reserved
+ * 32  count * (long accountId, long balance in pence, int currency code, int reserved)
+ * </pre>
+ *
+ * Files of an older format version fail {@link #open} and are skipped, so
+ * the first snapshot after an upgrade is taken from the database.
+ */
+public final class BalanceSnapshot {
+
+    static final int MAGIC = 0x42534E50;
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 32;
+    static final int ENTRY_SIZE = 24;
+    static final int MAX_ENTRIES = (Integer.MAX_VALUE - HEADER_SIZE) / ENTRY_SIZE;
+
+    // codes are part of the file format - only ever append to these
+    private static final Currency[] CURRENCIES = { Currency.GBP };
+
+    private final Path file;
+    private final long sequence;
+    private final int size;
+    private final ByteBuffer entries;
+
+    private BalanceSnapshot(Path file, long sequence, int size, ByteBuffer entries) {
+        this.file = file;
+        this.sequence = sequence;
+        this.size = size;
+        this.entries = entries;
+    }
+
+    /**
+     * Maps and verifies a snapshot file.
+     *
+     * @throws IllegalStateException if the file is incomplete or corrupt
+     */
+    static BalanceSnapshot open(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE || fileSize > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Balance snapshot " + file + " has an invalid size of " + fileSize + " bytes.");
+            }
+            // the mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IllegalStateException(file + " is not a balance snapshot.");
+            }
+            long sequence = buffer.getLong(8);
+            long count = buffer.getLong(16);
+            if (count < 0 || count > MAX_ENTRIES || HEADER_SIZE + count * ENTRY_SIZE != fileSize) {
+                throw new IllegalStateException("Balance snapshot " + file + " is truncated.");
+            }
+
+            ByteBuffer entries = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            entries.position(HEADER_SIZE);
+            entries = entries.slice().order(ByteOrder.LITTLE_ENDIAN);
+            CRC32C crc = new CRC32C();
+            crc.update(entries.duplicate());
+            if ((int) crc.getValue() != buffer.getInt(24)) {
+                throw new IllegalStateException("Balance snapshot " + file + " failed its checksum.");
+            }
+            return new BalanceSnapshot(file, sequence, (int) count, entries);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * @return the account's balance in the snapshot, or null if the account
+     *         didn't exist when it was taken
+     */
+    public Money balanceOf(Long accountId) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long id = entries.getLong(mid * ENTRY_SIZE);
+            if (id < accountId) {
+                low = mid + 1;
+            } else if (id > accountId) {
+                high = mid - 1;
+            } else {
+                return Money.ofPence(entries.getLong(mid * ENTRY_SIZE + 8),
+                        CURRENCIES[entries.getInt(mid * ENTRY_SIZE + 16) - 1]);
+            }
+        }
+        return null;
+    }
+
+    static int currencyCode(Currency currency) {
+        for (int i = 0; i < CURRENCIES.length; i++) {
+            if (CURRENCIES[i] == currency) {
+                return i + 1;
+            }
+        }
+        throw new IllegalArgumentException("No balance snapshot code for " + currency);
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+}
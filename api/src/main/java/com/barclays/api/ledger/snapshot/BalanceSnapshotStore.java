@@ -0,0 +1,152 @@
+package com.barclays.api.ledger.snapshot;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.barclays.api.ledger.PostingMode;
+
+/**
+ * Balance snapshot files under {@code api.ledger.snapshot.dir}, one per
+ * journal sequence they were taken at. New snapshots are written to a
+ * temporary file and renamed into place; only the newest {@code retain}
+ * are kept.
+ *
+ * Snapshots are only taken in {@link PostingMode#JOURNAL} mode, where every
+ * balance change has a journal sequence to replay from.
+ */
+@Component
+public class BalanceSnapshotStore {
+
+    private static final Logger log = LoggerFactory.getLogger(BalanceSnapshotStore.class);
+
+    private static final Pattern FILE_NAME = Pattern.compile("\\d{20}\\.snapshot");
+
+    private final Path directory;
+    private final boolean enabled;
+    private final long intervalMillis;
+    private final int retain;
+
+    private volatile long latestSequence;
+    private volatile long lastAttemptMillis;
+
+    @Autowired
+    public BalanceSnapshotStore(
+        @Value("${api.ledger.posting-mode:legacy}") PostingMode postingMode,
+        @Value("${api.ledger.snapshot.dir:data/snapshots}") String directory,
+        @Value("${api.ledger.snapshot.interval-ms:300000}") long intervalMillis,
+        @Value("${api.ledger.snapshot.retain:2}") int retain
+    ) {
+        this.directory = Paths.get(directory);
+        this.enabled = postingMode == PostingMode.JOURNAL && intervalMillis > 0;
+        this.intervalMillis = intervalMillis;
+        this.retain = Math.max(1, retain);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isDue() {
+        return enabled && System.currentTimeMillis() - lastAttemptMillis >= intervalMillis;
+    }
+
+    /**
+     * The newest snapshot that passes its checks, memory-mapped, or null if
+     * there is none. Damaged files are skipped in favour of older ones.
+     */
+    public BalanceSnapshot latest() {
+        if (!enabled || !Files.isDirectory(directory)) {
+            return null;
+        }
+        for (Path file : snapshotFiles()) {
+            try {
+                BalanceSnapshot snapshot = BalanceSnapshot.open(file);
+                latestSequence = Math.max(latestSequence, snapshot.getSequence());
+                return snapshot;
+            } catch (IllegalStateException ex) {
+                log.warn("Ignoring balance snapshot {}: {}", file, ex.getMessage());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes a snapshot of the balances as of journal record {@code sequence}.
+     * {@code contents} must append every account's balance, in ascending
+     * account id order.
+     */
+    public BalanceSnapshot write(long sequence, Consumer<BalanceSnapshotWriter> contents) {
+        lastAttemptMillis = System.currentTimeMillis();
+        Path target = directory.resolve(String.format("%020d.snapshot", sequence));
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(directory);
+            BalanceSnapshotWriter writer = new BalanceSnapshotWriter(temporary, sequence);
+            try {
+                contents.accept(writer);
+                writer.finish();
+            } finally {
+                writer.close();
+            }
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (IOException ex) {
+                log.warn("Could not delete {}", temporary, ex);
+            }
+        }
+
+        latestSequence = Math.max(latestSequence, sequence);
+        prune();
+        return BalanceSnapshot.open(target);
+    }
+
+    /**
+     * The journal sequence of the newest snapshot written or loaded, or 0.
+     * Journal records after it are still needed to rebuild balances.
+     */
+    public long latestSequence() {
+        return latestSequence;
+    }
+
+    private void prune() {
+        List<Path> files = snapshotFiles();
+        for (Path file : files.subList(Math.min(retain, files.size()), files.size())) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ex) {
+                log.warn("Could not delete old balance snapshot {}", file, ex);
+            }
+        }
+    }
+
+    // newest first
+    private List<Path> snapshotFiles() {
+        try (Stream<Path> listing = Files.list(directory)) {
+            return listing.filter(file -> FILE_NAME.matcher(file.getFileName().toString()).matches())
+                .sorted(Comparator.reverseOrder())
+                .collect(Collectors.toList());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
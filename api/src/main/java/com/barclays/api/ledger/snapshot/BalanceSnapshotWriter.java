@@ -0,0 +1,100 @@
+package com.barclays.api.ledger.snapshot;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+import com.barclays.api.domain.Money;
+
+/**
+ * Streams balances, in ascending account id order, into a new snapshot file.
+ * The header is written last, so a file cut short by a crash never passes
+ * {@link BalanceSnapshot#open}.
+ */
+public final class BalanceSnapshotWriter {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final long sequence;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final CRC32C crc = new CRC32C();
+
+    private long count;
+    private long lastAccountId = Long.MIN_VALUE;
+
+    BalanceSnapshotWriter(Path file, long sequence) {
+        try {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+            this.channel.position(BalanceSnapshot.HEADER_SIZE);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        this.sequence = sequence;
+    }
+
+    public void append(Long accountId, Money balance) {
+        if (accountId <= lastAccountId) {
+            throw new IllegalArgumentException("Balances must be written in ascending account id order.");
+        }
+        if (count == BalanceSnapshot.MAX_ENTRIES) {
+            throw new IllegalStateException("Too many accounts for one balance snapshot.");
+        }
+        if (buffer.remaining() < BalanceSnapshot.ENTRY_SIZE) {
+            flush();
+        }
+        buffer.putLong(accountId);
+        buffer.putLong(balance.getPence());
+        buffer.putInt(BalanceSnapshot.currencyCode(balance.getCurrency()));
+        buffer.putInt(0);
+        lastAccountId = accountId;
+        count++;
+    }
+
+    void finish() {
+        flush();
+        ByteBuffer header = ByteBuffer.allocate(BalanceSnapshot.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(BalanceSnapshot.MAGIC)
+            .putInt(BalanceSnapshot.VERSION)
+            .putLong(sequence)
+            .putLong(count)
+            .putInt((int) crc.getValue())
+            .putInt(0)
+            .flip();
+        try {
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    void close() {
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private void flush() {
+        buffer.flip();
+        crc.update(buffer.duplicate());
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        buffer.clear();
+    }
+}
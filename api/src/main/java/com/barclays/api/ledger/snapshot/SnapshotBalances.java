@@ -0,0 +1,80 @@
+package com.barclays.api.ledger.snapshot;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.barclays.api.domain.Money;
+import com.barclays.api.ledger.journal.JournalRecord;
+import com.barclays.api.ledger.journal.TransactionJournal;
+
+/**
+ * Balances as of the end of the journal, rebuilt from the newest snapshot
+ * plus the journal records written after it. Only the tail is read at
+ * start-up; snapshot balances are looked up in the mapped file on demand.
+ */
+public final class SnapshotBalances {
+
+    private static final Logger log = LoggerFactory.getLogger(SnapshotBalances.class);
+
+    private static final int TAIL_READ_SIZE = 10_000;
+
+    private final BalanceSnapshot snapshot;
+    private final Map<Long, Money> tailDeltas;
+
+    private SnapshotBalances(BalanceSnapshot snapshot, Map<Long, Money> tailDeltas) {
+        this.snapshot = snapshot;
+        this.tailDeltas = tailDeltas;
+    }
+
+    /**
+     * @return the rebuilt balances, or null if there is no snapshot the
+     *         journal can bring up to date
+     */
+    public static SnapshotBalances load(BalanceSnapshotStore store, TransactionJournal journal) {
+        BalanceSnapshot snapshot = store.latest();
+        if (snapshot == null) {
+            return null;
+        }
+        long end = journal.lastSequence();
+        if (snapshot.getSequence() > end || snapshot.getSequence() + 1 < journal.firstSequence()) {
+            log.warn("Balance snapshot {} doesn't line up with the journal (records {}-{}), ignoring it",
+                    snapshot.getFile(), journal.firstSequence(), end);
+            return null;
+        }
+
+        Map<Long, Money> tailDeltas = new HashMap<>();
+        long next = snapshot.getSequence() + 1;
+        while (next <= end) {
+            List<JournalRecord> records = journal.read(next, (int) Math.min(TAIL_READ_SIZE, end - next + 1));
+            for (JournalRecord record : records) {
+                tailDeltas.merge(record.getAccountId(), record.signedAmount(), Money::plus);
+            }
+            next += records.size();
+        }
+
+        log.info("Loaded balance snapshot {} ({} accounts) and {} later journal record(s)",
+                snapshot.getFile(), snapshot.size(), end - snapshot.getSequence());
+        return new SnapshotBalances(snapshot, tailDeltas);
+    }
+
+    /**
+     * @return the account's balance at the end of the journal, or null if
+     *         the account isn't in the snapshot
+     */
+    public Money balanceOf(Long accountId) {
+        Money balance = snapshot.balanceOf(accountId);
+        if (balance == null) {
+            return null;
+        }
+        Money delta = tailDeltas.get(accountId);
+        return delta == null ? balance : balance.plus(delta);
+    }
+
+    public long getSequence() {
+        return snapshot.getSequence();
+    }
+}
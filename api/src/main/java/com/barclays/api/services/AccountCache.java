@@ -0,0 +1,46 @@
+package com.barclays.api.services;
+
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.barclays.api.domain.Account;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Accounts by id, each with its user loaded (see {@link ReadThroughCache}).
+ * Callers set balances on the accounts they are given, which is why every
+ * one gets a copy of its own.
+ */
+@Component
+public class AccountCache extends ReadThroughCache<Long, Account> {
+
+    @Autowired
+    public AccountCache(
+        @Value("${api.accounts.cache.max-entries:10000}") int maxEntries,
+        @Value("${api.accounts.cache.ttl-ms:300000}") long ttlMillis,
+        MeterRegistry meterRegistry
+    ) {
+        this(maxEntries, ttlMillis, meterRegistry, System::currentTimeMillis);
+    }
+
+    AccountCache(int maxEntries, long ttlMillis, MeterRegistry meterRegistry, LongSupplier clock) {
+        super("account", maxEntries, ttlMillis, meterRegistry, clock);
+    }
+
+    @Override
+    protected Account copyOf(Account account) {
+        Account copy = new Account(account.getAccountNumber(), account.getSortCode(), account.getName(),
+            account.getAccountType(), account.getBalance(), account.getCurrency(),
+            account.getUser() == null ? null : UserCache.copy(account.getUser()));
+        copy.setId(account.getId());
+        copy.setBalanceSlots(account.getBalanceSlots());
+        copy.setVersion(account.getVersion());
+        copy.setCreatedTimestamp(copyOf(account.getCreatedTimestamp()));
+        copy.setUpdatedTimestamp(copyOf(account.getUpdatedTimestamp()));
+        return copy;
+    }
+}
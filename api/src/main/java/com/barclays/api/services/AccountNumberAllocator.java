@@ -0,0 +1,179 @@
+package com.barclays.api.services;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.barclays.api.dao.AccountDao;
+import com.barclays.api.dao.AccountNumberBlockDao;
+import com.barclays.api.domain.AccountNumberBlock;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Hands out account numbers that no other account, on this node or any
+ * other, has or will be given, so account creation never trips the unique
+ * constraint on {@code accounts.account_number}.
+ *
+ * Numbers are reserved {@link #BLOCK_SIZE} at a time by inserting an
+ * {@link AccountNumberBlock} row - one statement, in a transaction of its
+ * own so the reservation stands even if the account that asked for it is
+ * rolled back - and are then served from memory. The numbers left in a
+ * block when the node stops are never used. With check digits, the last of
+ * the eight digits makes the number pass the configured modulus check and
+ * the block's serials are seven digits long; a serial no digit can make
+ * pass is skipped.
+ *
+ * Block serials start at {@code blockId * BLOCK_SIZE}, a range accounts
+ * numbered before blocks existed (at random) may already use. So when a
+ * block is reserved the numbers in its range that accounts already hold are
+ * read in one query, and skipped.
+ *
+ * Every account is given the branch's sort code, {@code api.accounts.sort-code}.
+ * Publishes {@code account.numbers.blocks}.
+ */
+@Component
+public class AccountNumberAllocator {
+
+    static final int BLOCK_SIZE = 100;
+
+    private static final int DIGITS = 8;
+    private static final Pattern SORT_CODE = Pattern.compile("\\d{2}-\\d{2}-\\d{2}");
+
+    private final AccountNumberBlockDao accountNumberBlockDao;
+    private final AccountDao accountDao;
+    private final TransactionTemplate transactionTemplate;
+    private final String sortCode;
+    private final CheckDigits checkDigits;
+    private final long serials;
+    private final Counter blockCounter;
+
+    // guarded by this; the next serial to hand out and the end of its block
+    private long next;
+    private long end;
+    private Set<String> taken = Set.of();
+
+    @Autowired
+    public AccountNumberAllocator(
+        AccountNumberBlockDao accountNumberBlockDao,
+        AccountDao accountDao,
+        PlatformTransactionManager transactionManager,
+        @Value("${api.accounts.sort-code:10-10-10}") String sortCode,
+        @Value("${api.accounts.number.check-digits:none}") CheckDigits checkDigits,
+        MeterRegistry meterRegistry
+    ) {
+        if (!SORT_CODE.matcher(sortCode).matches()) {
+            throw new IllegalArgumentException("api.accounts.sort-code must look like 10-10-10.");
+        }
+        this.accountNumberBlockDao = accountNumberBlockDao;
+        this.accountDao = accountDao;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.sortCode = sortCode;
+        this.checkDigits = checkDigits;
+        this.serials = checkDigits == CheckDigits.NONE ? 100_000_000L : 10_000_000L;
+
+        this.blockCounter = Counter.builder("account.numbers.blocks")
+                .description("Blocks of account numbers reserved by this node")
+                .register(meterRegistry);
+    }
+
+    public String getSortCode() {
+        return sortCode;
+    }
+
+    public synchronized String nextAccountNumber() {
+        while (true) {
+            if (next == end) {
+                reserveBlock();
+            }
+            String accountNumber = checkDigits.complete(next++);
+            if (accountNumber != null && !taken.contains(accountNumber)) {
+                return accountNumber;
+            }
+        }
+    }
+
+    private void reserveBlock() {
+        long block = transactionTemplate.execute(status -> accountNumberBlockDao.save(new AccountNumberBlock()).getId());
+        long first = block * BLOCK_SIZE;
+        if (first + BLOCK_SIZE > serials) {
+            throw new IllegalStateException("Account numbers have run out at block " + block + ".");
+        }
+        // with check digits a serial is the number's first seven digits
+        int scale = checkDigits == CheckDigits.NONE ? 1 : 10;
+        taken = new HashSet<>(accountDao.findAccountNumbersBetween(digits(first * scale),
+                digits((first + BLOCK_SIZE) * scale - 1)));
+        next = first;
+        end = first + BLOCK_SIZE;
+        blockCounter.increment();
+    }
+
+    private static String digits(long value) {
+        char[] digits = new char[DIGITS];
+        for (int i = DIGITS - 1; i >= 0; i--) {
+            digits[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return new String(digits);
+    }
+
+    /**
+     * The UK (VocaLink) modulus check an account number is made to pass,
+     * selected with {@code api.accounts.number.check-digits}. The weights are
+     * the standard ones from the VocaLink specification's worked examples,
+     * with the sort code weighted zero; the weighted sum of the eight digits
+     * must divide by the modulus.
+     */
+    public enum CheckDigits {
+
+        NONE(1),
+
+        MOD10(10, 7, 1, 3, 7, 1, 3, 7, 1),
+
+        MOD11(11, 8, 7, 6, 5, 4, 3, 2, 1);
+
+        private final int modulus;
+        private final int[] weights;
+
+        CheckDigits(int modulus, int... weights) {
+            this.modulus = modulus;
+            this.weights = weights;
+        }
+
+        public boolean accepts(String accountNumber) {
+            if (this == NONE) {
+                return true;
+            }
+            int sum = 0;
+            for (int i = 0; i < DIGITS; i++) {
+                sum += (accountNumber.charAt(i) - '0') * weights[i];
+            }
+            return sum % modulus == 0;
+        }
+
+        // the serial and the digit that makes it pass, or null if none does
+        String complete(long serial) {
+            if (this == NONE) {
+                return digits(serial);
+            }
+            int sum = 0;
+            long rest = serial;
+            for (int i = DIGITS - 2; i >= 0; i--) {
+                sum += (int) (rest % 10) * weights[i];
+                rest /= 10;
+            }
+            // the last weight is 1, so the check digit adds itself to the sum
+            int check = (modulus - sum % modulus) % modulus;
+            return check > 9 ? null : digits(serial * 10 + check);
+        }
+    }
+}
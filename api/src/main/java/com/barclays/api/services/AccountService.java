@@ -1,16 +1,27 @@
 package com.barclays.api.services;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
+import java.util.Set;
 
 import javax.validation.constraints.NotNull;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.validation.annotation.Validated;
 
+import com.barclays.api.dao.AccountBalance;
 import com.barclays.api.dao.AccountDao;
+import com.barclays.api.dao.AccountOwner;
+import com.barclays.api.dao.BalanceSlotDao;
 import com.barclays.api.domain.Account;
+import com.barclays.api.domain.BalanceSlot;
+import com.barclays.api.domain.view.AccountView;
 import com.barclays.api.exceptions.ResourceNotFoundException;
 
 @Service
@@ -18,43 +29,180 @@ import com.barclays.api.exceptions.ResourceNotFoundException;
 public class AccountService {
 
     private final AccountDao accountDao;
+    private final BalanceSlotDao balanceSlotDao;
+    private final AccountCache accountCache;
+    private final AccountOwnerIndex accountOwnerIndex;
+    private final AccountNumberAllocator accountNumberAllocator;
 
     @Autowired
     public AccountService(
-        AccountDao accountDao
+        AccountDao accountDao,
+        BalanceSlotDao balanceSlotDao,
+        AccountCache accountCache,
+        AccountOwnerIndex accountOwnerIndex,
+        AccountNumberAllocator accountNumberAllocator
     ) {
         this.accountDao = accountDao;
+        this.balanceSlotDao = balanceSlotDao;
+        this.accountCache = accountCache;
+        this.accountOwnerIndex = accountOwnerIndex;
+        this.accountNumberAllocator = accountNumberAllocator;
     }
     
     public String getNewSortCode() {
-        Random random = new Random();
-        return String.format("%02d-%02d-%02d", random.nextInt(100), random.nextInt(100), random.nextInt(100));
+        return accountNumberAllocator.getSortCode();
     }
 
+    /**
+     * An account number no other account has, from {@link AccountNumberAllocator}.
+     */
     public String getNewAccountNumber() {
-        Random random = new Random();
-        return String.format("%08d", random.nextInt(100000000));
+        return accountNumberAllocator.nextAccountNumber();
     }
 
+    @Transactional
     public Account createAccount(@NotNull Account account) {
         System.out.println("Creating account: " + account);
-        return accountDao.save(account);
+        Account created = accountDao.save(account);
+
+        if (created.getBalanceSlots() != null) {
+            List<BalanceSlot> slots = new ArrayList<>(created.getBalanceSlots());
+            for (int slot = 0; slot < created.getBalanceSlots(); slot++) {
+                slots.add(new BalanceSlot(created, slot));
+            }
+            balanceSlotDao.saveAll(slots);
+        }
+        accountCache.put(created.getId(), created);
+        accountOwnerIndex.put(created.getId(), created.getUser().getId());
+        return created;
     }
 
     public List<Account> getAccounts(@NotNull String principalEmail) {
         return accountDao.findByUserEmail(principalEmail);
     }
 
+    /**
+     * The principal's accounts as views, with each striped account's balance
+     * replaced by its total. Nothing is loaded into the persistence context.
+     */
+    @Transactional(readOnly = true)
+    public List<AccountView> getAccountViews(@NotNull String principalEmail) {
+        List<AccountView> accounts = accountDao.findViewsByUserEmail(principalEmail);
+        Set<Long> striped = new HashSet<>();
+        for (AccountView account : accounts) {
+            if (account.getBalanceSlots() != null) {
+                striped.add(account.getId());
+            }
+        }
+        if (striped.isEmpty()) {
+            return accounts;
+        }
+
+        Map<Long, AccountBalance> totals = new HashMap<>();
+        for (AccountBalance total : balanceSlotDao.findTotalBalances(striped)) {
+            totals.put(total.getId(), total);
+        }
+        List<AccountView> withTotals = new ArrayList<>(accounts.size());
+        for (AccountView account : accounts) {
+            AccountBalance total = totals.get(account.getId());
+            withTotals.add(total == null ? account : account.withBalance(total.getBalance()));
+        }
+        return withTotals;
+    }
+
+    /**
+     * The id of the account's owner, from {@link AccountOwnerIndex} when it's
+     * there.
+     */
+    public long getOwnerId(@NotNull Long accountId) {
+        long ownerId = accountOwnerIndex.ownerOf(accountId);
+        if (ownerId != AccountOwnerIndex.UNKNOWN) {
+            return ownerId;
+        }
+
+        Long owner = accountDao.findOwnerIdById(accountId);
+        if (owner == null) {
+            throw new ResourceNotFoundException("Account with ID " + accountId + " not found.");
+        }
+        accountOwnerIndex.put(accountId, owner);
+        return owner;
+    }
+
+    /**
+     * Those of {@code accountIds} that exist and belong to the user, looking
+     * up any that {@link AccountOwnerIndex} doesn't know with one query.
+     */
+    public Set<Long> findOwnedAccountIds(@NotNull Collection<Long> accountIds, long userId) {
+        Set<Long> owned = new HashSet<>();
+        List<Long> unknown = new ArrayList<>();
+        for (Long accountId : accountIds) {
+            long ownerId = accountOwnerIndex.ownerOf(accountId);
+            if (ownerId == AccountOwnerIndex.UNKNOWN) {
+                unknown.add(accountId);
+            } else if (ownerId == userId) {
+                owned.add(accountId);
+            }
+        }
+        if (unknown.isEmpty()) {
+            return owned;
+        }
+
+        for (AccountOwner owner : accountDao.findOwnersByIds(unknown)) {
+            accountOwnerIndex.put(owner.getId(), owner.getUserId());
+            if (owner.getUserId() == userId) {
+                owned.add(owner.getId());
+            }
+        }
+        return owned;
+    }
+
+    /**
+     * The account with its user, from {@link AccountCache} when it's there.
+     * Each call returns a copy of its own that is never managed, so changes
+     * made to it are only saved by an explicit write.
+     */
     public Account getById(@NotNull Long accountId) {
 
-        Account account = accountDao.findById(accountId).orElse(null);
+        Account account = accountCache.get(accountId, id -> accountDao.findWithUserById(id).orElse(null));
         if (account == null) {
             throw new ResourceNotFoundException("Account with ID " + accountId + " not found.");
         }
         return account;
     }
 
+    /**
+     * Replaces the balance of each striped account with its total, the
+     * account row plus its slots. Only for accounts that are being returned
+     * to a caller - the change must never be saved.
+     */
+    public void includeBalanceSlots(@NotNull Collection<Account> accounts) {
+        Map<Long, Account> striped = new HashMap<>();
+        for (Account account : accounts) {
+            if (account.getBalanceSlots() != null) {
+                striped.put(account.getId(), account);
+            }
+        }
+        if (striped.isEmpty()) {
+            return;
+        }
+        for (AccountBalance total : balanceSlotDao.findTotalBalances(striped.keySet())) {
+            striped.get(total.getId()).setBalance(total.getBalance());
+        }
+    }
+
     public void updateBalance(@NotNull Account account) {
         accountDao.updateBalance(account.getId(), account.getBalance());
+        // the UPDATE bumps the version in the row only, so the copy can't be written through
+        accountCache.invalidate(account.getId());
+    }
+
+    /**
+     * Drops the accounts from {@link AccountCache}. Every writer of an
+     * account row calls this once it has written.
+     */
+    public void evict(@NotNull Collection<Long> accountIds) {
+        for (Long accountId : accountIds) {
+            accountCache.invalidate(accountId);
+        }
     }
 }
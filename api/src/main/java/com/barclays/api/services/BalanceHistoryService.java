@@ -0,0 +1,144 @@
+package com.barclays.api.services;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import javax.validation.constraints.NotNull;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.validation.annotation.Validated;
+
+import com.barclays.api.dao.AccountDao;
+import com.barclays.api.dao.BalanceSlotDao;
+import com.barclays.api.dao.DailyBalanceDao;
+import com.barclays.api.dao.TransactionDao;
+import com.barclays.api.dao.TransactionTotal;
+import com.barclays.api.domain.Account;
+import com.barclays.api.domain.BalanceSlot;
+import com.barclays.api.domain.DailyBalance;
+import com.barclays.api.exceptions.ResourceNotFoundException;
+
+/**
+ * Balances at a point in the past. Each one is worked out from the nearest
+ * daily closing balance ({@link DailyBalance}) and the transactions between
+ * that day's end and the point asked for - a range scan of about a day's
+ * transactions, however long the account's history is.
+ */
+@Service
+@Validated
+public class BalanceHistoryService {
+
+    private final AccountDao accountDao;
+    private final BalanceSlotDao balanceSlotDao;
+    private final TransactionDao transactionDao;
+    private final DailyBalanceDao dailyBalanceDao;
+
+    @Autowired
+    public BalanceHistoryService(
+        AccountDao accountDao,
+        BalanceSlotDao balanceSlotDao,
+        TransactionDao transactionDao,
+        DailyBalanceDao dailyBalanceDao
+    ) {
+        this.accountDao = accountDao;
+        this.balanceSlotDao = balanceSlotDao;
+        this.transactionDao = transactionDao;
+        this.dailyBalanceDao = dailyBalanceDao;
+    }
+
+    /**
+     * The account's balance after every transaction created before
+     * {@code asOf}. Worked forward from the last closing balance before
+     * {@code asOf}'s day or, when there isn't one yet, back from the first
+     * one after it. Only an account with no closing balances at all is
+     * worked back from its current balance. Everything is read from one
+     * snapshot (repeatable read), so the current balance, the slots and the
+     * transactions since agree without locking the account against postings.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public BigDecimal getBalanceAsOf(@NotNull Long accountId, @NotNull LocalDateTime asOf) {
+        LocalDate day = asOf.toLocalDate();
+        Optional<DailyBalance> before =
+            dailyBalanceDao.findFirstByAccountIdAndBalanceDateLessThanOrderByBalanceDateDesc(accountId, day);
+        if (before.isPresent()) {
+            LocalDateTime closed = endOf(before.get().getBalanceDate());
+            return before.get().getClosingBalance()
+                .add(TransactionTotal.net(transactionDao.findTotalsCreatedBetween(accountId, closed, asOf)));
+        }
+
+        Optional<DailyBalance> after =
+            dailyBalanceDao.findFirstByAccountIdAndBalanceDateGreaterThanEqualOrderByBalanceDateAsc(accountId, day);
+        if (after.isPresent()) {
+            LocalDateTime closed = endOf(after.get().getBalanceDate());
+            return after.get().getClosingBalance()
+                .subtract(TransactionTotal.net(transactionDao.findTotalsCreatedBetween(accountId, asOf, closed)));
+        }
+
+        Account account = accountDao.findById(accountId)
+            .orElseThrow(() -> new ResourceNotFoundException("Account with ID " + accountId + " not found."));
+        List<BalanceSlot> slots = account.getBalanceSlots() == null
+            ? List.of()
+            : balanceSlotDao.findByAccountIdOrderBySlot(accountId);
+        return balanceBefore(account, slots, asOf);
+    }
+
+    /**
+     * Records the account's closing balance for {@code day}, carried forward
+     * from its previous closing balance by the transactions since. The first
+     * one for an account is worked back from its current balance instead.
+     * Does nothing if the day already has one.
+     */
+    @Transactional
+    public void checkpoint(@NotNull Long accountId, @NotNull LocalDate day) {
+        if (dailyBalanceDao.existsByAccountIdAndBalanceDate(accountId, day)) {
+            return;
+        }
+
+        LocalDateTime end = endOf(day);
+        Optional<DailyBalance> previous =
+            dailyBalanceDao.findFirstByAccountIdAndBalanceDateLessThanOrderByBalanceDateDesc(accountId, day);
+        DailyBalance checkpoint;
+        if (previous.isPresent()) {
+            List<TransactionTotal> since = transactionDao.findTotalsCreatedBetween(accountId,
+                endOf(previous.get().getBalanceDate()), end);
+            checkpoint = new DailyBalance(previous.get().getAccount(), day,
+                previous.get().getClosingBalance().add(TransactionTotal.net(since)));
+        } else {
+            Account account = lockAccount(accountId);
+            // slots after the account row, the order every slow-path withdrawal takes them in
+            List<BalanceSlot> slots = account.getBalanceSlots() == null
+                ? List.of()
+                : balanceSlotDao.findByAccountIdForUpdate(accountId);
+            checkpoint = new DailyBalance(account, day, balanceBefore(account, slots, end));
+        }
+        dailyBalanceDao.save(checkpoint);
+    }
+
+    // midnight at the end of the day - transactions stamped at it belong to the next day
+    static LocalDateTime endOf(LocalDate day) {
+        return day.plusDays(1).atStartOfDay();
+    }
+
+    private Account lockAccount(Long accountId) {
+        List<Account> accounts = accountDao.findAllByIdForUpdate(List.of(accountId));
+        if (accounts.isEmpty()) {
+            throw new ResourceNotFoundException("Account with ID " + accountId + " not found.");
+        }
+        return accounts.get(0);
+    }
+
+    // current balance less what has been posted since; the account and its slots locked or read in one snapshot
+    private BigDecimal balanceBefore(Account account, List<BalanceSlot> slots, LocalDateTime since) {
+        BigDecimal balance = account.getBalance();
+        for (BalanceSlot slot : slots) {
+            balance = balance.add(slot.getBalance());
+        }
+        return balance.subtract(TransactionTotal.net(transactionDao.findTotalsCreatedSince(account.getId(), since)));
+    }
+}
@@ -0,0 +1,125 @@
+package com.barclays.api.services;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.barclays.api.dao.DailyBalanceDao;
+import com.barclays.api.dao.TransactionDao;
+
+/**
+ * Writes daily closing balances for {@link BalanceHistoryService}. Every
+ * {@code interval-ms} it picks up from the last day it checkpointed and,
+ * for each later day that has ended at least {@code settle-ms} ago, writes a
+ * closing balance for just the accounts that had transactions that day.
+ * Days without any transactions are skipped in a single index seek.
+ *
+ * The settle time lets postings stamped just before midnight commit before
+ * their day is closed; in {@code journal} mode it has to cover the
+ * projector's lag as well.
+ */
+@Component
+public class DailyBalanceCheckpointer {
+
+    private static final Logger log = LoggerFactory.getLogger(DailyBalanceCheckpointer.class);
+
+    private final BalanceHistoryService balanceHistoryService;
+    private final TransactionDao transactionDao;
+    private final DailyBalanceDao dailyBalanceDao;
+    private final long intervalMillis;
+    private final Duration settle;
+
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public DailyBalanceCheckpointer(
+        BalanceHistoryService balanceHistoryService,
+        TransactionDao transactionDao,
+        DailyBalanceDao dailyBalanceDao,
+        @Value("${api.balances.checkpoint.interval-ms:3600000}") long intervalMillis,
+        @Value("${api.balances.checkpoint.settle-ms:600000}") long settleMillis
+    ) {
+        this.balanceHistoryService = balanceHistoryService;
+        this.transactionDao = transactionDao;
+        this.dailyBalanceDao = dailyBalanceDao;
+        this.intervalMillis = intervalMillis;
+        this.settle = Duration.ofMillis(settleMillis);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (intervalMillis <= 0 || scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "balance-checkpointer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::runOnce, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        scheduler = null;
+    }
+
+    private void runOnce() {
+        try {
+            checkpointDaysEndedBy(LocalDateTime.now().minus(settle));
+        } catch (RuntimeException ex) {
+            // nothing is lost, the next run starts from the last day checkpointed
+            log.warn("Daily balance checkpoint failed", ex);
+        }
+    }
+
+    /**
+     * Checkpoints every day with transactions that ended by {@code cutoff},
+     * starting with the last day checkpointed - it may have been cut short,
+     * and accounts it already has are skipped.
+     *
+     * @return how many closing balances were looked at
+     */
+    public int checkpointDaysEndedBy(LocalDateTime cutoff) {
+        LocalDate latest = dailyBalanceDao.findLatestBalanceDate();
+        LocalDateTime from = latest == null ? LocalDate.EPOCH.atStartOfDay() : latest.atStartOfDay();
+
+        int checkpoints = 0;
+        LocalDateTime next;
+        while ((next = transactionDao.findFirstCreatedTimestampFrom(from)) != null) {
+            LocalDate day = next.toLocalDate();
+            LocalDateTime end = BalanceHistoryService.endOf(day);
+            if (end.isAfter(cutoff)) {
+                break;
+            }
+
+            List<Long> accountIds = transactionDao.findAccountIdsCreatedBetween(day.atStartOfDay(), end);
+            for (Long accountId : accountIds) {
+                balanceHistoryService.checkpoint(accountId, day);
+            }
+            checkpoints += accountIds.size();
+            from = end;
+        }
+        if (checkpoints > 0) {
+            log.info("Checkpointed {} daily balances up to {}", checkpoints, from.toLocalDate().minusDays(1));
+        }
+        return checkpoints;
+    }
+}
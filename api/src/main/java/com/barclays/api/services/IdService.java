@@ -1,14 +1,118 @@
 package com.barclays.api.services;
 
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+/**
+ * Snowflake-style ids: 41 bits of milliseconds since {@link #EPOCH_MILLIS},
+ * 10 bits of node id (from {@link NodeIdLease}, so no two running nodes
+ * share one) and a 12-bit sequence within the millisecond. Ids from one
+ * node only ever go up and ids from different nodes can't meet, so they
+ * never collide and the transactions primary key is only ever appended to.
+ *
+ * The last time and sequence handed out are one {@code long}, moved on with
+ * a compare-and-set: no lock and no allocation beyond the id's text. A node
+ * that hands out more than 4096 ids in a millisecond carries into the next
+ * one rather than waiting for the clock, and a clock that steps back is
+ * ignored until it has caught up again, so ids stay in order either way.
+ *
+ * The last id isn't persisted. A node starts handing out ids
+ * {@code restart-guard-ms} ahead of its clock instead, so a node that
+ * restarts, or takes over a node id another node stopped using, doesn't
+ * repeat its predecessor's ids unless the clock it starts with is more
+ * than the guard behind the clock they were handed out by. Once the
+ * node id's lease has expired, no more ids are handed out.
+ */
 @Service
 public class IdService {
 
+    // 2024-01-01T00:00:00Z; 41 bits of milliseconds from here last until 2093
+    static final long EPOCH_MILLIS = 1_704_067_200_000L;
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+    // Crockford's base32 is in ASCII order, so the text sorts like the number
+    private static final char[] DIGITS = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int ID_CHARS = 13;
+
+    private final long node;
+    private final LongSupplier clock;
+    private final LongSupplier leaseExpiry;
+    // milliseconds since the epoch << SEQUENCE_BITS | sequence, of the last id handed out
+    private final AtomicLong last;
+
+    @Autowired
+    public IdService(NodeIdLease nodeIdLease, @Value("${api.ids.restart-guard-ms:2000}") long restartGuardMillis) {
+        this(nodeIdLease.getNodeId(), System::currentTimeMillis, restartGuardMillis, nodeIdLease::getExpiresMillis);
+    }
+
+    public IdService(int nodeId) {
+        this(nodeId, System::currentTimeMillis);
+    }
+
+    IdService(int nodeId, LongSupplier clock) {
+        this(nodeId, clock, 0, () -> Long.MAX_VALUE);
+    }
+
+    IdService(int nodeId, LongSupplier clock, long restartGuardMillis, LongSupplier leaseExpiry) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("api.ids.node-id must be between 0 and " + MAX_NODE_ID + ".");
+        }
+        this.node = (long) nodeId << SEQUENCE_BITS;
+        this.clock = clock;
+        this.leaseExpiry = leaseExpiry;
+        // just below sequence 0 of the guard's first millisecond
+        this.last = new AtomicLong(((clock.getAsLong() + restartGuardMillis - EPOCH_MILLIS) << SEQUENCE_BITS) - 1);
+    }
+
+    /**
+     * @return {@code prefix-} and the next id as 13 base32 digits
+     */
     public String generateId(String prefix) {
-        String chars = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
-        char randomChar = chars.charAt((int) (Math.random() * chars.length()));
-        return prefix + "-" + randomChar;
+        final int length = prefix.length();
+        final char[] text = new char[length + 1 + ID_CHARS];
+        prefix.getChars(0, length, text, 0);
+        text[length] = '-';
+        long id = nextId();
+        for (int i = text.length - 1; i > length; i--) {
+            text[i] = DIGITS[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(text);
+    }
+
+    /**
+     * @return an id larger than any this instance has handed out
+     * @throws IllegalStateException if the node id's lease has expired
+     */
+    public long nextId() {
+        while (true) {
+            final long previous = last.get();
+            final long millis = clock.getAsLong();
+            if (millis >= leaseExpiry.getAsLong()) {
+                throw new IllegalStateException("This node's id lease has expired.");
+            }
+            final long now = (millis - EPOCH_MILLIS) << SEQUENCE_BITS;
+            // a full sequence carries into the next millisecond
+            final long next = now > previous ? now : previous + 1;
+            if (last.compareAndSet(previous, next)) {
+                return (next >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS)
+                    | node
+                    | next & ((1L << SEQUENCE_BITS) - 1);
+            }
+        }
+    }
+
+    static long millisOf(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS;
+    }
+
+    static int nodeOf(long id) {
+        return (int) (id >>> SEQUENCE_BITS) & MAX_NODE_ID;
     }
-    
 }
@@ -0,0 +1,482 @@
+package com.barclays.api.services;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+import javax.validation.constraints.NotNull;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.validation.annotation.Validated;
+
+import com.barclays.api.dao.AccountBalance;
+import com.barclays.api.dao.AccountDao;
+import com.barclays.api.dao.BalanceSlotDao;
+import com.barclays.api.dao.JournalCheckpointDao;
+import com.barclays.api.dao.JournalRejectionDao;
+import com.barclays.api.dao.TransactionDao;
+import com.barclays.api.domain.Account;
+import com.barclays.api.domain.BalanceSlot;
+import com.barclays.api.domain.JournalCheckpoint;
+import com.barclays.api.domain.JournalRejection;
+import com.barclays.api.domain.Money;
+import com.barclays.api.domain.Transaction;
+import com.barclays.api.domain.enums.TransactionType;
+import com.barclays.api.exceptions.ResourceNotFoundException;
+import com.barclays.api.ledger.AccountLockManager;
+import com.barclays.api.ledger.journal.JournalDivergedException;
+
+/**
+ * Posts transactions by pushing the balance change down to the database
+ * instead of writing back a balance computed in Java.
+ */
+@Service
+@Validated
+public class LedgerService {
+
+    private final AccountDao accountDao;
+    private final TransactionDao transactionDao;
+    private final AccountService accountService;
+    private final TransactionService transactionService;
+    private final AccountLockManager accountLockManager;
+    private final JournalCheckpointDao journalCheckpointDao;
+    private final JournalRejectionDao journalRejectionDao;
+    private final BalanceSlotDao balanceSlotDao;
+    private final TransactionRollupService transactionRollupService;
+
+    @Autowired
+    public LedgerService(
+        AccountDao accountDao,
+        TransactionDao transactionDao,
+        AccountService accountService,
+        TransactionService transactionService,
+        AccountLockManager accountLockManager,
+        JournalCheckpointDao journalCheckpointDao,
+        JournalRejectionDao journalRejectionDao,
+        BalanceSlotDao balanceSlotDao,
+        TransactionRollupService transactionRollupService
+    ) {
+        this.accountDao = accountDao;
+        this.transactionDao = transactionDao;
+        this.accountService = accountService;
+        this.transactionService = transactionService;
+        this.accountLockManager = accountLockManager;
+        this.journalCheckpointDao = journalCheckpointDao;
+        this.journalRejectionDao = journalRejectionDao;
+        this.balanceSlotDao = balanceSlotDao;
+        this.transactionRollupService = transactionRollupService;
+    }
+
+    /**
+     * Applies the transaction's delta with a conditional UPDATE and inserts the
+     * transaction row, both in one DB transaction. The row lock taken by the
+     * UPDATE serialises concurrent writers on the same account, so the balance
+     * read back under it is the one this transaction left behind.
+     */
+    @Transactional
+    public Transaction post(@NotNull Transaction transaction) {
+        Long accountId = transaction.getAccount().getId();
+        int updated = accountDao.applyBalanceDelta(accountId, signedAmount(transaction));
+        if (updated == 0) {
+            throw new IllegalArgumentException("Insufficient funds for withdrawal.");
+        }
+        accountService.evict(List.of(accountId));
+
+        transaction.setBalanceAfter(accountDao.findBalanceById(accountId));
+        transactionDao.insert(transaction);
+        transactionRollupService.record(List.of(transaction));
+        return transaction;
+    }
+
+    /**
+     * Runs the read-modify-write of TransactionService and AccountService while
+     * holding the account's lock. Deliberately not @Transactional: the lock has
+     * to outlive the commit, otherwise the next writer could read the balance
+     * before it is visible.
+     */
+    public Transaction postLocked(@NotNull Transaction transaction) {
+        Long accountId = transaction.getAccount().getId();
+        return accountLockManager.withLock(accountId, () -> {
+            Account account = accountService.getById(accountId);
+            transaction.setAccount(account);
+
+            Transaction created = transactionService.createTransaction(transaction);
+            accountService.updateBalance(account);
+            return created;
+        });
+    }
+
+    /**
+     * Reads the account without locking it, checks the posting against that
+     * balance and writes the new balance only if the account's version hasn't
+     * moved since the read. Uncontended postings never wait on a lock.
+     *
+     * @throws ObjectOptimisticLockingFailureException if another writer got
+     *         there first; nothing has been written and the posting can be
+     *         retried
+     */
+    @Transactional
+    public Transaction postOptimistic(@NotNull Transaction transaction) {
+        Account account = accountService.getById(transaction.getAccount().getId());
+        BigDecimal balance = account.getBalance().add(signedAmount(transaction));
+        if (balance.signum() < 0) {
+            throw new IllegalArgumentException("Insufficient funds for withdrawal.");
+        }
+        // either way: written, or the version read was stale and the retry has to read past it
+        accountService.evict(List.of(account.getId()));
+        if (accountDao.updateBalanceIfVersion(account.getId(), balance, account.getVersion()) == 0) {
+            throw new ObjectOptimisticLockingFailureException(Account.class, account.getId());
+        }
+
+        transaction.setAccount(account);
+        transaction.setBalanceAfter(balance);
+        transactionDao.insert(transaction);
+        transactionRollupService.record(List.of(transaction));
+        return transaction;
+    }
+
+    /**
+     * Posts to a striped account (see {@link Account#getBalanceSlots()}).
+     * A deposit is added to one slot picked at random, so concurrent deposits
+     * only contend when they pick the same slot and never lock the account
+     * row. A withdrawal is taken from the account row if that covers it;
+     * otherwise every slot is locked, in slot order, and their money is moved
+     * into the account row before the withdrawal is applied there.
+     *
+     * No running balance is recorded: a deposit never learns the account's
+     * total, which is the point of striping it. A deposit's rollups go to
+     * its slot's stripe, for the same reason.
+     */
+    @Transactional
+    public Transaction postStriped(@NotNull Transaction transaction) {
+        Account account = transaction.getAccount();
+        Long accountId = account.getId();
+        if (transaction.getType() == TransactionType.DEPOSIT) {
+            int slot = ThreadLocalRandom.current().nextInt(account.getBalanceSlots());
+            if (balanceSlotDao.addToSlot(accountId, slot, transaction.getAmount()) == 0) {
+                throw new IllegalStateException("Account " + accountId + " has no balance slot " + slot + ".");
+            }
+            transactionDao.insert(transaction);
+            transactionRollupService.recordSlotDeposit(transaction, slot);
+            return transaction;
+        }
+
+        if (accountDao.applyBalanceDelta(accountId, signedAmount(transaction)) == 0
+                && !withdrawFromSlots(accountId, signedAmount(transaction))) {
+            throw new IllegalArgumentException("Insufficient funds for withdrawal.");
+        }
+        accountService.evict(List.of(accountId));
+
+        transactionDao.insert(transaction);
+        transactionRollupService.record(List.of(transaction));
+        return transaction;
+    }
+
+    /**
+     * Moves money between two accounts in one DB transaction: a conditional
+     * delta on each balance and both legs inserted. The balance updates are
+     * issued lowest account id first, so the row locks they take are always
+     * acquired in the same global order and two opposing transfers queue
+     * behind each other instead of deadlocking.
+     *
+     * A debit the row of a striped account can't cover draws on its slots as
+     * {@link #postStriped} does. Legs on striped accounts record no running
+     * balance.
+     */
+    @Transactional
+    public void transfer(@NotNull Transaction debit, @NotNull Transaction credit) {
+        Long from = debit.getAccount().getId();
+        Long to = credit.getAccount().getId();
+        if (from.compareTo(to) < 0) {
+            applyTransferLeg(debit);
+            applyTransferLeg(credit);
+        } else {
+            applyTransferLeg(credit);
+            applyTransferLeg(debit);
+        }
+        accountService.evict(List.of(from, to));
+
+        transactionDao.insert(debit);
+        transactionDao.insert(credit);
+        transactionRollupService.record(List.of(debit, credit));
+    }
+
+    private void applyTransferLeg(Transaction leg) {
+        Account account = leg.getAccount();
+        Long accountId = account.getId();
+        boolean striped = account.getBalanceSlots() != null;
+        if (accountDao.applyBalanceDelta(accountId, signedAmount(leg)) == 0) {
+            if (leg.getType() != TransactionType.WITHDRAWAL) {
+                throw new ResourceNotFoundException("Account with ID " + accountId + " not found.");
+            }
+            if (!striped || !withdrawFromSlots(accountId, signedAmount(leg))) {
+                throw new IllegalArgumentException("Insufficient funds for transfer.");
+            }
+        }
+        leg.setBalanceAfter(striped ? null : accountDao.findBalanceById(accountId));
+    }
+
+    /**
+     * The slow path of a withdrawal the row of a striped account can't cover:
+     * moves every slot's money into the row and applies the delta there.
+     *
+     * @return false, with nothing changed, if the slots don't cover it either
+     */
+    private boolean withdrawFromSlots(Long accountId, BigDecimal delta) {
+        // account row before its slots, the order every slow-path withdrawal takes them in
+        accountDao.findAllByIdForUpdate(List.of(accountId));
+        if (accountDao.applyBalanceDelta(accountId, lockSlots(accountId).add(delta)) == 0) {
+            return false;
+        }
+        balanceSlotDao.clearSlots(accountId);
+        return true;
+    }
+
+    // the account's slots, locked in slot order, summed
+    private BigDecimal lockSlots(Long accountId) {
+        BigDecimal slotted = BigDecimal.ZERO;
+        for (BalanceSlot slot : balanceSlotDao.findByAccountIdForUpdate(accountId)) {
+            slotted = slotted.add(slot.getBalance());
+        }
+        return slotted;
+    }
+
+    /**
+     * Posts a batch in one DB transaction: the accounts involved are row-locked
+     * in id order with a single query, every item is applied in order against
+     * the locked balances, and the accepted rows go out as JDBC-batched inserts
+     * followed by one balance update per account. The slots of a striped
+     * account are locked after the rows and their money moved into its row,
+     * so every item is checked against, and records, the account's total.
+     *
+     * @return the rejection reason for each transaction, in input order, or
+     *         null where the transaction was posted. With {@code allOrNothing}
+     *         nothing is written if any transaction is rejected.
+     */
+    @Transactional
+    public List<String> postBatch(@NotNull List<Transaction> transactions, boolean allOrNothing) {
+        List<Account> accounts = accountDao.findAllByIdForUpdate(accountIdsOf(transactions));
+        return applyBatch(transactions, allOrNothing, accounts, false);
+    }
+
+    /**
+     * Like {@link #postBatch}, but the accounts are read without row locks and
+     * each balance is written only if the account's version hasn't moved.
+     *
+     * @throws ObjectOptimisticLockingFailureException if another writer
+     *         changed one of the accounts; nothing has been written
+     */
+    @Transactional
+    public List<String> postBatchOptimistic(@NotNull List<Transaction> transactions, boolean allOrNothing) {
+        List<Account> accounts = new ArrayList<>();
+        accountDao.findAllById(accountIdsOf(transactions)).forEach(accounts::add);
+        return applyBatch(transactions, allOrNothing, accounts, true);
+    }
+
+    private List<String> applyBatch(List<Transaction> transactions, boolean allOrNothing, List<Account> loaded,
+            boolean optimistic) {
+        // id order, so optimistic writers take the row locks of their updates in the same order
+        Map<Long, Account> accounts = new TreeMap<>();
+        Map<Long, BigDecimal> balances = new HashMap<>();
+        Set<Long> striped = new TreeSet<>();
+        for (Account account : loaded) {
+            accounts.put(account.getId(), account);
+            balances.put(account.getId(), account.getBalance());
+            if (account.getBalanceSlots() != null) {
+                striped.add(account.getId());
+            }
+        }
+        if (!striped.isEmpty()) {
+            if (optimistic) {
+                // account rows before their slots; the version check still catches a write since the read
+                accountDao.findAllByIdForUpdate(striped);
+            }
+            for (Long accountId : striped) {
+                balances.put(accountId, balances.get(accountId).add(lockSlots(accountId)));
+            }
+        }
+
+        List<String> rejections = new ArrayList<>(transactions.size());
+        boolean anyRejected = false;
+        for (Transaction transaction : transactions) {
+            Long accountId = transaction.getAccount().getId();
+            BigDecimal balance = balances.get(accountId);
+            if (balance == null) {
+                rejections.add("Account with ID " + accountId + " not found.");
+                anyRejected = true;
+                continue;
+            }
+            if (transaction.getCurrency() != accounts.get(accountId).getCurrency()) {
+                rejections.add("Transaction currency does not match the account.");
+                anyRejected = true;
+                continue;
+            }
+
+            BigDecimal newBalance = balance.add(signedAmount(transaction));
+            if (newBalance.signum() < 0) {
+                rejections.add("Insufficient funds for withdrawal.");
+                anyRejected = true;
+                continue;
+            }
+            balances.put(accountId, newBalance);
+            transaction.setBalanceAfter(newBalance);
+            rejections.add(null);
+        }
+
+        if (anyRejected && allOrNothing) {
+            return rejections;
+        }
+
+        List<Transaction> posted = new ArrayList<>(transactions.size());
+        for (int i = 0; i < transactions.size(); i++) {
+            if (rejections.get(i) == null) {
+                Transaction transaction = transactions.get(i);
+                transaction.setAccount(accounts.get(transaction.getAccount().getId()));
+                transactionDao.insert(transaction);
+                posted.add(transaction);
+            }
+        }
+        for (Account account : accounts.values()) {
+            BigDecimal balance = balances.get(account.getId());
+            if (!optimistic) {
+                // managed and row-locked - written by dirty checking at commit
+                account.setBalance(balance);
+            } else if (accountDao.updateBalanceIfVersion(account.getId(), balance, account.getVersion()) == 0) {
+                throw new ObjectOptimisticLockingFailureException(Account.class, account.getId());
+            }
+        }
+        for (Long accountId : striped) {
+            // their money is in the balances just written
+            balanceSlotDao.clearSlots(accountId);
+        }
+        accountService.evict(accounts.keySet());
+        // once the optimistic writes hold their row locks
+        transactionRollupService.record(posted);
+        return rejections;
+    }
+
+    private static Set<Long> accountIdsOf(List<Transaction> transactions) {
+        Set<Long> accountIds = new LinkedHashSet<>();
+        for (Transaction transaction : transactions) {
+            accountIds.add(transaction.getAccount().getId());
+        }
+        return accountIds;
+    }
+
+    /**
+     * Persists a batch the ledger engine has already validated (and given
+     * their running balances): one insert per transaction (JDBC-batched) and
+     * one absolute balance write per account.
+     */
+    @Transactional
+    public void persistBatch(@NotNull List<Transaction> transactions, @NotNull Map<Long, Money> balances) {
+        for (Transaction transaction : transactions) {
+            transactionDao.insert(transaction);
+        }
+        for (Map.Entry<Long, Money> balance : balances.entrySet()) {
+            accountDao.updateBalance(balance.getKey(), balance.getValue().toBigDecimal());
+        }
+        accountService.evict(balances.keySet());
+        transactionRollupService.record(transactions);
+    }
+
+    /**
+     * Applies journal records that were acknowledged before they reached the
+     * DB: inserts the transactions, adds each account's net change to its
+     * balance and moves the projector's checkpoint to {@code appliedSequence},
+     * all in one DB transaction, so after a crash a batch is either fully
+     * applied or replayed from the start.
+     *
+     * Journal records don't carry running balances, so each account's is
+     * worked forward again from its balance before the batch, read back under
+     * the row lock its balance update took.
+     */
+    @Transactional
+    public void projectJournal(@NotNull List<Transaction> transactions, long appliedSequence) {
+        // id order, like every other multi-account writer
+        Map<Long, BigDecimal> deltas = new TreeMap<>();
+        for (Transaction transaction : transactions) {
+            deltas.merge(transaction.getAccount().getId(), signedAmount(transaction), BigDecimal::add);
+        }
+        Map<Long, BigDecimal> balances = new HashMap<>();
+        for (Map.Entry<Long, BigDecimal> delta : deltas.entrySet()) {
+            if (accountDao.applyBalanceDelta(delta.getKey(), delta.getValue()) == 0) {
+                throw new JournalDivergedException("Journal projection would overdraw account " + delta.getKey()
+                        + " - the database has diverged from the journal.");
+            }
+            balances.put(delta.getKey(), accountDao.findBalanceById(delta.getKey()).subtract(delta.getValue()));
+        }
+        for (Transaction transaction : transactions) {
+            BigDecimal balance = balances.merge(transaction.getAccount().getId(), signedAmount(transaction),
+                    BigDecimal::add);
+            transaction.setBalanceAfter(balance);
+            transactionDao.insert(transaction);
+        }
+        accountService.evict(deltas.keySet());
+        transactionRollupService.record(transactions);
+        journalCheckpointDao.save(new JournalCheckpoint(JournalCheckpoint.LEDGER_PROJECTOR, appliedSequence));
+    }
+
+    /**
+     * Sets aside a journal record that can never be applied and moves the
+     * projector's checkpoint past it, in one DB transaction.
+     */
+    @Transactional
+    public void rejectJournalRecord(@NotNull Transaction transaction, long sequence, String reason) {
+        journalRejectionDao.save(new JournalRejection(sequence, transaction, reason));
+        journalCheckpointDao.save(new JournalCheckpoint(JournalCheckpoint.LEDGER_PROJECTOR, sequence));
+    }
+
+    // whether a balance worked out from journal records after sequence would count one that was set aside
+    public boolean hasJournalRejectionsAfter(long sequence) {
+        return journalRejectionDao.existsBySequenceGreaterThan(sequence);
+    }
+
+    public boolean hasTransaction(@NotNull String transactionId) {
+        return transactionDao.existsByTransactionId(transactionId);
+    }
+
+    public long journalCheckpoint() {
+        return journalCheckpointDao.findById(JournalCheckpoint.LEDGER_PROJECTOR)
+            .map(JournalCheckpoint::getAppliedSequence)
+            .orElse(0L);
+    }
+
+    /**
+     * Feeds every account's balance, in ascending id order, to
+     * {@code consumer} from one read-only transaction, without loading the
+     * accounts as entities.
+     */
+    @Transactional(readOnly = true)
+    public void forEachBalance(@NotNull BiConsumer<Long, Money> consumer) {
+        try (Stream<AccountBalance> balances = accountDao.streamAllBalances()) {
+            balances.forEach(balance -> consumer.accept(balance.getId(), balance.toMoney()));
+        }
+    }
+
+    // for balance deltas pushed down to the database
+    public static BigDecimal signedAmount(Transaction transaction) {
+        if (transaction.getType() == TransactionType.WITHDRAWAL) {
+            return transaction.getAmount().negate();
+        }
+        return transaction.getAmount();
+    }
+
+    // for balances the ledger engine keeps in memory
+    public static Money signedMoney(Transaction transaction) {
+        Money amount = Money.of(transaction.getAmount(), transaction.getCurrency());
+        return transaction.getType() == TransactionType.WITHDRAWAL ? amount.negate() : amount;
+    }
+}
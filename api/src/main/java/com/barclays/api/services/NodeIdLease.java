@@ -0,0 +1,132 @@
+package com.barclays.api.services;
+
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.barclays.api.dao.NodeLeaseDao;
+import com.barclays.api.domain.NodeLease;
+
+/**
+ * The node id {@link IdService} puts in this node's ids. Set
+ * {@code api.ids.node-id} (0 to 1023) to give each node its own id by
+ * hand; left at -1, the node leases the lowest id no running node holds
+ * from the {@link NodeLease} table at start-up, for {@code lease-ms} at a
+ * time, and renews the lease every third of that. A lease that hasn't been
+ * renewed when it expires may be taken by another node, so from then on
+ * this node refuses to hand out ids rather than risk sharing its id.
+ */
+@Component
+public class NodeIdLease {
+
+    private static final Logger log = LoggerFactory.getLogger(NodeIdLease.class);
+
+    private final NodeLeaseDao nodeLeaseDao;
+    private final int configuredNodeId;
+    private final long leaseMillis;
+    private final LongSupplier clock;
+    private final String holder = UUID.randomUUID().toString();
+
+    private int nodeId = -1;
+    private volatile long expiresMillis;
+    private ScheduledExecutorService renewer;
+
+    @Autowired
+    public NodeIdLease(
+        NodeLeaseDao nodeLeaseDao,
+        @Value("${api.ids.node-id:-1}") int configuredNodeId,
+        @Value("${api.ids.node-lease-ms:60000}") long leaseMillis
+    ) {
+        this(nodeLeaseDao, configuredNodeId, leaseMillis, System::currentTimeMillis);
+    }
+
+    NodeIdLease(NodeLeaseDao nodeLeaseDao, int configuredNodeId, long leaseMillis, LongSupplier clock) {
+        if (configuredNodeId < -1 || configuredNodeId > IdService.MAX_NODE_ID) {
+            throw new IllegalArgumentException("api.ids.node-id must be -1 or between 0 and "
+                + IdService.MAX_NODE_ID + ".");
+        }
+        this.nodeLeaseDao = nodeLeaseDao;
+        this.configuredNodeId = configuredNodeId;
+        this.leaseMillis = leaseMillis;
+        this.clock = clock;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (nodeId >= 0) {
+            return;
+        }
+        if (configuredNodeId >= 0) {
+            nodeId = configuredNodeId;
+            expiresMillis = Long.MAX_VALUE;
+            return;
+        }
+        acquire();
+        renewer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "node-id-lease");
+            thread.setDaemon(true);
+            return thread;
+        });
+        renewer.scheduleWithFixedDelay(this::renew, leaseMillis / 3, leaseMillis / 3, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (renewer == null) {
+            return;
+        }
+        renewer.shutdownNow();
+        renewer = null;
+        // ids handed out until now are covered by the next holder's restart guard
+        nodeLeaseDao.renewLease(nodeId, holder, clock.getAsLong());
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    // the time this node must stop using its node id by, Long.MAX_VALUE when it was configured
+    public long getExpiresMillis() {
+        return expiresMillis;
+    }
+
+    private void acquire() {
+        for (int candidate = 0; candidate <= IdService.MAX_NODE_ID; candidate++) {
+            long now = clock.getAsLong();
+            long expires = now + leaseMillis;
+            if (nodeLeaseDao.insertLease(candidate, holder, expires) == 1
+                    || nodeLeaseDao.takeExpiredLease(candidate, holder, expires, now) == 1) {
+                nodeId = candidate;
+                expiresMillis = expires;
+                log.info("Leased node id {}", candidate);
+                return;
+            }
+        }
+        throw new IllegalStateException("Every node id is leased; set api.ids.node-id or wait for a lease to expire.");
+    }
+
+    void renew() {
+        try {
+            long expires = clock.getAsLong() + leaseMillis;
+            if (nodeLeaseDao.renewLease(nodeId, holder, expires) == 1) {
+                expiresMillis = expires;
+            } else {
+                log.error("Node id {} has been leased by another node; no more ids will be handed out", nodeId);
+            }
+        } catch (RuntimeException ex) {
+            // the lease still runs until expiresMillis; the next renewal may get through
+            log.warn("Renewing the lease on node id {} failed", nodeId, ex);
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.barclays.api.services;
+
+import java.util.Calendar;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Bounded in-memory cache of entities read from the database, laid out like
+ * {@code IdempotencyCache}: keys hashed onto segments, each an
+ * insertion-ordered map under its own monitor. Entries leave when they were
+ * loaded more than {@code ttlMillis} ago or when their segment is full,
+ * oldest first either way.
+ *
+ * Entries are detached copies ({@link #copyOf}) and every caller gets a copy
+ * of its own, so nothing a caller does to what it is given reaches the
+ * cache.
+ *
+ * Every write to a cached row must {@link #invalidate} it. Inside a DB
+ * transaction the entry is dropped straight away and again once the
+ * transaction completes, and each segment counts its invalidations, so a
+ * load that read the row before the commit finds the count moved and is
+ * not stored.
+ *
+ * Publishes {@code <name>.cache.requests}, {@code <name>.cache.evictions},
+ * {@code <name>.cache.size} and {@code <name>.cache.hit.ratio}.
+ */
+abstract class ReadThroughCache<K, V> {
+
+    private static final int MAX_SEGMENTS = 64;
+
+    private final Segment[] segments;
+    private final int mask;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter expiredCounter;
+    private final Counter evictedCounter;
+    private final Counter invalidatedCounter;
+
+    @SuppressWarnings("unchecked")
+    ReadThroughCache(String name, int maxEntries, long ttlMillis, MeterRegistry meterRegistry, LongSupplier clock) {
+        String noun = StringUtils.capitalize(name);
+        if (maxEntries <= 0 || ttlMillis <= 0) {
+            throw new IllegalArgumentException(noun + " cache size and TTL must be positive.");
+        }
+        // a power of two no larger than the capacity, so every segment holds at least one entry
+        int count = Math.min(MAX_SEGMENTS, Integer.highestOneBit(maxEntries));
+        int segmentCapacity = (maxEntries + count - 1) / count;
+        this.segments = (Segment[]) new ReadThroughCache<?, ?>.Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+        this.mask = count - 1;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+
+        this.hitCounter = Counter.builder(name + ".cache.requests").tag("result", "hit")
+                .description(noun + " lookups answered from memory")
+                .register(meterRegistry);
+        this.missCounter = Counter.builder(name + ".cache.requests").tag("result", "miss")
+                .description(noun + " lookups that had to go to the database")
+                .register(meterRegistry);
+        this.expiredCounter = Counter.builder(name + ".cache.evictions").tag("cause", "expired")
+                .description(noun + "s dropped from memory")
+                .register(meterRegistry);
+        this.evictedCounter = Counter.builder(name + ".cache.evictions").tag("cause", "size")
+                .description(noun + "s dropped from memory")
+                .register(meterRegistry);
+        this.invalidatedCounter = Counter.builder(name + ".cache.evictions").tag("cause", "invalidated")
+                .description(noun + "s dropped from memory")
+                .register(meterRegistry);
+        Gauge.builder(name + ".cache.size", this, ReadThroughCache::size)
+                .description(noun + "s held in memory")
+                .register(meterRegistry);
+        Gauge.builder(name + ".cache.hit.ratio", this, ReadThroughCache::hitRatio)
+                .description("Share of " + name + " lookups answered from memory")
+                .register(meterRegistry);
+    }
+
+    /**
+     * A copy that shares nothing mutable with {@code value}.
+     */
+    protected abstract V copyOf(V value);
+
+    /**
+     * A copy of the cached value, or of the one {@code loader} returns
+     * (which is then cached) if there is none.
+     *
+     * @return null if the loader returns null; nothing is cached then
+     */
+    public V get(K key, Function<K, V> loader) {
+        Segment segment = segmentFor(key);
+        long invalidations;
+        synchronized (segment) {
+            long now = clock.getAsLong();
+            segment.expire(now);
+            Entry<V> entry = segment.get(key);
+            if (entry != null && now - entry.loadedAtMillis >= ttlMillis) {
+                segment.remove(key);
+                expiredCounter.increment();
+                entry = null;
+            }
+            if (entry != null) {
+                hits.increment();
+                hitCounter.increment();
+                return copyOf(entry.value);
+            }
+            invalidations = segment.invalidations;
+        }
+        misses.increment();
+        missCounter.increment();
+
+        // not under the monitor, other keys in the segment carry on meanwhile
+        V loaded = loader.apply(key);
+        if (loaded == null) {
+            return null;
+        }
+        Entry<V> entry = new Entry<>(copyOf(loaded), clock.getAsLong());
+        synchronized (segment) {
+            if (segment.invalidations == invalidations) {
+                // re-insert rather than replace, so the entry moves to the back with its new timestamp
+                segment.remove(key);
+                segment.put(key, entry);
+            }
+        }
+        return copyOf(entry.value);
+    }
+
+    /**
+     * Caches a copy of a value that has just been written, once the
+     * surrounding DB transaction (if any) commits.
+     */
+    public void put(K key, V value) {
+        Entry<V> entry = new Entry<>(copyOf(value), clock.getAsLong());
+        afterCommit(() -> {
+            Segment segment = segmentFor(key);
+            synchronized (segment) {
+                segment.remove(key);
+                segment.put(key, entry);
+            }
+        });
+    }
+
+    public void invalidate(K key) {
+        remove(key);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    remove(key);
+                }
+            });
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public double hitRatio() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    static Calendar copyOf(Calendar calendar) {
+        return calendar == null ? null : (Calendar) calendar.clone();
+    }
+
+    private void remove(K key) {
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            segment.invalidations++;
+            if (segment.remove(key) != null) {
+                invalidatedCounter.increment();
+            }
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private Segment segmentFor(K key) {
+        int h = key.hashCode();
+        return segments[(h ^ (h >>> 16)) & mask];
+    }
+
+    private static final class Entry<V> {
+
+        private final V value;
+        private final long loadedAtMillis;
+
+        private Entry(V value, long loadedAtMillis) {
+            this.value = value;
+            this.loadedAtMillis = loadedAtMillis;
+        }
+    }
+
+    private final class Segment extends LinkedHashMap<K, Entry<V>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+        // when the head entry expires; sweeping before then would find nothing
+        private long nextExpiry = Long.MAX_VALUE;
+        // bumped by every invalidation, see ReadThroughCache#get
+        private long invalidations;
+
+        private Segment(int capacity) {
+            super(16, 0.75f, false);
+            this.capacity = capacity;
+        }
+
+        // insertion order is expiry order, so only the head ever needs looking at
+        private void expire(long now) {
+            if (now < nextExpiry) {
+                return;
+            }
+            Iterator<Entry<V>> iterator = values().iterator();
+            while (iterator.hasNext()) {
+                long loadedAt = iterator.next().loadedAtMillis;
+                if (now - loadedAt < ttlMillis) {
+                    nextExpiry = loadedAt + ttlMillis;
+                    return;
+                }
+                iterator.remove();
+                expiredCounter.increment();
+            }
+            nextExpiry = Long.MAX_VALUE;
+        }
+
+        @Override
+        public Entry<V> put(K key, Entry<V> value) {
+            if (isEmpty()) {
+                nextExpiry = value.loadedAtMillis + ttlMillis;
+            }
+            return super.put(key, value);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+            if (size() <= capacity) {
+                return false;
+            }
+            evictedCounter.increment();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.barclays.api.services;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.barclays.api.dao.AccountDao;
+import com.barclays.api.dao.TransactionDao;
+import com.barclays.api.domain.Account;
+import com.barclays.api.domain.Transaction;
+import com.barclays.api.domain.enums.TransactionType;
+import com.barclays.api.domain.page.TransactionCursor;
+import com.barclays.api.domain.page.TransactionFilter;
+
+/**
+ * One-off job that fills in {@link Transaction#getBalanceAfter()} on rows
+ * posted before the column existed. Off unless
+ * {@code api.transactions.running-balance-backfill.enabled} is set, in which
+ * case it runs once the application has started.
+ *
+ * Each account's opening balance is its balance less everything its
+ * transactions add up to, read together while the account row is locked so
+ * no posting can land in between. Its transactions are then walked oldest
+ * first in chunks of {@code chunk-size}, each chunk in its own DB transaction,
+ * and only rows without a running balance are written. Postings can carry on
+ * meanwhile: anything posted after the opening balance was read already has
+ * its running balance. Striped accounts are skipped, they don't record one.
+ */
+@Component
+public class RunningBalanceBackfill implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(RunningBalanceBackfill.class);
+
+    private final AccountDao accountDao;
+    private final TransactionDao transactionDao;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int chunkSize;
+
+    @Autowired
+    public RunningBalanceBackfill(
+        AccountDao accountDao,
+        TransactionDao transactionDao,
+        PlatformTransactionManager transactionManager,
+        @Value("${api.transactions.running-balance-backfill.enabled:false}") boolean enabled,
+        @Value("${api.transactions.running-balance-backfill.chunk-size:1000}") int chunkSize
+    ) {
+        this.accountDao = accountDao;
+        this.transactionDao = transactionDao;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (enabled) {
+            backfill();
+        }
+    }
+
+    /**
+     * @return how many transactions were given a running balance
+     */
+    public long backfill() {
+        List<Long> accountIds = accountDao.findIdsMissingRunningBalances();
+        log.info("Backfilling running balances on {} accounts", accountIds.size());
+
+        long filled = 0;
+        for (Long accountId : accountIds) {
+            filled += backfillAccount(accountId);
+        }
+        log.info("Backfilled running balances on {} transactions", filled);
+        return filled;
+    }
+
+    private long backfillAccount(Long accountId) {
+        BigDecimal balance = transactionTemplate.execute(status -> openingBalance(accountId));
+        if (balance == null) {
+            // deleted since it was listed
+            return 0;
+        }
+
+        Chunk chunk = new Chunk(balance, null, 0);
+        long filled = 0;
+        do {
+            final Chunk previous = chunk;
+            chunk = transactionTemplate.execute(status -> fillChunk(accountId, previous));
+            filled += chunk.filled;
+        } while (chunk.after != null);
+        return filled;
+    }
+
+    private BigDecimal openingBalance(Long accountId) {
+        List<Account> accounts = accountDao.findAllByIdForUpdate(List.of(accountId));
+        if (accounts.isEmpty()) {
+            return null;
+        }
+        return accounts.get(0).getBalance()
+            .subtract(transactionDao.sumAmountsByAccountIdAndType(accountId, TransactionType.DEPOSIT))
+            .add(transactionDao.sumAmountsByAccountIdAndType(accountId, TransactionType.WITHDRAWAL));
+    }
+
+    // the rows come back managed, so the ones changed here are written (JDBC-batched) at commit
+    private Chunk fillChunk(Long accountId, Chunk previous) {
+        List<Transaction> transactions = transactionDao.findPage(accountId, TransactionFilter.none(), previous.after,
+                chunkSize);
+        BigDecimal balance = previous.balance;
+        int filled = 0;
+        for (Transaction transaction : transactions) {
+            balance = balance.add(LedgerService.signedAmount(transaction));
+            if (transaction.getBalanceAfter() == null) {
+                transaction.setBalanceAfter(balance);
+                filled++;
+            }
+        }
+
+        TransactionCursor after = transactions.size() < chunkSize
+            ? null
+            : TransactionCursor.after(transactions.get(transactions.size() - 1));
+        return new Chunk(balance, after, filled);
+    }
+
+    // where a chunk left off: the balance after its last transaction, and that transaction
+    private static final class Chunk {
+        private final BigDecimal balance;
+        private final TransactionCursor after;
+        private final int filled;
+
+        private Chunk(BigDecimal balance, TransactionCursor after, int filled) {
+            this.balance = balance;
+            this.after = after;
+            this.filled = filled;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.barclays.api.services;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import javax.validation.constraints.NotNull;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.barclays.api.dao.TransactionDao;
+import com.barclays.api.domain.Transaction;
+import com.barclays.api.domain.enums.ExportFormat;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Writes an account's whole transaction history straight to an output
+ * stream, one row at a time, as it comes off the database cursor. Nothing
+ * is collected in memory, so an export of any size runs in constant heap.
+ */
+@Service
+public class TransactionExportService {
+
+    private static final String CSV_HEADER = "id,transactionId,type,amount,currency,createdTimestamp,balanceAfter";
+
+    private final TransactionDao transactionDao;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public TransactionExportService(
+        TransactionDao transactionDao,
+        ObjectMapper objectMapper
+    ) {
+        this.transactionDao = transactionDao;
+        this.objectMapper = objectMapper;
+    }
+
+    // the cursor only lives as long as the transaction, so the whole export runs inside one
+    @Transactional(readOnly = true)
+    public void export(@NotNull Long accountId, @NotNull ExportFormat format, @NotNull OutputStream out)
+            throws IOException {
+        try {
+            if (format == ExportFormat.CSV) {
+                exportCsv(accountId, out);
+            } else {
+                exportNdjson(accountId, out);
+            }
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    // one JSON object per line, the same shape GET /transactions returns
+    private void exportNdjson(Long accountId, OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        // lines are ended explicitly, not with Jackson's default space between root values
+        generator.setRootValueSeparator(null);
+        transactionDao.forEachByAccountId(accountId, transaction -> {
+            try {
+                generator.writeObject(transaction);
+                generator.writeRaw('\n');
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+        generator.close();
+    }
+
+    private void exportCsv(Long accountId, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        writer.write("\r\n");
+        transactionDao.forEachByAccountId(accountId, transaction -> {
+            try {
+                writeCsvRow(writer, transaction);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+        writer.flush();
+    }
+
+    private static void writeCsvRow(Writer writer, Transaction transaction) throws IOException {
+        writer.write(csvField(transaction.getId()));
+        writer.write(',');
+        writer.write(csvField(transaction.getTransactionId()));
+        writer.write(',');
+        writer.write(transaction.getType().getValue());
+        writer.write(',');
+        writer.write(transaction.getAmount().toPlainString());
+        writer.write(',');
+        writer.write(transaction.getCurrency().getValue());
+        writer.write(',');
+        writer.write(transaction.getCreatedTimestamp().toString());
+        writer.write(',');
+        if (transaction.getBalanceAfter() != null) {
+            writer.write(transaction.getBalanceAfter().toPlainString());
+        }
+        writer.write("\r\n");
+    }
+
+    // RFC 4180: quote a field holding a separator, quote or line break, doubling any quotes
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
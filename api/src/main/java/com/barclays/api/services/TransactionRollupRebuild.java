@@ -0,0 +1,150 @@
+package com.barclays.api.services;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.barclays.api.dao.AccountDao;
+import com.barclays.api.dao.BalanceSlotDao;
+import com.barclays.api.dao.DailyTransactionTotal;
+import com.barclays.api.dao.TransactionDao;
+import com.barclays.api.dao.TransactionRollupDao;
+import com.barclays.api.domain.Account;
+import com.barclays.api.domain.TransactionRollup;
+
+/**
+ * Rebuilds every account's rollups ({@link TransactionRollup}) from its
+ * transactions. Off unless {@code api.transactions.rollups.rebuild.enabled}
+ * is set, in which case it runs once the application has started.
+ *
+ * Accounts are taken in chunks of {@code chunk-size}, spread over
+ * {@code threads} workers. Each chunk is one DB transaction: its account
+ * rows, then the slots of its striped accounts, are locked so no posting can
+ * land in between, its rollups are deleted and written again from one
+ * grouped query over its transactions. Postings to the chunk's accounts wait
+ * for it; everything else carries on.
+ *
+ * In the {@code legacy} and {@code locked} posting modes transactions are
+ * inserted without the account row lock, so stop postings while it runs.
+ */
+@Component
+public class TransactionRollupRebuild implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionRollupRebuild.class);
+
+    private final AccountDao accountDao;
+    private final BalanceSlotDao balanceSlotDao;
+    private final TransactionDao transactionDao;
+    private final TransactionRollupDao transactionRollupDao;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int threads;
+    private final int chunkSize;
+
+    @Autowired
+    public TransactionRollupRebuild(
+        AccountDao accountDao,
+        BalanceSlotDao balanceSlotDao,
+        TransactionDao transactionDao,
+        TransactionRollupDao transactionRollupDao,
+        PlatformTransactionManager transactionManager,
+        @Value("${api.transactions.rollups.rebuild.enabled:false}") boolean enabled,
+        @Value("${api.transactions.rollups.rebuild.threads:4}") int threads,
+        @Value("${api.transactions.rollups.rebuild.chunk-size:100}") int chunkSize
+    ) {
+        this.accountDao = accountDao;
+        this.balanceSlotDao = balanceSlotDao;
+        this.transactionDao = transactionDao;
+        this.transactionRollupDao = transactionRollupDao;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    /**
+     * @return how many rollups were written
+     */
+    public long rebuild() {
+        AtomicInteger workers = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "rollup-rebuild-" + workers.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Integer>> chunks = new ArrayList<>();
+            List<Long> accountIds = accountDao.findIdsAfter(0L, PageRequest.of(0, chunkSize));
+            while (!accountIds.isEmpty()) {
+                final List<Long> chunk = accountIds;
+                chunks.add(pool.submit(() -> transactionTemplate.execute(status -> rebuildChunk(chunk))));
+                accountIds = accountDao.findIdsAfter(chunk.get(chunk.size() - 1), PageRequest.of(0, chunkSize));
+            }
+            log.info("Rebuilding rollups in {} chunks of up to {} accounts", chunks.size(), chunkSize);
+
+            long written = 0;
+            for (Future<Integer> chunk : chunks) {
+                written += chunk.get();
+            }
+            log.info("Rebuilt {} rollups", written);
+            return written;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while rebuilding rollups.", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Rebuilding rollups failed.", ex.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private int rebuildChunk(List<Long> accountIds) {
+        Map<Long, Account> accounts = new HashMap<>();
+        for (Account account : accountDao.findAllByIdForUpdate(accountIds)) {
+            accounts.put(account.getId(), account);
+        }
+        for (Account account : accounts.values()) {
+            if (account.getBalanceSlots() != null) {
+                // account row before its slots, the order every slow-path withdrawal takes them in
+                balanceSlotDao.findByAccountIdForUpdate(account.getId());
+            }
+        }
+        if (accounts.isEmpty()) {
+            return 0;
+        }
+
+        transactionRollupDao.deleteByAccountIds(accounts.keySet());
+        TransactionRollupService.Rollups rollups = new TransactionRollupService.Rollups();
+        for (DailyTransactionTotal total : transactionDao.findDailyTotalsByAccountIds(accounts.keySet())) {
+            rollups.add(accounts.get(total.getAccountId()), total.getDate(), 0, total.getType(), total.getAmount(),
+                total.getCount());
+        }
+        List<TransactionRollup> rebuilt = rollups.toRollups();
+        transactionRollupDao.saveAll(rebuilt);
+        return rebuilt.size();
+    }
+}
@@ -0,0 +1,150 @@
+package com.barclays.api.services;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.validation.constraints.NotNull;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.validation.annotation.Validated;
+
+import com.barclays.api.dao.PeriodTotal;
+import com.barclays.api.dao.TransactionRollupDao;
+import com.barclays.api.domain.Account;
+import com.barclays.api.domain.Transaction;
+import com.barclays.api.domain.TransactionRollup;
+import com.barclays.api.domain.enums.RollupPeriod;
+import com.barclays.api.domain.enums.TransactionType;
+
+/**
+ * Keeps each account's day and month rollups ({@link TransactionRollup}) in
+ * step with its postings, and reads them back for summaries.
+ *
+ * Postings are recorded in the DB transaction that inserts them. Most
+ * callers hold the row lock of the account (or, for a striped deposit, of
+ * the balance slot), but the legacy posting mode holds none, so two writers
+ * can both be first to a period. A posting costs one single-row UPDATE per
+ * period; the first of a period also inserts an empty row, skipped if a
+ * racing writer's got there first, and runs its UPDATE again.
+ */
+@Service
+@Validated
+public class TransactionRollupService {
+
+    private final TransactionRollupDao transactionRollupDao;
+
+    @Autowired
+    public TransactionRollupService(TransactionRollupDao transactionRollupDao) {
+        this.transactionRollupDao = transactionRollupDao;
+    }
+
+    // transactions already inserted
+    @Transactional
+    public void record(@NotNull List<Transaction> transactions) {
+        record(transactions, 0);
+    }
+
+    // a deposit added to one of a striped account's balance slots
+    @Transactional
+    public void recordSlotDeposit(@NotNull Transaction deposit, int slot) {
+        record(List.of(deposit), slot + 1);
+    }
+
+    private void record(List<Transaction> transactions, int stripe) {
+        Rollups rollups = new Rollups();
+        for (Transaction transaction : transactions) {
+            rollups.add(transaction.getAccount(), transaction.getCreatedTimestamp().toLocalDate(), stripe,
+                transaction.getType(), transaction.getAmount(), 1);
+        }
+        for (TransactionRollup rollup : rollups.toRollups()) {
+            if (addToRollup(rollup) == 0) {
+                transactionRollupDao.insertEmptyRollup(rollup.getAccount().getId(), rollup.getPeriod().name(),
+                    rollup.getPeriodStart(), rollup.getStripe());
+                addToRollup(rollup);
+            }
+        }
+    }
+
+    private int addToRollup(TransactionRollup rollup) {
+        return transactionRollupDao.addToRollup(rollup.getAccount().getId(), rollup.getPeriod(),
+            rollup.getPeriodStart(), rollup.getStripe(), rollup.getDeposits(), rollup.getWithdrawals(),
+            rollup.getDepositCount(), rollup.getWithdrawalCount());
+    }
+
+    /**
+     * The account's totals for every period that overlaps {@code from}
+     * (inclusive) to {@code to} (exclusive), oldest first. Periods without
+     * transactions are left out.
+     */
+    @Transactional(readOnly = true)
+    public List<PeriodTotal> getTotals(@NotNull Long accountId, @NotNull RollupPeriod period,
+            @NotNull LocalDate from, @NotNull LocalDate to) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("from must be before to.");
+        }
+        return transactionRollupDao.findTotals(accountId, period, period.startOf(from), to);
+    }
+
+    // adds up transactions into one rollup per account, period and stripe
+    static final class Rollups {
+
+        private final Map<Key, TransactionRollup> rollups = new LinkedHashMap<>();
+
+        void add(Account account, LocalDate date, int stripe, TransactionType type, BigDecimal amount, long count) {
+            for (RollupPeriod period : RollupPeriod.values()) {
+                LocalDate periodStart = period.startOf(date);
+                rollups.merge(new Key(account.getId(), period, periodStart, stripe),
+                    type == TransactionType.WITHDRAWAL
+                        ? new TransactionRollup(account, period, periodStart, stripe, BigDecimal.ZERO, amount, 0, count)
+                        : new TransactionRollup(account, period, periodStart, stripe, amount, BigDecimal.ZERO, count, 0),
+                    Rollups::sum);
+            }
+        }
+
+        List<TransactionRollup> toRollups() {
+            return new ArrayList<>(rollups.values());
+        }
+
+        private static TransactionRollup sum(TransactionRollup a, TransactionRollup b) {
+            return new TransactionRollup(a.getAccount(), a.getPeriod(), a.getPeriodStart(), a.getStripe(),
+                a.getDeposits().add(b.getDeposits()), a.getWithdrawals().add(b.getWithdrawals()),
+                a.getDepositCount() + b.getDepositCount(), a.getWithdrawalCount() + b.getWithdrawalCount());
+        }
+    }
+
+    private static final class Key {
+        private final Long accountId;
+        private final RollupPeriod period;
+        private final LocalDate periodStart;
+        private final int stripe;
+
+        private Key(Long accountId, RollupPeriod period, LocalDate periodStart, int stripe) {
+            this.accountId = accountId;
+            this.period = period;
+            this.periodStart = periodStart;
+            this.stripe = stripe;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return accountId.equals(other.accountId) && period == other.period
+                && periodStart.equals(other.periodStart) && stripe == other.stripe;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(accountId, period, periodStart, stripe);
+        }
+    }
+}
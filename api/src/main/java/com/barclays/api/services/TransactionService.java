@@ -2,24 +2,38 @@ package com.barclays.api.services;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.barclays.api.dao.TransactionDao;
 import com.barclays.api.domain.Transaction;
 import com.barclays.api.domain.enums.TransactionType;
+import com.barclays.api.domain.page.TransactionCursor;
+import com.barclays.api.domain.page.TransactionFilter;
+import com.barclays.api.domain.page.TransactionPage;
+import com.barclays.api.domain.view.TransactionView;
 
 @Service
 public class TransactionService {
 
     private final TransactionDao transactionDao;
+    private final TransactionRollupService transactionRollupService;
+    private final int maxPageSize;
 
     @Autowired
     public TransactionService(
-        TransactionDao transactionDao
+        TransactionDao transactionDao,
+        TransactionRollupService transactionRollupService,
+        @Value("${api.transactions.max-page-size:0}") int maxPageSize
     ) {
         this.transactionDao = transactionDao;
+        this.transactionRollupService = transactionRollupService;
+        this.maxPageSize = maxPageSize;
     }
 
+    // the caller saves the account's new balance - in its own DB transaction, unless it opened one around both
+    @Transactional
     public Transaction createTransaction(Transaction transaction) {
         if (transaction.getType() == TransactionType.DEPOSIT) {
             transaction.getAccount().setBalance(
@@ -32,16 +46,48 @@ public class TransactionService {
             }
             transaction.getAccount().setBalance(
                 transaction.getAccount().getBalance().subtract(transaction.getAmount())
-                
             );
         }
+        transaction.setBalanceAfter(transaction.getAccount().getBalance());
 
-        
-        return transactionDao.save(transaction);
+        Transaction saved = transactionDao.save(transaction);
+        transactionRollupService.record(List.of(saved));
+        return saved;
     }
 
     public List<Transaction> getTransactionsByAccountId(Long accountId) {
         return transactionDao.findByAccountId(accountId);
     }
 
+    /**
+     * One page of an account's transactions that match {@code filter}, oldest
+     * first. Starts after {@code after} (from the start when null) and holds
+     * at most {@code limit} transactions. With no limit, the page is the
+     * configured maximum page size, or every remaining transaction when no
+     * maximum is configured (0). Reads one row past the page to find out
+     * whether there's another. The rows are read into views, never into
+     * entities.
+     */
+    @Transactional(readOnly = true)
+    public TransactionPage getTransactionPage(Long accountId, TransactionFilter filter, TransactionCursor after,
+            Integer limit) {
+        if (limit == null && maxPageSize == 0) {
+            return new TransactionPage(transactionDao.findViewPage(accountId, filter, after, 0), null);
+        }
+        int size = limit == null ? maxPageSize : limit;
+        if (maxPageSize == 0 && size < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1.");
+        }
+        if (maxPageSize > 0 && (size < 1 || size > maxPageSize)) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + maxPageSize + ".");
+        }
+
+        List<TransactionView> transactions = transactionDao.findViewPage(accountId, filter, after, size + 1);
+        if (transactions.size() <= size) {
+            return new TransactionPage(transactions, null);
+        }
+        List<TransactionView> pageTransactions = transactions.subList(0, size);
+        return new TransactionPage(pageTransactions, TransactionCursor.after(pageTransactions.get(size - 1)));
+    }
+
 }
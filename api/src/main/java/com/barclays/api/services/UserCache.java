@@ -0,0 +1,54 @@
+package com.barclays.api.services;
+
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.barclays.api.domain.Address;
+import com.barclays.api.domain.User;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Users by email, i.e. by the principal of the request (see
+ * {@link ReadThroughCache}).
+ */
+@Component
+public class UserCache extends ReadThroughCache<String, User> {
+
+    @Autowired
+    public UserCache(
+        @Value("${api.users.cache.max-entries:10000}") int maxEntries,
+        @Value("${api.users.cache.ttl-ms:300000}") long ttlMillis,
+        MeterRegistry meterRegistry
+    ) {
+        this(maxEntries, ttlMillis, meterRegistry, System::currentTimeMillis);
+    }
+
+    UserCache(int maxEntries, long ttlMillis, MeterRegistry meterRegistry, LongSupplier clock) {
+        super("user", maxEntries, ttlMillis, meterRegistry, clock);
+    }
+
+    @Override
+    protected User copyOf(User user) {
+        return copy(user);
+    }
+
+    // also what AccountCache copies an account's user with
+    static User copy(User user) {
+        Address address = user.getAddress();
+        Address addressCopy = null;
+        if (address != null) {
+            addressCopy = new Address(address.getLine1(), address.getLine2(), address.getLine3(), address.getTown(),
+                address.getCounty(), address.getPostcode());
+            addressCopy.setId(address.getId());
+        }
+        User copy = new User(user.getName(), addressCopy, user.getPhoneNumber(), user.getEmail());
+        copy.setId(user.getId());
+        copy.setCreatedTimestamp(copyOf(user.getCreatedTimestamp()));
+        copy.setUpdatedTimestamp(copyOf(user.getUpdatedTimestamp()));
+        return copy;
+    }
+}
@@ -13,17 +13,30 @@ import com.barclays.api.exceptions.ResourceNotFoundException;
 public class UserService {
 
     private final UserDao userDao;
+    private final UserCache userCache;
 
-    public UserService(UserDao userDao) {
+    public UserService(UserDao userDao, UserCache userCache) {
         this.userDao = userDao;
+        this.userCache = userCache;
     }
 
+    /**
+     * The user with the email, from {@link UserCache} when it's there - every
+     * write resolves its principal through here. Each call returns a copy of
+     * its own that is never managed. Unknown emails aren't cached.
+     */
     public User findByEmail(@NotNull String email) {
-        return userDao.findByEmail(email);
+        return userCache.get(email, userDao::findByEmail);
     }
 
     public User saveUser(@NotNull User user) {
-        return userDao.save(user);
+        if (user.getId() != null) {
+            // the email may be the thing that's changing
+            userDao.findById(user.getId()).ifPresent(existing -> userCache.invalidate(existing.getEmail()));
+        }
+        User saved = userDao.save(user);
+        userCache.invalidate(saved.getEmail());
+        return saved;
     }
 
     public User getById(@NotNull Long userId) {
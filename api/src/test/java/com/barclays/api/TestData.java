@@ -0,0 +1,89 @@
+package com.barclays.api;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import com.barclays.api.domain.Account;
+import com.barclays.api.domain.Address;
+import com.barclays.api.domain.Transaction;
+import com.barclays.api.domain.User;
+import com.barclays.api.domain.enums.AccountType;
+import com.barclays.api.domain.enums.Currency;
+import com.barclays.api.domain.enums.TransactionType;
+
+/**
+ * Users, accounts and transactions for the tests that share the one H2
+ * database. Emails, account numbers and transaction ids are unique to the
+ * test that made them, so tests never trip over each other's unique keys.
+ * Make one instance per test for its transactions.
+ */
+public final class TestData {
+
+    // transaction ids are primary keys in a database shared by every test
+    private final String prefix = UUID.randomUUID() + "-";
+    private int sequence;
+
+    public static String newEmail() {
+        return UUID.randomUUID() + "@example.com";
+    }
+
+    public static User newUser() {
+        return newUser(newEmail());
+    }
+
+    public static User newUser(String email) {
+        final Address address = Address.Builder.create()
+                .withLine1("123 Test Street")
+                .withTown("Test Town")
+                .withCounty("Test County")
+                .withPostcode("TE1 2ST")
+                .build();
+
+        return User.Builder.create()
+                .withName("Test User")
+                .withEmail(email)
+                .withPhoneNumber("+441234567890")
+                .withAddress(address)
+                .build();
+    }
+
+    // an account as a client asks for one; the API gives it a number, sort code and owner
+    public static Account.Builder newAccount() {
+        return Account.Builder.create()
+                .withName("Test Account")
+                .withAccountType(AccountType.PERSONAL)
+                .withBalance(BigDecimal.ZERO)
+                .withCurrency(Currency.GBP);
+    }
+
+    // an account of the user's that can be saved as it is
+    public static Account.Builder newAccount(User user, BigDecimal balance) {
+        return newAccount()
+                .withBalance(balance)
+                .withAccountNumber(UUID.randomUUID().toString())
+                .withSortCode("10-10-10")
+                .withUser(user);
+    }
+
+    // the account owner's next transaction, with ids no other test uses
+    public Transaction posting(Account account, TransactionType type, String amount) {
+        final Transaction transaction = Transaction.Builder.create()
+                .withTransactionId(prefix + "ref-" + sequence)
+                .withAmount(new BigDecimal(amount))
+                .withType(type)
+                .withCurrency(Currency.GBP)
+                .withUser(account.getUser())
+                .withAccount(account)
+                .build();
+        transaction.setId(prefix + sequence++);
+        return transaction;
+    }
+
+    // the same, stamped as created at a given time, for inserting history directly
+    public Transaction posting(Account account, TransactionType type, String amount, LocalDateTime createdTimestamp) {
+        final Transaction transaction = posting(account, type, amount);
+        transaction.setCreatedTimestamp(createdTimestamp);
+        return transaction;
+    }
+}
@@ -23,6 +23,7 @@ import com.barclays.api.domain.Address;
 import com.barclays.api.domain.User;
 import com.barclays.api.domain.enums.AccountType;
 import com.barclays.api.domain.enums.Currency;
+import com.barclays.api.domain.view.AccountView;
 import com.barclays.api.facade.AccountsFacade;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -110,44 +111,13 @@ public class AccountsControllerUnitTest {
     @Test
     public void getAccountsReturnsAccountsListWithStatus200() throws Exception {
         // test fixtures
-        final Address address = Address.Builder.create()
-                .withLine1("123 Test Street")
-                .withTown("Test Town")
-                .withCounty("Test County")
-                .withPostcode("TE1 2ST")
-                .build();
-
-        final User user = User.Builder.create()
-                .withName("Test User")
-                .withEmail("test@example.com")
-                .withPhoneNumber("+441234567890")
-                .withAddress(address)
-                .build();
-        user.setId(1L);
+        final AccountView account1 = new AccountView(1L, "01234567", "10-10-10", "Test Account 1", AccountType.PERSONAL,
+                BigDecimal.valueOf(100.00), Currency.GBP, null, null, null);
 
-        final Account account1 = Account.Builder.create()
-                .withName("Test Account 1")
-                .withAccountType(AccountType.PERSONAL)
-                .withBalance(BigDecimal.valueOf(100.00))
-                .withCurrency(Currency.GBP)
-                .withSortCode("10-10-10")
-                .withAccountNumber("01234567")
-                .withUser(user)
-                .build();
-        account1.setId(1L);
-
-        final Account account2 = Account.Builder.create()
-                .withName("Test Account 2")
-                .withAccountType(AccountType.PERSONAL)
-                .withBalance(BigDecimal.valueOf(250.50))
-                .withCurrency(Currency.GBP)
-                .withSortCode("10-10-10")
-                .withAccountNumber("01234568")
-                .withUser(user)
-                .build();
-        account2.setId(2L);
+        final AccountView account2 = new AccountView(2L, "01234568", "10-10-10", "Test Account 2", AccountType.PERSONAL,
+                BigDecimal.valueOf(250.50), Currency.GBP, null, null, null);
 
-        final List<Account> accounts = Arrays.asList(account1, account2);
+        final List<AccountView> accounts = Arrays.asList(account1, account2);
 
         // given
         given(accountsFacade.getAccounts(eq("test@example.com")))
@@ -198,7 +168,9 @@ public class AccountsControllerUnitTest {
                 .build();
         account.setId(1L);
 
-        final List<Account> accounts = Arrays.asList(account);
+        final List<AccountView> accounts = Arrays.asList(new AccountView(account.getId(), account.getAccountNumber(),
+                account.getSortCode(), account.getName(), account.getAccountType(), account.getBalance(),
+                account.getCurrency(), null, null, null));
 
         // given
         given(accountsFacade.getAccounts(eq("test@example.com")))
@@ -219,7 +191,7 @@ public class AccountsControllerUnitTest {
     @Test
     public void getAccountByIdReturnsNotFoundWhenAccountDoesNotExist() throws Exception {
         // test fixtures
-        final List<Account> emptyAccounts = Arrays.asList();
+        final List<AccountView> emptyAccounts = Arrays.asList();
 
         // given
         given(accountsFacade.getAccounts(eq("test@example.com")))
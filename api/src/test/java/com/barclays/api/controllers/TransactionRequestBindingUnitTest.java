@@ -0,0 +1,60 @@
+package com.barclays.api.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import org.mockito.Mock;
+import static org.mockito.Mockito.verify;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.barclays.api.domain.Transaction;
+import com.barclays.api.facade.AccountsFacade;
+
+/**
+ * What a transaction request body may set. Runs the controller on its own,
+ * without the security filter chain.
+ */
+@ExtendWith(MockitoExtension.class)
+public class TransactionRequestBindingUnitTest {
+
+    private MockMvc mockMvc;
+
+    @Mock
+    private AccountsFacade accountsFacade;
+
+    @BeforeEach
+    public void setup() {
+        mockMvc = MockMvcBuilders.standaloneSetup(new AccountsController(accountsFacade)).build();
+    }
+
+    @Test
+    public void clientSuppliedTimestampAndBalanceAreIgnored() throws Exception {
+        // given
+        final String body = "{\"transactionId\": \"ref-0\", \"amount\": 10.00, \"type\": \"deposit\", "
+                + "\"currency\": \"GBP\", \"createdTimestamp\": \"2001-01-01T00:00:00\", \"balanceAfter\": 99.00}";
+
+        // when
+        mockMvc.perform(post("/v1/accounts/1/transactions")
+                        .principal(new UsernamePasswordAuthenticationToken("test@example.com", null))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk());
+
+        // then
+        final ArgumentCaptor<Transaction> posted = ArgumentCaptor.forClass(Transaction.class);
+        verify(accountsFacade).createTransaction(eq(1L), posted.capture(), eq("test@example.com"), isNull());
+        assertThat(posted.getValue().getTransactionId()).isEqualTo("ref-0");
+        assertThat(posted.getValue().getCreatedTimestamp()).isNull();
+        assertThat(posted.getValue().getBalanceAfter()).isNull();
+    }
+}
@@ -0,0 +1,128 @@
+package com.barclays.api.domain;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.barclays.api.domain.enums.Currency;
+import com.barclays.api.domain.enums.TransactionType;
+import com.barclays.api.services.LedgerService;
+
+/**
+ * The balance arithmetic of one posting - apply the signed amount, refuse an
+ * overdraft - done the old way on BigDecimal and on {@link Money}, over the
+ * same stream of postings. Run with {@code -prof gc} for allocation rates:
+ *
+ * <pre>
+ * mvn -Pbenchmarks test -DskipTests -Djmh.args="MoneyBenchmark -prof gc"
+ * </pre>
+ *
+ * Measured on JDK 17.0.9, one Xeon vCPU, per posting:
+ *
+ * <pre>
+ * Benchmark         ops/us         gc.alloc.rate.norm   gc.alloc.rate
+ * bigDecimal        131 +- 9       58.7 B/op            7355 MB/s
+ * moneyFromEntity    92 +- 8       59.3 B/op            5206 MB/s
+ * money             266 +- 3       24.0 B/op            6084 MB/s
+ * </pre>
+ *
+ * Money only pays where amounts already are Money, as in journal records
+ * and snapshot tails: twice the throughput and less than half the
+ * allocation. Converting an entity's BigDecimal on every posting allocates as
+ * much as BigDecimal arithmetic and is slower. So the entities, DAOs and API
+ * keep BigDecimal. The engine does convert each posting, because it keeps
+ * its balances as Money, but that is for whole-pence and currency checks
+ * rather than speed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MoneyBenchmark {
+
+    private static final int POSTINGS = 1024;
+
+    private Transaction[] transactions;
+    private Money[] signedAmounts;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        transactions = new Transaction[POSTINGS];
+        signedAmounts = new Money[POSTINGS];
+        for (int i = 0; i < POSTINGS; i++) {
+            // deposits slightly outweigh withdrawals, so some withdrawals are refused
+            TransactionType type = random.nextInt(100) < 55 ? TransactionType.DEPOSIT : TransactionType.WITHDRAWAL;
+            transactions[i] = Transaction.Builder.create()
+                .withTransactionId("ref-" + i)
+                .withAmount(BigDecimal.valueOf(1 + random.nextInt(1_000_000), 2))
+                .withCurrency(Currency.GBP)
+                .withType(type)
+                .build();
+            signedAmounts[i] = LedgerService.signedMoney(transactions[i]);
+        }
+    }
+
+    /**
+     * What the posting path did before: BigDecimal all the way.
+     */
+    @Benchmark
+    @OperationsPerInvocation(POSTINGS)
+    public BigDecimal bigDecimal() {
+        BigDecimal balance = BigDecimal.ZERO.setScale(2);
+        for (Transaction transaction : transactions) {
+            BigDecimal newBalance = balance.add(LedgerService.signedAmount(transaction));
+            if (newBalance.signum() >= 0) {
+                balance = newBalance;
+            }
+        }
+        return balance;
+    }
+
+    /**
+     * The engine's partitions: the transaction's amount is converted once at
+     * the entity edge, the balance is kept as Money.
+     */
+    @Benchmark
+    @OperationsPerInvocation(POSTINGS)
+    public Money moneyFromEntity() {
+        Money balance = Money.zero(Currency.GBP);
+        for (Transaction transaction : transactions) {
+            Money newBalance = balance.plus(LedgerService.signedMoney(transaction));
+            if (!newBalance.isNegative()) {
+                balance = newBalance;
+            }
+        }
+        return balance;
+    }
+
+    /**
+     * Amounts that are already Money - journal records, snapshot tails.
+     */
+    @Benchmark
+    @OperationsPerInvocation(POSTINGS)
+    public Money money() {
+        Money balance = Money.zero(Currency.GBP);
+        for (Money amount : signedAmounts) {
+            Money newBalance = balance.plus(amount);
+            if (!newBalance.isNegative()) {
+                balance = newBalance;
+            }
+        }
+        return balance;
+    }
+}
@@ -0,0 +1,48 @@
+package com.barclays.api.domain;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.Test;
+
+import com.barclays.api.domain.enums.Currency;
+
+public class MoneyUnitTest {
+
+    @Test
+    public void convertsToAndFromBigDecimalWithoutLosingPence() {
+        // when
+        final Money money = Money.of(new BigDecimal("1234.5"), Currency.GBP);
+
+        // then
+        assertThat(money.getPence()).isEqualTo(123450L);
+        assertThat(money.toBigDecimal()).isEqualTo(new BigDecimal("1234.50"));
+        assertThat(Money.of(new BigDecimal("-0.01"), Currency.GBP).getPence()).isEqualTo(-1L);
+        assertThat(Money.of(new BigDecimal("1E+2"), Currency.GBP).getPence()).isEqualTo(10000L);
+        assertThat(money).hasToString("1234.50 GBP");
+    }
+
+    @Test
+    public void refusesFractionsOfAPennyAndAmountsThatDoNotFit() {
+        // when & then
+        assertThatThrownBy(() -> Money.of(new BigDecimal("0.001"), Currency.GBP))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Money.of(new BigDecimal("100000000000000000000"), Currency.GBP))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void arithmeticIsExact() {
+        // given
+        final Money balance = Money.ofPence(1000, Currency.GBP);
+
+        // when & then
+        assertThat(balance.plus(Money.ofPence(1, Currency.GBP))).isEqualTo(Money.ofPence(1001, Currency.GBP));
+        assertThat(balance.minus(Money.ofPence(1001, Currency.GBP)).isNegative()).isTrue();
+        assertThat(balance.negate().signum()).isEqualTo(-1);
+        assertThat(balance.compareTo(Money.ofPence(999, Currency.GBP))).isPositive();
+        assertThatThrownBy(() -> Money.ofPence(Long.MAX_VALUE, Currency.GBP).plus(Money.ofPence(1, Currency.GBP)))
+                .isInstanceOf(ArithmeticException.class);
+    }
+}
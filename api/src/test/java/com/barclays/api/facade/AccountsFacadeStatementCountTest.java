@@ -0,0 +1,201 @@
+package com.barclays.api.facade;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.barclays.api.TestData;
+import com.barclays.api.domain.Account;
+import com.barclays.api.domain.Transaction;
+import com.barclays.api.domain.enums.Currency;
+import com.barclays.api.domain.enums.ExportFormat;
+import com.barclays.api.domain.enums.RollupPeriod;
+import com.barclays.api.domain.enums.TransactionType;
+import com.barclays.api.domain.page.TransactionFilter;
+import com.barclays.api.domain.transfer.TransferRequest;
+import com.barclays.api.domain.view.AccountView;
+import com.barclays.api.exceptions.ResourceNotFoundException;
+import com.barclays.api.services.AccountCache;
+import com.barclays.api.services.UserCache;
+import com.barclays.api.services.UserService;
+
+/**
+ * SQL statements sent per account endpoint, counted on the calling thread
+ * by a Hibernate {@link StatementInspector}. Ownership comes from
+ * {@code AccountOwnerIndex} and costs nothing; a cold call - principal and
+ * accounts dropped from their caches - costs one statement more than a warm
+ * one for the principal and one per account whose data it needs.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+    + "com.barclays.api.facade.AccountsFacadeStatementCountTest$StatementCounter")
+public class AccountsFacadeStatementCountTest {
+
+    @Autowired
+    private AccountsFacade accountsFacade;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private AccountCache accountCache;
+
+    @Autowired
+    private UserCache userCache;
+
+    private String email;
+    private Account account;
+
+    @BeforeEach
+    public void setup() {
+        email = TestData.newEmail();
+        userService.saveUser(TestData.newUser(email));
+        account = accountsFacade.createAccount(TestData.newAccount().build(), email);
+        post(account.getId(), "100.00");
+    }
+
+    @Test
+    public void ownershipChecksNeverReadTheAccount() {
+        // when
+        final int cold = cold(() -> accountsFacade.getAccount(account.getId(), email));
+        final int warm = count(() -> accountsFacade.getAccount(account.getId(), email));
+        final int export = cold(() -> accountsFacade.exportTransactions(account.getId(), ExportFormat.CSV, email));
+
+        // then - the principal and the account that is returned, the export only needs the principal
+        assertThat(cold).isEqualTo(2);
+        assertThat(warm).isZero();
+        assertThat(export).isEqualTo(1);
+    }
+
+    @Test
+    public void aMissingAccountCostsOneStatementAndSomeoneElsesNone() {
+        // given
+        final String otherEmail = TestData.newEmail();
+        userService.saveUser(TestData.newUser(otherEmail));
+        final Account foreign = accountsFacade.createAccount(TestData.newAccount().build(), otherEmail);
+
+        // when
+        StatementCounter.reset();
+        assertThatThrownBy(() -> accountsFacade.getAccount(Long.MAX_VALUE, email))
+                .isInstanceOf(ResourceNotFoundException.class);
+        final int missing = StatementCounter.count();
+
+        accountCache.invalidate(foreign.getId());
+        StatementCounter.reset();
+        assertThatThrownBy(() -> accountsFacade.getTransactions(foreign.getId(), TransactionFilter.none(), null,
+                null, email))
+                .isInstanceOf(SecurityException.class);
+        final int notOwned = StatementCounter.count();
+
+        // then
+        assertThat(missing).isEqualTo(1);
+        assertThat(notOwned).isZero();
+    }
+
+    @Test
+    public void readEndpointsAddOnlyThePrincipalAndAccountLookupsWhenCold() {
+        // given
+        final LocalDate today = LocalDate.now();
+        final Runnable page = () -> accountsFacade.getTransactions(account.getId(), TransactionFilter.none(), null,
+            null, email);
+        final Runnable[] inAccountCurrency = {
+            () -> accountsFacade.getBalanceAsOf(account.getId(), LocalDateTime.now(), email),
+            () -> accountsFacade.getSummary(account.getId(), RollupPeriod.DAY, today, today.plusDays(1), email)
+        };
+
+        // when & then - a page doesn't need the account, only the principal
+        final int cold = cold(page);
+        assertThat(cold).isEqualTo(count(page) + 1);
+        for (Runnable endpoint : inAccountCurrency) {
+            assertThat(cold(endpoint)).isEqualTo(count(endpoint) + 2);
+        }
+    }
+
+    @Test
+    public void writeEndpointsAddOnlyThePrincipalAndAccountLookupsWhenCold() {
+        // given
+        final Account payee = accountsFacade.createAccount(TestData.newAccount().build(), email);
+        final Runnable transfer = () -> accountsFacade.createTransfer(account.getId(),
+            new TransferRequest(payee.getId(), UUID.randomUUID().toString(), new BigDecimal("1.00"), Currency.GBP),
+            email);
+        // the payee's first posting also creates its rollup rows
+        transfer.run();
+
+        // when
+        final int coldPost = cold(() -> post(account.getId(), "1.00"));
+        final int warmPost = count(() -> {
+            // the posting itself evicts the account it wrote
+            accountsFacade.getAccount(account.getId(), email);
+            StatementCounter.reset();
+            post(account.getId(), "1.00");
+        });
+        final int coldTransfer = cold(transfer);
+        final int warmTransfer = count(() -> {
+            accountsFacade.getAccount(account.getId(), email);
+            accountsFacade.getAccount(payee.getId(), email);
+            StatementCounter.reset();
+            transfer.run();
+        });
+
+        // then
+        assertThat(coldPost).isEqualTo(warmPost + 2);
+        assertThat(coldTransfer).isEqualTo(warmTransfer + 3);
+    }
+
+    // with the principal and every account of theirs dropped from the caches first
+    private int cold(Runnable call) {
+        userCache.invalidate(email);
+        for (AccountView cached : accountsFacade.getAccounts(email)) {
+            accountCache.invalidate(cached.getId());
+        }
+        return count(call);
+    }
+
+    private static int count(Runnable call) {
+        StatementCounter.reset();
+        call.run();
+        return StatementCounter.count();
+    }
+
+    private void post(Long accountId, String amount) {
+        final Transaction transaction = Transaction.Builder.create()
+                .withTransactionId(UUID.randomUUID().toString())
+                .withAmount(new BigDecimal(amount))
+                .withCurrency(Currency.GBP)
+                .withType(TransactionType.DEPOSIT)
+                .build();
+        accountsFacade.createTransaction(accountId, transaction, email);
+    }
+
+    /**
+     * Counts the statements Hibernate prepares on each thread.
+     */
+    public static class StatementCounter implements StatementInspector {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final ThreadLocal<int[]> COUNT = ThreadLocal.withInitial(() -> new int[1]);
+
+        static void reset() {
+            COUNT.get()[0] = 0;
+        }
+
+        static int count() {
+            return COUNT.get()[0];
+        }
+
+        @Override
+        public String inspect(String sql) {
+            COUNT.get()[0]++;
+            return sql;
+        }
+    }
+}
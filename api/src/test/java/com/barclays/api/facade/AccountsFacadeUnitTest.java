@@ -1,8 +1,14 @@
 package com.barclays.api.facade;
 
+import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -10,29 +16,68 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.BDDMockito.given;
 import org.mockito.InOrder;
 import org.mockito.Mock;
 import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.barclays.api.dao.PeriodTotal;
 import com.barclays.api.domain.Account;
 import com.barclays.api.domain.Address;
 import com.barclays.api.domain.Transaction;
 import com.barclays.api.domain.User;
+import com.barclays.api.domain.balance.BalanceAsOf;
 import com.barclays.api.domain.enums.AccountType;
 import com.barclays.api.domain.enums.Currency;
+import com.barclays.api.domain.enums.ExportFormat;
+import com.barclays.api.domain.enums.IdempotencyStatus;
+import com.barclays.api.domain.enums.RollupPeriod;
+import com.barclays.api.domain.batch.TransactionBatchItem;
+import com.barclays.api.domain.batch.TransactionBatchRequest;
+import com.barclays.api.domain.batch.TransactionBatchResponse;
+import com.barclays.api.domain.batch.TransactionBatchResult;
 import com.barclays.api.domain.enums.TransactionType;
+import com.barclays.api.domain.page.TransactionCursor;
+import com.barclays.api.domain.page.TransactionFilter;
+import com.barclays.api.domain.page.TransactionPage;
+import com.barclays.api.domain.summary.AccountSummary;
+import com.barclays.api.domain.summary.PeriodSummary;
+import com.barclays.api.domain.transfer.TransferRequest;
+import com.barclays.api.domain.transfer.TransferResponse;
+import com.barclays.api.domain.view.AccountView;
+import com.barclays.api.domain.view.TransactionView;
+import com.barclays.api.idempotency.IdempotencyStore;
+import com.barclays.api.idempotency.IdempotentResult;
+import com.barclays.api.ledger.AccountLockManager;
+import com.barclays.api.ledger.GroupCommitter;
+import com.barclays.api.ledger.LedgerEngine;
+import com.barclays.api.ledger.OptimisticRetryPolicy;
+import com.barclays.api.ledger.PostingMode;
 import com.barclays.api.services.AccountService;
+import com.barclays.api.services.BalanceHistoryService;
 import com.barclays.api.services.IdService;
+import com.barclays.api.services.LedgerService;
+import com.barclays.api.services.TransactionExportService;
+import com.barclays.api.services.TransactionRollupService;
 import com.barclays.api.services.TransactionService;
 import com.barclays.api.services.UserService;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 @ExtendWith(MockitoExtension.class)
 public class AccountsFacadeUnitTest {
 
@@ -47,12 +92,40 @@ public class AccountsFacadeUnitTest {
     @Mock
     private TransactionService transactionService;
 
+    @Mock
+    private TransactionExportService transactionExportService;
+
+    @Mock
+    private BalanceHistoryService balanceHistoryService;
+
+    @Mock
+    private TransactionRollupService transactionRollupService;
+
     @Mock
     private IdService idService;
 
+    @Mock
+    private LedgerService ledgerService;
+
+    @Mock
+    private LedgerEngine ledgerEngine;
+
+    @Mock
+    private AccountLockManager accountLockManager;
+
+    @Mock
+    private GroupCommitter groupCommitter;
+
+    @Mock
+    private IdempotencyStore idempotencyStore;
+
+    @Mock
+    private OptimisticRetryPolicy optimisticRetryPolicy;
+
     @BeforeEach
     public void setup() {
-        sut = new AccountsFacade(accountService, userService, transactionService, idService);
+        sut = new AccountsFacade(accountService, userService, transactionService, transactionExportService, balanceHistoryService, transactionRollupService, idService,
+                ledgerService, ledgerEngine, accountLockManager, groupCommitter, idempotencyStore, optimisticRetryPolicy, PostingMode.LEGACY, 1000);
     }
 
     @Test
@@ -157,57 +230,25 @@ public class AccountsFacadeUnitTest {
         // test fixtures
         final String principalEmail = "test@example.com";
 
-        final Address address = Address.Builder.create()
-                .withLine1("123 Test Street")
-                .withTown("Test Town")
-                .withCounty("Test County")
-                .withPostcode("TE1 2ST")
-                .build();
-
-        final User user = User.Builder.create()
-                .withName("Test User")
-                .withEmail(principalEmail)
-                .withPhoneNumber("+441234567890")
-                .withAddress(address)
-                .build();
-        user.setId(1L);
-
-        final Account account1 = Account.Builder.create()
-                .withName("Test Account 1")
-                .withAccountType(AccountType.PERSONAL)
-                .withBalance(BigDecimal.valueOf(100.00))
-                .withCurrency(Currency.GBP)
-                .withSortCode("10-10-10")
-                .withAccountNumber("01234567")
-                .withUser(user)
-                .build();
-        account1.setId(1L);
-
-        final Account account2 = Account.Builder.create()
-                .withName("Test Account 2")
-                .withAccountType(AccountType.PERSONAL)
-                .withBalance(BigDecimal.valueOf(250.50))
-                .withCurrency(Currency.GBP)
-                .withSortCode("10-10-10")
-                .withAccountNumber("01234568")
-                .withUser(user)
-                .build();
-        account2.setId(2L);
+        final AccountView account1 = new AccountView(1L, "01234567", "10-10-10", "Test Account 1",
+                AccountType.PERSONAL, BigDecimal.valueOf(100.00), Currency.GBP, null, null, null);
+        final AccountView account2 = new AccountView(2L, "01234568", "10-10-10", "Test Account 2",
+                AccountType.PERSONAL, BigDecimal.valueOf(250.50), Currency.GBP, null, null, null);
 
-        final List<Account> expectedAccounts = Arrays.asList(account1, account2);
+        final List<AccountView> expectedAccounts = Arrays.asList(account1, account2);
 
         // given
-        given(accountService.getAccounts(eq(principalEmail))).willReturn(expectedAccounts);
+        given(accountService.getAccountViews(eq(principalEmail))).willReturn(expectedAccounts);
 
         // when
-        final List<Account> result = sut.getAccounts(principalEmail);
+        final List<AccountView> result = sut.getAccounts(principalEmail);
 
         // then
         assertThat(result).isNotNull();
         assertThat(result).hasSize(2);
         assertThat(result).containsExactlyElementsOf(expectedAccounts);
 
-        verify(accountService, times(1)).getAccounts(eq(principalEmail));
+        verify(accountService, times(1)).getAccountViews(eq(principalEmail));
         verifyNoMoreInteractions(accountService, userService);
     }
 
@@ -258,6 +299,8 @@ public class AccountsFacadeUnitTest {
         account.setId(accountId);
 
         // given
+        given(userService.findByEmail(eq(principalEmail))).willReturn(user);
+        given(accountService.getOwnerId(eq(accountId))).willReturn(user.getId());
         given(accountService.getById(eq(accountId))).willReturn(account);
 
         // when
@@ -269,7 +312,10 @@ public class AccountsFacadeUnitTest {
         assertThat(result.getId()).isEqualTo(accountId);
         assertThat(result.getUser().getEmail()).isEqualTo(principalEmail);
 
+        verify(userService, times(1)).findByEmail(principalEmail);
+        verify(accountService, times(1)).getOwnerId(eq(accountId));
         verify(accountService, times(1)).getById(eq(accountId));
+        verify(accountService, times(1)).includeBalanceSlots(Collections.singletonList(account));
         verifyNoMoreInteractions(accountService, userService);
     }
 
@@ -295,19 +341,15 @@ public class AccountsFacadeUnitTest {
                 .build();
         accountOwner.setId(2L);
 
-        final Account account = Account.Builder.create()
-                .withName("Test Account")
-                .withAccountType(AccountType.PERSONAL)
-                .withBalance(BigDecimal.valueOf(100.00))
-                .withCurrency(Currency.GBP)
-                .withSortCode("10-10-10")
-                .withAccountNumber("01234567")
-                .withUser(accountOwner)
+        final User principal = User.Builder.create()
+                .withName("Test User")
+                .withEmail(principalEmail)
                 .build();
-        account.setId(accountId);
+        principal.setId(1L);
 
         // given
-        given(accountService.getById(eq(accountId))).willReturn(account);
+        given(userService.findByEmail(eq(principalEmail))).willReturn(principal);
+        given(accountService.getOwnerId(eq(accountId))).willReturn(accountOwner.getId());
 
         // when
         try {
@@ -323,7 +365,8 @@ public class AccountsFacadeUnitTest {
             assertThat(securityException.getMessage())
                     .contains("Authenticated user does not have access to this account.");
 
-            verify(accountService, times(1)).getById(eq(accountId));
+            verify(userService, times(1)).findByEmail(principalEmail);
+            verify(accountService, times(1)).getOwnerId(eq(accountId));
             verifyNoMoreInteractions(accountService, userService);
         }
     }
@@ -368,6 +411,7 @@ public class AccountsFacadeUnitTest {
 
         // given
         given(userService.findByEmail(eq(principalEmail))).willReturn(user);
+        given(accountService.getOwnerId(eq(accountId))).willReturn(user.getId());
         given(accountService.getById(eq(accountId))).willReturn(account);
         given(idService.generateId(eq("tan"))).willReturn(generatedTransactionId);
         given(transactionService.createTransaction(any(Transaction.class))).willReturn(transaction);
@@ -381,6 +425,7 @@ public class AccountsFacadeUnitTest {
         assertThat(transaction.getId()).isEqualTo(generatedTransactionId);
 
         verify(userService, times(1)).findByEmail(principalEmail);
+        verify(accountService, times(1)).getOwnerId(accountId);
         verify(accountService, times(1)).getById(accountId);
         verify(idService, times(1)).generateId("tan");
         verify(transactionService, times(1)).createTransaction(transaction);
@@ -389,16 +434,26 @@ public class AccountsFacadeUnitTest {
     }
 
     @Test
-    public void createTransactionThrowsExceptionWhenUserEmailDoesNotMatch() {
+    public void createTransactionInAtomicModePostsThroughLedger() {
         // test fixtures
         final Long accountId = 1L;
         final String principalEmail = "test@example.com";
-        final String differentEmail = "different@example.com";
+        final String generatedTransactionId = "tan-xyz123";
 
         final User user = User.Builder.create()
                 .withName("Test User")
-                .withEmail(differentEmail) // Different email
+                .withEmail(principalEmail)
+                .build();
+        user.setId(1L);
+
+        final Account account = Account.Builder.create()
+                .withName("Test Account")
+                .withAccountType(AccountType.PERSONAL)
+                .withBalance(new BigDecimal("1000.00"))
+                .withCurrency(Currency.GBP)
+                .withUser(user)
                 .build();
+        account.setId(accountId);
 
         final Transaction transaction = Transaction.Builder.create()
                 .withTransactionId("tan-test")
@@ -407,28 +462,51 @@ public class AccountsFacadeUnitTest {
                 .withCurrency(Currency.GBP)
                 .build();
 
+        sut = new AccountsFacade(accountService, userService, transactionService, transactionExportService, balanceHistoryService, transactionRollupService, idService,
+                ledgerService, ledgerEngine, accountLockManager, groupCommitter, idempotencyStore, optimisticRetryPolicy, PostingMode.ATOMIC, 1000);
+
         // given
         given(userService.findByEmail(eq(principalEmail))).willReturn(user);
+        given(accountService.getOwnerId(eq(accountId))).willReturn(user.getId());
+        given(accountService.getById(eq(accountId))).willReturn(account);
+        given(idService.generateId(eq("tan"))).willReturn(generatedTransactionId);
 
-        // when & then
-        assertThatThrownBy(() -> sut.createTransaction(accountId, transaction, principalEmail))
-                .isInstanceOf(SecurityException.class)
-                .hasMessage("Authenticated user does not have access to this account.");
+        // when
+        sut.createTransaction(accountId, transaction, principalEmail);
+
+        // then
+        assertThat(transaction.getAccount()).isEqualTo(account);
+        assertThat(transaction.getId()).isEqualTo(generatedTransactionId);
 
         verify(userService, times(1)).findByEmail(principalEmail);
-        verifyNoMoreInteractions(userService, accountService, transactionService, idService);
+        verify(accountService, times(1)).getOwnerId(accountId);
+        verify(accountService, times(1)).getById(accountId);
+        verify(idService, times(1)).generateId("tan");
+        verify(ledgerService, times(1)).post(transaction);
+        verifyNoMoreInteractions(userService, accountService, transactionService, idService, ledgerService);
     }
 
     @Test
-    public void createTransactionThrowsExceptionWhenUserEmailIsNull() {
+    public void createTransactionInEngineModeHandsOffToLedgerEngine() {
         // test fixtures
         final Long accountId = 1L;
         final String principalEmail = "test@example.com";
+        final String generatedTransactionId = "tan-xyz123";
 
         final User user = User.Builder.create()
                 .withName("Test User")
-                .withEmail(null) // Null email
+                .withEmail(principalEmail)
+                .build();
+        user.setId(1L);
+
+        final Account account = Account.Builder.create()
+                .withName("Test Account")
+                .withAccountType(AccountType.PERSONAL)
+                .withBalance(new BigDecimal("1000.00"))
+                .withCurrency(Currency.GBP)
+                .withUser(user)
                 .build();
+        account.setId(accountId);
 
         final Transaction transaction = Transaction.Builder.create()
                 .withTransactionId("tan-test")
@@ -437,36 +515,93 @@ public class AccountsFacadeUnitTest {
                 .withCurrency(Currency.GBP)
                 .build();
 
+        sut = new AccountsFacade(accountService, userService, transactionService, transactionExportService, balanceHistoryService, transactionRollupService, idService,
+                ledgerService, ledgerEngine, accountLockManager, groupCommitter, idempotencyStore, optimisticRetryPolicy, PostingMode.ENGINE, 1000);
+
         // given
         given(userService.findByEmail(eq(principalEmail))).willReturn(user);
+        given(accountService.getOwnerId(eq(accountId))).willReturn(user.getId());
+        given(accountService.getById(eq(accountId))).willReturn(account);
+        given(idService.generateId(eq("tan"))).willReturn(generatedTransactionId);
 
-        // when & then
-        assertThatThrownBy(() -> sut.createTransaction(accountId, transaction, principalEmail))
-                .isInstanceOf(SecurityException.class)
-                .hasMessage("Authenticated user does not have access to this account.");
+        // when
+        sut.createTransaction(accountId, transaction, principalEmail);
+
+        // then
+        assertThat(transaction.getAccount()).isEqualTo(account);
+        assertThat(transaction.getId()).isEqualTo(generatedTransactionId);
 
         verify(userService, times(1)).findByEmail(principalEmail);
-        verifyNoMoreInteractions(userService, accountService, transactionService, idService);
+        verify(accountService, times(1)).getOwnerId(accountId);
+        verify(accountService, times(1)).getById(accountId);
+        verify(idService, times(1)).generateId("tan");
+        verify(ledgerEngine, times(1)).post(transaction);
+        verifyNoMoreInteractions(userService, accountService, transactionService, idService, ledgerService, ledgerEngine);
     }
 
     @Test
-    public void getTransactionsReturnsTransactionsWhenUserHasAccess() {
+    public void createTransactionInGroupCommitModeWaitsForTheGroup() {
         // test fixtures
         final Long accountId = 1L;
         final String principalEmail = "test@example.com";
+        final String generatedTransactionId = "tan-xyz123";
 
-        final Address address = Address.Builder.create()
-                .withLine1("123 Test Street")
-                .withTown("Test Town")
-                .withCounty("Test County")
-                .withPostcode("TE1 2ST")
+        final User user = User.Builder.create()
+                .withName("Test User")
+                .withEmail(principalEmail)
+                .build();
+        user.setId(1L);
+
+        final Account account = Account.Builder.create()
+                .withName("Test Account")
+                .withAccountType(AccountType.PERSONAL)
+                .withBalance(new BigDecimal("1000.00"))
+                .withCurrency(Currency.GBP)
+                .withUser(user)
+                .build();
+        account.setId(accountId);
+
+        final Transaction transaction = Transaction.Builder.create()
+                .withTransactionId("tan-test")
+                .withAmount(new BigDecimal("100.00"))
+                .withType(TransactionType.DEPOSIT)
+                .withCurrency(Currency.GBP)
                 .build();
 
+        sut = new AccountsFacade(accountService, userService, transactionService, transactionExportService, balanceHistoryService, transactionRollupService, idService,
+                ledgerService, ledgerEngine, accountLockManager, groupCommitter, idempotencyStore, optimisticRetryPolicy, PostingMode.GROUP_COMMIT, 1000);
+
+        // given
+        given(userService.findByEmail(eq(principalEmail))).willReturn(user);
+        given(accountService.getOwnerId(eq(accountId))).willReturn(user.getId());
+        given(accountService.getById(eq(accountId))).willReturn(account);
+        given(idService.generateId(eq("tan"))).willReturn(generatedTransactionId);
+
+        // when
+        sut.createTransaction(accountId, transaction, principalEmail);
+
+        // then
+        assertThat(transaction.getAccount()).isEqualTo(account);
+        assertThat(transaction.getId()).isEqualTo(generatedTransactionId);
+
+        verify(userService, times(1)).findByEmail(principalEmail);
+        verify(accountService, times(1)).getOwnerId(accountId);
+        verify(accountService, times(1)).getById(accountId);
+        verify(idService, times(1)).generateId("tan");
+        verify(groupCommitter, times(1)).post(transaction);
+        verifyNoMoreInteractions(userService, accountService, transactionService, idService, ledgerService, groupCommitter);
+    }
+
+    @Test
+    public void createTransactionInLockedModePostsUnderAccountLock() {
+        // test fixtures
+        final Long accountId = 1L;
+        final String principalEmail = "test@example.com";
+        final String generatedTransactionId = "tan-xyz123";
+
         final User user = User.Builder.create()
                 .withName("Test User")
                 .withEmail(principalEmail)
-                .withPhoneNumber("+441234567890")
-                .withAddress(address)
                 .build();
         user.setId(1L);
 
@@ -479,70 +614,972 @@ public class AccountsFacadeUnitTest {
                 .build();
         account.setId(accountId);
 
-        final List<Transaction> expectedTransactions = Arrays.asList(
-                Transaction.Builder.create()
-                        .withTransactionId("tan-1")
-                        .withAmount(new BigDecimal("100.00"))
-                        .withType(TransactionType.DEPOSIT)
-                        .withCurrency(Currency.GBP)
-                        .withAccount(account)
-                        .build(),
-                Transaction.Builder.create()
-                        .withTransactionId("tan-2")
-                        .withAmount(new BigDecimal("50.00"))
-                        .withType(TransactionType.WITHDRAWAL)
-                        .withCurrency(Currency.GBP)
-                        .withAccount(account)
-                        .build()
-        );
+        final Transaction transaction = Transaction.Builder.create()
+                .withTransactionId("tan-test")
+                .withAmount(new BigDecimal("100.00"))
+                .withType(TransactionType.DEPOSIT)
+                .withCurrency(Currency.GBP)
+                .build();
+
+        sut = new AccountsFacade(accountService, userService, transactionService, transactionExportService, balanceHistoryService, transactionRollupService, idService,
+                ledgerService, ledgerEngine, accountLockManager, groupCommitter, idempotencyStore, optimisticRetryPolicy, PostingMode.LOCKED, 1000);
 
         // given
+        given(userService.findByEmail(eq(principalEmail))).willReturn(user);
+        given(accountService.getOwnerId(eq(accountId))).willReturn(user.getId());
         given(accountService.getById(eq(accountId))).willReturn(account);
-        given(transactionService.getTransactionsByAccountId(eq(accountId))).willReturn(expectedTransactions);
+        given(idService.generateId(eq("tan"))).willReturn(generatedTransactionId);
 
         // when
-        List<Transaction> result = sut.getTransactions(accountId, principalEmail);
+        sut.createTransaction(accountId, transaction, principalEmail);
 
         // then
-        assertThat(result).isNotNull();
-        assertThat(result).hasSize(2);
-        assertThat(result).isEqualTo(expectedTransactions);
+        assertThat(transaction.getAccount()).isEqualTo(account);
+        assertThat(transaction.getId()).isEqualTo(generatedTransactionId);
 
+        verify(userService, times(1)).findByEmail(principalEmail);
+        verify(accountService, times(1)).getOwnerId(accountId);
         verify(accountService, times(1)).getById(accountId);
-        verify(transactionService, times(1)).getTransactionsByAccountId(accountId);
-        verifyNoMoreInteractions(accountService, transactionService, userService, idService);
+        verify(idService, times(1)).generateId("tan");
+        verify(ledgerService, times(1)).postLocked(transaction);
+        verifyNoMoreInteractions(userService, accountService, transactionService, idService, ledgerService);
     }
 
     @Test
-    public void getTransactionsThrowsExceptionWhenUserDoesNotHaveAccess() {
+    public void createTransactionOnAStripedAccountPostsToItsSlotsInAnyDatabaseMode() {
+        // test fixtures
+        final String principalEmail = "test@example.com";
+
+        final User user = User.Builder.create()
+                .withName("Test User")
+                .withEmail(principalEmail)
+                .build();
+        user.setId(1L);
+
+        final Account account = Account.Builder.create()
+                .withName("Payroll")
+                .withAccountType(AccountType.PERSONAL)
+                .withCurrency(Currency.GBP)
+                .withBalanceSlots(8)
+                .withUser(user)
+                .build();
+        account.setId(1L);
+
+        // given
+        given(userService.findByEmail(eq(principalEmail))).willReturn(user);
+        given(accountService.getOwnerId(1L)).willReturn(1L);
+        given(accountService.getById(1L)).willReturn(account);
+        given(idService.generateId(eq("tan"))).willReturn("tan-1", "tan-2", "tan-3");
+
+        for (PostingMode mode : Arrays.asList(PostingMode.ATOMIC, PostingMode.LOCKED, PostingMode.OPTIMISTIC)) {
+            sut = new AccountsFacade(accountService, userService, transactionService, transactionExportService, balanceHistoryService, transactionRollupService, idService,
+                    ledgerService, ledgerEngine, new AccountLockManager(16, new SimpleMeterRegistry()), groupCommitter,
+                    idempotencyStore, optimisticRetryPolicy, mode, 1000);
+            final Transaction withdrawal = Transaction.Builder.create()
+                    .withTransactionId("tan-" + mode)
+                    .withAmount(new BigDecimal("10.00"))
+                    .withType(TransactionType.WITHDRAWAL)
+                    .withCurrency(Currency.GBP)
+                    .build();
+
+            // when
+            sut.createTransaction(1L, withdrawal, principalEmail);
+
+            // then
+            verify(ledgerService, times(1)).postStriped(withdrawal);
+        }
+        verifyNoMoreInteractions(ledgerService, transactionService, optimisticRetryPolicy);
+    }
+
+    @Test
+    public void createAccountWithBalanceSlotsIsRefusedInEngineMode() {
+        // test fixtures
+        final Account account = Account.Builder.create()
+                .withName("Payroll")
+                .withAccountType(AccountType.PERSONAL)
+                .withBalanceSlots(8)
+                .build();
+
+        sut = new AccountsFacade(accountService, userService, transactionService, transactionExportService, balanceHistoryService, transactionRollupService, idService,
+                ledgerService, ledgerEngine, accountLockManager, groupCommitter, idempotencyStore, optimisticRetryPolicy, PostingMode.ENGINE, 1000);
+
+        // when & then
+        assertThatThrownBy(() -> sut.createAccount(account, "test@example.com"))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoMoreInteractions(accountService);
+    }
+
+    @Test
+    public void createTransactionInOptimisticModeRetriesLostRaces() {
         // test fixtures
         final Long accountId = 1L;
         final String principalEmail = "test@example.com";
-        final String differentEmail = "different@example.com";
 
-        final User differentUser = User.Builder.create()
-                .withName("Different User")
-                .withEmail(differentEmail)
+        final User user = User.Builder.create()
+                .withName("Test User")
+                .withEmail(principalEmail)
                 .build();
+        user.setId(1L);
 
         final Account account = Account.Builder.create()
                 .withName("Test Account")
                 .withAccountType(AccountType.PERSONAL)
                 .withBalance(new BigDecimal("1000.00"))
                 .withCurrency(Currency.GBP)
-                .withUser(differentUser) // Different user
+                .withUser(user)
                 .build();
         account.setId(accountId);
 
+        final Transaction transaction = Transaction.Builder.create()
+                .withTransactionId("tan-test")
+                .withAmount(new BigDecimal("100.00"))
+                .withType(TransactionType.DEPOSIT)
+                .withCurrency(Currency.GBP)
+                .build();
+
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        sut = new AccountsFacade(accountService, userService, transactionService, transactionExportService, balanceHistoryService, transactionRollupService, idService,
+                ledgerService, ledgerEngine, accountLockManager, groupCommitter, idempotencyStore,
+                new OptimisticRetryPolicy(3, 0, 0, meterRegistry), PostingMode.OPTIMISTIC, 1000);
+
         // given
+        given(userService.findByEmail(eq(principalEmail))).willReturn(user);
+        given(accountService.getOwnerId(eq(accountId))).willReturn(user.getId());
         given(accountService.getById(eq(accountId))).willReturn(account);
+        given(idService.generateId(eq("tan"))).willReturn("tan-xyz123");
+        given(ledgerService.postOptimistic(transaction))
+                .willThrow(new ObjectOptimisticLockingFailureException(Account.class, accountId))
+                .willReturn(transaction);
 
-        // when & then
-        assertThatThrownBy(() -> sut.getTransactions(accountId, principalEmail))
-                .isInstanceOf(SecurityException.class)
-                .hasMessage("Authenticated user does not have access to this account.");
+        // when
+        sut.createTransaction(accountId, transaction, principalEmail);
 
-        verify(accountService, times(1)).getById(accountId);
-        verifyNoMoreInteractions(accountService, transactionService, userService, idService);
+        // then
+        verify(ledgerService, times(2)).postOptimistic(transaction);
+        assertThat(meterRegistry.get("ledger.optimistic.retries")
+                .tag("endpoint", AccountsFacade.TRANSACTIONS_ENDPOINT).counter().count()).isEqualTo(1);
+        verifyNoMoreInteractions(transactionService, ledgerService);
+    }
+
+    @Test
+    public void createTransactionWithIdempotencyKeyRecordsTheOutcome() {
+        // test fixtures
+        final Long accountId = 1L;
+        final String principalEmail = "test@example.com";
+        final String generatedTransactionId = "tan-xyz123";
+
+        final User user = User.Builder.create()
+                .withName("Test User")
+                .withEmail(principalEmail)
+                .build();
+        user.setId(7L);
+
+        final Account account = Account.Builder.create()
+                .withName("Test Account")
+                .withAccountType(AccountType.PERSONAL)
+                .withBalance(new BigDecimal("1000.00"))
+                .withCurrency(Currency.GBP)
+                .withUser(user)
+                .build();
+        account.setId(accountId);
+
+        final Transaction transaction = Transaction.Builder.create()
+                .withTransactionId("tan-test")
+                .withAmount(new BigDecimal("100.00"))
+                .withType(TransactionType.DEPOSIT)
+                .withCurrency(Currency.GBP)
+                .build();
+
+        sut = new AccountsFacade(accountService, userService, transactionService, transactionExportService, balanceHistoryService, transactionRollupService, idService,
+                ledgerService, ledgerEngine, accountLockManager, groupCommitter, idempotencyStore, optimisticRetryPolicy, PostingMode.ATOMIC, 1000);
+
+        // given
+        given(userService.findByEmail(eq(principalEmail))).willReturn(user);
+        given(accountService.getOwnerId(eq(accountId))).willReturn(user.getId());
+        given(accountService.getById(eq(accountId))).willReturn(account);
+        given(idService.generateId(eq("tan"))).willReturn(generatedTransactionId);
+        given(idempotencyStore.claim(eq(7L), eq("key-1"), anyInt(), eq(generatedTransactionId))).willReturn(null);
+
+        // when
+        boolean replayed = sut.createTransaction(accountId, transaction, principalEmail, "key-1");
+
+        // then
+        assertThat(replayed).isFalse();
+        InOrder order = inOrder(idempotencyStore, ledgerService);
+        order.verify(idempotencyStore).claim(eq(7L), eq("key-1"), anyInt(), eq(generatedTransactionId));
+        order.verify(ledgerService).post(transaction);
+        order.verify(idempotencyStore).posted(eq(7L), eq("key-1"), anyInt(), eq(generatedTransactionId));
+    }
+
+    @Test
+    public void createTransactionWithRepeatedIdempotencyKeyReplaysWithoutPosting() {
+        // test fixtures
+        final Long accountId = 1L;
+        final String principalEmail = "test@example.com";
+
+        final User user = User.Builder.create()
+                .withName("Test User")
+                .withEmail(principalEmail)
+                .build();
+        user.setId(7L);
+
+        final Transaction transaction = Transaction.Builder.create()
+                .withTransactionId("tan-test")
+                .withAmount(new BigDecimal("100.00"))
+                .withType(TransactionType.WITHDRAWAL)
+                .withCurrency(Currency.GBP)
+                .build();
+
+        final IdempotentResult posted = new IdempotentResult(IdempotencyStatus.POSTED, 0, "tan-original", null, 0L);
+        final IdempotentResult rejected = new IdempotentResult(IdempotencyStatus.REJECTED, 0, null,
+                "Insufficient funds for withdrawal.", 0L);
+
+        sut = new AccountsFacade(accountService, userService, transactionService, transactionExportService, balanceHistoryService, transactionRollupService, idService,
+                ledgerService, ledgerEngine, accountLockManager, groupCommitter, idempotencyStore, optimisticRetryPolicy, PostingMode.ATOMIC, 1000);
+
+        // given
+        given(userService.findByEmail(eq(principalEmail))).willReturn(user);
+        given(idempotencyStore.claim(eq(7L), eq("key-1"), anyInt(), any())).willReturn(posted);
+        given(idempotencyStore.claim(eq(7L), eq("key-2"), anyInt(), any())).willReturn(rejected);
+
+        // when
+        boolean replayed = sut.createTransaction(accountId, transaction, principalEmail, "key-1");
+
+        // then
+        assertThat(replayed).isTrue();
+        assertThat(transaction.getId()).isEqualTo("tan-original");
+        assertThatThrownBy(() -> sut.createTransaction(accountId, transaction, principalEmail, "key-2"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Insufficient funds for withdrawal.");
+
+        verify(idempotencyStore, never()).posted(any(), any(), anyInt(), any());
+        // each claim carries the id its posting would have had
+        verify(idService, times(2)).generateId("tan");
+        verifyNoMoreInteractions(accountService, transactionService, idService, ledgerService);
+    }
+
+    @Test
+    public void createTransactionWithIdempotencyKeyRecordsRejectionsAndReleasesFailures() {
+        // test fixtures
+        final Long accountId = 1L;
+        final String principalEmail = "test@example.com";
+
+        final User user = User.Builder.create()
+                .withName("Test User")
+                .withEmail(principalEmail)
+                .build();
+        user.setId(7L);
+
+        final Account account = Account.Builder.create()
+                .withName("Test Account")
+                .withAccountType(AccountType.PERSONAL)
+                .withBalance(BigDecimal.ZERO)
+                .withCurrency(Currency.GBP)
+                .withUser(user)
+                .build();
+        account.setId(accountId);
+
+        final Transaction transaction = Transaction.Builder.create()
+                .withTransactionId("tan-test")
+                .withAmount(new BigDecimal("100.00"))
+                .withType(TransactionType.WITHDRAWAL)
+                .withCurrency(Currency.GBP)
+                .build();
+
+        sut = new AccountsFacade(accountService, userService, transactionService, transactionExportService, balanceHistoryService, transactionRollupService, idService,
+                ledgerService, ledgerEngine, accountLockManager, groupCommitter, idempotencyStore, optimisticRetryPolicy, PostingMode.ATOMIC, 1000);
+
+        // given
+        given(userService.findByEmail(eq(principalEmail))).willReturn(user);
+        given(accountService.getOwnerId(eq(accountId))).willReturn(user.getId());
+        given(accountService.getById(eq(accountId))).willReturn(account);
+        given(idService.generateId(eq("tan"))).willReturn("tan-xyz123");
+        given(ledgerService.post(transaction))
+                .willThrow(new IllegalArgumentException("Insufficient funds for withdrawal."))
+                .willThrow(new IllegalStateException("database unavailable"));
+
+        // when/then - a rejection is an outcome worth repeating
+        assertThatThrownBy(() -> sut.createTransaction(accountId, transaction, principalEmail, "key-1"))
+                .isInstanceOf(IllegalArgumentException.class);
+        verify(idempotencyStore).rejected(eq(7L), eq("key-1"), anyInt(), eq("Insufficient funds for withdrawal."));
+
+        // when/then - a failure isn't, so the key can be retried
+        assertThatThrownBy(() -> sut.createTransaction(accountId, transaction, principalEmail, "key-2"))
+                .isInstanceOf(IllegalStateException.class);
+        verify(idempotencyStore).release(7L, "key-2");
+        verify(idempotencyStore, never()).posted(any(), any(), anyInt(), any());
+    }
+
+    @Test
+    public void createTransferPostsBothLegsTogether() {
+        // test fixtures
+        final String principalEmail = "test@example.com";
+
+        final User user = User.Builder.create()
+                .withName("Test User")
+                .withEmail(principalEmail)
+                .build();
+        user.setId(1L);
+
+        final User payee = User.Builder.create()
+                .withName("Payee")
+                .withEmail("payee@example.com")
+                .build();
+        payee.setId(2L);
+
+        final Account from = Account.Builder.create()
+                .withName("From")
+                .withAccountType(AccountType.PERSONAL)
+                .withBalance(new BigDecimal("1000.00"))
+                .withCurrency(Currency.GBP)
+                .withUser(user)
+                .build();
+        from.setId(5L);
+
+        final Account to = Account.Builder.create()
+                .withName("To")
+                .withAccountType(AccountType.PERSONAL)
+                .withBalance(BigDecimal.ZERO)
+                .withCurrency(Currency.GBP)
+                .withUser(payee)
+                .build();
+        to.setId(3L);
+
+        final TransferRequest request = new TransferRequest(3L, "rent-may", new BigDecimal("250.00"), Currency.GBP);
+
+        // given
+        given(userService.findByEmail(eq(principalEmail))).willReturn(user);
+        given(accountService.getOwnerId(5L)).willReturn(1L);
+        given(accountService.getById(5L)).willReturn(from);
+        given(accountService.getById(3L)).willReturn(to);
+        given(idService.generateId(eq("tan"))).willReturn("tan-1", "tan-2");
+
+        // when
+        final TransferResponse response = sut.createTransfer(5L, request, principalEmail);
+
+        // then
+        assertThat(response.getTransferId()).isEqualTo("rent-may");
+        assertThat(response.getFromAccountId()).isEqualTo(5L);
+        assertThat(response.getToAccountId()).isEqualTo(3L);
+        assertThat(response.getDebitId()).isEqualTo("tan-1");
+        assertThat(response.getCreditId()).isEqualTo("tan-2");
+        verify(ledgerService).transfer(
+                argThat(debit -> debit.getType() == TransactionType.WITHDRAWAL && debit.getAccount() == from
+                        && debit.getTransactionId().equals("rent-may-debit")),
+                argThat(credit -> credit.getType() == TransactionType.DEPOSIT && credit.getAccount() == to
+                        && credit.getTransactionId().equals("rent-may-credit")));
+        verifyNoMoreInteractions(ledgerService, transactionService);
+    }
+
+    @Test
+    public void createTransferRejectsForeignAndIdenticalAccountsAndEngineMode() {
+        // test fixtures
+        final String principalEmail = "test@example.com";
+
+        final User user = User.Builder.create()
+                .withName("Test User")
+                .withEmail(principalEmail)
+                .build();
+        user.setId(1L);
+        final User other = User.Builder.create()
+                .withName("Other User")
+                .withEmail("other@example.com")
+                .build();
+        other.setId(2L);
+
+        final Account mine = Account.Builder.create()
+                .withName("Mine")
+                .withAccountType(AccountType.PERSONAL)
+                .withCurrency(Currency.GBP)
+                .withUser(user)
+                .build();
+        mine.setId(1L);
+        final Account theirs = Account.Builder.create()
+                .withName("Theirs")
+                .withAccountType(AccountType.PERSONAL)
+                .withCurrency(Currency.GBP)
+                .withUser(other)
+                .build();
+        theirs.setId(2L);
+
+        // given
+        given(userService.findByEmail(eq(principalEmail))).willReturn(user);
+        given(accountService.getOwnerId(1L)).willReturn(1L);
+        given(accountService.getOwnerId(2L)).willReturn(2L);
+        given(accountService.getById(1L)).willReturn(mine);
+        given(accountService.getById(2L)).willReturn(theirs);
+
+        // when/then - from someone else's account
+        assertThatThrownBy(() -> sut.createTransfer(2L,
+                new TransferRequest(1L, "t1", new BigDecimal("1.00"), Currency.GBP), principalEmail))
+                .isInstanceOf(SecurityException.class);
+
+        // when/then - to the same account
+        assertThatThrownBy(() -> sut.createTransfer(1L,
+                new TransferRequest(1L, "t2", new BigDecimal("1.00"), Currency.GBP), principalEmail))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        // when/then - the ledger engine can't move money between partitions
+        sut = new AccountsFacade(accountService, userService, transactionService, transactionExportService, balanceHistoryService, transactionRollupService, idService,
+                ledgerService, ledgerEngine, accountLockManager, groupCommitter, idempotencyStore, optimisticRetryPolicy,
+                PostingMode.ENGINE, 1000);
+        assertThatThrownBy(() -> sut.createTransfer(1L,
+                new TransferRequest(2L, "t3", new BigDecimal("1.00"), Currency.GBP), principalEmail))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        verifyNoMoreInteractions(ledgerService, ledgerEngine);
+    }
+
+    @Test
+    public void createTransactionThrowsExceptionWhenUserEmailDoesNotMatch() {
+        // test fixtures
+        final Long accountId = 1L;
+        final String principalEmail = "test@example.com";
+        final String differentEmail = "different@example.com";
+
+        final User user = User.Builder.create()
+                .withName("Test User")
+                .withEmail(differentEmail) // Different email
+                .build();
+
+        final Transaction transaction = Transaction.Builder.create()
+                .withTransactionId("tan-test")
+                .withAmount(new BigDecimal("100.00"))
+                .withType(TransactionType.DEPOSIT)
+                .withCurrency(Currency.GBP)
+                .build();
+
+        // given
+        given(userService.findByEmail(eq(principalEmail))).willReturn(user);
+
+        // when & then
+        assertThatThrownBy(() -> sut.createTransaction(accountId, transaction, principalEmail))
+                .isInstanceOf(SecurityException.class)
+                .hasMessage("Authenticated user does not have access to this account.");
+
+        verify(userService, times(1)).findByEmail(principalEmail);
+        verifyNoMoreInteractions(userService, accountService, transactionService, idService);
+    }
+
+    @Test
+    public void createTransactionThrowsExceptionWhenTheAccountBelongsToSomeoneElse() {
+        // test fixtures
+        final Long accountId = 1L;
+        final String principalEmail = "test@example.com";
+
+        final User user = User.Builder.create()
+                .withName("Test User")
+                .withEmail(principalEmail)
+                .build();
+        user.setId(1L);
+        final User owner = User.Builder.create()
+                .withName("Account Owner")
+                .withEmail("different@example.com")
+                .build();
+        owner.setId(2L);
+
+        final Transaction transaction = Transaction.Builder.create()
+                .withTransactionId("tan-test")
+                .withAmount(new BigDecimal("100.00"))
+                .withType(TransactionType.DEPOSIT)
+                .withCurrency(Currency.GBP)
+                .build();
+
+        // given
+        given(userService.findByEmail(eq(principalEmail))).willReturn(user);
+        given(accountService.getOwnerId(eq(accountId))).willReturn(owner.getId());
+
+        // when & then
+        assertThatThrownBy(() -> sut.createTransaction(accountId, transaction, principalEmail))
+                .isInstanceOf(SecurityException.class)
+                .hasMessage("Authenticated user does not have access to this account.");
+
+        verify(userService, times(1)).findByEmail(principalEmail);
+        verify(accountService, times(1)).getOwnerId(accountId);
+        verifyNoMoreInteractions(userService, accountService, transactionService, idService, ledgerService);
+    }
+
+    @Test
+    public void createTransactionThrowsExceptionWhenUserEmailIsNull() {
+        // test fixtures
+        final Long accountId = 1L;
+        final String principalEmail = "test@example.com";
+
+        final User user = User.Builder.create()
+                .withName("Test User")
+                .withEmail(null) // Null email
+                .build();
+
+        final Transaction transaction = Transaction.Builder.create()
+                .withTransactionId("tan-test")
+                .withAmount(new BigDecimal("100.00"))
+                .withType(TransactionType.DEPOSIT)
+                .withCurrency(Currency.GBP)
+                .build();
+
+        // given
+        given(userService.findByEmail(eq(principalEmail))).willReturn(user);
+
+        // when & then
+        assertThatThrownBy(() -> sut.createTransaction(accountId, transaction, principalEmail))
+                .isInstanceOf(SecurityException.class)
+                .hasMessage("Authenticated user does not have access to this account.");
+
+        verify(userService, times(1)).findByEmail(principalEmail);
+        verifyNoMoreInteractions(userService, accountService, transactionService, idService);
+    }
+
+    @Test
+    public void createTransactionsPostsEachItemAndReportsRejectionsIndividually() {
+        // test fixtures
+        final String principalEmail = "test@example.com";
+        final User user = User.Builder.create()
+                .withName("Test User")
+                .withEmail(principalEmail)
+                .build();
+        user.setId(1L);
+
+        final TransactionBatchRequest request = new TransactionBatchRequest(Arrays.asList(
+                new TransactionBatchItem(1L, "ref-1", new BigDecimal("10.00"), Currency.GBP, TransactionType.DEPOSIT),
+                new TransactionBatchItem(2L, "ref-2", new BigDecimal("99.00"), Currency.GBP, TransactionType.WITHDRAWAL),
+                new TransactionBatchItem(3L, "ref-3", new BigDecimal("5.00"), Currency.GBP, TransactionType.DEPOSIT),
+                new TransactionBatchItem(null, "ref-4", new BigDecimal("5.00"), Currency.GBP, TransactionType.DEPOSIT)
+        ), false);
+
+        // given - account 3 belongs to someone else, item 2 overdraws
+        given(userService.findByEmail(eq(principalEmail))).willReturn(user);
+        given(accountService.findOwnedAccountIds(any(), eq(1L)))
+                .willReturn(new HashSet<>(Arrays.asList(1L, 2L)));
+        given(idService.generateId(eq("tan"))).willReturn("tan-a", "tan-b");
+        given(ledgerService.postBatch(anyList(), eq(false)))
+                .willReturn(Arrays.asList(null, "Insufficient funds for withdrawal."));
+
+        // when
+        final TransactionBatchResponse response = sut.createTransactions(null, request, principalEmail);
+
+        // then
+        assertThat(response.isAtomic()).isFalse();
+        assertThat(response.getPosted()).isEqualTo(1);
+        assertThat(response.getRejected()).isEqualTo(3);
+
+        final List<TransactionBatchResult> results = response.getResults();
+        assertThat(results).extracting(TransactionBatchResult::getStatus).containsExactly(
+                TransactionBatchResult.Status.POSTED,
+                TransactionBatchResult.Status.REJECTED,
+                TransactionBatchResult.Status.REJECTED,
+                TransactionBatchResult.Status.REJECTED);
+        assertThat(results.get(0).getId()).isEqualTo("tan-a");
+        assertThat(results.get(1).getMessage()).isEqualTo("Insufficient funds for withdrawal.");
+        assertThat(results.get(2).getMessage()).isEqualTo("Authenticated user does not have access to this account.");
+        assertThat(results.get(3).getMessage()).contains("account ID is required");
+
+        verify(accountService, times(1)).findOwnedAccountIds(any(), eq(1L));
+        verify(ledgerService, times(1)).postBatch(anyList(), eq(false));
+    }
+
+    @Test
+    public void createTransactionsInAnAtomicBatchPostsNothingWhenAnItemIsNotOwned() {
+        // test fixtures
+        final String principalEmail = "test@example.com";
+        final User user = User.Builder.create()
+                .withName("Test User")
+                .withEmail(principalEmail)
+                .build();
+        user.setId(1L);
+
+        final TransactionBatchRequest request = new TransactionBatchRequest(Arrays.asList(
+                new TransactionBatchItem(null, "ref-1", new BigDecimal("10.00"), Currency.GBP, TransactionType.DEPOSIT),
+                new TransactionBatchItem(null, "ref-2", new BigDecimal("10.00"), Currency.GBP, TransactionType.DEPOSIT)
+        ), true);
+
+        // given - the path account is not the principal's
+        given(userService.findByEmail(eq(principalEmail))).willReturn(user);
+        given(accountService.findOwnedAccountIds(any(), eq(1L))).willReturn(Collections.emptySet());
+
+        // when
+        final TransactionBatchResponse response = sut.createTransactions(7L, request, principalEmail);
+
+        // then
+        assertThat(response.isAtomic()).isTrue();
+        assertThat(response.getPosted()).isZero();
+        assertThat(response.getRejected()).isEqualTo(2);
+        assertThat(response.getResults()).extracting(TransactionBatchResult::getAccountId).containsOnly(7L);
+        verify(ledgerService, never()).postBatch(anyList(), anyBoolean());
+    }
+
+    @Test
+    public void createTransactionsInAnAtomicBatchMarksTheOtherItemsNotPosted() {
+        // test fixtures
+        final String principalEmail = "test@example.com";
+        final User user = User.Builder.create()
+                .withName("Test User")
+                .withEmail(principalEmail)
+                .build();
+        user.setId(1L);
+
+        final TransactionBatchRequest request = new TransactionBatchRequest(Arrays.asList(
+                new TransactionBatchItem(null, "ref-1", new BigDecimal("10.00"), Currency.GBP, TransactionType.DEPOSIT),
+                new TransactionBatchItem(null, "ref-2", new BigDecimal("99.00"), Currency.GBP, TransactionType.WITHDRAWAL)
+        ), true);
+
+        // given
+        given(userService.findByEmail(eq(principalEmail))).willReturn(user);
+        given(accountService.findOwnedAccountIds(any(), eq(1L))).willReturn(Collections.singleton(7L));
+        given(idService.generateId(eq("tan"))).willReturn("tan-a", "tan-b");
+        given(ledgerService.postBatch(anyList(), eq(true)))
+                .willReturn(Arrays.asList(null, "Insufficient funds for withdrawal."));
+
+        // when
+        final TransactionBatchResponse response = sut.createTransactions(7L, request, principalEmail);
+
+        // then
+        assertThat(response.getPosted()).isZero();
+        assertThat(response.getRejected()).isEqualTo(1);
+        assertThat(response.getResults()).extracting(TransactionBatchResult::getStatus).containsExactly(
+                TransactionBatchResult.Status.NOT_POSTED,
+                TransactionBatchResult.Status.REJECTED);
+        assertThat(response.getResults().get(0).getId()).isNull();
+    }
+
+    @Test
+    public void createTransactionsOnTheLedgerEngineRejectsWhatItCannotTakeItemByItem() {
+        // test fixtures
+        final String principalEmail = "test@example.com";
+        final User user = User.Builder.create()
+                .withName("Test User")
+                .withEmail(principalEmail)
+                .build();
+        user.setId(1L);
+
+        final TransactionBatchRequest request = new TransactionBatchRequest(Arrays.asList(
+                new TransactionBatchItem(null, "ref-1", new BigDecimal("10.00"), Currency.GBP, TransactionType.DEPOSIT),
+                new TransactionBatchItem(null, "ref-2", new BigDecimal("99.00"), Currency.GBP, TransactionType.WITHDRAWAL),
+                new TransactionBatchItem(null, "ref-3", new BigDecimal("5.00"), Currency.GBP, TransactionType.DEPOSIT),
+                new TransactionBatchItem(null, "ref-4", new BigDecimal("5.00"), Currency.GBP, TransactionType.DEPOSIT),
+                new TransactionBatchItem(null, "ref-5", new BigDecimal("5.00"), Currency.GBP, TransactionType.DEPOSIT)
+        ), false);
+
+        sut = new AccountsFacade(accountService, userService, transactionService, transactionExportService, balanceHistoryService, transactionRollupService, idService,
+                ledgerService, ledgerEngine, accountLockManager, groupCommitter, idempotencyStore, optimisticRetryPolicy, PostingMode.ENGINE, 1000);
+
+        // given - the third item fails in the DB, and the ring is full by the fourth
+        given(userService.findByEmail(eq(principalEmail))).willReturn(user);
+        given(accountService.findOwnedAccountIds(any(), eq(1L))).willReturn(Collections.singleton(7L));
+        given(idService.generateId(eq("tan"))).willReturn("tan-a", "tan-b", "tan-c", "tan-d", "tan-e");
+        given(ledgerEngine.submit(any(Transaction.class)))
+                .willReturn(new CompletableFuture<>(), new CompletableFuture<>(), new CompletableFuture<>())
+                .willThrow(new IllegalStateException("Ledger engine is saturated, try again later."));
+        given(ledgerEngine.awaitAll(anyList())).willReturn(Arrays.asList(
+                null,
+                new IllegalArgumentException("Insufficient funds for withdrawal."),
+                new IllegalStateException("Could not open JDBC Connection for transaction")));
+
+        // when
+        final TransactionBatchResponse response = sut.createTransactions(7L, request, principalEmail);
+
+        // then
+        assertThat(response.getPosted()).isEqualTo(1);
+        assertThat(response.getResults()).extracting(TransactionBatchResult::getMessage).containsExactly(
+                null,
+                "Insufficient funds for withdrawal.",
+                "The ledger could not post the transaction.",
+                "The ledger is too busy to take the transaction, try again later.",
+                "The ledger is too busy to take the transaction, try again later.");
+        verify(ledgerEngine, times(4)).submit(any(Transaction.class));
+    }
+
+    @Test
+    public void createTransactionsRejectsBatchesOverTheConfiguredSize() {
+        // given
+        sut = new AccountsFacade(accountService, userService, transactionService, transactionExportService, balanceHistoryService, transactionRollupService, idService,
+                ledgerService, ledgerEngine, accountLockManager, groupCommitter, idempotencyStore, optimisticRetryPolicy, PostingMode.ATOMIC, 1);
+        final TransactionBatchRequest request = new TransactionBatchRequest(Arrays.asList(
+                new TransactionBatchItem(1L, "ref-1", new BigDecimal("10.00"), Currency.GBP, TransactionType.DEPOSIT),
+                new TransactionBatchItem(1L, "ref-2", new BigDecimal("10.00"), Currency.GBP, TransactionType.DEPOSIT)
+        ), false);
+
+        // when & then
+        assertThatThrownBy(() -> sut.createTransactions(null, request, "test@example.com"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("A batch can contain at most 1 transactions.");
+        verifyNoMoreInteractions(userService, accountService, ledgerService);
+    }
+
+    @Test
+    public void getTransactionsReturnsTransactionsWhenUserHasAccess() {
+        // test fixtures
+        final Long accountId = 1L;
+        final String principalEmail = "test@example.com";
+
+        final Address address = Address.Builder.create()
+                .withLine1("123 Test Street")
+                .withTown("Test Town")
+                .withCounty("Test County")
+                .withPostcode("TE1 2ST")
+                .build();
+
+        final User user = User.Builder.create()
+                .withName("Test User")
+                .withEmail(principalEmail)
+                .withPhoneNumber("+441234567890")
+                .withAddress(address)
+                .build();
+        user.setId(1L);
+
+        final List<TransactionView> expectedTransactions = Arrays.asList(
+                new TransactionView("tan-1", "tan-1", new BigDecimal("100.00"), Currency.GBP,
+                        TransactionType.DEPOSIT, null, null),
+                new TransactionView("tan-2", "tan-2", new BigDecimal("50.00"), Currency.GBP,
+                        TransactionType.WITHDRAWAL, null, null)
+        );
+
+        // given
+        given(userService.findByEmail(eq(principalEmail))).willReturn(user);
+        given(accountService.getOwnerId(eq(accountId))).willReturn(user.getId());
+        given(transactionService.getTransactionPage(eq(accountId), same(TransactionFilter.none()), isNull(), isNull()))
+                .willReturn(new TransactionPage(expectedTransactions, null));
+
+        // when
+        TransactionPage result = sut.getTransactions(accountId, TransactionFilter.none(), null, null, principalEmail);
+
+        // then
+        assertThat(result).isNotNull();
+        assertThat(result.getTransactions()).hasSize(2);
+        assertThat(result.getTransactions()).isEqualTo(expectedTransactions);
+
+        verify(userService, times(1)).findByEmail(principalEmail);
+        verify(accountService, times(1)).getOwnerId(accountId);
+        verify(transactionService, times(1)).getTransactionPage(accountId, TransactionFilter.none(), null, null);
+        verifyNoMoreInteractions(accountService, transactionService, userService, idService);
+    }
+
+    @Test
+    public void getTransactionsThrowsExceptionWhenUserDoesNotHaveAccess() {
+        // test fixtures
+        final Long accountId = 1L;
+        final String principalEmail = "test@example.com";
+        final String differentEmail = "different@example.com";
+
+        final User user = User.Builder.create()
+                .withName("Test User")
+                .withEmail(principalEmail)
+                .build();
+        user.setId(1L);
+
+        final User differentUser = User.Builder.create()
+                .withName("Different User")
+                .withEmail(differentEmail)
+                .build();
+        differentUser.setId(2L);
+
+        // given
+        given(userService.findByEmail(eq(principalEmail))).willReturn(user);
+        given(accountService.getOwnerId(eq(accountId))).willReturn(differentUser.getId()); // Different user
+
+        // when & then
+        assertThatThrownBy(() -> sut.getTransactions(accountId, TransactionFilter.none(), null, null, principalEmail))
+                .isInstanceOf(SecurityException.class)
+                .hasMessage("Authenticated user does not have access to this account.");
+
+        verify(userService, times(1)).findByEmail(principalEmail);
+        verify(accountService, times(1)).getOwnerId(accountId);
+        verifyNoMoreInteractions(accountService, transactionService, userService, idService);
+    }
+
+    @Test
+    public void getTransactionsDecodesTheCursorOfTheNextPage() {
+        // test fixtures
+        final User user = User.Builder.create().withEmail("test@example.com").build();
+        user.setId(1L);
+        final TransactionCursor cursor = new TransactionCursor(LocalDateTime.of(2024, 1, 1, 9, 0), "tan-1");
+        final TransactionPage page = new TransactionPage(Collections.emptyList(), null);
+
+        // given
+        given(userService.findByEmail(eq("test@example.com"))).willReturn(user);
+        given(accountService.getOwnerId(eq(1L))).willReturn(1L);
+        given(transactionService.getTransactionPage(eq(1L), same(TransactionFilter.none()), eq(cursor), eq(50))).willReturn(page);
+
+        // when
+        TransactionPage result = sut.getTransactions(1L, TransactionFilter.none(), cursor.encode(), 50, "test@example.com");
+
+        // then
+        assertThat(result).isSameAs(page);
+    }
+
+    @Test
+    public void getTransactionsRejectsACursorItDidNotIssue() {
+        // test fixtures
+        final User user = User.Builder.create().withEmail("test@example.com").build();
+        user.setId(1L);
+
+        // given
+        given(userService.findByEmail(eq("test@example.com"))).willReturn(user);
+        given(accountService.getOwnerId(eq(1L))).willReturn(1L);
+
+        // when & then
+        assertThatThrownBy(() -> sut.getTransactions(1L, TransactionFilter.none(), "not-a-cursor", null, "test@example.com"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid cursor.");
+        verifyNoMoreInteractions(transactionService);
+    }
+
+    @Test
+    public void exportTransactionsStreamsTheAccountOnlyOnceTheBodyIsWritten() throws Exception {
+        // test fixtures
+        final User user = User.Builder.create().withEmail("test@example.com").build();
+        user.setId(1L);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // given
+        given(userService.findByEmail(eq("test@example.com"))).willReturn(user);
+        given(accountService.getOwnerId(eq(1L))).willReturn(1L);
+
+        // when
+        StreamingResponseBody body = sut.exportTransactions(1L, ExportFormat.CSV, "test@example.com");
+
+        // then
+        verifyNoMoreInteractions(transactionExportService);
+        body.writeTo(out);
+        verify(transactionExportService).export(1L, ExportFormat.CSV, out);
+    }
+
+    @Test
+    public void exportTransactionsThrowsBeforeStreamingWhenUserDoesNotHaveAccess() {
+        // test fixtures
+        final User user = User.Builder.create().withEmail("test@example.com").build();
+        user.setId(1L);
+
+        // given
+        given(userService.findByEmail(eq("test@example.com"))).willReturn(user);
+        given(accountService.getOwnerId(eq(1L))).willReturn(2L); // someone else's
+
+        // when & then
+        assertThatThrownBy(() -> sut.exportTransactions(1L, ExportFormat.NDJSON, "test@example.com"))
+                .isInstanceOf(SecurityException.class)
+                .hasMessage("Authenticated user does not have access to this account.");
+        verifyNoMoreInteractions(transactionExportService);
+    }
+
+    @Test
+    public void getBalanceAsOfReturnsTheBalanceInTheAccountsCurrency() {
+        // test fixtures
+        final User user = User.Builder.create().withEmail("test@example.com").build();
+        user.setId(1L);
+        final Account account = Account.Builder.create().withUser(user).withCurrency(Currency.GBP).build();
+        account.setId(1L);
+        final LocalDateTime asOf = LocalDateTime.of(2024, 5, 2, 0, 0);
+
+        // given
+        given(userService.findByEmail(eq("test@example.com"))).willReturn(user);
+        given(accountService.getOwnerId(eq(1L))).willReturn(1L);
+        given(accountService.getById(eq(1L))).willReturn(account);
+        given(balanceHistoryService.getBalanceAsOf(1L, asOf)).willReturn(new BigDecimal("123.45"));
+
+        // when
+        final BalanceAsOf result = sut.getBalanceAsOf(1L, asOf, "test@example.com");
+
+        // then
+        assertThat(result.getAccountId()).isEqualTo(1L);
+        assertThat(result.getAsOf()).isEqualTo(asOf);
+        assertThat(result.getBalance()).isEqualByComparingTo(new BigDecimal("123.45"));
+        assertThat(result.getCurrency()).isEqualTo(Currency.GBP);
+    }
+
+    @Test
+    public void getBalanceAsOfThrowsWhenUserDoesNotHaveAccess() {
+        // test fixtures
+        final User user = User.Builder.create().withEmail("test@example.com").build();
+        user.setId(1L);
+
+        // given
+        given(userService.findByEmail(eq("test@example.com"))).willReturn(user);
+        given(accountService.getOwnerId(eq(1L))).willReturn(2L); // someone else's
+
+        // when & then
+        assertThatThrownBy(() -> sut.getBalanceAsOf(1L, LocalDateTime.of(2024, 5, 2, 0, 0), "test@example.com"))
+                .isInstanceOf(SecurityException.class)
+                .hasMessage("Authenticated user does not have access to this account.");
+        verifyNoMoreInteractions(balanceHistoryService);
+    }
+
+    @Test
+    public void getSummaryReturnsThePeriodTotalsInTheAccountsCurrency() {
+        // test fixtures
+        final User user = User.Builder.create().withEmail("test@example.com").build();
+        user.setId(1L);
+        final Account account = Account.Builder.create().withUser(user).withCurrency(Currency.GBP).build();
+        account.setId(1L);
+        final LocalDate from = LocalDate.of(2024, 5, 1);
+        final LocalDate to = LocalDate.of(2024, 7, 1);
+
+        // given
+        given(userService.findByEmail(eq("test@example.com"))).willReturn(user);
+        given(accountService.getOwnerId(eq(1L))).willReturn(1L);
+        given(accountService.getById(eq(1L))).willReturn(account);
+        given(transactionRollupService.getTotals(1L, RollupPeriod.MONTH, from, to))
+                .willReturn(List.of(periodTotal(from, "150.00", "20.00", 3, 1)));
+
+        // when
+        final AccountSummary result = sut.getSummary(1L, RollupPeriod.MONTH, from, to, "test@example.com");
+
+        // then
+        assertThat(result.getAccountId()).isEqualTo(1L);
+        assertThat(result.getPeriod()).isEqualTo(RollupPeriod.MONTH);
+        assertThat(result.getCurrency()).isEqualTo(Currency.GBP);
+        assertThat(result.getPeriods()).hasSize(1);
+        final PeriodSummary may = result.getPeriods().get(0);
+        assertThat(may.getPeriodStart()).isEqualTo(from);
+        assertThat(may.getDeposits()).isEqualByComparingTo(new BigDecimal("150.00"));
+        assertThat(may.getWithdrawals()).isEqualByComparingTo(new BigDecimal("20.00"));
+        assertThat(may.getDepositCount()).isEqualTo(3);
+        assertThat(may.getWithdrawalCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void getSummaryThrowsWhenUserDoesNotHaveAccess() {
+        // test fixtures
+        final User user = User.Builder.create().withEmail("test@example.com").build();
+        user.setId(1L);
+
+        // given
+        given(userService.findByEmail(eq("test@example.com"))).willReturn(user);
+        given(accountService.getOwnerId(eq(1L))).willReturn(2L); // someone else's
+
+        // when & then
+        assertThatThrownBy(() -> sut.getSummary(1L, RollupPeriod.DAY, LocalDate.of(2024, 5, 1),
+                LocalDate.of(2024, 5, 8), "test@example.com"))
+                .isInstanceOf(SecurityException.class)
+                .hasMessage("Authenticated user does not have access to this account.");
+        verifyNoMoreInteractions(transactionRollupService);
+    }
+
+    private static PeriodTotal periodTotal(LocalDate periodStart, String deposits, String withdrawals,
+            long depositCount, long withdrawalCount) {
+        return new PeriodTotal() {
+            @Override
+            public LocalDate getPeriodStart() {
+                return periodStart;
+            }
+
+            @Override
+            public BigDecimal getDeposits() {
+                return new BigDecimal(deposits);
+            }
+
+            @Override
+            public BigDecimal getWithdrawals() {
+                return new BigDecimal(withdrawals);
+            }
+
+            @Override
+            public long getDepositCount() {
+                return depositCount;
+            }
+
+            @Override
+            public long getWithdrawalCount() {
+                return withdrawalCount;
+            }
+        };
     }
 }
@@ -18,6 +18,7 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 
 import com.barclays.api.domain.Address;
 import com.barclays.api.domain.User;
@@ -149,6 +150,27 @@ public class UserFacadeUnitTest {
         verifyNoMoreInteractions(userService);
     }
 
+    @Test
+    public void createUserThatLosesARaceOnTheUniqueEmailThrowsDuplicateResourceException() {
+        // test fixtures
+        final User newUser = User.Builder.create()
+                .withName("Test User")
+                .withEmail("test@example.com")
+                .withPhoneNumber("+441234567890")
+                .build();
+
+        // given - a concurrent request created the user between the check and the insert
+        given(userService.findByEmail(anyString()))
+                .willReturn(null);
+        given(userService.saveUser(any(User.class)))
+                .willThrow(new DataIntegrityViolationException("uk_users_email"));
+
+        // when/then
+        assertThatThrownBy(() -> sut.create(newUser, "test@example.com"))
+                .isInstanceOf(DuplicateResourceException.class)
+                .hasMessage("User with email test@example.com already exists.");
+    }
+
     @Test
     public void createUserWillThrowSecurityExceptionIfPrincipalEmailDoesNotMatchUserEmail() {
         // test fixtures
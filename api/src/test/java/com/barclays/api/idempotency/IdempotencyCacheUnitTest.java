@@ -0,0 +1,145 @@
+package com.barclays.api.idempotency;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.barclays.api.domain.enums.IdempotencyStatus;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class IdempotencyCacheUnitTest {
+
+    private static final long TTL = 1000;
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    public void putIfAbsentReturnsTheEarlierEntryAndCountsHitsAndMisses() {
+        // given
+        final IdempotencyCache sut = new IdempotencyCache(100, TTL, meterRegistry, clock::get);
+        final IdempotentResult first = result(1);
+
+        // when
+        final IdempotentResult miss = sut.putIfAbsent("7:a", first);
+        final IdempotentResult hit = sut.putIfAbsent("7:a", result(2));
+
+        // then
+        assertThat(miss).isNull();
+        assertThat(hit).isSameAs(first);
+        assertThat(sut.hitRatio()).isEqualTo(0.5);
+        assertThat(meterRegistry.get("idempotency.cache.requests").tag("result", "hit").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("idempotency.cache.requests").tag("result", "miss").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void entriesExpireAfterTheTtl() {
+        // given
+        final IdempotencyCache sut = new IdempotencyCache(100, TTL, meterRegistry, clock::get);
+        sut.putIfAbsent("7:a", result(1));
+        sut.putIfAbsent("7:b", result(1));
+
+        // when
+        clock.addAndGet(TTL);
+        final IdempotentResult expired = sut.putIfAbsent("7:a", result(2));
+
+        // then
+        assertThat(expired).isNull();
+        assertThat(sut.size()).isLessThanOrEqualTo(2);
+        assertThat(meterRegistry.get("idempotency.cache.evictions").tag("cause", "expired").counter().count())
+                .isGreaterThanOrEqualTo(1);
+        assertThat(sut.putIfAbsent("7:a", result(3)).getFingerprint()).isEqualTo(2);
+    }
+
+    @Test
+    public void sizeIsBoundedByEvictingTheOldestEntries() {
+        // given
+        final IdempotencyCache sut = new IdempotencyCache(64, TTL, meterRegistry, clock::get);
+
+        // when
+        for (int i = 0; i < 10_000; i++) {
+            sut.putIfAbsent("7:" + i, result(i));
+        }
+
+        // then
+        assertThat(sut.size()).isLessThanOrEqualTo(64);
+        assertThat(meterRegistry.get("idempotency.cache.evictions").tag("cause", "size").counter().count())
+                .isEqualTo(10_000 - sut.size());
+        assertThat(sut.putIfAbsent("7:9999", result(0))).isNotNull();
+        assertThat(sut.putIfAbsent("7:0", result(0))).isNull();
+    }
+
+    @Test
+    public void putReplacesAndRemoveOnlyRemovesTheExpectedEntry() {
+        // given
+        final IdempotencyCache sut = new IdempotencyCache(100, TTL, meterRegistry, clock::get);
+        final IdempotentResult pending = result(1);
+        final IdempotentResult posted = new IdempotentResult(IdempotencyStatus.POSTED, 1, "tan-1", null, clock.get());
+        sut.putIfAbsent("7:a", pending);
+
+        // when
+        sut.put("7:a", posted);
+        sut.remove("7:a", pending);
+
+        // then
+        assertThat(sut.putIfAbsent("7:a", result(1))).isSameAs(posted);
+    }
+
+    @Test
+    public void concurrentClaimsOfOneKeyHaveExactlyOneWinner() throws Exception {
+        // given
+        final IdempotencyCache sut = new IdempotencyCache(100_000, 60_000, meterRegistry, System::currentTimeMillis);
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final AtomicInteger winners = new AtomicInteger();
+
+        // when
+        try {
+            final Future<?>[] futures = new Future<?>[8];
+            for (int t = 0; t < futures.length; t++) {
+                futures[t] = executor.submit(() -> {
+                    for (int i = 0; i < 1_000; i++) {
+                        IdempotentResult claim = new IdempotentResult(IdempotencyStatus.PENDING, i, null, null,
+                                System.currentTimeMillis());
+                        if (sut.putIfAbsent("7:" + i, claim) == null) {
+                            winners.incrementAndGet();
+                        }
+                    }
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // then
+        assertThat(winners.get()).isEqualTo(1_000);
+        assertThat(sut.size()).isEqualTo(1_000);
+    }
+
+    @Test
+    public void sizeAndTtlMustBePositive() {
+        assertThatThrownBy(() -> new IdempotencyCache(0, TTL, meterRegistry))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new IdempotencyCache(10, 0, meterRegistry))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private IdempotentResult result(int fingerprint) {
+        return new IdempotentResult(IdempotencyStatus.PENDING, fingerprint, null, null, clock.get());
+    }
+}
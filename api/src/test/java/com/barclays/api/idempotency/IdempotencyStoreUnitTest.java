@@ -0,0 +1,232 @@
+package com.barclays.api.idempotency;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import org.mockito.Mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import com.barclays.api.dao.IdempotencyRecordDao;
+import com.barclays.api.dao.TransactionDao;
+import com.barclays.api.domain.IdempotencyRecord;
+import com.barclays.api.domain.enums.IdempotencyStatus;
+import com.barclays.api.exceptions.DuplicateResourceException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+public class IdempotencyStoreUnitTest {
+
+    private IdempotencyStore sut;
+    private IdempotencyCache cache;
+
+    @Mock
+    private IdempotencyRecordDao idempotencyRecordDao;
+
+    @Mock
+    private TransactionDao transactionDao;
+
+    @BeforeEach
+    public void setup() {
+        cache = new IdempotencyCache(1000, 60_000, new SimpleMeterRegistry());
+        sut = new IdempotencyStore(cache, idempotencyRecordDao, transactionDao, 24, 300_000, 60_000);
+    }
+
+    @Test
+    public void firstClaimInsertsAPendingRowAndARepeatIsAnsweredFromMemory() {
+        // given
+        given(idempotencyRecordDao.findById("7:key")).willReturn(Optional.empty());
+
+        // when
+        final IdempotentResult claimed = sut.claim(7L, "key", 42, "tan-1");
+        sut.posted(7L, "key", 42, "tan-1");
+        final IdempotentResult repeat = sut.claim(7L, "key", 42, "tan-1");
+
+        // then
+        assertThat(claimed).isNull();
+        assertThat(repeat.isPosted()).isTrue();
+        assertThat(repeat.getTransactionRef()).isEqualTo("tan-1");
+        verify(idempotencyRecordDao).insert(argThat(record -> record.getStatus() == IdempotencyStatus.PENDING
+                && record.getId().equals("7:key") && record.getFingerprint() == 42
+                && "tan-1".equals(record.getTransactionRef())));
+        verify(idempotencyRecordDao).save(argThat(record -> record.getStatus() == IdempotencyStatus.POSTED
+                && "tan-1".equals(record.getTransactionRef())));
+        verify(idempotencyRecordDao, times(1)).findById("7:key");
+    }
+
+    @Test
+    public void claimFallsBackToTheTableWhenTheKeyIsNotInMemory() {
+        // given
+        final IdempotencyRecord stored = new IdempotencyRecord("7:key", 7L, 42, IdempotencyStatus.REJECTED, null,
+                "Insufficient funds for withdrawal.", LocalDateTime.now().minusHours(1));
+        given(idempotencyRecordDao.findById("7:key")).willReturn(Optional.of(stored));
+
+        // when
+        final IdempotentResult earlier = sut.claim(7L, "key", 42, "tan-1");
+        sut.claim(7L, "key", 42, "tan-1");
+
+        // then
+        assertThat(earlier.getStatus()).isEqualTo(IdempotencyStatus.REJECTED);
+        assertThat(earlier.getMessage()).isEqualTo("Insufficient funds for withdrawal.");
+        verify(idempotencyRecordDao, times(1)).findById("7:key");
+        verify(idempotencyRecordDao, never()).insert(any());
+    }
+
+    @Test
+    public void expiredRowsDoNotCount() {
+        // given
+        final IdempotencyRecord stored = new IdempotencyRecord("7:key", 7L, 42, IdempotencyStatus.POSTED, "tan-1",
+                null, LocalDateTime.now().minusHours(25));
+        given(idempotencyRecordDao.findById("7:key")).willReturn(Optional.of(stored));
+
+        // when
+        final IdempotentResult claimed = sut.claim(7L, "key", 42, "tan-1");
+
+        // then
+        assertThat(claimed).isNull();
+        verify(idempotencyRecordDao).delete(stored);
+        verify(idempotencyRecordDao).insert(any());
+    }
+
+    @Test
+    public void aKeyReusedForADifferentRequestIsRejected() {
+        // given
+        given(idempotencyRecordDao.findById("7:key")).willReturn(Optional.empty());
+        sut.claim(7L, "key", 42, "tan-1");
+        sut.posted(7L, "key", 42, "tan-1");
+
+        // when/then
+        assertThatThrownBy(() -> sut.claim(7L, "key", 43, "tan-1"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void aKeyStillInProgressIsAConflict() {
+        // given
+        given(idempotencyRecordDao.findById("7:key")).willReturn(Optional.empty());
+        sut.claim(7L, "key", 42, "tan-1");
+
+        // when/then - in this process
+        assertThatThrownBy(() -> sut.claim(7L, "key", 42, "tan-1"))
+                .isInstanceOf(DuplicateResourceException.class);
+
+        // when/then - claimed by another node first
+        given(idempotencyRecordDao.findById("7:other")).willReturn(Optional.empty());
+        willThrow(new DataIntegrityViolationException("duplicate key"))
+                .given(idempotencyRecordDao).insert(argThat(record -> record.getId().equals("7:other")));
+        assertThatThrownBy(() -> sut.claim(7L, "other", 42, "tan-1"))
+                .isInstanceOf(DuplicateResourceException.class);
+    }
+
+    @Test
+    public void aClaimLeftPendingPastItsLeaseIsTakenOver() {
+        // given - claimed ten minutes ago by a node that never posted
+        final IdempotencyRecord stored = new IdempotencyRecord("7:key", 7L, 42, IdempotencyStatus.PENDING, "tan-0",
+                null, LocalDateTime.now().minusMinutes(10));
+        given(idempotencyRecordDao.findById("7:key")).willReturn(Optional.of(stored));
+        given(transactionDao.existsTransactionById("tan-0")).willReturn(false);
+        given(idempotencyRecordDao.takeOverPending(eq("7:key"), any(), any(), eq("tan-1"))).willReturn(1);
+
+        // when
+        final IdempotentResult claimed = sut.claim(7L, "key", 42, "tan-1");
+
+        // then - and a repeat while this request runs is still a conflict
+        assertThat(claimed).isNull();
+        assertThatThrownBy(() -> sut.claim(7L, "key", 42, "tan-1"))
+                .isInstanceOf(DuplicateResourceException.class);
+        verify(idempotencyRecordDao, never()).insert(any());
+    }
+
+    @Test
+    public void aClaimLeftPendingAfterItsPostingLandedIsAnsweredAsPosted() {
+        // given - the node posted tan-0, then died before recording it
+        final IdempotencyRecord stored = new IdempotencyRecord("7:key", 7L, 42, IdempotencyStatus.PENDING, "tan-0",
+                null, LocalDateTime.now().minusMinutes(10));
+        given(idempotencyRecordDao.findById("7:key")).willReturn(Optional.of(stored));
+        given(transactionDao.existsTransactionById("tan-0")).willReturn(true);
+
+        // when
+        final IdempotentResult earlier = sut.claim(7L, "key", 42, "tan-1");
+
+        // then - nothing is posted again, and the key now says so
+        assertThat(earlier.isPosted()).isTrue();
+        assertThat(earlier.getTransactionRef()).isEqualTo("tan-0");
+        assertThat(sut.claim(7L, "key", 42, "tan-2").getTransactionRef()).isEqualTo("tan-0");
+        verify(idempotencyRecordDao, never()).takeOverPending(any(), any(), any(), any());
+        verify(idempotencyRecordDao).save(argThat(record -> record.getStatus() == IdempotencyStatus.POSTED
+                && "tan-0".equals(record.getTransactionRef())));
+    }
+
+    @Test
+    public void anAbandonedClaimIsOnlyTakenOverOnce() {
+        // given - another request took it over between our read and update
+        final IdempotencyRecord stored = new IdempotencyRecord("7:key", 7L, 42, IdempotencyStatus.PENDING, "tan-0",
+                null, LocalDateTime.now().minusMinutes(10));
+        given(idempotencyRecordDao.findById("7:key")).willReturn(Optional.of(stored));
+        given(idempotencyRecordDao.takeOverPending(eq("7:key"), any(), any(), any())).willReturn(0);
+
+        // when/then
+        assertThatThrownBy(() -> sut.claim(7L, "key", 42, "tan-1"))
+                .isInstanceOf(DuplicateResourceException.class);
+    }
+
+    @Test
+    public void aRecentPendingClaimIsNotTakenOver() {
+        // given
+        final IdempotencyRecord stored = new IdempotencyRecord("7:key", 7L, 42, IdempotencyStatus.PENDING, "tan-0",
+                null, LocalDateTime.now().minusMinutes(1));
+        given(idempotencyRecordDao.findById("7:key")).willReturn(Optional.of(stored));
+
+        // when/then
+        assertThatThrownBy(() -> sut.claim(7L, "key", 42, "tan-1"))
+                .isInstanceOf(DuplicateResourceException.class);
+        verify(idempotencyRecordDao, never()).takeOverPending(any(), any(), any(), any());
+    }
+
+    @Test
+    public void aReleasedKeyCanBeClaimedAgain() {
+        // given
+        given(idempotencyRecordDao.findById("7:key")).willReturn(Optional.empty());
+        sut.claim(7L, "key", 42, "tan-1");
+
+        // when
+        sut.release(7L, "key");
+
+        // then
+        assertThat(sut.claim(7L, "key", 42, "tan-1")).isNull();
+        verify(idempotencyRecordDao).deleteById("7:key");
+    }
+
+    @Test
+    public void keysAreScopedToTheUser() {
+        // given
+        given(idempotencyRecordDao.findById(any())).willReturn(Optional.empty());
+        sut.claim(7L, "key", 42, "tan-1");
+        sut.posted(7L, "key", 42, "tan-1");
+
+        // when/then
+        assertThat(sut.claim(8L, "key", 42, "tan-1")).isNull();
+    }
+
+    @Test
+    public void blankAndOverlongKeysAreRejected() {
+        assertThatThrownBy(() -> sut.claim(7L, " ", 42, "tan-1"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> sut.claim(7L, "k".repeat(IdempotencyStore.MAX_KEY_LENGTH + 1), 42, "tan-1"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
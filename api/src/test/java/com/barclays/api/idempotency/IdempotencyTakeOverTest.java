@@ -0,0 +1,101 @@
+package com.barclays.api.idempotency;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.barclays.api.TestData;
+import com.barclays.api.dao.AccountDao;
+import com.barclays.api.dao.IdempotencyRecordDao;
+import com.barclays.api.dao.TransactionDao;
+import com.barclays.api.dao.UserDao;
+import com.barclays.api.domain.Account;
+import com.barclays.api.domain.IdempotencyRecord;
+import com.barclays.api.domain.Transaction;
+import com.barclays.api.domain.User;
+import com.barclays.api.domain.enums.IdempotencyStatus;
+import com.barclays.api.domain.enums.TransactionType;
+import com.barclays.api.services.LedgerService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * A node that takes over an abandoned claim, against the real tables: it
+ * posts again only if the first attempt's posting isn't there.
+ */
+@SpringBootTest
+public class IdempotencyTakeOverTest {
+
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    @Autowired
+    private IdempotencyRecordDao idempotencyRecordDao;
+
+    @Autowired
+    private TransactionDao transactionDao;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private AccountDao accountDao;
+
+    @Autowired
+    private UserDao userDao;
+
+    private final TestData testData = new TestData();
+    private User user;
+    private Account account;
+
+    @BeforeEach
+    public void setup() {
+        user = userDao.save(TestData.newUser());
+        account = accountDao.save(TestData.newAccount(user, new BigDecimal("100.00")).build());
+    }
+
+    @Test
+    public void aClaimLeftPendingAfterItsPostingLandedIsNotPostedAgain() throws Exception {
+        // given - the first node claimed the key, posted, and died before recording the outcome
+        final Transaction posting = testData.posting(account, TransactionType.DEPOSIT, "10.00");
+        assertThat(idempotencyStore.claim(user.getId(), "landed", 42, posting.getId())).isNull();
+        ledgerService.post(posting);
+        Thread.sleep(10);
+
+        // when - the retry reaches another node once the claim's lease is up
+        final IdempotentResult earlier = otherNode().claim(user.getId(), "landed", 42, "tan-retry");
+
+        // then
+        assertThat(earlier.isPosted()).isTrue();
+        assertThat(earlier.getTransactionRef()).isEqualTo(posting.getId());
+        assertThat(idempotencyRecordDao.findById(user.getId() + ":landed")).get()
+                .extracting(IdempotencyRecord::getStatus).isEqualTo(IdempotencyStatus.POSTED);
+        assertThat(transactionDao.findByAccountId(account.getId())).hasSize(1);
+        assertThat(accountDao.findBalanceById(account.getId())).isEqualByComparingTo(new BigDecimal("110.00"));
+    }
+
+    @Test
+    public void aClaimLeftPendingBeforeItsPostingLandedIsTakenOver() throws Exception {
+        // given - the first node claimed the key and died before posting
+        assertThat(idempotencyStore.claim(user.getId(), "lost", 42, "tan-lost")).isNull();
+        Thread.sleep(10);
+
+        // when
+        final IdempotentResult earlier = otherNode().claim(user.getId(), "lost", 42, "tan-retry");
+
+        // then - the retry owns the key, under its own posting's id
+        assertThat(earlier).isNull();
+        assertThat(idempotencyRecordDao.findById(user.getId() + ":lost")).get()
+                .extracting(IdempotencyRecord::getTransactionRef).isEqualTo("tan-retry");
+    }
+
+    // a node with nothing cached and a pending lease of a millisecond
+    private IdempotencyStore otherNode() {
+        return new IdempotencyStore(new IdempotencyCache(1000, 60_000, new SimpleMeterRegistry()),
+                idempotencyRecordDao, transactionDao, 24, 1, 60_000);
+    }
+}
@@ -0,0 +1,139 @@
+package com.barclays.api.ledger;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class AccountLockManagerUnitTest {
+
+    private AccountLockManager sut;
+    private SimpleMeterRegistry meterRegistry;
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        sut = new AccountLockManager(64, meterRegistry);
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void stripeCountIsRoundedUpToAPowerOfTwo() {
+        assertThat(new AccountLockManager(1000, meterRegistry).stripeCount()).isEqualTo(1024);
+        assertThat(new AccountLockManager(1, meterRegistry).stripeCount()).isEqualTo(1);
+        assertThatThrownBy(() -> new AccountLockManager(0, meterRegistry))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void workOnTheSameAccountNeverOverlaps() throws Exception {
+        // given
+        final AtomicInteger inside = new AtomicInteger();
+        final AtomicInteger maxInside = new AtomicInteger();
+        final long[] unsafeCounter = new long[1];
+
+        // when
+        final Future<?>[] futures = new Future<?>[8];
+        for (int t = 0; t < futures.length; t++) {
+            futures[t] = executor.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    sut.withLock(42L, () -> {
+                        maxInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+                        unsafeCounter[0]++;
+                        inside.decrementAndGet();
+                    });
+                }
+            });
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+
+        // then
+        assertThat(maxInside.get()).isEqualTo(1);
+        assertThat(unsafeCounter[0]).isEqualTo(80_000L);
+    }
+
+    @Test
+    public void unrelatedAccountsDoNotBlockEachOther() throws Exception {
+        // given - two accounts on different stripes
+        long other = 2L;
+        while (sut.indexFor(other) == sut.indexFor(1L)) {
+            other++;
+        }
+        final long otherAccount = other;
+        final CountDownLatch holding = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        executor.submit(() -> sut.withLock(1L, () -> {
+            holding.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        holding.await(5, TimeUnit.SECONDS);
+
+        // when
+        final Future<Boolean> result = executor.submit(() -> sut.withLock(otherAccount, () -> true));
+
+        // then
+        assertThat(result.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(sut.hottestStripes(10)).isEmpty();
+        release.countDown();
+    }
+
+    @Test
+    public void contendedAcquisitionsAreCounted() throws Exception {
+        // given
+        final CountDownLatch holding = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        executor.submit(() -> sut.withLock(7L, () -> {
+            holding.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        holding.await(5, TimeUnit.SECONDS);
+
+        // when
+        final Future<?> waiter = executor.submit(() -> sut.withLock(7L, () -> { }));
+        while (meterRegistry.get("ledger.lock.queue.depth").gauge().value() < 1) {
+            Thread.sleep(1);
+        }
+        assertThat(sut.hottestStripes(10)).hasSize(1);
+        assertThat(sut.hottestStripes(10).get(0).getQueueDepth()).isEqualTo(1);
+        release.countDown();
+        waiter.get(5, TimeUnit.SECONDS);
+
+        // then
+        final AccountLockManager.StripeStats stats = sut.hottestStripes(10).get(0);
+        assertThat(stats.getStripe()).isEqualTo(sut.indexFor(7L));
+        assertThat(stats.getAcquisitions()).isEqualTo(2);
+        assertThat(stats.getContended()).isEqualTo(1);
+        assertThat(stats.getWaitNanos()).isPositive();
+        assertThat(stats.getQueueDepth()).isZero();
+        assertThat(stats.getMaxQueueDepth()).isEqualTo(1);
+        assertThat(meterRegistry.get("ledger.lock.contended").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("ledger.lock.wait").timer().count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,228 @@
+package com.barclays.api.ledger;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.barclays.api.domain.Account;
+import com.barclays.api.domain.Transaction;
+import com.barclays.api.domain.enums.Currency;
+import com.barclays.api.domain.enums.TransactionType;
+import com.barclays.api.services.LedgerService;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+public class GroupCommitterUnitTest {
+
+    private GroupCommitter sut;
+
+    @Mock
+    private LedgerService ledgerService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        sut = new GroupCommitter(ledgerService, meterRegistry, PostingMode.GROUP_COMMIT, 64, 2000, 1024, 5000);
+        sut.start();
+        executor = Executors.newFixedThreadPool(16);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        sut.stop();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void postingsArrivingDuringACommitShareTheNextGroup() throws Exception {
+        // given - the first group blocks until the rest have queued up
+        final CountDownLatch firstCommitEntered = new CountDownLatch(1);
+        final CountDownLatch releaseFirstCommit = new CountDownLatch(1);
+        final List<Integer> groupSizes = Collections.synchronizedList(new ArrayList<>());
+        willAnswer(invocation -> {
+            final List<Transaction> group = invocation.getArgument(0);
+            groupSizes.add(group.size());
+            if (groupSizes.size() == 1) {
+                firstCommitEntered.countDown();
+                releaseFirstCommit.await(5, TimeUnit.SECONDS);
+            }
+            return Arrays.asList(new String[group.size()]);
+        }).given(ledgerService).postBatch(anyList(), eq(false));
+
+        final Future<Transaction> first = executor.submit(() -> sut.post(transaction("first")));
+        firstCommitEntered.await(5, TimeUnit.SECONDS);
+
+        // when
+        final List<Future<Transaction>> rest = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            final String id = "t" + i;
+            rest.add(executor.submit(() -> sut.post(transaction(id))));
+        }
+        Thread.sleep(200);
+        releaseFirstCommit.countDown();
+
+        // then - every caller is acknowledged, and the ten waiters were committed together
+        assertThat(first.get(5, TimeUnit.SECONDS).getId()).isEqualTo("first");
+        for (Future<Transaction> future : rest) {
+            assertThat(future.get(5, TimeUnit.SECONDS)).isNotNull();
+        }
+        assertThat(groupSizes).containsExactly(1, 10);
+
+        final DistributionSummary batchSizes = meterRegistry.get("ledger.group-commit.batch.size").summary();
+        assertThat(batchSizes.count()).isEqualTo(2);
+        assertThat(batchSizes.max()).isEqualTo(10.0);
+        assertThat(meterRegistry.get("ledger.group-commit.latency").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    public void rejectedPostingFailsOnlyItsOwnCaller() {
+        // given
+        given(ledgerService.postBatch(anyList(), eq(false)))
+                .willReturn(Collections.singletonList("Insufficient funds for withdrawal."));
+
+        // when & then
+        assertThatThrownBy(() -> sut.post(transaction("overdraft")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Insufficient funds for withdrawal.");
+    }
+
+    @Test
+    public void failedCommitIsReportedToTheCaller() {
+        // given
+        given(ledgerService.postBatch(anyList(), eq(false))).willThrow(new IllegalStateException("database unavailable"));
+
+        // when & then
+        assertThatThrownBy(() -> sut.post(transaction("doomed")))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("database unavailable");
+    }
+
+    @Test
+    public void failedGroupIsCommittedOneByOneSoOnlyTheBadPostingFails() throws Exception {
+        // given - the first group blocks until the rest have queued up, the second fails as a whole
+        final CountDownLatch firstCommitEntered = new CountDownLatch(1);
+        final CountDownLatch releaseFirstCommit = new CountDownLatch(1);
+        final List<Integer> groupSizes = Collections.synchronizedList(new ArrayList<>());
+        willAnswer(invocation -> {
+            final List<Transaction> group = invocation.getArgument(0);
+            groupSizes.add(group.size());
+            if (groupSizes.size() == 1) {
+                firstCommitEntered.countDown();
+                releaseFirstCommit.await(5, TimeUnit.SECONDS);
+            }
+            for (Transaction transaction : group) {
+                if (transaction.getId().equals("bad")) {
+                    throw new IllegalStateException("duplicate key");
+                }
+            }
+            return Arrays.asList(new String[group.size()]);
+        }).given(ledgerService).postBatch(anyList(), eq(false));
+
+        final Future<Transaction> first = executor.submit(() -> sut.post(transaction("first")));
+        firstCommitEntered.await(5, TimeUnit.SECONDS);
+
+        // when
+        final List<Future<Transaction>> good = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            final String id = "t" + i;
+            good.add(executor.submit(() -> sut.post(transaction(id))));
+        }
+        final Future<Transaction> bad = executor.submit(() -> sut.post(transaction("bad")));
+        Thread.sleep(200);
+        releaseFirstCommit.countDown();
+
+        // then
+        assertThat(first.get(5, TimeUnit.SECONDS)).isNotNull();
+        for (Future<Transaction> future : good) {
+            assertThat(future.get(5, TimeUnit.SECONDS)).isNotNull();
+        }
+        assertThatThrownBy(() -> bad.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(IllegalStateException.class)
+                .hasRootCauseMessage("duplicate key");
+        assertThat(groupSizes).containsExactly(1, 4, 1, 1, 1, 1);
+    }
+
+    @Test
+    public void postingsPastTheQueueSizeAreRefused() throws Exception {
+        // given - a committer stuck on its first group, with room for two more postings
+        final GroupCommitter small = new GroupCommitter(ledgerService, meterRegistry, PostingMode.GROUP_COMMIT, 64,
+                500, 2, 5000);
+        small.start();
+        final CountDownLatch commitEntered = new CountDownLatch(1);
+        final CountDownLatch releaseCommit = new CountDownLatch(1);
+        willAnswer(invocation -> {
+            commitEntered.countDown();
+            releaseCommit.await(5, TimeUnit.SECONDS);
+            final List<Transaction> group = invocation.getArgument(0);
+            return Arrays.asList(new String[group.size()]);
+        }).given(ledgerService).postBatch(anyList(), eq(false));
+
+        try {
+            executor.submit(() -> small.post(transaction("first")));
+            commitEntered.await(5, TimeUnit.SECONDS);
+            executor.submit(() -> small.post(transaction("t1")));
+            executor.submit(() -> small.post(transaction("t2")));
+            Thread.sleep(200);
+
+            // when & then
+            assertThatThrownBy(() -> small.post(transaction("t3")))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessage("Group committer is saturated, try again later.");
+        } finally {
+            releaseCommit.countDown();
+            small.stop();
+        }
+    }
+
+    @Test
+    public void postThrowsWhenGroupCommitIsNotEnabled() {
+        // given
+        final GroupCommitter disabled = new GroupCommitter(ledgerService, meterRegistry, PostingMode.ATOMIC, 64, 500, 1024, 5000);
+        disabled.start();
+
+        // when & then
+        assertThatThrownBy(() -> disabled.post(transaction("nope")))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Group committer is not running.");
+    }
+
+    private static Transaction transaction(String id) {
+        final Account account = new Account();
+        account.setId(1L);
+
+        final Transaction transaction = Transaction.Builder.create()
+                .withTransactionId("ref-" + id)
+                .withAmount(new BigDecimal("1.00"))
+                .withType(TransactionType.DEPOSIT)
+                .withCurrency(Currency.GBP)
+                .withAccount(account)
+                .build();
+        transaction.setId(id);
+        return transaction;
+    }
+}
@@ -0,0 +1,96 @@
+package com.barclays.api.ledger;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.barclays.api.TestData;
+import com.barclays.api.dao.AccountDao;
+import com.barclays.api.dao.TransactionDao;
+import com.barclays.api.dao.UserDao;
+import com.barclays.api.domain.Account;
+import com.barclays.api.domain.Transaction;
+import com.barclays.api.domain.User;
+import com.barclays.api.domain.enums.Currency;
+import com.barclays.api.domain.enums.TransactionType;
+
+@SpringBootTest(properties = "api.ledger.posting-mode=engine")
+public class LedgerEngineConcurrencyTest {
+
+    @Autowired
+    private LedgerEngine sut;
+
+    @Autowired
+    private AccountDao accountDao;
+
+    @Autowired
+    private TransactionDao transactionDao;
+
+    @Autowired
+    private UserDao userDao;
+
+    @Test
+    public void parallelPostingsThroughTheEngineLoseNoUpdates() throws Exception {
+        // given
+        final User user = userDao.save(TestData.newUser());
+        final Account account = accountDao.save(TestData.newAccount(user, new BigDecimal("100.00")).build());
+
+        final ExecutorService executor = Executors.newFixedThreadPool(32);
+        final List<Future<Boolean>> results = new ArrayList<>();
+
+        // when - 200 deposits of 10 and 300 withdrawals of 10
+        for (int i = 0; i < 500; i++) {
+            final TransactionType type = i % 5 < 2 ? TransactionType.DEPOSIT : TransactionType.WITHDRAWAL;
+            results.add(executor.submit(() -> {
+                final String id = UUID.randomUUID().toString();
+                final Transaction transaction = Transaction.Builder.create()
+                        .withTransactionId(id)
+                        .withAmount(new BigDecimal("10.00"))
+                        .withType(type)
+                        .withCurrency(Currency.GBP)
+                        .withUser(user)
+                        .withAccount(account)
+                        .build();
+                transaction.setId(id);
+                try {
+                    sut.post(transaction);
+                    return true;
+                } catch (IllegalArgumentException ex) {
+                    return false;
+                }
+            }));
+        }
+
+        int succeeded = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get(60, TimeUnit.SECONDS)) {
+                succeeded++;
+            }
+        }
+        executor.shutdown();
+
+        // then - the DB agrees with the number of postings that were acknowledged
+        final int persistedCount = transactionDao.findByAccountId(account.getId()).size();
+        final BigDecimal balance = accountDao.findById(account.getId()).get().getBalance();
+
+        assertThat(persistedCount).isEqualTo(succeeded);
+        assertThat(balance.signum()).isGreaterThanOrEqualTo(0);
+
+        BigDecimal expected = new BigDecimal("100.00");
+        for (Transaction transaction : transactionDao.findByAccountId(account.getId())) {
+            expected = expected.add(transaction.getType() == TransactionType.DEPOSIT
+                    ? transaction.getAmount() : transaction.getAmount().negate());
+        }
+        assertThat(balance).isEqualByComparingTo(expected);
+    }
+}
@@ -0,0 +1,436 @@
+package com.barclays.api.ledger;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.BDDMockito.willThrow;
+import org.mockito.Mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import com.barclays.api.dao.AccountDao;
+import com.barclays.api.domain.Account;
+import com.barclays.api.domain.Money;
+import com.barclays.api.domain.Transaction;
+import com.barclays.api.domain.enums.AccountType;
+import com.barclays.api.domain.enums.Currency;
+import com.barclays.api.domain.enums.TransactionType;
+import com.barclays.api.ledger.journal.JournalProjector;
+import com.barclays.api.ledger.journal.JournalRecord;
+import com.barclays.api.ledger.journal.TransactionJournal;
+import com.barclays.api.ledger.snapshot.BalanceSnapshotStore;
+import com.barclays.api.services.LedgerService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+public class LedgerEngineUnitTest {
+
+    private LedgerEngine sut;
+
+    @Mock
+    private LedgerService ledgerService;
+
+    @Mock
+    private AccountDao accountDao;
+
+    @Mock
+    private TransactionJournal journal;
+
+    @Mock
+    private JournalProjector journalProjector;
+
+    @Mock
+    private BalanceSnapshotStore snapshotStore;
+
+    @TempDir
+    Path snapshotDirectory;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final List<Transaction> persisted = new ArrayList<>();
+    private final List<Map<Long, Money>> persistedBalances = new ArrayList<>();
+
+    @BeforeEach
+    public void setup() {
+        sut = new LedgerEngine(ledgerService, accountDao, journal, journalProjector, snapshotStore,
+                meterRegistry, PostingMode.ENGINE, 2, 64, 16, 1000, 5000);
+        sut.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        sut.stop();
+    }
+
+    @Test
+    public void postingsAreAppliedInOrderAndTheBalanceIsLoadedOnce() {
+        // given
+        given(accountDao.findMoneyById(eq(1L))).willReturn(gbp("100.00"));
+        recordPersistedBatches();
+
+        // when
+        sut.post(transaction(1L, TransactionType.DEPOSIT, "50.00"));
+        sut.post(transaction(1L, TransactionType.WITHDRAWAL, "120.00"));
+        sut.post(transaction(1L, TransactionType.WITHDRAWAL, "30.00"));
+
+        // then
+        verify(accountDao, times(1)).findMoneyById(1L);
+        assertThat(persisted).hasSize(3);
+        assertThat(persistedBalances.get(persistedBalances.size() - 1).get(1L))
+                .isEqualTo(gbp("0.00"));
+    }
+
+    @Test
+    public void withdrawalBeyondTheBalanceIsRefusedAndNotPersisted() {
+        // given
+        given(accountDao.findMoneyById(eq(1L))).willReturn(gbp("10.00"));
+
+        // when & then
+        assertThatThrownBy(() -> sut.post(transaction(1L, TransactionType.WITHDRAWAL, "10.01")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Insufficient funds for withdrawal.");
+
+        verify(ledgerService, never()).persistBatch(anyList(), anyMap());
+    }
+
+    @Test
+    public void failedBatchIsReportedToTheCallerAndTheBalanceIsReloaded() {
+        // given
+        given(accountDao.findMoneyById(eq(1L))).willReturn(gbp("100.00"));
+        willThrow(new IllegalStateException("database unavailable"))
+                .given(ledgerService).persistBatch(anyList(), anyMap());
+
+        // when & then
+        assertThatThrownBy(() -> sut.post(transaction(1L, TransactionType.DEPOSIT, "50.00")))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("database unavailable");
+
+        // the un-persisted deposit must not count towards the next posting
+        assertThatThrownBy(() -> sut.post(transaction(1L, TransactionType.WITHDRAWAL, "120.00")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Insufficient funds for withdrawal.");
+        verify(accountDao, times(2)).findMoneyById(1L);
+    }
+
+    @Test
+    public void aCollisionInABatchFailsOnlyThePostingThatCollides() throws Exception {
+        // given - the first posting holds up the writer while three more queue behind it
+        given(accountDao.findMoneyById(eq(1L))).willReturn(gbp("100.00"), gbp("111.00"), gbp("123.00"));
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Transaction first = transaction(1L, TransactionType.DEPOSIT, "11.00");
+        final Transaction colliding = transaction(1L, TransactionType.DEPOSIT, "13.00");
+        willAnswer(invocation -> {
+            final List<Transaction> batch = invocation.getArgument(0);
+            if (batch.contains(first)) {
+                writing.countDown();
+                release.await(5, TimeUnit.SECONDS);
+            }
+            if (batch.contains(colliding)) {
+                throw new DataIntegrityViolationException("duplicate transaction id");
+            }
+            synchronized (persisted) {
+                persisted.addAll(batch);
+                persistedBalances.add(Map.copyOf(invocation.getArgument(1)));
+            }
+            return null;
+        }).given(ledgerService).persistBatch(anyList(), anyMap());
+
+        final CompletableFuture<Transaction> firstOutcome = sut.submit(first);
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+        final Transaction before = transaction(1L, TransactionType.DEPOSIT, "12.00");
+        final Transaction after = transaction(1L, TransactionType.DEPOSIT, "14.00");
+        final CompletableFuture<Transaction> beforeOutcome = sut.submit(before);
+        final CompletableFuture<Transaction> collidingOutcome = sut.submit(colliding);
+        final CompletableFuture<Transaction> afterOutcome = sut.submit(after);
+
+        // when
+        release.countDown();
+
+        // then - the batch of three is written again one by one
+        firstOutcome.get(5, TimeUnit.SECONDS);
+        assertThat(beforeOutcome.get(5, TimeUnit.SECONDS).getBalanceAfter()).isEqualByComparingTo("123.00");
+        assertThatThrownBy(() -> collidingOutcome.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(DataIntegrityViolationException.class);
+        assertThat(afterOutcome.get(5, TimeUnit.SECONDS).getBalanceAfter()).isEqualByComparingTo("137.00");
+        assertThat(persisted).containsExactly(first, before, after);
+        assertThat(persistedBalances.get(persistedBalances.size() - 1).get(1L)).isEqualTo(gbp("137.00"));
+        // when first posted to, after the failed batch and after the collision
+        verify(accountDao, times(3)).findMoneyById(1L);
+    }
+
+    @Test
+    public void concurrentPostingsOnOneAccountAreAllApplied() throws Exception {
+        // given
+        given(accountDao.findMoneyById(eq(1L))).willReturn(gbp("0.00"));
+        recordPersistedBatches();
+
+        // when
+        final List<CompletableFuture<Transaction>> outcomes = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            outcomes.add(sut.submit(transaction(1L, TransactionType.DEPOSIT, "1.00")));
+        }
+        for (CompletableFuture<Transaction> outcome : outcomes) {
+            outcome.get(5, TimeUnit.SECONDS);
+        }
+
+        // then
+        assertThat(persisted).hasSize(60);
+        assertThat(persistedBalances.get(persistedBalances.size() - 1).get(1L))
+                .isEqualTo(gbp("60.00"));
+    }
+
+    @Test
+    public void balancesPastTheLimitAreDroppedLeastRecentlyPostedFirstAndReloaded() {
+        // given - one partition holding two balances
+        final SimpleMeterRegistry smallRegistry = new SimpleMeterRegistry();
+        final LedgerEngine small = new LedgerEngine(ledgerService, accountDao, journal, journalProjector, snapshotStore,
+                smallRegistry, PostingMode.ENGINE, 1, 64, 16, 2, 5000);
+        small.start();
+        given(accountDao.findMoneyById(anyLong())).willReturn(gbp("100.00"));
+
+        try {
+            // when - account 1 is posted to again before 3 pushes the least recent, 2, out
+            small.post(transaction(1L, TransactionType.DEPOSIT, "1.00"));
+            small.post(transaction(2L, TransactionType.DEPOSIT, "1.00"));
+            small.post(transaction(1L, TransactionType.DEPOSIT, "1.00"));
+            small.post(transaction(3L, TransactionType.DEPOSIT, "1.00"));
+            small.post(transaction(1L, TransactionType.DEPOSIT, "1.00"));
+            small.post(transaction(2L, TransactionType.DEPOSIT, "1.00"));
+
+            // then
+            assertThat(smallRegistry.get("ledger.engine.balances.cached").gauge().value()).isEqualTo(2.0);
+        } finally {
+            small.stop();
+        }
+        verify(accountDao, times(1)).findMoneyById(1L);
+        verify(accountDao, times(2)).findMoneyById(2L);
+        verify(accountDao, times(1)).findMoneyById(3L);
+    }
+
+    @Test
+    public void journalModeAppendsToTheJournalInsteadOfTheDatabase() {
+        // given
+        final LedgerEngine journalled = new LedgerEngine(ledgerService, accountDao, journal, journalProjector, snapshotStore,
+                meterRegistry, PostingMode.JOURNAL, 2, 64, 16, 1000, 5000);
+        journalled.start();
+        given(journal.lastSequence()).willReturn(10L);
+        given(accountDao.findMoneyById(eq(1L))).willReturn(gbp("100.00"));
+        final Transaction deposit = transaction(1L, TransactionType.DEPOSIT, "50.00");
+
+        try {
+            // when
+            journalled.post(deposit);
+        } finally {
+            journalled.stop();
+        }
+
+        // then - the balance is only read once the earlier records have reached the DB
+        verify(journal, times(1)).checkAppendable(deposit);
+        verify(journalProjector, times(1)).awaitProjected(10L, 5000);
+        verify(journal, times(1)).append(List.of(deposit));
+        verify(ledgerService, never()).persistBatch(anyList(), anyMap());
+    }
+
+    @Test
+    public void journalModeWarmsBalancesFromTheSnapshotAndJournalTail() {
+        // given - account 1 had 100.00 at record 10, then +5.00 and -2.00
+        final BalanceSnapshotStore store = new BalanceSnapshotStore(PostingMode.JOURNAL,
+                snapshotDirectory.toString(), 60000, 2);
+        store.write(10, writer -> writer.append(1L, gbp("100.00")));
+        given(journal.lastSequence()).willReturn(12L);
+        given(journal.firstSequence()).willReturn(1L);
+        given(journal.read(11L, 2)).willReturn(List.of(
+                new JournalRecord(11, "tan-11", "ref-11", 1L, 1L, TransactionType.DEPOSIT, gbp("5.00"),
+                        LocalDateTime.now()),
+                new JournalRecord(12, "tan-12", "ref-12", 1L, 1L, TransactionType.WITHDRAWAL, gbp("2.00"),
+                        LocalDateTime.now())));
+
+        final LedgerEngine journalled = new LedgerEngine(ledgerService, accountDao, journal, journalProjector, store,
+                meterRegistry, PostingMode.JOURNAL, 2, 64, 16, 1000, 5000);
+        journalled.start();
+
+        try {
+            // when - withdrawing exactly the rebuilt balance
+            journalled.post(transaction(1L, TransactionType.WITHDRAWAL, "103.00"));
+
+            // then - nothing had to come from the database
+            assertThatThrownBy(() -> journalled.post(transaction(1L, TransactionType.WITHDRAWAL, "0.01")))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Insufficient funds for withdrawal.");
+        } finally {
+            journalled.stop();
+        }
+        verify(accountDao, never()).findMoneyById(1L);
+        verify(journalProjector, never()).awaitProjected(anyLong(), anyLong());
+    }
+
+    @Test
+    public void journalModeReloadsAnEvictedBalanceFromTheDatabase() {
+        // given - both accounts are in the snapshot, but only one balance fits in memory
+        final BalanceSnapshotStore store = new BalanceSnapshotStore(PostingMode.JOURNAL,
+                snapshotDirectory.toString(), 60000, 2);
+        store.write(10, writer -> {
+            writer.append(1L, gbp("100.00"));
+            writer.append(2L, gbp("100.00"));
+        });
+        given(journal.lastSequence()).willReturn(10L, 11L);
+        given(accountDao.findMoneyById(eq(1L))).willReturn(gbp("50.00"));
+
+        final LedgerEngine journalled = new LedgerEngine(ledgerService, accountDao, journal, journalProjector, store,
+                meterRegistry, PostingMode.JOURNAL, 1, 64, 16, 1, 5000);
+        journalled.start();
+
+        try {
+            // when - account 1's withdrawal is in the journal, not the snapshot, when 2 pushes it out
+            journalled.post(transaction(1L, TransactionType.WITHDRAWAL, "50.00"));
+            journalled.post(transaction(2L, TransactionType.DEPOSIT, "1.00"));
+
+            // then - its balance comes from the database once the journal has been applied
+            assertThatThrownBy(() -> journalled.post(transaction(1L, TransactionType.WITHDRAWAL, "50.01")))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Insufficient funds for withdrawal.");
+        } finally {
+            journalled.stop();
+        }
+        verify(journalProjector, times(1)).awaitProjected(11L, 5000);
+        verify(accountDao, times(1)).findMoneyById(1L);
+    }
+
+    @Test
+    public void journalModeFreesTheTransactionIdOfAPostingThatWasRefused() {
+        // given
+        final LedgerEngine journalled = new LedgerEngine(ledgerService, accountDao, journal, journalProjector, snapshotStore,
+                meterRegistry, PostingMode.JOURNAL, 2, 64, 16, 1000, 5000);
+        journalled.start();
+        given(accountDao.findMoneyById(eq(1L))).willReturn(gbp("10.00"));
+        final Transaction withdrawal = transaction(1L, TransactionType.WITHDRAWAL, "50.00");
+
+        try {
+            // when & then - the id is free again by the time the caller hears of it
+            assertThatThrownBy(() -> journalled.post(withdrawal))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Insufficient funds for withdrawal.");
+            verify(journalProjector, times(1)).claimTransactionId(withdrawal.getTransactionId());
+            verify(journalProjector, times(1)).releaseTransactionId(withdrawal.getTransactionId());
+        } finally {
+            journalled.stop();
+        }
+        verify(journal, never()).append(anyList());
+    }
+
+    @Test
+    public void journalModeRefusesTransactionsThatDoNotFitARecord() {
+        // given
+        final LedgerEngine journalled = new LedgerEngine(ledgerService, accountDao, journal, journalProjector, snapshotStore,
+                meterRegistry, PostingMode.JOURNAL, 2, 64, 16, 1000, 5000);
+        journalled.start();
+        final Transaction deposit = transaction(1L, TransactionType.DEPOSIT, "50.00");
+        willThrow(new IllegalArgumentException("Transaction IDs can be at most 96 bytes long."))
+                .given(journal).checkAppendable(deposit);
+
+        try {
+            // when & then
+            assertThatThrownBy(() -> journalled.post(deposit))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Transaction IDs can be at most 96 bytes long.");
+        } finally {
+            journalled.stop();
+        }
+        verify(journal, never()).append(anyList());
+    }
+
+    @Test
+    public void submitThrowsWhenTheEngineIsNotEnabled() {
+        // given
+        final LedgerEngine disabled = new LedgerEngine(ledgerService, accountDao, journal, journalProjector, snapshotStore,
+                meterRegistry, PostingMode.ATOMIC, 2, 64, 16, 1000, 5000);
+        disabled.start();
+
+        // when & then
+        assertThatThrownBy(() -> disabled.submit(transaction(1L, TransactionType.DEPOSIT, "1.00")))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Ledger engine is not running.");
+    }
+
+    @Test
+    public void awaitAllGivesEachPostingItsFailureAndTimesOutThoseStillPending() {
+        // given
+        final LedgerEngine impatient = new LedgerEngine(ledgerService, accountDao, journal, journalProjector, snapshotStore,
+                meterRegistry, PostingMode.ENGINE, 2, 64, 16, 1000, 50);
+        final IllegalArgumentException refused = new IllegalArgumentException("Insufficient funds for withdrawal.");
+        final List<CompletableFuture<Transaction>> outcomes = List.of(
+                CompletableFuture.completedFuture(transaction(1L, TransactionType.DEPOSIT, "1.00")),
+                CompletableFuture.failedFuture(refused),
+                new CompletableFuture<>(),
+                new CompletableFuture<>());
+
+        // when
+        final long started = System.nanoTime();
+        final List<RuntimeException> failures = impatient.awaitAll(outcomes);
+        final long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        // then - the two pending postings share the one timeout
+        assertThat(failures).hasSize(4);
+        assertThat(failures.get(0)).isNull();
+        assertThat(failures.get(1)).isSameAs(refused);
+        assertThat(failures.get(2)).isInstanceOf(PostingTimeoutException.class);
+        assertThat(failures.get(3)).isInstanceOf(PostingTimeoutException.class);
+        assertThat(waitedMillis).isLessThan(1000);
+    }
+
+    private void recordPersistedBatches() {
+        willAnswer(invocation -> {
+            synchronized (persisted) {
+                persisted.addAll(invocation.getArgument(0));
+                persistedBalances.add(Map.copyOf(invocation.getArgument(1)));
+            }
+            return null;
+        }).given(ledgerService).persistBatch(anyList(), anyMap());
+    }
+
+    private static Transaction transaction(Long accountId, TransactionType type, String amount) {
+        final Account account = Account.Builder.create()
+                .withName("Test Account")
+                .withAccountType(AccountType.PERSONAL)
+                .withCurrency(Currency.GBP)
+                .build();
+        account.setId(accountId);
+
+        return Transaction.Builder.create()
+                .withTransactionId("tan-" + type + amount)
+                .withAmount(new BigDecimal(amount))
+                .withType(type)
+                .withCurrency(Currency.GBP)
+                .withAccount(account)
+                .build();
+    }
+
+    private static Money gbp(String amount) {
+        return Money.of(new BigDecimal(amount), Currency.GBP);
+    }
+}
@@ -0,0 +1,92 @@
+package com.barclays.api.ledger;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import com.barclays.api.domain.Account;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class OptimisticRetryPolicyUnitTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    public void retriesLostRacesUntilTheWorkSucceeds() {
+        // given
+        final OptimisticRetryPolicy sut = new OptimisticRetryPolicy(5, 1, 2, meterRegistry);
+        final AtomicInteger attempts = new AtomicInteger();
+
+        // when
+        final String result = sut.execute("/transactions", () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new ObjectOptimisticLockingFailureException(Account.class, 1L);
+            }
+            return "posted";
+        });
+
+        // then
+        assertThat(result).isEqualTo("posted");
+        assertThat(attempts.get()).isEqualTo(3);
+        assertThat(meterRegistry.get("ledger.optimistic.retries").tag("endpoint", "/transactions").counter().count())
+                .isEqualTo(2);
+        assertThat(meterRegistry.find("ledger.optimistic.exhausted").counter()).isNull();
+    }
+
+    @Test
+    public void givesUpAfterMaxAttemptsAndRethrows() {
+        // given
+        final OptimisticRetryPolicy sut = new OptimisticRetryPolicy(4, 0, 0, meterRegistry);
+        final AtomicInteger attempts = new AtomicInteger();
+
+        // when/then
+        assertThatThrownBy(() -> sut.execute("/batch", () -> {
+            attempts.incrementAndGet();
+            throw new ObjectOptimisticLockingFailureException(Account.class, 1L);
+        })).isInstanceOf(ObjectOptimisticLockingFailureException.class);
+        assertThat(attempts.get()).isEqualTo(4);
+        assertThat(meterRegistry.get("ledger.optimistic.retries").tag("endpoint", "/batch").counter().count())
+                .isEqualTo(3);
+        assertThat(meterRegistry.get("ledger.optimistic.exhausted").tag("endpoint", "/batch").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void otherFailuresAreNotRetried() {
+        // given
+        final OptimisticRetryPolicy sut = new OptimisticRetryPolicy(5, 0, 0, meterRegistry);
+        final AtomicInteger attempts = new AtomicInteger();
+
+        // when/then
+        assertThatThrownBy(() -> sut.execute("/transactions", () -> {
+            attempts.incrementAndGet();
+            throw new IllegalArgumentException("Insufficient funds for withdrawal.");
+        })).isInstanceOf(IllegalArgumentException.class);
+        assertThat(attempts.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void backoffCeilingDoublesUpToTheMaximum() {
+        // given
+        final OptimisticRetryPolicy sut = new OptimisticRetryPolicy(100, 2, 50, meterRegistry);
+
+        // then
+        assertThat(sut.backoffCeiling(1)).isEqualTo(2);
+        assertThat(sut.backoffCeiling(2)).isEqualTo(4);
+        assertThat(sut.backoffCeiling(5)).isEqualTo(32);
+        assertThat(sut.backoffCeiling(6)).isEqualTo(50);
+        assertThat(sut.backoffCeiling(80)).isEqualTo(50);
+        assertThatThrownBy(() -> new OptimisticRetryPolicy(0, 2, 50, meterRegistry))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
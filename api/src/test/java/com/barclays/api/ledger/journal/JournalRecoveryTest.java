@@ -0,0 +1,293 @@
+package com.barclays.api.ledger.journal;
+
+import java.math.BigDecimal;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import com.barclays.api.TestData;
+import com.barclays.api.dao.AccountDao;
+import com.barclays.api.dao.JournalCheckpointDao;
+import com.barclays.api.dao.JournalRejectionDao;
+import com.barclays.api.dao.TransactionDao;
+import com.barclays.api.dao.UserDao;
+import com.barclays.api.domain.Account;
+import com.barclays.api.domain.JournalRejection;
+import com.barclays.api.domain.Transaction;
+import com.barclays.api.domain.User;
+import com.barclays.api.domain.enums.Currency;
+import com.barclays.api.domain.enums.TransactionType;
+import com.barclays.api.exceptions.DuplicateResourceException;
+import com.barclays.api.ledger.LedgerEngine;
+import com.barclays.api.ledger.PostingMode;
+import com.barclays.api.ledger.snapshot.BalanceSnapshot;
+import com.barclays.api.ledger.snapshot.BalanceSnapshotStore;
+import com.barclays.api.ledger.snapshot.SnapshotBalances;
+import com.barclays.api.services.LedgerService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@SpringBootTest(properties = {
+    "api.ledger.posting-mode=journal",
+    "api.ledger.journal.dir=target/journal-recovery-test/${random.uuid}",
+    "api.ledger.journal.segment-bytes=8192",
+    "api.ledger.journal.projector.max-batch-size=10",
+    "api.ledger.snapshot.dir=target/journal-recovery-test/${random.uuid}"
+})
+public class JournalRecoveryTest {
+
+    @Autowired
+    private LedgerEngine ledgerEngine;
+
+    @Autowired
+    private TransactionJournal journal;
+
+    @Autowired
+    private JournalProjector projector;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private BalanceSnapshotStore snapshotStore;
+
+    @Autowired
+    private AccountDao accountDao;
+
+    @Autowired
+    private TransactionDao transactionDao;
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private JournalCheckpointDao journalCheckpointDao;
+
+    @Autowired
+    private JournalRejectionDao journalRejectionDao;
+
+    private final List<Object> restarted = new ArrayList<>();
+
+    private User user;
+    private Account account;
+
+    @BeforeEach
+    public void setup() {
+        user = userDao.save(TestData.newUser());
+        account = accountDao.save(TestData.newAccount(user, new BigDecimal("100.00")).build());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        for (Object component : restarted) {
+            if (component instanceof JournalProjector) {
+                ((JournalProjector) component).stop();
+            } else {
+                ((TransactionJournal) component).stop();
+            }
+        }
+        if (!restarted.isEmpty()) {
+            // the next context starts a fresh journal but shares this in-memory database
+            journalCheckpointDao.deleteAll();
+            journalRejectionDao.deleteAll();
+        }
+    }
+
+    @Test
+    public void acknowledgedPostingsReachTheDatabase() {
+        // when
+        for (int i = 0; i < 25; i++) {
+            ledgerEngine.post(transaction(TransactionType.DEPOSIT, "2.00"));
+        }
+        projector.awaitProjected(journal.lastSequence(), 5000);
+
+        // then
+        assertThat(accountDao.findBalanceById(account.getId())).isEqualByComparingTo(new BigDecimal("150.00"));
+        assertThat(transactionDao.findByAccountId(account.getId())).hasSize(25);
+    }
+
+    @Test
+    public void snapshotPlusJournalTailMatchesTheDatabase() {
+        // given - a snapshot taken after ten deposits
+        for (int i = 0; i < 10; i++) {
+            ledgerEngine.post(transaction(TransactionType.DEPOSIT, "1.00"));
+        }
+        projector.awaitProjected(journal.lastSequence(), 5000);
+        final BalanceSnapshot snapshot = snapshotStore.write(projector.appliedSequence(),
+                writer -> ledgerService.forEachBalance(writer::append));
+
+        // and five withdrawals after it
+        for (int i = 0; i < 5; i++) {
+            ledgerEngine.post(transaction(TransactionType.WITHDRAWAL, "1.00"));
+        }
+        projector.awaitProjected(journal.lastSequence(), 5000);
+
+        // when
+        final SnapshotBalances rebuilt = SnapshotBalances.load(snapshotStore, journal);
+
+        // then
+        assertThat(snapshot.balanceOf(account.getId()).toBigDecimal()).isEqualByComparingTo(new BigDecimal("110.00"));
+        assertThat(rebuilt.balanceOf(account.getId()).toBigDecimal()).isEqualByComparingTo(new BigDecimal("105.00"));
+        assertThat(accountDao.findBalanceById(account.getId())).isEqualByComparingTo(new BigDecimal("105.00"));
+    }
+
+    @Test
+    @DirtiesContext
+    public void projectorKilledMidStreamIsReplayedExactlyOnceAfterRestart() throws Exception {
+        // given - postings are acknowledged while nothing is projecting them
+        projector.awaitProjected(journal.lastSequence(), 5000);
+        projector.stop();
+        final long before = journal.lastSequence();
+        final List<Transaction> posted = new ArrayList<>();
+        for (int i = 0; i < 95; i++) {
+            final TransactionType type = i % 5 == 4 ? TransactionType.WITHDRAWAL : TransactionType.DEPOSIT;
+            posted.add(ledgerEngine.post(transaction(type, "1.00")));
+        }
+        final long end = journal.lastSequence();
+        assertThat(end - before).isEqualTo(95);
+
+        // when - the next start-up replay applies three batches and is killed inside the fourth
+        final CountDownLatch insideFourthBatch = new CountDownLatch(1);
+        final AtomicInteger batches = new AtomicInteger();
+        final LedgerService crashing = mock(LedgerService.class);
+        willAnswer(invocation -> ledgerService.journalCheckpoint()).given(crashing).journalCheckpoint();
+        willAnswer(invocation -> {
+            if (batches.incrementAndGet() == 4) {
+                insideFourthBatch.countDown();
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            }
+            ledgerService.projectJournal(invocation.getArgument(0), invocation.getArgument(1));
+            return null;
+        }).given(crashing).projectJournal(anyList(), anyLong());
+
+        final JournalProjector doomed = new JournalProjector(journal, crashing, snapshotStore, new SimpleMeterRegistry(),
+                PostingMode.JOURNAL, 10, false);
+        final Thread node = new Thread(doomed::start);
+        node.start();
+        assertThat(insideFourthBatch.await(10, TimeUnit.SECONDS)).isTrue();
+        node.interrupt();
+        node.join(5000);
+
+        assertThat(ledgerService.journalCheckpoint()).isEqualTo(before + 30);
+        assertThat(transactionDao.findByAccountId(account.getId())).hasSize(30);
+
+        // and the node restarts: the journal is reopened from disk and a fresh projector starts
+        journal.stop();
+        final TransactionJournal reopened = new TransactionJournal(PostingMode.JOURNAL,
+                journal.getDirectory().toString(), 8192, true);
+        restarted.add(reopened);
+        reopened.start();
+        final JournalProjector recovered = new JournalProjector(reopened, ledgerService, snapshotStore, new SimpleMeterRegistry(),
+                PostingMode.JOURNAL, 10, true);
+        restarted.add(recovered);
+        recovered.start();
+
+        // then - replay finished before start() returned, with nothing lost or doubled
+        assertThat(reopened.lastSequence()).isEqualTo(end);
+        assertThat(recovered.appliedSequence()).isEqualTo(end);
+        assertThat(ledgerService.journalCheckpoint()).isEqualTo(end);
+        // 100 + 76 deposits - 19 withdrawals
+        assertThat(accountDao.findBalanceById(account.getId())).isEqualByComparingTo(new BigDecimal("157.00"));
+
+        final List<Transaction> stored = transactionDao.findByAccountId(account.getId());
+        assertThat(stored).extracting(Transaction::getId)
+                .containsExactlyInAnyOrderElementsOf(posted.stream().map(Transaction::getId)::iterator);
+        // rows carry the time the posting was accepted, not the time it was replayed
+        final Transaction first = posted.get(0);
+        assertThat(stored).filteredOn(row -> row.getId().equals(first.getId())).singleElement()
+                .extracting(Transaction::getCreatedTimestamp)
+                .isEqualTo(first.getCreatedTimestamp().truncatedTo(ChronoUnit.MICROS));
+    }
+
+    @Test
+    public void aTransactionIdAlreadyPostedIsRefusedBeforeItIsJournalled() {
+        // given
+        final Transaction first = ledgerEngine.post(transaction(TransactionType.DEPOSIT, "10.00"));
+        final long end = journal.lastSequence();
+        final Transaction again = transaction(TransactionType.DEPOSIT, "10.00");
+        again.setTransactionId(first.getTransactionId());
+
+        // when & then - while the first is still only in the journal, and once it is in the database
+        assertThatThrownBy(() -> ledgerEngine.post(again))
+                .isInstanceOf(DuplicateResourceException.class)
+                .hasMessage("Transaction with ID " + first.getTransactionId() + " already exists.");
+        projector.awaitProjected(end, 5000);
+        assertThatThrownBy(() -> ledgerEngine.post(again))
+                .isInstanceOf(DuplicateResourceException.class);
+
+        assertThat(journal.lastSequence()).isEqualTo(end);
+        assertThat(accountDao.findBalanceById(account.getId())).isEqualByComparingTo(new BigDecimal("110.00"));
+    }
+
+    @Test
+    @DirtiesContext
+    public void recordsThatCanNeverBeAppliedAreSetAsideAndReplayCarriesOn() {
+        // given - a journal that holds two postings sharing a transaction id, and one that overdraws
+        projector.awaitProjected(journal.lastSequence(), 5000);
+        projector.stop();
+        final Transaction first = transaction(TransactionType.DEPOSIT, "10.00");
+        final Transaction duplicate = transaction(TransactionType.DEPOSIT, "10.00");
+        duplicate.setTransactionId(first.getTransactionId());
+        final Transaction overdraw = transaction(TransactionType.WITHDRAWAL, "500.00");
+        final Transaction last = transaction(TransactionType.DEPOSIT, "5.00");
+        final long end = journal.append(List.of(first, duplicate, overdraw, last));
+
+        // when - the node restarts
+        journal.stop();
+        final TransactionJournal reopened = new TransactionJournal(PostingMode.JOURNAL,
+                journal.getDirectory().toString(), 8192, true);
+        restarted.add(reopened);
+        reopened.start();
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final JournalProjector recovered = new JournalProjector(reopened, ledgerService, snapshotStore, meterRegistry,
+                PostingMode.JOURNAL, 10, true);
+        restarted.add(recovered);
+        recovered.start();
+
+        // then - replay got past both and applied the rest
+        assertThat(recovered.appliedSequence()).isEqualTo(end);
+        assertThat(ledgerService.journalCheckpoint()).isEqualTo(end);
+        assertThat(accountDao.findBalanceById(account.getId())).isEqualByComparingTo(new BigDecimal("115.00"));
+        assertThat(transactionDao.findByAccountId(account.getId())).extracting(Transaction::getId)
+                .containsExactlyInAnyOrder(first.getId(), last.getId());
+
+        assertThat(journalRejectionDao.findAll()).extracting(JournalRejection::getSequence)
+                .containsExactlyInAnyOrder(end - 2, end - 1);
+        assertThat(meterRegistry.get("ledger.journal.rejected").counter().count()).isEqualTo(2.0);
+        assertThat(ledgerService.hasJournalRejectionsAfter(end - 2)).isTrue();
+        assertThat(ledgerService.hasJournalRejectionsAfter(end - 1)).isFalse();
+    }
+
+    private Transaction transaction(TransactionType type, String amount) {
+        final Account reference = new Account();
+        reference.setId(account.getId());
+
+        final Transaction transaction = Transaction.Builder.create()
+                .withTransactionId(UUID.randomUUID().toString())
+                .withAmount(new BigDecimal(amount))
+                .withType(type)
+                .withCurrency(Currency.GBP)
+                .withUser(user)
+                .withAccount(reference)
+                .build();
+        transaction.setId(UUID.randomUUID().toString());
+        return transaction;
+    }
+}
@@ -0,0 +1,213 @@
+package com.barclays.api.ledger.journal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.barclays.api.domain.Account;
+import com.barclays.api.domain.Money;
+import com.barclays.api.domain.Transaction;
+import com.barclays.api.domain.User;
+import com.barclays.api.domain.enums.Currency;
+import com.barclays.api.domain.enums.TransactionType;
+import com.barclays.api.ledger.PostingMode;
+
+public class TransactionJournalUnitTest {
+
+    // four records per segment, so rotation is easy to reach
+    private static final long SEGMENT_BYTES = 4 * JournalCodec.RECORD_SIZE;
+
+    @TempDir
+    Path directory;
+
+    private final List<TransactionJournal> opened = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() {
+        opened.forEach(TransactionJournal::stop);
+    }
+
+    @Test
+    public void appendedRecordsReadBackFieldForField() {
+        // given
+        final TransactionJournal sut = open();
+        final Transaction deposit = transaction("tan-1", 7L, TransactionType.DEPOSIT, "12.34");
+        deposit.setCreatedTimestamp(LocalDateTime.of(2024, 3, 1, 9, 30, 15, 123456000));
+
+        // when
+        final long sequence = sut.append(Collections.singletonList(deposit));
+
+        // then
+        assertThat(sequence).isEqualTo(1L);
+        final JournalRecord record = sut.read(1, 10).get(0);
+        assertThat(record.getSequence()).isEqualTo(1L);
+        assertThat(record.getId()).isEqualTo("tan-1");
+        assertThat(record.getTransactionId()).isEqualTo("ref-tan-1");
+        assertThat(record.getAccountId()).isEqualTo(7L);
+        assertThat(record.getUserId()).isEqualTo(3L);
+        assertThat(record.getType()).isEqualTo(TransactionType.DEPOSIT);
+        assertThat(record.getCurrency()).isEqualTo(Currency.GBP);
+        assertThat(record.getAmount()).isEqualTo(Money.ofPence(1234, Currency.GBP));
+        assertThat(record.getCreatedTimestamp()).isEqualTo(LocalDateTime.of(2024, 3, 1, 9, 30, 15, 123456000));
+    }
+
+    @Test
+    public void appendsRotateIntoNewSegments() {
+        // given
+        final TransactionJournal sut = open();
+
+        // when
+        sut.append(transactions(0, 10));
+
+        // then
+        assertThat(sut.lastSequence()).isEqualTo(10L);
+        assertThat(sut.segmentCount()).isEqualTo(3);
+        assertThat(sut.read(1, 100)).extracting(JournalRecord::getId)
+                .containsExactly("tan-0", "tan-1", "tan-2", "tan-3", "tan-4", "tan-5", "tan-6", "tan-7", "tan-8", "tan-9");
+    }
+
+    @Test
+    public void reopeningContinuesAfterTheLastRecord() {
+        // given
+        final TransactionJournal first = open();
+        first.append(transactions(0, 6));
+        first.stop();
+
+        // when
+        final TransactionJournal sut = open();
+        sut.append(transactions(6, 1));
+
+        // then
+        assertThat(sut.lastSequence()).isEqualTo(7L);
+        assertThat(sut.read(5, 10)).extracting(JournalRecord::getId).containsExactly("tan-4", "tan-5", "tan-6");
+    }
+
+    @Test
+    public void tornRecordAtTheTailIsDroppedOnReopen() throws Exception {
+        // given - record 3 is half-written when the process dies
+        final TransactionJournal first = open();
+        first.append(transactions(0, 3));
+        first.stop();
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve(JournalSegment.fileName(1)).toFile(), "rw")) {
+            file.seek(2 * JournalCodec.RECORD_SIZE + 100);
+            file.write(new byte[] { 1, 2, 3 });
+        }
+
+        // when
+        final TransactionJournal sut = open();
+
+        // then - the slot is wiped and reused
+        assertThat(sut.lastSequence()).isEqualTo(2L);
+        sut.append(transactions(10, 1));
+        assertThat(sut.read(1, 10)).extracting(JournalRecord::getId).containsExactly("tan-0", "tan-1", "tan-10");
+    }
+
+    @Test
+    public void emptySegmentLeftByACrashDuringRotationIsDiscarded() {
+        // given
+        final TransactionJournal first = open();
+        first.append(transactions(0, 4));
+        first.stop();
+        JournalSegment.create(directory, 5, 4).close();
+
+        // when
+        final TransactionJournal sut = open();
+
+        // then
+        assertThat(sut.lastSequence()).isEqualTo(4L);
+        assertThat(sut.segmentCount()).isEqualTo(1);
+        assertThat(directory.resolve(JournalSegment.fileName(5))).doesNotExist();
+    }
+
+    @Test
+    public void releaseDeletesFullyAppliedSegmentsOnly() {
+        // given
+        final TransactionJournal sut = open();
+        sut.append(transactions(0, 10));
+
+        // when - segment 1-4 is fully applied, 5-8 only partly
+        sut.release(6);
+
+        // then
+        assertThat(sut.segmentCount()).isEqualTo(2);
+        assertThat(directory.resolve(JournalSegment.fileName(1))).doesNotExist();
+        assertThat(sut.read(5, 100)).hasSize(6);
+    }
+
+    @Test
+    public void transactionIdsTooLongForARecordAreRefused() {
+        // given
+        final TransactionJournal sut = open();
+        final Transaction transaction = transaction("tan-1", 1L, TransactionType.DEPOSIT, "1.00");
+        transaction.setTransactionId(String.join("", Collections.nCopies(JournalCodec.MAX_ID_BYTES + 1, "x")));
+
+        // when & then
+        assertThatThrownBy(() -> sut.checkAppendable(transaction))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Transaction IDs can be at most 96 bytes long.");
+    }
+
+    @Test
+    public void inspectorListsSegmentsAndRecords() {
+        // given
+        final TransactionJournal journal = open();
+        journal.append(transactions(0, 5));
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // when
+        new JournalInspector(true, 4, null).inspect(directory, new PrintStream(output, true, StandardCharsets.UTF_8));
+
+        // then
+        final String report = output.toString(StandardCharsets.UTF_8);
+        assertThat(report).contains(JournalSegment.fileName(1) + "  records 1-4 (4 of 4 slots)");
+        assertThat(report).contains(JournalSegment.fileName(5) + "  records 5-5 (1 of 4 slots)");
+        assertThat(report).contains("id=tan-3").contains("id=tan-4").doesNotContain("id=tan-2");
+        assertThat(report).contains("2 segment(s), records 1-5");
+    }
+
+    private TransactionJournal open() {
+        final TransactionJournal journal = new TransactionJournal(PostingMode.JOURNAL, directory.toString(), SEGMENT_BYTES, true);
+        journal.start();
+        opened.add(journal);
+        return journal;
+    }
+
+    private static List<Transaction> transactions(int from, int count) {
+        final List<Transaction> transactions = new ArrayList<>(count);
+        for (int i = from; i < from + count; i++) {
+            transactions.add(transaction("tan-" + i, 1L, TransactionType.DEPOSIT, "1.00"));
+        }
+        return transactions;
+    }
+
+    private static Transaction transaction(String id, Long accountId, TransactionType type, String amount) {
+        final Account account = new Account();
+        account.setId(accountId);
+        final User user = new User();
+        user.setId(3L);
+
+        final Transaction transaction = Transaction.Builder.create()
+                .withTransactionId("ref-" + id)
+                .withAmount(new BigDecimal(amount))
+                .withType(type)
+                .withCurrency(Currency.GBP)
+                .withUser(user)
+                .withAccount(account)
+                .build();
+        transaction.setId(id);
+        return transaction;
+    }
+}
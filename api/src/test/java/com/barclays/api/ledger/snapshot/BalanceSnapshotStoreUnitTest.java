@@ -0,0 +1,120 @@
+package com.barclays.api.ledger.snapshot;
+
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.barclays.api.domain.Money;
+import com.barclays.api.domain.enums.Currency;
+import com.barclays.api.ledger.PostingMode;
+
+public class BalanceSnapshotStoreUnitTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void writtenSnapshotIsFoundByBinarySearch() {
+        // given
+        final BalanceSnapshotStore sut = store(2);
+
+        // when - a million accounts, every third id
+        final BalanceSnapshot snapshot = sut.write(42, writer -> {
+            for (long id = 3; id <= 3_000_000; id += 3) {
+                writer.append(id, Money.ofPence(id, Currency.GBP));
+            }
+        });
+
+        // then
+        assertThat(snapshot.getSequence()).isEqualTo(42L);
+        assertThat(snapshot.size()).isEqualTo(1_000_000);
+        assertThat(snapshot.balanceOf(3L)).isEqualTo(gbp("0.03"));
+        assertThat(snapshot.balanceOf(1_500_000L)).isEqualTo(gbp("15000.00"));
+        assertThat(snapshot.balanceOf(3_000_000L)).isEqualTo(gbp("30000.00"));
+        assertThat(snapshot.balanceOf(1L)).isNull();
+        assertThat(snapshot.balanceOf(1_500_001L)).isNull();
+        assertThat(snapshot.balanceOf(3_000_003L)).isNull();
+        assertThat(sut.latestSequence()).isEqualTo(42L);
+    }
+
+    @Test
+    public void latestSkipsADamagedSnapshot() throws Exception {
+        // given
+        final BalanceSnapshotStore sut = store(2);
+        sut.write(10, writer -> writer.append(1L, gbp("10.00")));
+        final BalanceSnapshot newest = sut.write(20, writer -> writer.append(1L, gbp("20.00")));
+        try (RandomAccessFile file = new RandomAccessFile(newest.getFile().toFile(), "rw")) {
+            file.seek(BalanceSnapshot.HEADER_SIZE + 9);
+            file.write(0x7F);
+        }
+
+        // when
+        final BalanceSnapshot latest = store(2).latest();
+
+        // then
+        assertThat(latest.getSequence()).isEqualTo(10L);
+        assertThat(latest.balanceOf(1L)).isEqualTo(gbp("10.00"));
+    }
+
+    @Test
+    public void onlyTheNewestSnapshotsAreKept() throws Exception {
+        // given
+        final BalanceSnapshotStore sut = store(2);
+
+        // when
+        for (long sequence = 1; sequence <= 4; sequence++) {
+            sut.write(sequence, writer -> writer.append(1L, gbp("1.00")));
+        }
+
+        // then
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.map(file -> file.getFileName().toString()))
+                    .containsExactlyInAnyOrder("00000000000000000003.snapshot", "00000000000000000004.snapshot");
+        }
+    }
+
+    @Test
+    public void writerRefusesUnorderedAccounts() {
+        // given
+        final BalanceSnapshotStore sut = store(2);
+
+        // when & then
+        assertThatThrownBy(() -> sut.write(1, writer -> {
+            writer.append(2L, gbp("1.00"));
+            writer.append(1L, gbp("1.00"));
+        }))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Balances must be written in ascending account id order.");
+        assertThat(sut.latest()).isNull();
+    }
+
+    @Test
+    public void snapshotsAreOnlyUsedInJournalMode() {
+        // given
+        final BalanceSnapshotStore journalled = store(2);
+        journalled.write(1, writer -> writer.append(1L, gbp("1.00")));
+
+        // when
+        final BalanceSnapshotStore sut = new BalanceSnapshotStore(PostingMode.ENGINE, directory.toString(), 60000, 2);
+
+        // then
+        assertThat(sut.isEnabled()).isFalse();
+        assertThat(sut.isDue()).isFalse();
+        assertThat(sut.latest()).isNull();
+    }
+
+    private BalanceSnapshotStore store(int retain) {
+        return new BalanceSnapshotStore(PostingMode.JOURNAL, directory.toString(), 60000, retain);
+    }
+
+    private static Money gbp(String amount) {
+        return Money.of(new BigDecimal(amount), Currency.GBP);
+    }
+}
@@ -0,0 +1,125 @@
+package com.barclays.api.services;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.barclays.api.TestData;
+import com.barclays.api.dao.UserDao;
+import com.barclays.api.domain.Account;
+import com.barclays.api.domain.Transaction;
+import com.barclays.api.domain.User;
+import com.barclays.api.domain.enums.TransactionType;
+
+/**
+ * Account reads served from {@link AccountCache}, and the ledger's writes
+ * dropping what it holds. Rows are changed behind the cache's back with
+ * plain SQL to tell a cached read from one that went to H2.
+ */
+@SpringBootTest
+public class AccountCacheTest {
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final TestData testData = new TestData();
+    private User user;
+
+    @BeforeEach
+    public void setup() {
+        user = userDao.save(TestData.newUser());
+    }
+
+    @Test
+    public void readsOfAnUnchangedAccountNeverReachTheDatabase() {
+        // given - cached on creation
+        final Account account = newAccount();
+
+        // when
+        setNameBehindTheCache(account, "Renamed");
+        final Account read = accountService.getById(account.getId());
+
+        // then
+        assertThat(read.getName()).isEqualTo("Test Account");
+        assertThat(read.getUser().getEmail()).isEqualTo(user.getEmail());
+        assertThat(read.getVersion()).isEqualTo(account.getVersion());
+    }
+
+    @Test
+    public void everyLedgerWriteDropsTheCachedAccount() {
+        // given
+        final Account account = newAccount();
+        final Account other = newAccount();
+
+        // when & then - each write is followed by a read that must go back to H2
+        setNameBehindTheCache(account, "After post");
+        ledgerService.post(testData.posting(account, TransactionType.DEPOSIT, "10.00"));
+        assertRead(account, "After post", "1010.00");
+
+        setNameBehindTheCache(account, "After optimistic post");
+        ledgerService.postOptimistic(testData.posting(account, TransactionType.WITHDRAWAL, "20.00"));
+        assertRead(account, "After optimistic post", "990.00");
+
+        setNameBehindTheCache(account, "After locked post");
+        ledgerService.postLocked(testData.posting(account, TransactionType.DEPOSIT, "5.00"));
+        assertRead(account, "After locked post", "995.00");
+
+        setNameBehindTheCache(account, "After transfer");
+        ledgerService.transfer(testData.posting(account, TransactionType.WITHDRAWAL, "95.00"),
+                testData.posting(other, TransactionType.DEPOSIT, "95.00"));
+        assertRead(account, "After transfer", "900.00");
+
+        setNameBehindTheCache(account, "After batch");
+        ledgerService.postBatch(List.of(testData.posting(account, TransactionType.DEPOSIT, "100.00")), true);
+        assertRead(account, "After batch", "1000.00");
+    }
+
+    @Test
+    public void anOptimisticConflictDropsTheStaleAccountSoTheRetryReadsPastIt() {
+        // given - the cached version is one behind the row
+        final Account account = newAccount();
+        jdbcTemplate.update("UPDATE accounts SET version = version + 1 WHERE id = ?", account.getId());
+
+        // when
+        Throwable conflict = null;
+        try {
+            ledgerService.postOptimistic(testData.posting(account, TransactionType.DEPOSIT, "10.00"));
+        } catch (RuntimeException ex) {
+            conflict = ex;
+        }
+        final Transaction retried = ledgerService.postOptimistic(testData.posting(account, TransactionType.DEPOSIT, "10.00"));
+
+        // then
+        assertThat(conflict).isNotNull();
+        assertThat(retried.getBalanceAfter()).isEqualByComparingTo("1010.00");
+    }
+
+    private void assertRead(Account account, String name, String balance) {
+        final Account read = accountService.getById(account.getId());
+        assertThat(read.getName()).isEqualTo(name);
+        assertThat(read.getBalance()).isEqualByComparingTo(balance);
+    }
+
+    private void setNameBehindTheCache(Account account, String name) {
+        jdbcTemplate.update("UPDATE accounts SET name = ? WHERE id = ?", name, account.getId());
+    }
+
+    private Account newAccount() {
+        return accountService.createAccount(TestData.newAccount(user, new BigDecimal("1000.00")).build());
+    }
+}
@@ -0,0 +1,203 @@
+package com.barclays.api.services;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.barclays.api.domain.Account;
+import com.barclays.api.domain.User;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class AccountCacheUnitTest {
+
+    private static final long TTL = 1000;
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+    private final AtomicInteger loads = new AtomicInteger();
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    public void getLoadsAnAccountOnceAndHandsOutCopies() {
+        // given
+        final AccountCache sut = new AccountCache(100, TTL, meterRegistry, clock::get);
+
+        // when
+        final Account first = sut.get(1L, this::load);
+        first.setBalance(new BigDecimal("1.00"));
+        first.getUser().setEmail("changed@example.com");
+        final Account second = sut.get(1L, this::load);
+
+        // then
+        assertThat(loads).hasValue(1);
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getBalance()).isEqualByComparingTo("100.00");
+        assertThat(second.getUser().getEmail()).isEqualTo("owner@example.com");
+        assertThat(sut.hitRatio()).isEqualTo(0.5);
+        assertThat(meterRegistry.get("account.cache.requests").tag("result", "hit").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("account.cache.requests").tag("result", "miss").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void missingAccountsAreNotCached() {
+        // given
+        final AccountCache sut = new AccountCache(100, TTL, meterRegistry, clock::get);
+
+        // when
+        final Account missing = sut.get(1L, id -> null);
+
+        // then
+        assertThat(missing).isNull();
+        assertThat(sut.size()).isZero();
+    }
+
+    @Test
+    public void entriesExpireAfterTheTtl() {
+        // given
+        final AccountCache sut = new AccountCache(100, TTL, meterRegistry, clock::get);
+        sut.get(1L, this::load);
+
+        // when
+        clock.addAndGet(TTL);
+        sut.get(1L, this::load);
+
+        // then
+        assertThat(loads).hasValue(2);
+        assertThat(meterRegistry.get("account.cache.evictions").tag("cause", "expired").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void sizeIsBoundedByEvictingTheOldestEntries() {
+        // given
+        final AccountCache sut = new AccountCache(64, TTL, meterRegistry, clock::get);
+
+        // when
+        for (long id = 0; id < 10_000; id++) {
+            sut.get(id, this::load);
+        }
+
+        // then
+        assertThat(sut.size()).isLessThanOrEqualTo(64);
+        assertThat(meterRegistry.get("account.cache.evictions").tag("cause", "size").counter().count())
+                .isEqualTo(10_000 - sut.size());
+    }
+
+    @Test
+    public void invalidateDropsTheEntry() {
+        // given
+        final AccountCache sut = new AccountCache(100, TTL, meterRegistry, clock::get);
+        sut.get(1L, this::load);
+
+        // when
+        sut.invalidate(1L);
+        sut.get(1L, this::load);
+
+        // then
+        assertThat(loads).hasValue(2);
+        assertThat(meterRegistry.get("account.cache.evictions").tag("cause", "invalidated").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void aLoadThatRacedAnInvalidationIsNotStored() {
+        // given
+        final AccountCache sut = new AccountCache(100, TTL, meterRegistry, clock::get);
+
+        // when - the row is written between the load's read and its store
+        final Account raced = sut.get(1L, id -> {
+            final Account stale = load(id);
+            sut.invalidate(id);
+            return stale;
+        });
+        sut.get(1L, this::load);
+
+        // then
+        assertThat(raced).isNotNull();
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    public void invalidateInsideATransactionDropsTheEntryAgainOnceItCompletes() {
+        // given
+        final AccountCache sut = new AccountCache(100, TTL, meterRegistry, clock::get);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            sut.invalidate(1L);
+            // a reader outside the transaction caches the row as it was before the commit
+            sut.get(1L, this::load);
+
+            // when
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        sut.get(1L, this::load);
+
+        // then
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    public void putCachesACreatedAccountOnlyOnceItsTransactionCommits() {
+        // given
+        final AccountCache sut = new AccountCache(100, TTL, meterRegistry, clock::get);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            sut.put(1L, load(1L));
+            assertThat(sut.size()).isZero();
+
+            // when
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCommit();
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        final Account cached = sut.get(1L, this::load);
+
+        // then
+        assertThat(cached.getId()).isEqualTo(1L);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    public void rejectsANonPositiveSizeOrTtl() {
+        // when & then
+        assertThatThrownBy(() -> new AccountCache(0, TTL, meterRegistry, clock::get))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new AccountCache(100, 0, meterRegistry, clock::get))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private Account load(long accountId) {
+        loads.incrementAndGet();
+        final User user = User.Builder.create()
+                .withName("Owner")
+                .withEmail("owner@example.com")
+                .build();
+        user.setId(7L);
+        final Account account = Account.Builder.create()
+                .withName("Cached Account")
+                .withBalance(new BigDecimal("100.00"))
+                .withUser(user)
+                .build();
+        account.setId(accountId);
+        account.setVersion(3L);
+        return account;
+    }
+}
@@ -0,0 +1,86 @@
+package com.barclays.api.services;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.barclays.api.ApiApplication;
+import com.barclays.api.TestData;
+import com.barclays.api.dao.UserDao;
+import com.barclays.api.domain.Account;
+import com.barclays.api.domain.User;
+import com.barclays.api.domain.view.AccountView;
+
+/**
+ * GET /v1/accounts for a user with 500 accounts, one in ten of them striped:
+ * managed entities (the list as it used to be read) against views. Runs
+ * against the application's own H2 schema:
+ *
+ * <pre>
+ * mvn -Pbenchmarks test -DskipTests -Djmh.args="AccountListBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountListBenchmark {
+
+    private static final int ACCOUNTS = 500;
+
+    private ConfigurableApplicationContext context;
+    private AccountService accountService;
+    private String email;
+
+    @Setup
+    public void setup() {
+        context = new SpringApplicationBuilder(ApiApplication.class)
+            .web(WebApplicationType.NONE)
+            .properties("spring.jpa.show-sql=false")
+            .run();
+        accountService = context.getBean(AccountService.class);
+
+        final User user = context.getBean(UserDao.class).save(TestData.newUser());
+        email = user.getEmail();
+
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountService.createAccount(TestData.newAccount(user, new BigDecimal("100.00"))
+                .withBalanceSlots(i % 10 == 0 ? 4 : null)
+                .build());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Account> entities() {
+        final List<Account> accounts = accountService.getAccounts(email);
+        accountService.includeBalanceSlots(accounts);
+        return accounts;
+    }
+
+    @Benchmark
+    public List<AccountView> views() {
+        return accountService.getAccountViews(email);
+    }
+}
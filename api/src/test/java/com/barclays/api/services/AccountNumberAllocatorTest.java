@@ -0,0 +1,101 @@
+package com.barclays.api.services;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.barclays.api.TestData;
+import com.barclays.api.dao.AccountDao;
+import com.barclays.api.dao.AccountNumberBlockDao;
+import com.barclays.api.domain.Account;
+import com.barclays.api.facade.AccountsFacade;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Account numbers from the real block table in H2, handed out by this
+ * node's allocator and by a second one standing in for another API node.
+ */
+@SpringBootTest
+public class AccountNumberAllocatorTest {
+
+    @Autowired
+    private AccountNumberAllocator accountNumberAllocator;
+
+    @Autowired
+    private AccountNumberBlockDao accountNumberBlockDao;
+
+    @Autowired
+    private AccountDao accountDao;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private AccountsFacade accountsFacade;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    public void twoNodesNeverHandOutTheSameNumber() throws Exception {
+        // given
+        final AccountNumberAllocator otherNode = new AccountNumberAllocator(accountNumberBlockDao, accountDao, transactionManager,
+            "10-10-10", AccountNumberAllocator.CheckDigits.NONE, new SimpleMeterRegistry());
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        final List<Callable<List<String>>> tasks = new ArrayList<>();
+        for (AccountNumberAllocator node : new AccountNumberAllocator[] { accountNumberAllocator, otherNode }) {
+            for (int t = 0; t < 2; t++) {
+                tasks.add(() -> {
+                    List<String> numbers = new ArrayList<>();
+                    for (int i = 0; i < 1_000; i++) {
+                        numbers.add(node.nextAccountNumber());
+                    }
+                    return numbers;
+                });
+            }
+        }
+
+        // when
+        final Set<String> seen = new HashSet<>();
+        try {
+            for (Future<List<String>> result : executor.invokeAll(tasks)) {
+                seen.addAll(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // then
+        assertThat(seen).hasSize(4 * 1_000);
+    }
+
+    @Test
+    public void accountsAreCreatedWithTheBranchSortCodeAndFreshNumbers() {
+        // given
+        final String email = TestData.newEmail();
+        userService.saveUser(TestData.newUser(email));
+
+        // when
+        final Set<String> numbers = new HashSet<>();
+        for (int i = 0; i < 2 * AccountNumberAllocator.BLOCK_SIZE; i++) {
+            final Account account = accountsFacade.createAccount(TestData.newAccount().build(), email);
+            assertThat(account.getSortCode()).isEqualTo("10-10-10");
+            numbers.add(account.getAccountNumber());
+        }
+
+        // then
+        assertThat(numbers).hasSize(2 * AccountNumberAllocator.BLOCK_SIZE);
+    }
+}
@@ -0,0 +1,187 @@
+package com.barclays.api.services;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import org.mockito.Mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.barclays.api.dao.AccountDao;
+import com.barclays.api.dao.AccountNumberBlockDao;
+import com.barclays.api.domain.AccountNumberBlock;
+import com.barclays.api.services.AccountNumberAllocator.CheckDigits;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+public class AccountNumberAllocatorUnitTest {
+
+    @Mock
+    private AccountNumberBlockDao accountNumberBlockDao;
+
+    @Mock
+    private AccountDao accountDao;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private AtomicLong blocks;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        blocks = new AtomicLong();
+    }
+
+    @Test
+    public void reservesABlockOnlyOnceTheLastIsUsedUp() {
+        // given
+        reserveBlocksFrom(1);
+        final AccountNumberAllocator sut = allocator(CheckDigits.NONE);
+
+        // when
+        final List<String> numbers = new ArrayList<>();
+        for (int i = 0; i <= AccountNumberAllocator.BLOCK_SIZE; i++) {
+            numbers.add(sut.nextAccountNumber());
+        }
+
+        // then
+        assertThat(numbers).doesNotHaveDuplicates();
+        assertThat(numbers.get(0)).isEqualTo("00000100");
+        assertThat(numbers.get(AccountNumberAllocator.BLOCK_SIZE - 1)).isEqualTo("00000199");
+        assertThat(numbers.get(AccountNumberAllocator.BLOCK_SIZE)).isEqualTo("00000200");
+        verify(accountNumberBlockDao, times(2)).save(any(AccountNumberBlock.class));
+        assertThat(meterRegistry.get("account.numbers.blocks").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    public void skipsNumbersThatAccountsAlreadyHold() {
+        // given - two numbers in the first block were given out before blocks were reserved
+        reserveBlocksFrom(1);
+        given(accountDao.findAccountNumbersBetween("00000100", "00000199")).willReturn(List.of("00000100", "00000102"));
+        final AccountNumberAllocator sut = allocator(CheckDigits.NONE);
+
+        // when
+        final List<String> numbers = new ArrayList<>();
+        for (int i = 0; i < AccountNumberAllocator.BLOCK_SIZE; i++) {
+            numbers.add(sut.nextAccountNumber());
+        }
+
+        // then - the block runs two short, and the next one makes up the difference
+        assertThat(numbers).doesNotContain("00000100", "00000102");
+        assertThat(numbers.subList(0, 3)).containsExactly("00000101", "00000103", "00000104");
+        assertThat(numbers.get(AccountNumberAllocator.BLOCK_SIZE - 1)).isEqualTo("00000201");
+        verify(accountDao, times(1)).findAccountNumbersBetween("00000200", "00000299");
+    }
+
+    @Test
+    public void checkDigitsAcceptTheVocaLinkWorkedExamples() {
+        // when & then
+        assertThat(CheckDigits.MOD11.accepts("88837491")).isTrue();
+        assertThat(CheckDigits.MOD11.accepts("88837492")).isFalse();
+        assertThat(CheckDigits.MOD10.accepts("66374958")).isTrue();
+        assertThat(CheckDigits.MOD10.accepts("66374959")).isFalse();
+    }
+
+    @Test
+    public void everyNumberPassesTheModulusCheckAndSerialsWithoutACheckDigitAreSkipped() {
+        // given
+        reserveBlocksFrom(1);
+        final AccountNumberAllocator sut = allocator(CheckDigits.MOD11);
+
+        // when
+        final List<String> numbers = new ArrayList<>();
+        for (int i = 0; i < AccountNumberAllocator.BLOCK_SIZE; i++) {
+            numbers.add(sut.nextAccountNumber());
+        }
+
+        // then - one serial in eleven has no check digit, so a block doesn't stretch to a hundred
+        assertThat(numbers).doesNotHaveDuplicates().allMatch(CheckDigits.MOD11::accepts);
+        assertThat(numbers.get(0)).startsWith("0000100");
+        verify(accountNumberBlockDao, times(2)).save(any(AccountNumberBlock.class));
+        // a block's serials are the first seven digits, so it covers ten times as many numbers
+        verify(accountDao, times(1)).findAccountNumbersBetween("00001000", "00001999");
+    }
+
+    @Test
+    public void refusesToHandOutNumbersPastTheLastBlock() {
+        // given - the first block past the seven-digit serials
+        reserveBlocksFrom(10_000_000L / AccountNumberAllocator.BLOCK_SIZE);
+        final AccountNumberAllocator sut = allocator(CheckDigits.MOD10);
+
+        // when & then
+        assertThatThrownBy(sut::nextAccountNumber).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void threadsNeverShareANumber() throws Exception {
+        // given
+        reserveBlocksFrom(1);
+        final AccountNumberAllocator sut = allocator(CheckDigits.MOD10);
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final List<Callable<List<String>>> tasks = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            tasks.add(() -> {
+                List<String> numbers = new ArrayList<>();
+                for (int i = 0; i < 5_000; i++) {
+                    numbers.add(sut.nextAccountNumber());
+                }
+                return numbers;
+            });
+        }
+
+        // when
+        final Set<String> seen = new HashSet<>();
+        try {
+            for (Future<List<String>> result : executor.invokeAll(tasks)) {
+                seen.addAll(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // then
+        assertThat(seen).hasSize(8 * 5_000).allMatch(CheckDigits.MOD10::accepts);
+    }
+
+    @Test
+    public void rejectsASortCodeInTheWrongFormat() {
+        // when & then
+        assertThatThrownBy(() -> new AccountNumberAllocator(accountNumberBlockDao, accountDao, transactionManager, "101010",
+            CheckDigits.NONE, meterRegistry))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private AccountNumberAllocator allocator(CheckDigits checkDigits) {
+        return new AccountNumberAllocator(accountNumberBlockDao, accountDao, transactionManager, "10-10-10", checkDigits,
+            meterRegistry);
+    }
+
+    // hands out block ids like the identity column would
+    private void reserveBlocksFrom(long first) {
+        blocks.set(first);
+        given(accountNumberBlockDao.save(any(AccountNumberBlock.class))).willAnswer(invocation -> {
+            AccountNumberBlock block = invocation.getArgument(0);
+            block.setId(blocks.getAndIncrement());
+            return block;
+        });
+    }
+}
@@ -0,0 +1,202 @@
+package com.barclays.api.services;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.BDDMockito.given;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.barclays.api.dao.AccountDao;
+import com.barclays.api.dao.AccountOwner;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+public class AccountOwnerIndexUnitTest {
+
+    @Mock
+    private AccountDao accountDao;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private AccountOwnerIndex sut;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        sut = new AccountOwnerIndex(accountDao, transactionManager, meterRegistry);
+    }
+
+    @Test
+    public void ownerOfAnswersForAccountsThatWerePutAndUnknownOtherwise() {
+        // given
+        sut.put(1L, 7L);
+        sut.put(2L, 8L);
+        sut.put(1L, 7L);
+
+        // when & then
+        assertThat(sut.ownerOf(1L)).isEqualTo(7L);
+        assertThat(sut.ownerOf(2L)).isEqualTo(8L);
+        assertThat(sut.ownerOf(3L)).isEqualTo(AccountOwnerIndex.UNKNOWN);
+        assertThat(sut.size()).isEqualTo(2);
+        assertThat(meterRegistry.get("account.owners.requests").tag("result", "hit").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("account.owners.requests").tag("result", "miss").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void growingKeepsEveryAccount() {
+        // when
+        for (long id = 1; id <= 100_000; id++) {
+            sut.put(id, id * 31);
+        }
+
+        // then
+        assertThat(sut.size()).isEqualTo(100_000);
+        for (long id = 1; id <= 100_000; id++) {
+            assertThat(sut.ownerOf(id)).isEqualTo(id * 31);
+        }
+        assertThat(sut.ownerOf(100_001L)).isEqualTo(AccountOwnerIndex.UNKNOWN);
+        // 2^18 slots, the smallest power of two that's no more than three quarters full
+        assertThat(sut.footprintBytes()).isEqualTo(262_144L * 2 * Long.BYTES);
+    }
+
+    @Test
+    public void putInsideATransactionOnlyAddsTheAccountOnceItCommits() {
+        // given
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            sut.put(1L, 7L);
+            assertThat(sut.ownerOf(1L)).isEqualTo(AccountOwnerIndex.UNKNOWN);
+
+            // when
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCommit();
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // then
+        assertThat(sut.ownerOf(1L)).isEqualTo(7L);
+    }
+
+    @Test
+    public void loadAddsEveryAccountInTheTable() {
+        // given
+        given(accountDao.count()).willReturn(3L);
+        given(accountDao.streamAllOwners()).willReturn(Arrays.asList(owner(1L, 7L), owner(2L, 7L), owner(5L, 9L)).stream());
+
+        // when
+        sut.load();
+
+        // then
+        assertThat(sut.size()).isEqualTo(3);
+        assertThat(sut.ownerOf(1L)).isEqualTo(7L);
+        assertThat(sut.ownerOf(2L)).isEqualTo(7L);
+        assertThat(sut.ownerOf(5L)).isEqualTo(9L);
+    }
+
+    @Test
+    public void readersNeverSeeAnAccountWithoutItsOwner() throws Exception {
+        // given
+        final int accounts = 200_000;
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicInteger wrong = new AtomicInteger();
+        final Thread[] readers = new Thread[4];
+        for (int r = 0; r < readers.length; r++) {
+            readers[r] = new Thread(() -> {
+                while (!done.get()) {
+                    for (long id = 1; id <= accounts; id += 97) {
+                        long owner = sut.ownerOf(id);
+                        if (owner != AccountOwnerIndex.UNKNOWN && owner != id + 1) {
+                            wrong.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            readers[r].start();
+        }
+
+        // when - the table grows several times while it's read
+        for (long id = 1; id <= accounts; id++) {
+            sut.put(id, id + 1);
+        }
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        // then
+        assertThat(wrong).hasValue(0);
+        assertThat(sut.size()).isEqualTo(accounts);
+    }
+
+    @Test
+    public void rejectsZeroIds() {
+        // when & then
+        assertThatThrownBy(() -> sut.put(0L, 7L)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> sut.put(1L, 0L)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * The memory figure quoted in {@link AccountOwnerIndex}: 10M accounts
+     * fit in 2^24 slots of two longs, 256 MiB or about 27 bytes an account.
+     * Measured as the heap in use after a full GC, before and after.
+     */
+    @Test
+    public void tenMillionAccountsTakeAQuarterOfAGibibyte() {
+        // given
+        final int accounts = 10_000_000;
+        final long before = usedHeap();
+
+        // when
+        final AccountOwnerIndex index = new AccountOwnerIndex(accountDao, transactionManager, new SimpleMeterRegistry());
+        index.reserve(accounts);
+        for (long id = 1; id <= accounts; id++) {
+            index.put(id, id % 100_000 + 1);
+        }
+        final long used = usedHeap() - before;
+
+        // then
+        assertThat(index.size()).isEqualTo(accounts);
+        assertThat(index.footprintBytes()).isEqualTo(256L << 20);
+        assertThat(used).isBetween(index.footprintBytes() - (16 << 20), index.footprintBytes() + (64 << 20));
+        for (long id = 1; id <= accounts; id += 9_973) {
+            assertThat(index.ownerOf(id)).isEqualTo(id % 100_000 + 1);
+        }
+    }
+
+    private static long usedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static AccountOwner owner(Long accountId, Long userId) {
+        return new AccountOwner() {
+            @Override
+            public Long getId() {
+                return accountId;
+            }
+
+            @Override
+            public Long getUserId() {
+                return userId;
+            }
+        };
+    }
+}
@@ -2,14 +2,18 @@ package com.barclays.api.services;
 
 import java.math.BigDecimal;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import org.mockito.Mock;
@@ -17,15 +21,25 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import com.barclays.api.dao.AccountBalance;
 import com.barclays.api.dao.AccountDao;
+import com.barclays.api.dao.AccountNumberBlockDao;
+import com.barclays.api.dao.AccountOwner;
+import com.barclays.api.dao.BalanceSlotDao;
 import com.barclays.api.domain.Account;
+import com.barclays.api.domain.AccountNumberBlock;
 import com.barclays.api.domain.Address;
+import com.barclays.api.domain.BalanceSlot;
 import com.barclays.api.domain.User;
 import com.barclays.api.domain.enums.AccountType;
 import com.barclays.api.domain.enums.Currency;
+import com.barclays.api.domain.view.AccountView;
 import com.barclays.api.exceptions.ResourceNotFoundException;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 @ExtendWith(MockitoExtension.class)
 public class AccountServiceUnitTest {
 
@@ -34,9 +48,23 @@ public class AccountServiceUnitTest {
     @Mock
     private AccountDao accountDao;
 
+    @Mock
+    private BalanceSlotDao balanceSlotDao;
+
+    @Mock
+    private AccountNumberBlockDao accountNumberBlockDao;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private AccountOwnerIndex accountOwnerIndex;
+
     @BeforeEach
     public void setup() {
-        sut = new AccountService(accountDao);
+        accountOwnerIndex = new AccountOwnerIndex(accountDao, transactionManager, new SimpleMeterRegistry());
+        sut = new AccountService(accountDao, balanceSlotDao, new AccountCache(100, 60_000, new SimpleMeterRegistry()),
+            accountOwnerIndex, new AccountNumberAllocator(accountNumberBlockDao, accountDao, transactionManager, "10-10-10",
+            AccountNumberAllocator.CheckDigits.NONE, new SimpleMeterRegistry()));
     }
 
     @Test
@@ -51,12 +79,18 @@ public class AccountServiceUnitTest {
 
     @Test
     public void getNewAccountNumberReturnsValidFormat() {
+        // given
+        final AccountNumberBlock block = new AccountNumberBlock();
+        block.setId(12L);
+        given(accountNumberBlockDao.save(any(AccountNumberBlock.class))).willReturn(block);
+
         // when
         String accountNumber = sut.getNewAccountNumber();
 
         // then
         assertThat(accountNumber).isNotNull();
         assertThat(accountNumber).matches("\\d{8}");
+        assertThat(accountNumber).isEqualTo("00001200");
     }
 
     @Test
@@ -108,11 +142,146 @@ public class AccountServiceUnitTest {
         assertThat(result).isNotNull();
         assertThat(result).isSameAs(savedAccount);
         assertThat(result.getId()).isEqualTo(1L);
+        assertThat(accountOwnerIndex.ownerOf(1L)).isEqualTo(1L);
 
         verify(accountDao, times(1)).save(eq(newAccount));
         verifyNoMoreInteractions(accountDao);
     }
 
+    @Test
+    public void createAccountWithBalanceSlotsCreatesEverySlot() {
+        // test fixtures
+        final Account account = Account.Builder.create()
+                .withName("Payroll")
+                .withAccountType(AccountType.PERSONAL)
+                .withCurrency(Currency.GBP)
+                .withBalanceSlots(4)
+                .withUser(User.Builder.create().withEmail("test@example.com").build())
+                .build();
+        account.setId(7L);
+        account.getUser().setId(1L);
+
+        // given
+        given(accountDao.save(account)).willReturn(account);
+
+        // when
+        sut.createAccount(account);
+
+        // then
+        verify(balanceSlotDao).saveAll(argThat((Iterable<BalanceSlot> slots) -> {
+            int expected = 0;
+            for (BalanceSlot slot : slots) {
+                if (slot.getAccount() != account || slot.getSlot() != expected++
+                        || slot.getBalance().signum() != 0) {
+                    return false;
+                }
+            }
+            return expected == 4;
+        }));
+    }
+
+    @Test
+    public void includeBalanceSlotsAddsTheSlotsOfStripedAccountsOnly() {
+        // test fixtures
+        final Account plain = Account.Builder.create()
+                .withName("Plain")
+                .withBalance(new BigDecimal("10.00"))
+                .build();
+        plain.setId(1L);
+        final Account striped = Account.Builder.create()
+                .withName("Striped")
+                .withBalance(new BigDecimal("10.00"))
+                .withBalanceSlots(4)
+                .build();
+        striped.setId(2L);
+
+        final AccountBalance total = new AccountBalance() {
+            @Override
+            public Long getId() {
+                return 2L;
+            }
+
+            @Override
+            public BigDecimal getBalance() {
+                return new BigDecimal("75.00");
+            }
+
+            @Override
+            public Currency getCurrency() {
+                return Currency.GBP;
+            }
+        };
+
+        // given
+        given(balanceSlotDao.findTotalBalances(argThat(ids -> ids.size() == 1 && ids.contains(2L))))
+                .willReturn(Arrays.asList(total));
+
+        // when
+        sut.includeBalanceSlots(Arrays.asList(plain, striped));
+
+        // then
+        assertThat(plain.getBalance()).isEqualByComparingTo("10.00");
+        assertThat(striped.getBalance()).isEqualByComparingTo("75.00");
+        verifyNoMoreInteractions(accountDao);
+    }
+
+    @Test
+    public void getAccountViewsTotalsTheBalancesOfStripedAccountsOnly() {
+        // test fixtures
+        final AccountView plain = new AccountView(1L, "01234567", "10-10-10", "Plain", AccountType.PERSONAL,
+                new BigDecimal("10.00"), Currency.GBP, null, null, null);
+        final AccountView striped = new AccountView(2L, "01234568", "10-10-10", "Striped", AccountType.PERSONAL,
+                new BigDecimal("10.00"), Currency.GBP, 4, null, null);
+
+        final AccountBalance total = new AccountBalance() {
+            @Override
+            public Long getId() {
+                return 2L;
+            }
+
+            @Override
+            public BigDecimal getBalance() {
+                return new BigDecimal("75.00");
+            }
+
+            @Override
+            public Currency getCurrency() {
+                return Currency.GBP;
+            }
+        };
+
+        // given
+        given(accountDao.findViewsByUserEmail("test@example.com")).willReturn(Arrays.asList(plain, striped));
+        given(balanceSlotDao.findTotalBalances(argThat(ids -> ids.size() == 1 && ids.contains(2L))))
+                .willReturn(Arrays.asList(total));
+
+        // when
+        final List<AccountView> result = sut.getAccountViews("test@example.com");
+
+        // then
+        assertThat(result).extracting(AccountView::getId).containsExactly(1L, 2L);
+        assertThat(result.get(0)).isSameAs(plain);
+        assertThat(result.get(1).getBalance()).isEqualByComparingTo("75.00");
+        assertThat(result.get(1).getName()).isEqualTo("Striped");
+    }
+
+    @Test
+    public void getAccountViewsSkipsTheSlotQueryWhenNoAccountIsStriped() {
+        // test fixtures
+        final AccountView plain = new AccountView(1L, "01234567", "10-10-10", "Plain", AccountType.PERSONAL,
+                new BigDecimal("10.00"), Currency.GBP, null, null, null);
+
+        // given
+        given(accountDao.findViewsByUserEmail("test@example.com")).willReturn(Arrays.asList(plain));
+
+        // when
+        final List<AccountView> result = sut.getAccountViews("test@example.com");
+
+        // then
+        assertThat(result).containsExactly(plain);
+        verifyNoMoreInteractions(balanceSlotDao);
+    }
+
     @Test
     public void getAccountsSuccessfullyReturnsAccountsForUser() {
         // test fixtures
@@ -204,17 +373,45 @@ public class AccountServiceUnitTest {
         account.setId(accountId);
 
         // given
-        given(accountDao.findById(eq(accountId))).willReturn(Optional.of(account));
+        given(accountDao.findWithUserById(eq(accountId))).willReturn(Optional.of(account));
 
         // when
         Account result = sut.getById(accountId);
 
         // then
         assertThat(result).isNotNull();
-        assertThat(result).isSameAs(account);
+        assertThat(result).isNotSameAs(account).usingRecursiveComparison().isEqualTo(account);
         assertThat(result.getId()).isEqualTo(accountId);
 
-        verify(accountDao, times(1)).findById(eq(accountId));
+        verify(accountDao, times(1)).findWithUserById(eq(accountId));
+        verifyNoMoreInteractions(accountDao);
+    }
+
+    @Test
+    public void getByIdReadsAnAccountOnceUntilItsBalanceIsUpdated() {
+        // test fixtures
+        final Account account = Account.Builder.create()
+                .withName("Test Account")
+                .withBalance(new BigDecimal("100.00"))
+                .build();
+        account.setId(1L);
+
+        // given
+        given(accountDao.findWithUserById(eq(1L))).willReturn(Optional.of(account));
+
+        // when
+        final Account first = sut.getById(1L);
+        first.setBalance(new BigDecimal("150.00"));
+        final Account second = sut.getById(1L);
+        sut.updateBalance(first);
+        final Account third = sut.getById(1L);
+
+        // then - the change made to the first copy never reached the second
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getBalance()).isEqualByComparingTo("100.00");
+        verify(accountDao, times(1)).updateBalance(1L, new BigDecimal("150.00"));
+        verify(accountDao, times(2)).findWithUserById(eq(1L));
+        assertThat(third).isNotSameAs(second);
         verifyNoMoreInteractions(accountDao);
     }
 
@@ -224,7 +421,7 @@ public class AccountServiceUnitTest {
         final Long accountId = 999L;
 
         // given
-        given(accountDao.findById(eq(accountId))).willReturn(Optional.empty());
+        given(accountDao.findWithUserById(eq(accountId))).willReturn(Optional.empty());
 
         // when
         try {
@@ -240,8 +437,72 @@ public class AccountServiceUnitTest {
             assertThat(resourceNotFoundException.getMessage())
                     .contains("Account with ID " + accountId + " not found.");
 
-            verify(accountDao, times(1)).findById(eq(accountId));
+            verify(accountDao, times(1)).findWithUserById(eq(accountId));
             verifyNoMoreInteractions(accountDao);
         }
     }
+
+    @Test
+    public void getOwnerIdReadsAnUnknownAccountOnceAndThenAnswersFromTheIndex() {
+        // given
+        given(accountDao.findOwnerIdById(eq(1L))).willReturn(7L);
+
+        // when
+        final long first = sut.getOwnerId(1L);
+        final long second = sut.getOwnerId(1L);
+
+        // then
+        assertThat(first).isEqualTo(7L);
+        assertThat(second).isEqualTo(7L);
+        verify(accountDao, times(1)).findOwnerIdById(eq(1L));
+        verifyNoMoreInteractions(accountDao);
+    }
+
+    @Test
+    public void getOwnerIdThrowsResourceNotFoundExceptionWhenAccountNotFound() {
+        // given
+        given(accountDao.findOwnerIdById(eq(999L))).willReturn(null);
+
+        // when & then
+        assertThatThrownBy(() -> sut.getOwnerId(999L))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessage("Account with ID 999 not found.");
+        assertThat(accountOwnerIndex.size()).isZero();
+    }
+
+    @Test
+    public void findOwnedAccountIdsQueriesOnlyTheAccountsTheIndexDoesNotKnow() {
+        // test fixtures
+        accountOwnerIndex.put(1L, 7L);
+        accountOwnerIndex.put(2L, 8L);
+
+        // given
+        given(accountDao.findOwnersByIds(eq(Arrays.asList(3L, 4L, 5L))))
+                .willReturn(Arrays.asList(owner(3L, 7L), owner(4L, 8L)));
+
+        // when
+        final Set<Long> owned = sut.findOwnedAccountIds(Arrays.asList(1L, 2L, 3L, 4L, 5L), 7L);
+
+        // then
+        assertThat(owned).containsExactlyInAnyOrder(1L, 3L);
+        assertThat(accountOwnerIndex.ownerOf(4L)).isEqualTo(8L);
+        assertThat(sut.findOwnedAccountIds(Arrays.asList(1L, 2L, 3L, 4L), 8L)).containsExactlyInAnyOrder(2L, 4L);
+        assertThat(sut.findOwnedAccountIds(Collections.emptyList(), 8L)).isEmpty();
+        verify(accountDao, times(1)).findOwnersByIds(any());
+        verifyNoMoreInteractions(accountDao);
+    }
+
+    private static AccountOwner owner(Long accountId, Long userId) {
+        return new AccountOwner() {
+            @Override
+            public Long getId() {
+                return accountId;
+            }
+
+            @Override
+            public Long getUserId() {
+                return userId;
+            }
+        };
+    }
 }
@@ -0,0 +1,206 @@
+package com.barclays.api.services;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.BDDMockito.given;
+import org.mockito.Mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.barclays.api.dao.AccountDao;
+import com.barclays.api.dao.BalanceSlotDao;
+import com.barclays.api.dao.DailyBalanceDao;
+import com.barclays.api.dao.TransactionDao;
+import com.barclays.api.dao.TransactionTotal;
+import com.barclays.api.domain.Account;
+import com.barclays.api.domain.BalanceSlot;
+import com.barclays.api.domain.DailyBalance;
+import com.barclays.api.domain.enums.TransactionType;
+import com.barclays.api.exceptions.ResourceNotFoundException;
+
+@ExtendWith(MockitoExtension.class)
+public class BalanceHistoryServiceUnitTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 5, 1);
+
+    private BalanceHistoryService sut;
+
+    @Mock
+    private AccountDao accountDao;
+
+    @Mock
+    private BalanceSlotDao balanceSlotDao;
+
+    @Mock
+    private TransactionDao transactionDao;
+
+    @Mock
+    private DailyBalanceDao dailyBalanceDao;
+
+    private Account account;
+
+    @BeforeEach
+    public void setup() {
+        sut = new BalanceHistoryService(accountDao, balanceSlotDao, transactionDao, dailyBalanceDao);
+
+        account = new Account();
+        account.setId(1L);
+        account.setBalance(new BigDecimal("500.00"));
+    }
+
+    @Test
+    public void getBalanceAsOfWorksForwardFromTheLastClosingBalanceBefore() {
+        // given - closed 28 April at 100, since then +50 -20
+        final LocalDateTime asOf = DAY.atTime(15, 30);
+        given(dailyBalanceDao.findFirstByAccountIdAndBalanceDateLessThanOrderByBalanceDateDesc(1L, DAY))
+                .willReturn(Optional.of(new DailyBalance(account, DAY.minusDays(3), new BigDecimal("100.00"))));
+        given(transactionDao.findTotalsCreatedBetween(1L, DAY.minusDays(2).atStartOfDay(), asOf))
+                .willReturn(totals("50.00", "20.00"));
+
+        // when
+        final BigDecimal balance = sut.getBalanceAsOf(1L, asOf);
+
+        // then
+        assertThat(balance).isEqualByComparingTo(new BigDecimal("130.00"));
+        verify(accountDao, never()).findAllByIdForUpdate(any());
+    }
+
+    @Test
+    public void getBalanceAsOfWorksBackFromTheFirstClosingBalanceAfterWhenThereIsNoneBefore() {
+        // given - closed 1 May at 100, of which +40 -10 came after asOf
+        final LocalDateTime asOf = DAY.atTime(15, 30);
+        given(dailyBalanceDao.findFirstByAccountIdAndBalanceDateLessThanOrderByBalanceDateDesc(1L, DAY))
+                .willReturn(Optional.empty());
+        given(dailyBalanceDao.findFirstByAccountIdAndBalanceDateGreaterThanEqualOrderByBalanceDateAsc(1L, DAY))
+                .willReturn(Optional.of(new DailyBalance(account, DAY, new BigDecimal("100.00"))));
+        given(transactionDao.findTotalsCreatedBetween(1L, asOf, DAY.plusDays(1).atStartOfDay()))
+                .willReturn(totals("40.00", "10.00"));
+
+        // when
+        final BigDecimal balance = sut.getBalanceAsOf(1L, asOf);
+
+        // then
+        assertThat(balance).isEqualByComparingTo(new BigDecimal("70.00"));
+        verify(accountDao, never()).findAllByIdForUpdate(any());
+    }
+
+    @Test
+    public void getBalanceAsOfWorksBackFromTheCurrentBalanceAndSlotsWithoutClosingBalancesOrLocks() {
+        // given - 500 on the account row and 25 in a slot, +60 -10 since asOf
+        final LocalDateTime asOf = DAY.atTime(15, 30);
+        account.setBalanceSlots(2);
+        final BalanceSlot slot = new BalanceSlot(account, 0);
+        slot.setBalance(new BigDecimal("25.00"));
+        given(dailyBalanceDao.findFirstByAccountIdAndBalanceDateLessThanOrderByBalanceDateDesc(1L, DAY))
+                .willReturn(Optional.empty());
+        given(dailyBalanceDao.findFirstByAccountIdAndBalanceDateGreaterThanEqualOrderByBalanceDateAsc(1L, DAY))
+                .willReturn(Optional.empty());
+        given(accountDao.findById(1L)).willReturn(Optional.of(account));
+        given(balanceSlotDao.findByAccountIdOrderBySlot(1L)).willReturn(Arrays.asList(slot, new BalanceSlot(account, 1)));
+        given(transactionDao.findTotalsCreatedSince(1L, asOf)).willReturn(totals("60.00", "10.00"));
+
+        // when
+        final BigDecimal balance = sut.getBalanceAsOf(1L, asOf);
+
+        // then
+        assertThat(balance).isEqualByComparingTo(new BigDecimal("475.00"));
+        verify(accountDao, never()).findAllByIdForUpdate(any());
+        verify(balanceSlotDao, never()).findByAccountIdForUpdate(any());
+    }
+
+    @Test
+    public void getBalanceAsOfThrowsWhenTheAccountDoesNotExist() {
+        // given
+        given(accountDao.findById(1L)).willReturn(Optional.empty());
+
+        // when & then
+        assertThatThrownBy(() -> sut.getBalanceAsOf(1L, DAY.atStartOfDay()))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessage("Account with ID 1 not found.");
+    }
+
+    @Test
+    public void checkpointCarriesThePreviousClosingBalanceForward() {
+        // given - closed 28 April at 100, +50 -20 by the end of 1 May
+        given(dailyBalanceDao.findFirstByAccountIdAndBalanceDateLessThanOrderByBalanceDateDesc(1L, DAY))
+                .willReturn(Optional.of(new DailyBalance(account, DAY.minusDays(3), new BigDecimal("100.00"))));
+        given(transactionDao.findTotalsCreatedBetween(1L, DAY.minusDays(2).atStartOfDay(),
+                DAY.plusDays(1).atStartOfDay())).willReturn(totals("50.00", "20.00"));
+
+        // when
+        sut.checkpoint(1L, DAY);
+
+        // then
+        verify(dailyBalanceDao).save(argThat(checkpoint -> checkpoint.getAccount() == account
+                && checkpoint.getBalanceDate().equals(DAY)
+                && checkpoint.getClosingBalance().compareTo(new BigDecimal("130.00")) == 0));
+        verify(accountDao, never()).findAllByIdForUpdate(any());
+    }
+
+    @Test
+    public void firstCheckpointIsWorkedBackFromTheLockedCurrentBalance() {
+        // given - 500 now, +80 -30 since 1 May ended
+        given(dailyBalanceDao.findFirstByAccountIdAndBalanceDateLessThanOrderByBalanceDateDesc(1L, DAY))
+                .willReturn(Optional.empty());
+        given(accountDao.findAllByIdForUpdate(List.of(1L))).willReturn(List.of(account));
+        given(transactionDao.findTotalsCreatedSince(1L, DAY.plusDays(1).atStartOfDay()))
+                .willReturn(totals("80.00", "30.00"));
+
+        // when
+        sut.checkpoint(1L, DAY);
+
+        // then
+        verify(dailyBalanceDao).save(argThat(checkpoint -> checkpoint.getBalanceDate().equals(DAY)
+                && checkpoint.getClosingBalance().compareTo(new BigDecimal("450.00")) == 0));
+        verify(balanceSlotDao, never()).findByAccountIdForUpdate(any());
+    }
+
+    @Test
+    public void checkpointDoesNothingWhenTheDayIsAlreadyCheckpointed() {
+        // given
+        given(dailyBalanceDao.existsByAccountIdAndBalanceDate(1L, DAY)).willReturn(true);
+
+        // when
+        sut.checkpoint(1L, DAY);
+
+        // then
+        verify(dailyBalanceDao, never()).save(any());
+        verify(transactionDao, never()).findTotalsCreatedBetween(any(), any(), any());
+    }
+
+    private static List<TransactionTotal> totals(String deposits, String withdrawals) {
+        return Arrays.asList(total(TransactionType.DEPOSIT, deposits), total(TransactionType.WITHDRAWAL, withdrawals));
+    }
+
+    private static TransactionTotal total(TransactionType type, String amount) {
+        return new TransactionTotal() {
+            @Override
+            public TransactionType getType() {
+                return type;
+            }
+
+            @Override
+            public BigDecimal getAmount() {
+                return new BigDecimal(amount);
+            }
+
+            @Override
+            public long getCount() {
+                return 1;
+            }
+        };
+    }
+}
@@ -0,0 +1,124 @@
+package com.barclays.api.services;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.barclays.api.TestData;
+import com.barclays.api.dao.AccountDao;
+import com.barclays.api.dao.DailyBalanceDao;
+import com.barclays.api.dao.TransactionDao;
+import com.barclays.api.dao.UserDao;
+import com.barclays.api.domain.Account;
+import com.barclays.api.domain.DailyBalance;
+import com.barclays.api.domain.User;
+import com.barclays.api.domain.enums.TransactionType;
+
+/**
+ * Closing balances written by the checkpointer and read back by as-of
+ * queries against the real schema. The history is dated well after anything
+ * else in the shared database, so the checkpointer has reached none of it.
+ */
+@SpringBootTest
+public class DailyBalanceCheckpointTest {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2090, 3, 1);
+    private static final LocalDate SECOND_DAY = LocalDate.of(2090, 3, 5);
+
+    @Autowired
+    private DailyBalanceCheckpointer checkpointer;
+
+    @Autowired
+    private BalanceHistoryService sut;
+
+    @Autowired
+    private AccountDao accountDao;
+
+    @Autowired
+    private TransactionDao transactionDao;
+
+    @Autowired
+    private DailyBalanceDao dailyBalanceDao;
+
+    @Autowired
+    private UserDao userDao;
+
+    private final TestData testData = new TestData();
+    private User user;
+
+    @BeforeEach
+    public void setup() {
+        user = userDao.save(TestData.newUser());
+    }
+
+    @Test
+    public void checkpointsActiveAccountsAndAnswersAsOfQueriesFromThem() {
+        // given - opened with 1000.00: +100 -30 on the first day, +5 at midnight and +50 on the second
+        final Account active = newAccount(new BigDecimal("1125.00"));
+        final Account quiet = newAccount(new BigDecimal("40.00"));
+        insert(active, TransactionType.DEPOSIT, "100.00", FIRST_DAY.atTime(9, 0));
+        insert(active, TransactionType.WITHDRAWAL, "30.00", FIRST_DAY.atTime(18, 0));
+        insert(active, TransactionType.DEPOSIT, "5.00", SECOND_DAY.atStartOfDay());
+        insert(active, TransactionType.DEPOSIT, "50.00", SECOND_DAY.atTime(12, 0));
+
+        // when
+        checkpointer.checkpointDaysEndedBy(SECOND_DAY.plusDays(5).atStartOfDay());
+        checkpointer.checkpointDaysEndedBy(SECOND_DAY.plusDays(5).atStartOfDay());
+
+        // then - one closing balance per active day, none for the quiet account
+        final DailyBalance first = dailyBalanceDao
+                .findFirstByAccountIdAndBalanceDateGreaterThanEqualOrderByBalanceDateAsc(active.getId(), FIRST_DAY).get();
+        final DailyBalance second = dailyBalanceDao
+                .findFirstByAccountIdAndBalanceDateGreaterThanEqualOrderByBalanceDateAsc(active.getId(),
+                        FIRST_DAY.plusDays(1)).get();
+        assertThat(first.getBalanceDate()).isEqualTo(FIRST_DAY);
+        assertThat(first.getClosingBalance()).isEqualByComparingTo(new BigDecimal("1070.00"));
+        assertThat(second.getBalanceDate()).isEqualTo(SECOND_DAY);
+        assertThat(second.getClosingBalance()).isEqualByComparingTo(new BigDecimal("1125.00"));
+        assertThat(dailyBalanceDao.findFirstByAccountIdAndBalanceDateGreaterThanEqualOrderByBalanceDateAsc(
+                quiet.getId(), LocalDate.EPOCH)).isEmpty();
+
+        // and
+        assertThat(sut.getBalanceAsOf(active.getId(), FIRST_DAY.minusMonths(1).atStartOfDay()))
+                .isEqualByComparingTo(new BigDecimal("1000.00"));
+        assertThat(sut.getBalanceAsOf(active.getId(), FIRST_DAY.atTime(12, 0)))
+                .isEqualByComparingTo(new BigDecimal("1100.00"));
+        assertThat(sut.getBalanceAsOf(active.getId(), SECOND_DAY.atStartOfDay()))
+                .isEqualByComparingTo(new BigDecimal("1070.00"));
+        assertThat(sut.getBalanceAsOf(active.getId(), SECOND_DAY.atTime(0, 0, 1)))
+                .isEqualByComparingTo(new BigDecimal("1075.00"));
+        assertThat(sut.getBalanceAsOf(active.getId(), SECOND_DAY.plusDays(2).atStartOfDay()))
+                .isEqualByComparingTo(new BigDecimal("1125.00"));
+    }
+
+    @Test
+    public void answersAsOfQueriesForAnAccountWithNoClosingBalancesYet() {
+        // given - opened with 200.00 today: +20 this morning, -15 this afternoon
+        final LocalDate today = LocalDate.now();
+        final Account account = newAccount(new BigDecimal("205.00"));
+        insert(account, TransactionType.DEPOSIT, "20.00", today.atTime(9, 0));
+        insert(account, TransactionType.WITHDRAWAL, "15.00", today.atTime(15, 0));
+
+        // when & then
+        assertThat(sut.getBalanceAsOf(account.getId(), today.atStartOfDay()))
+                .isEqualByComparingTo(new BigDecimal("200.00"));
+        assertThat(sut.getBalanceAsOf(account.getId(), today.atTime(12, 0)))
+                .isEqualByComparingTo(new BigDecimal("220.00"));
+        assertThat(sut.getBalanceAsOf(account.getId(), today.plusDays(1).atStartOfDay()))
+                .isEqualByComparingTo(new BigDecimal("205.00"));
+    }
+
+    private Account newAccount(BigDecimal balance) {
+        return accountDao.save(TestData.newAccount(user, balance).build());
+    }
+
+    private void insert(Account account, TransactionType type, String amount, LocalDateTime createdTimestamp) {
+        transactionDao.insert(testData.posting(account, type, amount, createdTimestamp));
+    }
+}
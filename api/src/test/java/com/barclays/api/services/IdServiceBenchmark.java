@@ -0,0 +1,46 @@
+package com.barclays.api.services;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Transaction ids from one {@link IdService} shared by every benchmark
+ * thread, as the API's request threads share it: the bare {@code long} and
+ * its {@code tan-} text. Compare {@code -t 1} with the default of four
+ * threads to see what contention on the compare-and-set costs:
+ *
+ * <pre>
+ * mvn -Pbenchmarks test -DskipTests -Djmh.args="IdServiceBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class IdServiceBenchmark {
+
+    private final IdService idService = new IdService(1);
+
+    @Benchmark
+    public long nextId() {
+        return idService.nextId();
+    }
+
+    @Benchmark
+    public String generateId() {
+        return idService.generateId("tan");
+    }
+}
@@ -1,6 +1,17 @@
 package com.barclays.api.services;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -9,11 +20,15 @@ import org.mockito.junit.jupiter.MockitoExtension;
 @ExtendWith(MockitoExtension.class)
 public class IdServiceUnitTest {
 
+    private static final long NOW = IdService.EPOCH_MILLIS + 1_000_000L;
+
+    private AtomicLong clock;
     private IdService sut;
 
     @BeforeEach
     public void setup() {
-        sut = new IdService();
+        clock = new AtomicLong(NOW);
+        sut = new IdService(5, clock::get);
     }
 
     @Test
@@ -27,7 +42,7 @@ public class IdServiceUnitTest {
         // then
         assertThat(result).isNotNull();
         assertThat(result).startsWith(prefix + "-");
-        assertThat(result).hasSize(prefix.length() + 2); // prefix + "-" + one character
+        assertThat(result).hasSize(prefix.length() + 14); // prefix + "-" + 13 base32 digits
     }
 
     @Test
@@ -40,63 +55,180 @@ public class IdServiceUnitTest {
             String result = sut.generateId(prefix);
 
             // then
-            assertThat(result).isNotNull();
-            assertThat(result).startsWith(prefix + "-");
-            assertThat(result).matches(prefix + "-[A-Za-z0-9]");
-            assertThat(result).hasSize(prefix.length() + 2);
+            assertThat(result).matches(prefix + "-[0-9A-HJKMNP-TV-Z]{13}");
         }
     }
 
     @Test
-    public void generateIdReturnsUniqueIds() {
-        // given
-        String prefix = "test";
-        
+    public void generateIdWorksWithEmptyPrefix() {
         // when
-        String id1 = sut.generateId(prefix);
-        String id2 = sut.generateId(prefix);
-        String id3 = sut.generateId(prefix);
+        String result = sut.generateId("");
 
         // then
-        assertThat(id1).isNotNull();
-        assertThat(id2).isNotNull();
-        assertThat(id3).isNotNull();
-        
-        // Note: Due to randomness, there's a small chance these could be equal,
-        // but it's very unlikely given the character set size (62 characters)
-        // This test verifies the format is correct for multiple generations
-        assertThat(id1).matches(prefix + "-[A-Za-z0-9]");
-        assertThat(id2).matches(prefix + "-[A-Za-z0-9]");
-        assertThat(id3).matches(prefix + "-[A-Za-z0-9]");
+        assertThat(result).matches("-[0-9A-HJKMNP-TV-Z]{13}");
     }
 
     @Test
-    public void generateIdWorksWithEmptyPrefix() {
+    public void generateIdWorksWithLongPrefix() {
         // given
-        String prefix = "";
+        String prefix = "verylongprefix";
 
         // when
         String result = sut.generateId(prefix);
 
         // then
-        assertThat(result).isNotNull();
-        assertThat(result).startsWith("-");
-        assertThat(result).matches("-[A-Za-z0-9]");
-        assertThat(result).hasSize(2);
+        assertThat(result).matches(prefix + "-[0-9A-HJKMNP-TV-Z]{13}");
     }
 
     @Test
-    public void generateIdWorksWithLongPrefix() {
+    public void idsCarryTheirTimeAndNode() {
+        // when
+        long id = sut.nextId();
+
+        // then
+        assertThat(IdService.millisOf(id)).isEqualTo(NOW);
+        assertThat(IdService.nodeOf(id)).isEqualTo(5);
+    }
+
+    @Test
+    public void idsAndTheirTextGoUpWithinAMillisecondAndAcrossThem() {
         // given
-        String prefix = "verylongprefix";
+        List<String> ids = new ArrayList<>();
+
+        // when - far more than one millisecond's sequence, then a later millisecond
+        for (int i = 0; i < 10_000; i++) {
+            ids.add(sut.generateId("tan"));
+        }
+        clock.addAndGet(60_000);
+        ids.add(sut.generateId("tan"));
 
+        // then
+        assertThat(ids).isSorted().doesNotHaveDuplicates();
+    }
+
+    @Test
+    public void aFullSequenceCarriesIntoTheNextMillisecondWithoutWaiting() {
         // when
-        String result = sut.generateId(prefix);
+        long first = sut.nextId();
+        long last = first;
+        for (int i = 1; i <= 4096; i++) {
+            last = sut.nextId();
+        }
 
         // then
-        assertThat(result).isNotNull();
-        assertThat(result).startsWith(prefix + "-");
-        assertThat(result).matches(prefix + "-[A-Za-z0-9]");
-        assertThat(result).hasSize(prefix.length() + 2);
+        assertThat(IdService.millisOf(first)).isEqualTo(NOW);
+        assertThat(IdService.millisOf(last)).isEqualTo(NOW + 1);
+        assertThat(IdService.nodeOf(last)).isEqualTo(5);
+    }
+
+    @Test
+    public void aClockThatStepsBackDoesNotReuseIds() {
+        // given
+        long before = sut.nextId();
+
+        // when
+        clock.addAndGet(-60_000);
+        long after = sut.nextId();
+
+        // then
+        assertThat(after).isGreaterThan(before);
+        assertThat(IdService.millisOf(after)).isEqualTo(NOW);
+    }
+
+    @Test
+    public void idsAreUniqueAcrossThreads() throws Exception {
+        // given - the real clock, so the threads also race its ticks
+        final IdService shared = new IdService(1);
+        final int threads = 8;
+        final int perThread = 50_000;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final List<Callable<long[]>> tasks = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            tasks.add(() -> {
+                long[] ids = new long[perThread];
+                for (int i = 0; i < perThread; i++) {
+                    ids[i] = shared.nextId();
+                }
+                return ids;
+            });
+        }
+
+        // when
+        final Set<Long> seen = new HashSet<>();
+        try {
+            for (Future<long[]> result : executor.invokeAll(tasks)) {
+                long[] ids = result.get();
+                for (int i = 0; i < ids.length; i++) {
+                    // each thread sees its own ids go up
+                    assertThat(i == 0 || ids[i] > ids[i - 1]).isTrue();
+                    seen.add(ids[i]);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // then
+        assertThat(seen).hasSize(threads * perThread);
+    }
+
+    @Test
+    public void nodesOnTheSameClockNeverHandOutTheSameId() {
+        // given
+        final IdService[] nodes = new IdService[4];
+        for (int n = 0; n < nodes.length; n++) {
+            nodes[n] = new IdService(n, clock::get);
+        }
+
+        // when
+        final Set<String> seen = new HashSet<>();
+        for (int i = 0; i < 20_000; i++) {
+            for (IdService node : nodes) {
+                seen.add(node.generateId("tan"));
+            }
+            if (i % 1000 == 0) {
+                clock.incrementAndGet();
+            }
+        }
+
+        // then
+        assertThat(seen).hasSize(20_000 * nodes.length);
+    }
+
+    @Test
+    public void startsTheRestartGuardAheadOfTheClock() {
+        // given
+        final IdService restarted = new IdService(5, clock::get, 2000, () -> Long.MAX_VALUE);
+
+        // when
+        long first = restarted.nextId();
+        clock.addAndGet(5000);
+        long later = restarted.nextId();
+
+        // then
+        assertThat(IdService.millisOf(first)).isEqualTo(NOW + 2000);
+        assertThat(IdService.millisOf(later)).isEqualTo(NOW + 5000);
+    }
+
+    @Test
+    public void refusesIdsOnceTheNodeIdLeaseHasExpired() {
+        // given
+        final IdService leased = new IdService(5, clock::get, 0, () -> NOW + 1000);
+        leased.nextId();
+
+        // when
+        clock.addAndGet(1000);
+
+        // then
+        assertThatThrownBy(leased::nextId)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("This node's id lease has expired.");
+    }
+
+    @Test
+    public void rejectsANodeIdThatDoesNotFitItsBits() {
+        // when & then
+        assertThatThrownBy(() -> new IdService(-1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new IdService(IdService.MAX_NODE_ID + 1)).isInstanceOf(IllegalArgumentException.class);
     }
 }
@@ -0,0 +1,395 @@
+package com.barclays.api.services;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.barclays.api.TestData;
+import com.barclays.api.dao.AccountDao;
+import com.barclays.api.dao.BalanceSlotDao;
+import com.barclays.api.dao.TransactionDao;
+import com.barclays.api.dao.UserDao;
+import com.barclays.api.domain.Account;
+import com.barclays.api.domain.BalanceSlot;
+import com.barclays.api.domain.Transaction;
+import com.barclays.api.domain.User;
+import com.barclays.api.domain.enums.Currency;
+import com.barclays.api.domain.enums.TransactionType;
+import com.barclays.api.ledger.OptimisticRetryPolicy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@SpringBootTest
+public class LedgerServiceConcurrencyTest {
+
+    private static final int THREADS = 32;
+
+    @Autowired
+    private LedgerService sut;
+
+    @Autowired
+    private AccountDao accountDao;
+
+    @Autowired
+    private TransactionDao transactionDao;
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private BalanceSlotDao balanceSlotDao;
+
+    private ExecutorService executor;
+    private User user;
+
+    @BeforeEach
+    public void setup() {
+        executor = Executors.newFixedThreadPool(THREADS);
+
+        user = userDao.save(TestData.newUser());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentDepositsAndWithdrawalsLoseNoUpdates() throws Exception {
+        // given
+        final Account account = newAccount(new BigDecimal("1000.00"));
+        final List<Callable<Boolean>> postings = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            postings.add(posting(account, TransactionType.DEPOSIT, "10.00"));
+            postings.add(posting(account, TransactionType.WITHDRAWAL, "4.00"));
+        }
+
+        // when
+        final int succeeded = runConcurrently(postings);
+
+        // then - 1000 + 250 * 10 - 250 * 4
+        assertThat(succeeded).isEqualTo(500);
+        assertThat(accountDao.findById(account.getId()).get().getBalance())
+                .isEqualByComparingTo(new BigDecimal("2500.00"));
+        assertThat(transactionDao.findByAccountId(account.getId())).hasSize(500);
+    }
+
+    @Test
+    public void concurrentLockedPostingsLoseNoUpdates() throws Exception {
+        // given
+        final Account account = newAccount(new BigDecimal("1000.00"));
+        final List<Callable<Boolean>> postings = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            postings.add(lockedPosting(account, TransactionType.DEPOSIT, "10.00"));
+            postings.add(lockedPosting(account, TransactionType.WITHDRAWAL, "4.00"));
+        }
+
+        // when
+        final int succeeded = runConcurrently(postings);
+
+        // then - 1000 + 200 * 10 - 200 * 4
+        assertThat(succeeded).isEqualTo(400);
+        assertThat(accountDao.findById(account.getId()).get().getBalance())
+                .isEqualByComparingTo(new BigDecimal("2200.00"));
+    }
+
+    @Test
+    public void concurrentOptimisticPostingsLoseNoUpdates() throws Exception {
+        // given - enough attempts that no posting gives up, even with every thread on one account
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final OptimisticRetryPolicy retryPolicy = new OptimisticRetryPolicy(1000, 1, 5, meterRegistry);
+        final Account account = newAccount(new BigDecimal("1000.00"));
+        final List<Callable<Boolean>> postings = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            postings.add(optimisticPosting(retryPolicy, account, TransactionType.DEPOSIT, "10.00"));
+            postings.add(optimisticPosting(retryPolicy, account, TransactionType.WITHDRAWAL, "4.00"));
+        }
+
+        // when
+        final int succeeded = runConcurrently(postings);
+
+        // then - 1000 + 200 * 10 - 200 * 4
+        assertThat(succeeded).isEqualTo(400);
+        final Account reloaded = accountDao.findById(account.getId()).get();
+        assertThat(reloaded.getBalance()).isEqualByComparingTo(new BigDecimal("2200.00"));
+        assertThat(reloaded.getVersion()).isEqualTo(account.getVersion() + 400);
+        assertThat(transactionDao.findByAccountId(account.getId())).hasSize(400);
+        assertThat(meterRegistry.find("ledger.optimistic.exhausted").counter()).isNull();
+    }
+
+    @Test
+    public void concurrentWithdrawalsNeverOverdrawTheAccount() throws Exception {
+        // given
+        final Account account = newAccount(new BigDecimal("1000.00"));
+        final List<Callable<Boolean>> postings = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            postings.add(posting(account, TransactionType.WITHDRAWAL, "10.00"));
+        }
+
+        // when
+        final int succeeded = runConcurrently(postings);
+
+        // then - exactly 100 withdrawals fit, the rest are refused
+        assertThat(succeeded).isEqualTo(100);
+        assertThat(accountDao.findById(account.getId()).get().getBalance())
+                .isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(transactionDao.findByAccountId(account.getId())).hasSize(100);
+
+        // and each one recorded the balance it left, 990.00 down to 0.00
+        final List<BigDecimal> expectedBalances = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            expectedBalances.add(new BigDecimal(i * 10 + ".00"));
+        }
+        assertThat(transactionDao.findByAccountId(account.getId()))
+                .extracting(Transaction::getBalanceAfter)
+                .containsExactlyInAnyOrderElementsOf(expectedBalances);
+    }
+
+    @Test
+    public void concurrentBatchesAcrossOverlappingAccountsLoseNoUpdates() throws Exception {
+        // given - every batch touches both accounts, in alternating order
+        final Account first = newAccount(new BigDecimal("0.00"));
+        final Account second = newAccount(new BigDecimal("0.00"));
+        final List<Callable<Boolean>> batches = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            final boolean flip = i % 2 == 0;
+            batches.add(() -> {
+                final List<Transaction> batch = new ArrayList<>();
+                for (int j = 0; j < 5; j++) {
+                    batch.add(newTransaction(flip ? first : second, TransactionType.DEPOSIT, "1.00"));
+                    batch.add(newTransaction(flip ? second : first, TransactionType.DEPOSIT, "2.00"));
+                }
+                return sut.postBatch(batch, false).stream().allMatch(rejection -> rejection == null);
+            });
+        }
+
+        // when
+        final int succeeded = runConcurrently(batches);
+
+        // then
+        assertThat(succeeded).isEqualTo(100);
+        assertThat(accountDao.findById(first.getId()).get().getBalance())
+                .isEqualByComparingTo(new BigDecimal("750.00"));
+        assertThat(accountDao.findById(second.getId()).get().getBalance())
+                .isEqualByComparingTo(new BigDecimal("750.00"));
+        assertThat(transactionDao.findByAccountId(first.getId())).hasSize(500);
+    }
+
+    @Test
+    public void concurrentPostingsOnAStripedAccountLoseNoUpdates() throws Exception {
+        // given
+        final Account account = newStripedAccount(new BigDecimal("1000.00"), 8);
+        final List<Callable<Boolean>> postings = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            postings.add(stripedPosting(account, TransactionType.DEPOSIT, "10.00"));
+            postings.add(stripedPosting(account, TransactionType.WITHDRAWAL, "4.00"));
+        }
+
+        // when
+        final int succeeded = runConcurrently(postings);
+
+        // then - 1000 + 200 * 10 - 200 * 4, split between the account row and its slots
+        assertThat(succeeded).isEqualTo(400);
+        assertThat(totalBalance(account)).isEqualByComparingTo(new BigDecimal("2200.00"));
+        assertThat(accountDao.findBalanceById(account.getId()).signum()).isGreaterThanOrEqualTo(0);
+        for (BalanceSlot slot : balanceSlotDao.findAll()) {
+            assertThat(slot.getBalance().signum()).isGreaterThanOrEqualTo(0);
+        }
+        assertThat(transactionDao.findByAccountId(account.getId())).hasSize(400);
+    }
+
+    @Test
+    public void concurrentWithdrawalsNeverOverdrawAStripedAccount() throws Exception {
+        // given - all of the money is in the slots
+        final Account account = newStripedAccount(BigDecimal.ZERO, 8);
+        final List<Callable<Boolean>> deposits = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            deposits.add(stripedPosting(account, TransactionType.DEPOSIT, "10.00"));
+        }
+        runConcurrently(deposits);
+        final List<Callable<Boolean>> withdrawals = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            withdrawals.add(stripedPosting(account, TransactionType.WITHDRAWAL, "10.00"));
+        }
+
+        // when
+        final int succeeded = runConcurrently(withdrawals);
+
+        // then - exactly 100 withdrawals fit, the rest are refused
+        assertThat(succeeded).isEqualTo(100);
+        assertThat(totalBalance(account)).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(transactionDao.findByAccountId(account.getId())).hasSize(200);
+    }
+
+    @Test
+    public void batchesAndTransfersDrawOnTheMoneyInAStripedAccountsSlots() throws Exception {
+        // given - all of the money is in the slots
+        final Account account = newStripedAccount(BigDecimal.ZERO, 4);
+        final Account payee = newAccount(BigDecimal.ZERO);
+        fillSlots(account, 10);
+
+        // when
+        final Transaction batched = newTransaction(account, TransactionType.WITHDRAWAL, "30.00");
+        final List<String> rejections = sut.postBatch(List.of(batched), false);
+        fillSlots(account, 5);
+        final Transaction optimistic = newTransaction(account, TransactionType.WITHDRAWAL, "20.00");
+        final List<String> optimisticRejections = sut.postBatchOptimistic(List.of(optimistic), false);
+        final Transaction debit = newTransaction(account, TransactionType.WITHDRAWAL, "60.00");
+        sut.transfer(debit, newTransaction(payee, TransactionType.DEPOSIT, "60.00"));
+
+        // then - 100 - 30 + 50 - 20 - 60, and the batches recorded the account's total
+        assertThat(rejections).containsExactly((String) null);
+        assertThat(batched.getBalanceAfter()).isEqualByComparingTo(new BigDecimal("70.00"));
+        assertThat(optimisticRejections).containsExactly((String) null);
+        assertThat(optimistic.getBalanceAfter()).isEqualByComparingTo(new BigDecimal("100.00"));
+        assertThat(debit.getBalanceAfter()).isNull();
+        assertThat(totalBalance(account)).isEqualByComparingTo(new BigDecimal("40.00"));
+        assertThat(accountDao.findBalanceById(payee.getId())).isEqualByComparingTo(new BigDecimal("60.00"));
+    }
+
+    @Test
+    public void concurrentBatchesAndTransfersOnAStripedAccountLoseNoUpdates() throws Exception {
+        // given
+        final Account account = newStripedAccount(BigDecimal.ZERO, 8);
+        final Account payee = newAccount(BigDecimal.ZERO);
+        fillSlots(account, 100);
+        final List<Callable<Boolean>> postings = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            postings.add(stripedPosting(account, TransactionType.DEPOSIT, "10.00"));
+            postings.add(stripedPosting(account, TransactionType.DEPOSIT, "10.00"));
+            postings.add(() -> sut.postBatch(List.of(newTransaction(account, TransactionType.WITHDRAWAL, "5.00")),
+                false).get(0) == null);
+            postings.add(() -> {
+                sut.transfer(newTransaction(account, TransactionType.WITHDRAWAL, "5.00"),
+                    newTransaction(payee, TransactionType.DEPOSIT, "5.00"));
+                return true;
+            });
+        }
+
+        // when
+        final int succeeded = runConcurrently(postings);
+
+        // then - 1000 + 100 * 10 - 50 * 5 - 50 * 5
+        assertThat(succeeded).isEqualTo(200);
+        assertThat(totalBalance(account)).isEqualByComparingTo(new BigDecimal("1500.00"));
+        assertThat(accountDao.findBalanceById(payee.getId())).isEqualByComparingTo(new BigDecimal("250.00"));
+    }
+
+    private void fillSlots(Account account, int deposits) throws Exception {
+        for (int i = 0; i < deposits; i++) {
+            assertThat(stripedPosting(account, TransactionType.DEPOSIT, "10.00").call()).isTrue();
+        }
+    }
+
+    private Account newAccount(BigDecimal balance) {
+        return accountDao.save(TestData.newAccount(user, balance).build());
+    }
+
+    private Account newStripedAccount(BigDecimal balance, int slots) {
+        return accountService.createAccount(TestData.newAccount(user, balance)
+                .withBalanceSlots(slots)
+                .build());
+    }
+
+    private BigDecimal totalBalance(Account account) {
+        return balanceSlotDao.findTotalBalances(Collections.singletonList(account.getId())).get(0).getBalance();
+    }
+
+    private Callable<Boolean> posting(Account account, TransactionType type, String amount) {
+        return () -> {
+            try {
+                sut.post(newTransaction(account, type, amount));
+                return true;
+            } catch (IllegalArgumentException ex) {
+                return false;
+            }
+        };
+    }
+
+    private Callable<Boolean> lockedPosting(Account account, TransactionType type, String amount) {
+        return () -> {
+            try {
+                sut.postLocked(newTransaction(account, type, amount));
+                return true;
+            } catch (IllegalArgumentException ex) {
+                return false;
+            }
+        };
+    }
+
+    private Callable<Boolean> stripedPosting(Account account, TransactionType type, String amount) {
+        return () -> {
+            try {
+                sut.postStriped(newTransaction(account, type, amount));
+                return true;
+            } catch (IllegalArgumentException ex) {
+                return false;
+            }
+        };
+    }
+
+    private Callable<Boolean> optimisticPosting(OptimisticRetryPolicy retryPolicy, Account account,
+            TransactionType type, String amount) {
+        return () -> {
+            final Transaction transaction = newTransaction(account, type, amount);
+            try {
+                retryPolicy.execute("test", () -> sut.postOptimistic(transaction));
+                return true;
+            } catch (IllegalArgumentException ex) {
+                return false;
+            }
+        };
+    }
+
+    private Transaction newTransaction(Account account, TransactionType type, String amount) {
+        final String id = UUID.randomUUID().toString();
+        final Transaction transaction = Transaction.Builder.create()
+                .withTransactionId(id)
+                .withAmount(new BigDecimal(amount))
+                .withType(type)
+                .withCurrency(Currency.GBP)
+                .withUser(user)
+                .withAccount(account)
+                .build();
+        transaction.setId(id);
+        return transaction;
+    }
+
+    private int runConcurrently(List<Callable<Boolean>> postings) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<Boolean>> results = new ArrayList<>();
+        for (Callable<Boolean> posting : postings) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return posting.call();
+            }));
+        }
+        start.countDown();
+
+        int succeeded = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get(60, TimeUnit.SECONDS)) {
+                succeeded++;
+            }
+        }
+        return succeeded;
+    }
+}
@@ -0,0 +1,535 @@
+package com.barclays.api.services;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import com.barclays.api.dao.AccountDao;
+import com.barclays.api.dao.BalanceSlotDao;
+import com.barclays.api.dao.JournalCheckpointDao;
+import com.barclays.api.dao.JournalRejectionDao;
+import com.barclays.api.dao.TransactionDao;
+import com.barclays.api.domain.Account;
+import com.barclays.api.domain.BalanceSlot;
+import com.barclays.api.domain.JournalCheckpoint;
+import com.barclays.api.domain.Transaction;
+import com.barclays.api.domain.enums.AccountType;
+import com.barclays.api.domain.enums.Currency;
+import com.barclays.api.domain.enums.TransactionType;
+import com.barclays.api.ledger.AccountLockManager;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+public class LedgerServiceUnitTest {
+
+    private LedgerService sut;
+
+    @Mock
+    private AccountDao accountDao;
+
+    @Mock
+    private TransactionDao transactionDao;
+
+    @Mock
+    private AccountService accountService;
+
+    @Mock
+    private TransactionService transactionService;
+
+    @Mock
+    private JournalCheckpointDao journalCheckpointDao;
+
+    @Mock
+    private JournalRejectionDao journalRejectionDao;
+
+    private AccountLockManager accountLockManager;
+
+    @Mock
+    private BalanceSlotDao balanceSlotDao;
+
+    @Mock
+    private TransactionRollupService transactionRollupService;
+
+    private Account testAccount;
+
+    @BeforeEach
+    public void setup() {
+        accountLockManager = new AccountLockManager(16, new SimpleMeterRegistry());
+        sut = new LedgerService(accountDao, transactionDao, accountService, transactionService, accountLockManager,
+                journalCheckpointDao, journalRejectionDao, balanceSlotDao, transactionRollupService);
+
+        testAccount = Account.Builder.create()
+                .withName("Test Personal Account")
+                .withAccountType(AccountType.PERSONAL)
+                .withBalance(new BigDecimal("1000.00"))
+                .withCurrency(Currency.GBP)
+                .build();
+        testAccount.setId(1L);
+    }
+
+    @Test
+    public void postDepositAppliesPositiveDeltaThenInsertsWithTheBalanceItLeft() {
+        // given
+        Transaction deposit = Transaction.Builder.create()
+                .withTransactionId("tan-deposit1")
+                .withAmount(new BigDecimal("100.00"))
+                .withType(TransactionType.DEPOSIT)
+                .withCurrency(Currency.GBP)
+                .withAccount(testAccount)
+                .build();
+
+        given(accountDao.applyBalanceDelta(eq(1L), eq(new BigDecimal("100.00")))).willReturn(1);
+        given(accountDao.findBalanceById(1L)).willReturn(new BigDecimal("1100.00"));
+
+        // when
+        Transaction result = sut.post(deposit);
+
+        // then
+        assertThat(result).isSameAs(deposit);
+        assertThat(result.getBalanceAfter()).isEqualByComparingTo(new BigDecimal("1100.00"));
+
+        final InOrder verificationOrder = inOrder(accountDao, transactionDao, transactionRollupService);
+        verificationOrder.verify(accountDao, times(1)).applyBalanceDelta(1L, new BigDecimal("100.00"));
+        verificationOrder.verify(accountDao, times(1)).findBalanceById(1L);
+        verificationOrder.verify(transactionDao, times(1)).insert(deposit);
+        verificationOrder.verify(transactionRollupService, times(1)).record(List.of(deposit));
+        verifyNoMoreInteractions(accountDao, transactionDao, transactionRollupService);
+    }
+
+    @Test
+    public void postWithdrawalAppliesNegativeDelta() {
+        // given
+        Transaction withdrawal = Transaction.Builder.create()
+                .withTransactionId("tan-withdrawal1")
+                .withAmount(new BigDecimal("200.00"))
+                .withType(TransactionType.WITHDRAWAL)
+                .withCurrency(Currency.GBP)
+                .withAccount(testAccount)
+                .build();
+
+        given(accountDao.applyBalanceDelta(eq(1L), eq(new BigDecimal("-200.00")))).willReturn(1);
+
+        // when
+        sut.post(withdrawal);
+
+        // then
+        verify(accountDao, times(1)).applyBalanceDelta(1L, new BigDecimal("-200.00"));
+        verify(accountDao, times(1)).findBalanceById(1L);
+        verify(transactionDao, times(1)).insert(withdrawal);
+        verifyNoMoreInteractions(accountDao, transactionDao);
+    }
+
+    @Test
+    public void postWithdrawalThrowsExceptionWhenConditionalUpdateMatchesNoRows() {
+        // given
+        Transaction withdrawal = Transaction.Builder.create()
+                .withTransactionId("tan-withdrawal2")
+                .withAmount(new BigDecimal("1500.00"))
+                .withType(TransactionType.WITHDRAWAL)
+                .withCurrency(Currency.GBP)
+                .withAccount(testAccount)
+                .build();
+
+        given(accountDao.applyBalanceDelta(eq(1L), any(BigDecimal.class))).willReturn(0);
+
+        // when & then
+        assertThatThrownBy(() -> sut.post(withdrawal))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Insufficient funds for withdrawal.");
+
+        verify(transactionDao, never()).insert(any(Transaction.class));
+    }
+
+    @Test
+    public void postLockedRereadsAccountAndUpdatesBalanceWhileHoldingTheLock() {
+        // given
+        final Account staleAccount = Account.Builder.create()
+                .withName("Test Personal Account")
+                .withAccountType(AccountType.PERSONAL)
+                .withBalance(new BigDecimal("5.00"))
+                .withCurrency(Currency.GBP)
+                .build();
+        staleAccount.setId(1L);
+
+        Transaction withdrawal = Transaction.Builder.create()
+                .withTransactionId("tan-withdrawal3")
+                .withAmount(new BigDecimal("200.00"))
+                .withType(TransactionType.WITHDRAWAL)
+                .withCurrency(Currency.GBP)
+                .withAccount(staleAccount)
+                .build();
+
+        given(accountService.getById(eq(1L))).willReturn(testAccount);
+        given(transactionService.createTransaction(any(Transaction.class))).will(invocation -> {
+            assertThat(accountLockManager.isHeldByCurrentThread(1L)).isTrue();
+            return invocation.getArgument(0);
+        });
+
+        // when
+        Transaction result = sut.postLocked(withdrawal);
+
+        // then
+        assertThat(result).isSameAs(withdrawal);
+        assertThat(withdrawal.getAccount()).isSameAs(testAccount);
+        assertThat(accountLockManager.isHeldByCurrentThread(1L)).isFalse();
+
+        final InOrder verificationOrder = inOrder(accountService, transactionService);
+        verificationOrder.verify(accountService, times(1)).getById(1L);
+        verificationOrder.verify(transactionService, times(1)).createTransaction(withdrawal);
+        verificationOrder.verify(accountService, times(1)).updateBalance(testAccount);
+        verifyNoMoreInteractions(accountService, transactionService, accountDao, transactionDao);
+    }
+
+    @Test
+    public void postOptimisticWritesTheBalanceOnlyAtTheVersionItRead() {
+        // given
+        testAccount.setVersion(3L);
+        Transaction withdrawal = Transaction.Builder.create()
+                .withTransactionId("tan-withdrawal1")
+                .withAmount(new BigDecimal("200.00"))
+                .withType(TransactionType.WITHDRAWAL)
+                .withCurrency(Currency.GBP)
+                .withAccount(testAccount)
+                .build();
+
+        given(accountService.getById(1L)).willReturn(testAccount);
+        given(accountDao.updateBalanceIfVersion(eq(1L), eq(new BigDecimal("800.00")), eq(3L))).willReturn(1);
+
+        // when
+        sut.postOptimistic(withdrawal);
+
+        // then
+        assertThat(withdrawal.getBalanceAfter()).isEqualByComparingTo(new BigDecimal("800.00"));
+        final InOrder verificationOrder = inOrder(accountDao, transactionDao);
+        verificationOrder.verify(accountDao, times(1)).updateBalanceIfVersion(1L, new BigDecimal("800.00"), 3L);
+        verificationOrder.verify(transactionDao, times(1)).insert(withdrawal);
+        verifyNoMoreInteractions(accountDao, transactionDao);
+    }
+
+    @Test
+    public void postOptimisticThrowsWhenAnotherWriterMovedTheVersion() {
+        // given
+        testAccount.setVersion(3L);
+        Transaction deposit = Transaction.Builder.create()
+                .withTransactionId("tan-deposit1")
+                .withAmount(new BigDecimal("100.00"))
+                .withType(TransactionType.DEPOSIT)
+                .withCurrency(Currency.GBP)
+                .withAccount(testAccount)
+                .build();
+
+        given(accountService.getById(1L)).willReturn(testAccount);
+        given(accountDao.updateBalanceIfVersion(eq(1L), any(), eq(3L))).willReturn(0);
+
+        // when/then
+        assertThatThrownBy(() -> sut.postOptimistic(deposit))
+                .isInstanceOf(ObjectOptimisticLockingFailureException.class);
+        verify(transactionDao, never()).insert(any(Transaction.class));
+    }
+
+    @Test
+    public void postOptimisticRefusesOverdraftsWithoutWriting() {
+        // given
+        Transaction withdrawal = Transaction.Builder.create()
+                .withTransactionId("tan-withdrawal1")
+                .withAmount(new BigDecimal("1000.01"))
+                .withType(TransactionType.WITHDRAWAL)
+                .withCurrency(Currency.GBP)
+                .withAccount(testAccount)
+                .build();
+
+        given(accountService.getById(1L)).willReturn(testAccount);
+
+        // when/then
+        assertThatThrownBy(() -> sut.postOptimistic(withdrawal))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Insufficient funds for withdrawal.");
+        verifyNoMoreInteractions(accountDao, transactionDao);
+    }
+
+    @Test
+    public void postStripedDepositAddsToOneSlotWithoutTouchingTheAccountRow() {
+        // given
+        testAccount.setBalanceSlots(8);
+        Transaction deposit = stripedPosting(TransactionType.DEPOSIT, "40.00");
+
+        given(balanceSlotDao.addToSlot(eq(1L), anyInt(), eq(new BigDecimal("40.00")))).willReturn(1);
+
+        // when
+        sut.postStriped(deposit);
+
+        // then
+        final ArgumentCaptor<Integer> slot = ArgumentCaptor.forClass(Integer.class);
+        verify(balanceSlotDao).addToSlot(eq(1L), slot.capture(), eq(new BigDecimal("40.00")));
+        assertThat(slot.getValue()).isBetween(0, 7);
+        verify(transactionDao).insert(deposit);
+        verify(transactionRollupService).recordSlotDeposit(deposit, slot.getValue());
+        verifyNoMoreInteractions(accountDao, balanceSlotDao, transactionDao, transactionRollupService);
+    }
+
+    @Test
+    public void postStripedWithdrawalUsesTheAccountRowAloneWhenItCoversTheAmount() {
+        // given
+        testAccount.setBalanceSlots(8);
+        Transaction withdrawal = stripedPosting(TransactionType.WITHDRAWAL, "40.00");
+
+        given(accountDao.applyBalanceDelta(1L, new BigDecimal("-40.00"))).willReturn(1);
+
+        // when
+        sut.postStriped(withdrawal);
+
+        // then
+        verify(transactionDao).insert(withdrawal);
+        verifyNoMoreInteractions(balanceSlotDao);
+    }
+
+    @Test
+    public void postStripedWithdrawalMovesTheSlotsIntoTheAccountRowWhenItMustDrawOnThem() {
+        // given
+        testAccount.setBalanceSlots(2);
+        Transaction withdrawal = stripedPosting(TransactionType.WITHDRAWAL, "40.00");
+
+        given(accountDao.applyBalanceDelta(1L, new BigDecimal("-40.00"))).willReturn(0);
+        given(balanceSlotDao.findByAccountIdForUpdate(1L))
+                .willReturn(Arrays.asList(slot(0, "15.00"), slot(1, "30.00")));
+        given(accountDao.applyBalanceDelta(1L, new BigDecimal("5.00"))).willReturn(1);
+
+        // when
+        sut.postStriped(withdrawal);
+
+        // then
+        final InOrder verificationOrder = inOrder(accountDao, balanceSlotDao, transactionDao);
+        verificationOrder.verify(accountDao).findAllByIdForUpdate(List.of(1L));
+        verificationOrder.verify(balanceSlotDao).findByAccountIdForUpdate(1L);
+        verificationOrder.verify(accountDao).applyBalanceDelta(1L, new BigDecimal("5.00"));
+        verificationOrder.verify(balanceSlotDao).clearSlots(1L);
+        verificationOrder.verify(transactionDao).insert(withdrawal);
+    }
+
+    @Test
+    public void postStripedWithdrawalThrowsWhenTheSlotsDoNotCoverItEither() {
+        // given
+        testAccount.setBalanceSlots(2);
+        Transaction withdrawal = stripedPosting(TransactionType.WITHDRAWAL, "40.00");
+
+        given(accountDao.applyBalanceDelta(eq(1L), any(BigDecimal.class))).willReturn(0);
+        given(balanceSlotDao.findByAccountIdForUpdate(1L)).willReturn(Arrays.asList(slot(0, "15.00")));
+
+        // when & then
+        assertThatThrownBy(() -> sut.postStriped(withdrawal))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Insufficient funds for withdrawal.");
+
+        verify(balanceSlotDao, never()).clearSlots(any());
+        verify(transactionDao, never()).insert(any(Transaction.class));
+    }
+
+    @Test
+    public void transferUpdatesTheLowerAccountIdFirstInBothDirections() {
+        // given
+        final Transaction debitFromLow = transferLeg(1L, TransactionType.WITHDRAWAL);
+        final Transaction creditToHigh = transferLeg(2L, TransactionType.DEPOSIT);
+        final Transaction debitFromHigh = transferLeg(2L, TransactionType.WITHDRAWAL);
+        final Transaction creditToLow = transferLeg(1L, TransactionType.DEPOSIT);
+        given(accountDao.applyBalanceDelta(any(), any())).willReturn(1);
+
+        // when
+        sut.transfer(debitFromLow, creditToHigh);
+        sut.transfer(debitFromHigh, creditToLow);
+
+        // then - account 1 is always locked before account 2
+        final InOrder verificationOrder = inOrder(accountDao, transactionDao);
+        verificationOrder.verify(accountDao).applyBalanceDelta(1L, new BigDecimal("-25.00"));
+        verificationOrder.verify(accountDao).applyBalanceDelta(2L, new BigDecimal("25.00"));
+        verificationOrder.verify(transactionDao).insert(debitFromLow);
+        verificationOrder.verify(transactionDao).insert(creditToHigh);
+        verificationOrder.verify(accountDao).applyBalanceDelta(1L, new BigDecimal("25.00"));
+        verificationOrder.verify(accountDao).applyBalanceDelta(2L, new BigDecimal("-25.00"));
+        verificationOrder.verify(transactionDao).insert(debitFromHigh);
+        verificationOrder.verify(transactionDao).insert(creditToLow);
+    }
+
+    @Test
+    public void transferWithInsufficientFundsThrowsBeforeInsertingAnything() {
+        // given
+        final Transaction debit = transferLeg(1L, TransactionType.WITHDRAWAL);
+        final Transaction credit = transferLeg(2L, TransactionType.DEPOSIT);
+        given(accountDao.applyBalanceDelta(1L, new BigDecimal("-25.00"))).willReturn(0);
+
+        // when/then
+        assertThatThrownBy(() -> sut.transfer(debit, credit))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Insufficient funds for transfer.");
+        verify(accountDao, never()).applyBalanceDelta(eq(2L), any());
+        verify(transactionDao, never()).insert(any(Transaction.class));
+    }
+
+    @Test
+    public void postBatchAppliesItemsInOrderAndRejectsOverdrafts() {
+        // given - 1000 + 100 - 1050 - 100 (refused) + 25
+        final List<Transaction> batch = Arrays.asList(
+                batchTransaction("a", TransactionType.DEPOSIT, "100.00"),
+                batchTransaction("b", TransactionType.WITHDRAWAL, "1050.00"),
+                batchTransaction("c", TransactionType.WITHDRAWAL, "100.00"),
+                batchTransaction("d", TransactionType.DEPOSIT, "25.00"));
+        given(accountDao.findAllByIdForUpdate(any())).willReturn(Collections.singletonList(testAccount));
+
+        // when
+        final List<String> rejections = sut.postBatch(batch, false);
+
+        // then
+        assertThat(rejections).containsExactly(null, null, "Insufficient funds for withdrawal.", null);
+        assertThat(testAccount.getBalance()).isEqualByComparingTo(new BigDecimal("75.00"));
+        assertThat(batch.get(0).getBalanceAfter()).isEqualByComparingTo(new BigDecimal("1100.00"));
+        assertThat(batch.get(1).getBalanceAfter()).isEqualByComparingTo(new BigDecimal("50.00"));
+        assertThat(batch.get(2).getBalanceAfter()).isNull();
+        assertThat(batch.get(3).getBalanceAfter()).isEqualByComparingTo(new BigDecimal("75.00"));
+        verify(transactionDao, times(1)).insert(batch.get(0));
+        verify(transactionDao, times(1)).insert(batch.get(1));
+        verify(transactionDao, never()).insert(batch.get(2));
+        verify(transactionDao, times(1)).insert(batch.get(3));
+    }
+
+    @Test
+    public void postBatchAllOrNothingWritesNothingWhenAnItemIsRejected() {
+        // given
+        final List<Transaction> batch = Arrays.asList(
+                batchTransaction("a", TransactionType.DEPOSIT, "100.00"),
+                batchTransaction("b", TransactionType.WITHDRAWAL, "5000.00"));
+        given(accountDao.findAllByIdForUpdate(any())).willReturn(Collections.singletonList(testAccount));
+
+        // when
+        final List<String> rejections = sut.postBatch(batch, true);
+
+        // then
+        assertThat(rejections).containsExactly(null, "Insufficient funds for withdrawal.");
+        assertThat(testAccount.getBalance()).isEqualByComparingTo(new BigDecimal("1000.00"));
+        verify(transactionDao, never()).insert(any(Transaction.class));
+    }
+
+    @Test
+    public void postBatchOptimisticReadsWithoutLocksAndWritesAtTheReadVersion() {
+        // given
+        testAccount.setVersion(5L);
+        final List<Transaction> batch = Arrays.asList(
+                batchTransaction("a", TransactionType.DEPOSIT, "100.00"),
+                batchTransaction("b", TransactionType.WITHDRAWAL, "50.00"));
+        given(accountDao.findAllById(any())).willReturn(Collections.singletonList(testAccount));
+        given(accountDao.updateBalanceIfVersion(1L, new BigDecimal("1050.00"), 5L)).willReturn(0);
+
+        // when/then
+        assertThatThrownBy(() -> sut.postBatchOptimistic(batch, false))
+                .isInstanceOf(ObjectOptimisticLockingFailureException.class);
+        verify(accountDao, never()).findAllByIdForUpdate(any());
+        assertThat(testAccount.getBalance()).isEqualByComparingTo(new BigDecimal("1000.00"));
+    }
+
+    @Test
+    public void projectJournalAppliesNetDeltasInsertsRowsWithRunningBalancesAndMovesTheCheckpoint() {
+        // given - 1000 + 100 - 30 = 1070
+        final List<Transaction> records = Arrays.asList(
+                batchTransaction("a", TransactionType.DEPOSIT, "100.00"),
+                batchTransaction("b", TransactionType.WITHDRAWAL, "30.00"));
+        given(accountDao.applyBalanceDelta(eq(1L), any())).willReturn(1);
+        given(accountDao.findBalanceById(1L)).willReturn(new BigDecimal("1070.00"));
+
+        // when
+        sut.projectJournal(records, 42L);
+
+        // then
+        assertThat(records.get(0).getBalanceAfter()).isEqualByComparingTo(new BigDecimal("1100.00"));
+        assertThat(records.get(1).getBalanceAfter()).isEqualByComparingTo(new BigDecimal("1070.00"));
+
+        final InOrder verificationOrder = inOrder(transactionDao, accountDao, journalCheckpointDao);
+        verificationOrder.verify(accountDao, times(1)).applyBalanceDelta(1L, new BigDecimal("70.00"));
+        verificationOrder.verify(accountDao, times(1)).findBalanceById(1L);
+        verificationOrder.verify(transactionDao, times(1)).insert(records.get(0));
+        verificationOrder.verify(transactionDao, times(1)).insert(records.get(1));
+        verificationOrder.verify(journalCheckpointDao, times(1)).save(argThat(checkpoint ->
+                checkpoint.getId().equals(JournalCheckpoint.LEDGER_PROJECTOR) && checkpoint.getAppliedSequence() == 42L));
+    }
+
+    @Test
+    public void projectJournalFailsWhenTheDatabaseCannotTakeTheDelta() {
+        // given
+        final List<Transaction> records = Collections.singletonList(
+                batchTransaction("a", TransactionType.WITHDRAWAL, "30.00"));
+        given(accountDao.applyBalanceDelta(eq(1L), any())).willReturn(0);
+
+        // when & then
+        assertThatThrownBy(() -> sut.projectJournal(records, 7L))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("diverged");
+        verify(journalCheckpointDao, never()).save(any());
+    }
+
+    private Transaction batchTransaction(String id, TransactionType type, String amount) {
+        final Account reference = new Account();
+        reference.setId(testAccount.getId());
+
+        final Transaction transaction = Transaction.Builder.create()
+                .withTransactionId("ref-" + id)
+                .withAmount(new BigDecimal(amount))
+                .withType(type)
+                .withCurrency(Currency.GBP)
+                .withAccount(reference)
+                .build();
+        transaction.setId("tan-" + id);
+        return transaction;
+    }
+
+    private Transaction transferLeg(Long accountId, TransactionType type) {
+        final Account reference = new Account();
+        reference.setId(accountId);
+
+        final Transaction transaction = Transaction.Builder.create()
+                .withTransactionId("ref-" + accountId + "-" + type)
+                .withAmount(new BigDecimal("25.00"))
+                .withType(type)
+                .withCurrency(Currency.GBP)
+                .withAccount(reference)
+                .build();
+        transaction.setId("tan-" + accountId + "-" + type);
+        return transaction;
+    }
+
+    private Transaction stripedPosting(TransactionType type, String amount) {
+        return Transaction.Builder.create()
+                .withTransactionId("tan-striped")
+                .withAmount(new BigDecimal(amount))
+                .withType(type)
+                .withCurrency(Currency.GBP)
+                .withAccount(testAccount)
+                .build();
+    }
+
+    private BalanceSlot slot(int index, String balance) {
+        BalanceSlot slot = new BalanceSlot(testAccount, index);
+        slot.setBalance(new BigDecimal(balance));
+        return slot;
+    }
+}
@@ -0,0 +1,98 @@
+package com.barclays.api.services;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.barclays.api.TestData;
+import com.barclays.api.dao.TransactionDao;
+import com.barclays.api.dao.UserDao;
+import com.barclays.api.domain.Account;
+import com.barclays.api.domain.Transaction;
+import com.barclays.api.domain.User;
+import com.barclays.api.domain.enums.TransactionType;
+import com.barclays.api.domain.page.TransactionFilter;
+import com.barclays.api.domain.view.AccountView;
+import com.barclays.api.domain.view.TransactionView;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The list endpoints' views serialise exactly as the entities they replace.
+ */
+@SpringBootTest
+public class ListViewTest {
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private TransactionDao transactionDao;
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final TestData testData = new TestData();
+    private User user;
+
+    @BeforeEach
+    public void setup() {
+        user = userDao.save(TestData.newUser());
+    }
+
+    @Test
+    public void accountViewsSerialiseAsTheAccountsDo() throws Exception {
+        // given - a plain account and a striped one with money in its slots
+        newAccount(null);
+        final Account striped = newAccount(4);
+        ledgerService.postStriped(testData.posting(striped, TransactionType.DEPOSIT, "25.00"));
+
+        // when
+        final List<AccountView> views = accountService.getAccountViews(user.getEmail());
+        final List<Account> accounts = accountService.getAccounts(user.getEmail());
+        accountService.includeBalanceSlots(accounts);
+
+        // then
+        assertThat(views).hasSize(2);
+        assertThat(views.get(1).getBalance()).isEqualByComparingTo("1025.00");
+        assertThat(objectMapper.writeValueAsString(views)).isEqualTo(objectMapper.writeValueAsString(accounts));
+    }
+
+    @Test
+    public void transactionViewsSerialiseAsTheTransactionsDo() throws Exception {
+        // given
+        final Account account = newAccount(null);
+        ledgerService.post(testData.posting(account, TransactionType.DEPOSIT, "100.00"));
+        ledgerService.post(testData.posting(account, TransactionType.WITHDRAWAL, "30.00"));
+
+        // when
+        final List<TransactionView> views = transactionService
+                .getTransactionPage(account.getId(), TransactionFilter.none(), null, null).getTransactions();
+        final List<Transaction> transactions = transactionDao
+                .findPage(account.getId(), TransactionFilter.none(), null, 2);
+
+        // then
+        assertThat(views).hasSize(2);
+        assertThat(objectMapper.writeValueAsString(views))
+                .isEqualTo(objectMapper.writeValueAsString(transactions));
+    }
+
+    private Account newAccount(Integer balanceSlots) {
+        return accountService.createAccount(TestData.newAccount(user, new BigDecimal("1000.00"))
+                .withBalanceSlots(balanceSlots)
+                .build());
+    }
+}
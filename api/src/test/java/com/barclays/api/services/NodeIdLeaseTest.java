@@ -0,0 +1,49 @@
+package com.barclays.api.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.barclays.api.dao.NodeLeaseDao;
+
+/**
+ * Node id leases in the real table in H2, taken by this node and by more
+ * leases standing in for other API nodes.
+ */
+@SpringBootTest
+public class NodeIdLeaseTest {
+
+    @Autowired
+    private NodeIdLease nodeIdLease;
+
+    @Autowired
+    private NodeLeaseDao nodeLeaseDao;
+
+    @Test
+    public void runningNodesNeverShareANodeIdAndAReleasedOneIsTakenOver() {
+        // given
+        final NodeIdLease otherNode = new NodeIdLease(nodeLeaseDao, -1, 60_000, System::currentTimeMillis);
+        final NodeIdLease thirdNode = new NodeIdLease(nodeLeaseDao, -1, 60_000, System::currentTimeMillis);
+        otherNode.start();
+
+        try {
+            // when
+            thirdNode.start();
+            final int released = otherNode.getNodeId();
+            otherNode.stop();
+            final NodeIdLease restarted = new NodeIdLease(nodeLeaseDao, -1, 60_000, () -> System.currentTimeMillis() + 1);
+            restarted.start();
+
+            // then
+            assertThat(otherNode.getNodeId()).isNotEqualTo(nodeIdLease.getNodeId());
+            assertThat(thirdNode.getNodeId()).isNotIn(nodeIdLease.getNodeId(), released);
+            // the lowest free id, which is the released one unless a node that stopped earlier freed a lower one
+            assertThat(restarted.getNodeId()).isNotIn(nodeIdLease.getNodeId(), thirdNode.getNodeId())
+                    .isLessThanOrEqualTo(released);
+            restarted.stop();
+        } finally {
+            thirdNode.stop();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.barclays.api.services;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import org.mockito.Mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.barclays.api.dao.NodeLeaseDao;
+
+@ExtendWith(MockitoExtension.class)
+public class NodeIdLeaseUnitTest {
+
+    private static final long NOW = 1_800_000_000_000L;
+
+    @Mock
+    private NodeLeaseDao nodeLeaseDao;
+
+    private AtomicLong clock;
+
+    @BeforeEach
+    public void setup() {
+        clock = new AtomicLong(NOW);
+    }
+
+    @Test
+    public void aConfiguredNodeIdIsUsedWithoutALease() {
+        // given
+        final NodeIdLease sut = new NodeIdLease(nodeLeaseDao, 7, 60_000, clock::get);
+
+        // when
+        sut.start();
+
+        // then
+        assertThat(sut.getNodeId()).isEqualTo(7);
+        assertThat(sut.getExpiresMillis()).isEqualTo(Long.MAX_VALUE);
+        verifyNoInteractions(nodeLeaseDao);
+    }
+
+    @Test
+    public void leasesTheLowestNodeIdThatIsFreeOrExpired() {
+        // given - 0 is held, 1 has expired
+        given(nodeLeaseDao.insertLease(anyInt(), anyString(), anyLong())).willReturn(0);
+        given(nodeLeaseDao.takeExpiredLease(anyInt(), anyString(), anyLong(), anyLong())).willReturn(0);
+        given(nodeLeaseDao.takeExpiredLease(eq(1), anyString(), eq(NOW + 60_000), eq(NOW))).willReturn(1);
+        final NodeIdLease sut = new NodeIdLease(nodeLeaseDao, -1, 60_000, clock::get);
+
+        // when
+        sut.start();
+
+        // then
+        try {
+            assertThat(sut.getNodeId()).isEqualTo(1);
+            assertThat(sut.getExpiresMillis()).isEqualTo(NOW + 60_000);
+        } finally {
+            sut.stop();
+        }
+    }
+
+    @Test
+    public void aRenewalThatFindsTheLeaseTakenLeavesItToExpire() {
+        // given
+        given(nodeLeaseDao.insertLease(eq(0), anyString(), eq(NOW + 60_000))).willReturn(1);
+        final NodeIdLease sut = new NodeIdLease(nodeLeaseDao, -1, 60_000, clock::get);
+        sut.start();
+        given(nodeLeaseDao.renewLease(eq(0), anyString(), anyLong())).willReturn(1, 0);
+
+        try {
+            // when
+            clock.addAndGet(20_000);
+            sut.renew();
+            clock.addAndGet(20_000);
+            sut.renew();
+
+            // then
+            assertThat(sut.getExpiresMillis()).isEqualTo(NOW + 80_000);
+        } finally {
+            sut.stop();
+        }
+    }
+
+    @Test
+    public void failsStartUpWhenEveryNodeIdIsLeased() {
+        // given
+        given(nodeLeaseDao.insertLease(anyInt(), anyString(), anyLong())).willReturn(0);
+        given(nodeLeaseDao.takeExpiredLease(anyInt(), anyString(), anyLong(), anyLong())).willReturn(0);
+        final NodeIdLease sut = new NodeIdLease(nodeLeaseDao, -1, 60_000, clock::get);
+
+        // when & then
+        assertThatThrownBy(sut::start).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void rejectsANodeIdThatDoesNotFitItsBits() {
+        // when & then
+        assertThatThrownBy(() -> new NodeIdLease(nodeLeaseDao, IdService.MAX_NODE_ID + 1, 60_000, clock::get))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
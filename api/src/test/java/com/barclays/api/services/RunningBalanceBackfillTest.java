@@ -0,0 +1,120 @@
+package com.barclays.api.services;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.barclays.api.TestData;
+import com.barclays.api.dao.AccountDao;
+import com.barclays.api.dao.TransactionDao;
+import com.barclays.api.dao.UserDao;
+import com.barclays.api.domain.Account;
+import com.barclays.api.domain.Transaction;
+import com.barclays.api.domain.User;
+import com.barclays.api.domain.enums.TransactionType;
+import com.barclays.api.domain.page.TransactionFilter;
+
+/**
+ * Rows inserted without a running balance, as if posted before the column
+ * existed, walked in chunks smaller than the history.
+ */
+@SpringBootTest(properties = "api.transactions.running-balance-backfill.chunk-size=2")
+public class RunningBalanceBackfillTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 9, 0);
+
+    @Autowired
+    private RunningBalanceBackfill sut;
+
+    @Autowired
+    private AccountDao accountDao;
+
+    @Autowired
+    private TransactionDao transactionDao;
+
+    @Autowired
+    private UserDao userDao;
+
+    private final TestData testData = new TestData();
+    private User user;
+
+    @BeforeEach
+    public void setup() {
+        user = userDao.save(TestData.newUser());
+    }
+
+    @Test
+    public void fillsRunningBalancesForwardFromTheOpeningBalance() {
+        // given - opened with 50.00: +100 -25 +50 -75 +10 = 110.00, inserted out of order
+        final Account account = newAccount(new BigDecimal("110.00"), null);
+        insert(account, TransactionType.WITHDRAWAL, "75.00", START.plusMinutes(4), null);
+        insert(account, TransactionType.WITHDRAWAL, "25.00", START.plusMinutes(1), null);
+        insert(account, TransactionType.DEPOSIT, "100.00", START, null);
+        insert(account, TransactionType.DEPOSIT, "50.00", START.plusMinutes(3), null);
+        insert(account, TransactionType.DEPOSIT, "10.00", START.plusMinutes(5), null);
+
+        // when
+        sut.backfill();
+
+        // then
+        assertThat(balancesAfter(account)).containsExactly(
+                new BigDecimal("150.00"), new BigDecimal("125.00"), new BigDecimal("175.00"),
+                new BigDecimal("100.00"), new BigDecimal("110.00"));
+    }
+
+    @Test
+    public void leavesRecordedRunningBalancesAloneAndCanBeRerun() {
+        // given - the last two were posted once the column existed
+        final Account account = newAccount(new BigDecimal("30.00"), null);
+        insert(account, TransactionType.DEPOSIT, "20.00", START, null);
+        insert(account, TransactionType.DEPOSIT, "5.00", START.plusMinutes(1), null);
+        insert(account, TransactionType.DEPOSIT, "3.00", START.plusMinutes(2), new BigDecimal("28.00"));
+        insert(account, TransactionType.DEPOSIT, "2.00", START.plusMinutes(3), new BigDecimal("30.00"));
+
+        // when
+        sut.backfill();
+        sut.backfill();
+
+        // then
+        assertThat(balancesAfter(account)).containsExactly(
+                new BigDecimal("20.00"), new BigDecimal("25.00"), new BigDecimal("28.00"), new BigDecimal("30.00"));
+        assertThat(accountDao.findIdsMissingRunningBalances()).doesNotContain(account.getId());
+    }
+
+    @Test
+    public void skipsStripedAccounts() {
+        // given
+        final Account account = newAccount(new BigDecimal("10.00"), 4);
+        insert(account, TransactionType.DEPOSIT, "10.00", START, null);
+
+        // when
+        sut.backfill();
+
+        // then
+        assertThat(balancesAfter(account)).containsOnlyNulls();
+    }
+
+    private Account newAccount(BigDecimal balance, Integer balanceSlots) {
+        return accountDao.save(TestData.newAccount(user, balance).withBalanceSlots(balanceSlots).build());
+    }
+
+    private void insert(Account account, TransactionType type, String amount, LocalDateTime createdTimestamp,
+            BigDecimal balanceAfter) {
+        final Transaction transaction = testData.posting(account, type, amount, createdTimestamp);
+        transaction.setBalanceAfter(balanceAfter);
+        transactionDao.insert(transaction);
+    }
+
+    private List<BigDecimal> balancesAfter(Account account) {
+        return transactionDao.findPage(account.getId(), TransactionFilter.none(), null, 100).stream()
+                .map(Transaction::getBalanceAfter)
+                .collect(Collectors.toList());
+    }
+}
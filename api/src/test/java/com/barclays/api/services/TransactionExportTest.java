@@ -0,0 +1,184 @@
+package com.barclays.api.services;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.barclays.api.TestData;
+import com.barclays.api.dao.AccountDao;
+import com.barclays.api.dao.TransactionDao;
+import com.barclays.api.dao.UserDao;
+import com.barclays.api.domain.Account;
+import com.barclays.api.domain.Transaction;
+import com.barclays.api.domain.User;
+import com.barclays.api.domain.enums.Currency;
+import com.barclays.api.domain.enums.ExportFormat;
+import com.barclays.api.domain.enums.TransactionType;
+
+@SpringBootTest
+public class TransactionExportTest {
+
+    private static final int LARGE_HISTORY = 1_000_000;
+    private static final int CHUNK = 50_000;
+    // a retained Transaction entity costs a few hundred bytes, so keeping even a tenth of them would be far over this
+    private static final long MAX_HEAP_GROWTH = 16L * 1024 * 1024;
+
+    @Autowired
+    private TransactionExportService sut;
+
+    @Autowired
+    private AccountDao accountDao;
+
+    @Autowired
+    private TransactionDao transactionDao;
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private Account account;
+
+    @BeforeEach
+    public void setup() {
+        user = userDao.save(TestData.newUser());
+
+        account = accountDao.save(TestData.newAccount(user, BigDecimal.ZERO).build());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        // the database outlives this class, don't leave a million rows in it
+        while (jdbcTemplate.update("DELETE FROM transactions WHERE account_id = ? FETCH FIRST " + CHUNK + " ROWS ONLY",
+                account.getId()) > 0) {
+            // next chunk
+        }
+    }
+
+    @Test
+    public void ndjsonHasOneTransactionPerLineOldestFirst() throws Exception {
+        // given
+        final String prefix = UUID.randomUUID().toString();
+        insert(prefix + "-2", "ref-2", TransactionType.WITHDRAWAL, "2.50", LocalDateTime.of(2024, 1, 2, 9, 0));
+        insert(prefix + "-1", "ref-1", TransactionType.DEPOSIT, "10.00", LocalDateTime.of(2024, 1, 1, 9, 0));
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // when
+        sut.export(account.getId(), ExportFormat.NDJSON, out);
+
+        // then
+        final String[] lines = out.toString(StandardCharsets.UTF_8).split("\n", -1);
+        assertThat(lines).hasSize(3);
+        assertThat(lines[0]).startsWith("{\"id\":\"" + prefix + "-1\",\"transactionId\":\"ref-1\",\"amount\":10.00,");
+        assertThat(lines[0]).contains("\"type\":\"deposit\"");
+        assertThat(lines[1]).startsWith("{\"id\":\"" + prefix + "-2\",\"transactionId\":\"ref-2\",\"amount\":2.50,");
+        assertThat(lines[2]).isEmpty();
+    }
+
+    @Test
+    public void csvQuotesFieldsThatNeedIt() throws Exception {
+        // given
+        final String prefix = UUID.randomUUID().toString();
+        insert(prefix + "-1", "rent, \"may\"", TransactionType.DEPOSIT, "10.00", LocalDateTime.of(2024, 1, 1, 9, 0));
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // when
+        sut.export(account.getId(), ExportFormat.CSV, out);
+
+        // then
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "id,transactionId,type,amount,currency,createdTimestamp,balanceAfter\r\n"
+                        + prefix + "-1,\"rent, \"\"may\"\"\",deposit,10.00,GBP,2024-01-01T09:00,\r\n");
+    }
+
+    @Test
+    public void streamsAMillionTransactionsWithoutGrowingTheHeap() throws Exception {
+        // given - written straight into the table, far quicker than through JPA, and in chunks
+        // because H2 keeps a statement's undo log in memory
+        for (int from = 1; from <= LARGE_HISTORY; from += CHUNK) {
+            jdbcTemplate.update("INSERT INTO transactions (id, transaction_id, amount, currency, type, user_id,"
+                    + " account_id, created_timestamp) SELECT ? || X, ? || X, 1.00, 'GBP', 'DEPOSIT', ?, ?,"
+                    + " DATEADD('SECOND', X, TIMESTAMP '2024-01-01 00:00:00') FROM SYSTEM_RANGE(?, ?)",
+                    account.getId() + "-", account.getId() + "-", user.getId(), account.getId(),
+                    from, from + CHUNK - 1);
+        }
+        final HeapSamplingOutputStream out = new HeapSamplingOutputStream();
+        final long baseline = out.usedAfterGc();
+
+        // when
+        sut.export(account.getId(), ExportFormat.NDJSON, out);
+
+        // then
+        assertThat(out.lines).isEqualTo(LARGE_HISTORY);
+        assertThat(out.maxUsedAfterGc - baseline).isLessThan(MAX_HEAP_GROWTH);
+    }
+
+    private void insert(String id, String transactionId, TransactionType type, String amount,
+            LocalDateTime createdTimestamp) {
+        final Transaction transaction = Transaction.Builder.create()
+                .withTransactionId(transactionId)
+                .withAmount(new BigDecimal(amount))
+                .withType(type)
+                .withCurrency(Currency.GBP)
+                .withUser(user)
+                .withAccount(account)
+                .build();
+        transaction.setId(id);
+        transaction.setCreatedTimestamp(createdTimestamp);
+        transactionDao.insert(transaction);
+    }
+
+    /**
+     * Discards what is written, counting lines, and measures the heap after
+     * a GC every 100,000 lines. Compared with a sample taken before the
+     * export starts, a leak - or an export that reads the whole history up
+     * front - grows the heap with the row count, and constant-memory
+     * streaming doesn't.
+     */
+    private static final class HeapSamplingOutputStream extends OutputStream {
+
+        private static final int SAMPLE_EVERY = 100_000;
+
+        private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        private int lines;
+        private long maxUsedAfterGc;
+
+        @Override
+        public void write(int b) {
+            if (b == '\n' && ++lines % SAMPLE_EVERY == 0) {
+                sample();
+            }
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                write(bytes[i]);
+            }
+        }
+
+        long usedAfterGc() {
+            System.gc();
+            return memory.getHeapMemoryUsage().getUsed();
+        }
+
+        private void sample() {
+            maxUsedAfterGc = Math.max(maxUsedAfterGc, usedAfterGc());
+        }
+    }
+}
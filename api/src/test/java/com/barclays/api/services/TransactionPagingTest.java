@@ -0,0 +1,182 @@
+package com.barclays.api.services;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.barclays.api.TestData;
+import com.barclays.api.dao.AccountDao;
+import com.barclays.api.dao.TransactionDao;
+import com.barclays.api.dao.UserDao;
+import com.barclays.api.domain.Account;
+import com.barclays.api.domain.Transaction;
+import com.barclays.api.domain.User;
+import com.barclays.api.domain.enums.Currency;
+import com.barclays.api.domain.enums.TransactionType;
+import com.barclays.api.domain.page.TransactionCursor;
+import com.barclays.api.domain.page.TransactionFilter;
+import com.barclays.api.domain.page.TransactionPage;
+import com.barclays.api.domain.view.TransactionView;
+
+/**
+ * Walks an account's transactions page by page against the real schema,
+ * with several transactions sharing a timestamp so the id tie-break matters.
+ */
+@SpringBootTest
+public class TransactionPagingTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 9, 0);
+
+    @Autowired
+    private TransactionService sut;
+
+    @Autowired
+    private AccountDao accountDao;
+
+    @Autowired
+    private TransactionDao transactionDao;
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private Account account;
+    // transaction ids are primary keys in a database shared by every test
+    private String prefix;
+
+    @BeforeEach
+    public void setup() {
+        prefix = UUID.randomUUID() + "-";
+
+        user = userDao.save(TestData.newUser());
+
+        account = accountDao.save(TestData.newAccount(user, BigDecimal.ZERO).build());
+    }
+
+    @Test
+    public void pagesCoverEveryTransactionOnceInTimestampThenIdOrder() {
+        // given - three transactions per second, inserted out of order
+        final List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 23; i++) {
+            expected.add(String.format("%stan-%03d", prefix, i));
+        }
+        for (int i = 22; i >= 0; i--) {
+            insert(expected.get(i), START.plusSeconds(i / 3));
+        }
+
+        // when
+        final List<String> seen = new ArrayList<>();
+        final List<Integer> pageSizes = new ArrayList<>();
+        TransactionCursor cursor = null;
+        do {
+            final TransactionPage page = sut.getTransactionPage(account.getId(), TransactionFilter.none(), cursor, 5);
+            page.getTransactions().forEach(transaction -> seen.add(transaction.getId()));
+            pageSizes.add(page.getTransactions().size());
+            // what a client would send back
+            cursor = page.hasNext() ? TransactionCursor.decode(page.getNextCursor().encode()) : null;
+        } while (cursor != null);
+
+        // then
+        assertThat(seen).isEqualTo(expected);
+        assertThat(pageSizes).containsExactly(5, 5, 5, 5, 3);
+    }
+
+    @Test
+    public void lastPageThatExactlyFillsTheLimitHasNoNextCursor() {
+        // given
+        for (int i = 0; i < 4; i++) {
+            insert(prefix + "tan-" + i, START.plusSeconds(i));
+        }
+
+        // when
+        final TransactionPage first = sut.getTransactionPage(account.getId(), TransactionFilter.none(), null, 2);
+        final TransactionPage second = sut.getTransactionPage(account.getId(), TransactionFilter.none(), first.getNextCursor(), 2);
+
+        // then
+        assertThat(first.hasNext()).isTrue();
+        assertThat(second.getTransactions()).extracting(TransactionView::getId).containsExactly(prefix + "tan-2", prefix + "tan-3");
+        assertThat(second.hasNext()).isFalse();
+    }
+
+    @Test
+    public void filtersAreAppliedInTheQueryAndPagesFollowThem() {
+        // given - a withdrawal and a deposit each day, amounts rising by 100 a day
+        for (int day = 0; day < 10; day++) {
+            insert(prefix + "w" + day, TransactionType.WITHDRAWAL, BigDecimal.valueOf(100L * day), START.plusDays(day));
+            insert(prefix + "d" + day, TransactionType.DEPOSIT, BigDecimal.valueOf(100L * day), START.plusDays(day));
+        }
+        final TransactionFilter filter = TransactionFilter.Builder.create()
+                .withType(TransactionType.WITHDRAWAL)
+                .withMinAmount(new BigDecimal("300.00"))
+                .withMaxAmount(new BigDecimal("800.00"))
+                .withFrom(START.plusDays(2))
+                .withTo(START.plusDays(7))
+                .build();
+
+        // when
+        final TransactionPage first = sut.getTransactionPage(account.getId(), filter, null, 3);
+        final TransactionPage second = sut.getTransactionPage(account.getId(), filter, first.getNextCursor(), 3);
+
+        // then - days 3 to 6: from and the amounts are inclusive, to is exclusive
+        assertThat(first.getTransactions()).extracting(TransactionView::getId)
+                .containsExactly(prefix + "w3", prefix + "w4", prefix + "w5");
+        assertThat(second.getTransactions()).extracting(TransactionView::getId).containsExactly(prefix + "w6");
+        assertThat(second.hasNext()).isFalse();
+    }
+
+    @Test
+    public void transactionsAreIndexedForKeysetPaging() {
+        // when
+        final List<String> columns = jdbcTemplate.queryForList(
+                "SELECT c.COLUMN_NAME FROM INFORMATION_SCHEMA.INDEX_COLUMNS c"
+                        + " WHERE c.TABLE_NAME = 'TRANSACTIONS' AND c.INDEX_NAME = 'IDX_TRANSACTIONS_ACCOUNT_CREATED'"
+                        + " ORDER BY c.ORDINAL_POSITION",
+                String.class);
+
+        // then
+        assertThat(columns).containsExactly("ACCOUNT_ID", "CREATED_TIMESTAMP", "ID");
+    }
+
+    @Test
+    public void transactionsAreIndexedForPagingByType() {
+        // when
+        final List<String> columns = jdbcTemplate.queryForList(
+                "SELECT c.COLUMN_NAME FROM INFORMATION_SCHEMA.INDEX_COLUMNS c"
+                        + " WHERE c.TABLE_NAME = 'TRANSACTIONS' AND c.INDEX_NAME = 'IDX_TRANSACTIONS_ACCOUNT_TYPE_CREATED'"
+                        + " ORDER BY c.ORDINAL_POSITION",
+                String.class);
+
+        // then
+        assertThat(columns).containsExactly("ACCOUNT_ID", "TYPE", "CREATED_TIMESTAMP", "ID");
+    }
+
+    private void insert(String id, LocalDateTime createdTimestamp) {
+        insert(id, TransactionType.DEPOSIT, new BigDecimal("1.00"), createdTimestamp);
+    }
+
+    private void insert(String id, TransactionType type, BigDecimal amount, LocalDateTime createdTimestamp) {
+        final Transaction transaction = Transaction.Builder.create()
+                .withTransactionId(id)
+                .withAmount(amount)
+                .withType(type)
+                .withCurrency(Currency.GBP)
+                .withUser(user)
+                .withAccount(account)
+                .build();
+        transaction.setId(id);
+        transaction.setCreatedTimestamp(createdTimestamp);
+        transactionDao.insert(transaction);
+    }
+}
@@ -0,0 +1,125 @@
+package com.barclays.api.services;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.barclays.api.ApiApplication;
+import com.barclays.api.TestData;
+import com.barclays.api.dao.AccountDao;
+import com.barclays.api.dao.UserDao;
+import com.barclays.api.domain.Account;
+import com.barclays.api.domain.User;
+import com.barclays.api.domain.enums.TransactionType;
+import com.barclays.api.domain.page.TransactionCursor;
+import com.barclays.api.domain.page.TransactionFilter;
+import com.barclays.api.domain.page.TransactionPage;
+
+/**
+ * A 50-row page of one account's transactions out of a history of a
+ * million, one a minute for ~2 years, alternating deposit and withdrawal
+ * with amounts spread over 0.00 - 999.99. Runs against the application's
+ * own H2 schema:
+ *
+ * <pre>
+ * mvn -Pbenchmarks test -DskipTests -Djmh.args="TransactionQueryBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionQueryBenchmark {
+
+    private static final int HISTORY = 1_000_000;
+    private static final int CHUNK = 50_000;
+    private static final int PAGE = 50;
+    private static final LocalDateTime START = LocalDateTime.of(2023, 1, 1, 0, 0);
+    private static final LocalDateTime END = START.plusMinutes(HISTORY);
+
+    private ConfigurableApplicationContext context;
+    private TransactionService transactionService;
+    private Long accountId;
+    private TransactionFilter largeWithdrawalsLast30Days;
+    private TransactionFilter lastWeek;
+    private TransactionCursor deepCursor;
+
+    @Setup
+    public void setup() {
+        context = new SpringApplicationBuilder(ApiApplication.class)
+            .web(WebApplicationType.NONE)
+            .properties("spring.jpa.show-sql=false")
+            .run();
+        transactionService = context.getBean(TransactionService.class);
+
+        final User user = context.getBean(UserDao.class).save(TestData.newUser());
+        final Account account = context.getBean(AccountDao.class).save(TestData.newAccount(user, BigDecimal.ZERO).build());
+        accountId = account.getId();
+
+        // in chunks, H2 keeps a statement's undo log in memory
+        final JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        for (int from = 0; from < HISTORY; from += CHUNK) {
+            jdbcTemplate.update("INSERT INTO transactions (id, transaction_id, amount, currency, type, user_id,"
+                + " account_id, created_timestamp) SELECT 'tan-' || X, 'ref-' || X, MOD(X * 7919, 100000) / 100.0,"
+                + " 'GBP', CASEWHEN(MOD(X, 2) = 0, 'DEPOSIT', 'WITHDRAWAL'), ?, ?,"
+                + " DATEADD('MINUTE', X, CAST(? AS TIMESTAMP)) FROM SYSTEM_RANGE(?, ?)",
+                user.getId(), accountId, START, from, from + CHUNK - 1);
+        }
+
+        largeWithdrawalsLast30Days = TransactionFilter.Builder.create()
+            .withType(TransactionType.WITHDRAWAL)
+            .withMinAmount(new BigDecimal("500.00"))
+            .withFrom(END.minusDays(30))
+            .build();
+        lastWeek = TransactionFilter.Builder.create()
+            .withFrom(END.minusDays(14))
+            .withTo(END.minusDays(7))
+            .build();
+        deepCursor = new TransactionCursor(START.plusMinutes(HISTORY - 1000), "tan-" + (HISTORY - 1000));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public TransactionPage firstPage() {
+        return transactionService.getTransactionPage(accountId, TransactionFilter.none(), null, PAGE);
+    }
+
+    // ~990,000 rows in
+    @Benchmark
+    public TransactionPage deepPage() {
+        return transactionService.getTransactionPage(accountId, TransactionFilter.none(), deepCursor, PAGE);
+    }
+
+    @Benchmark
+    public TransactionPage dateRange() {
+        return transactionService.getTransactionPage(accountId, lastWeek, null, PAGE);
+    }
+
+    // "withdrawals over 500 in the last 30 days"
+    @Benchmark
+    public TransactionPage typeAmountAndDate() {
+        return transactionService.getTransactionPage(accountId, largeWithdrawalsLast30Days, null, PAGE);
+    }
+}
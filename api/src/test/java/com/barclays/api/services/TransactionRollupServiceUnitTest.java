@@ -0,0 +1,133 @@
+package com.barclays.api.services;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import org.mockito.Mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.barclays.api.dao.TransactionRollupDao;
+import com.barclays.api.domain.Account;
+import com.barclays.api.domain.Transaction;
+import com.barclays.api.domain.enums.Currency;
+import com.barclays.api.domain.enums.RollupPeriod;
+import com.barclays.api.domain.enums.TransactionType;
+
+@ExtendWith(MockitoExtension.class)
+public class TransactionRollupServiceUnitTest {
+
+    private static final LocalDateTime MAY_2ND = LocalDateTime.of(2024, 5, 2, 10, 0);
+
+    private TransactionRollupService sut;
+
+    @Mock
+    private TransactionRollupDao transactionRollupDao;
+
+    private Account account;
+
+    @BeforeEach
+    public void setup() {
+        sut = new TransactionRollupService(transactionRollupDao);
+
+        account = new Account();
+        account.setId(1L);
+    }
+
+    @Test
+    public void recordAddsEachPeriodsTotalsInOneUpdate() {
+        // given
+        given(transactionRollupDao.addToRollup(eq(1L), any(), any(), eq(0), any(), any(), anyLong(), anyLong()))
+                .willReturn(1);
+
+        // when
+        sut.record(List.of(transaction(TransactionType.DEPOSIT, "100.00", MAY_2ND),
+                transaction(TransactionType.DEPOSIT, "5.00", MAY_2ND.plusHours(1)),
+                transaction(TransactionType.WITHDRAWAL, "30.00", MAY_2ND.plusHours(2))));
+
+        // then
+        verify(transactionRollupDao).addToRollup(1L, RollupPeriod.DAY, LocalDate.of(2024, 5, 2), 0,
+                new BigDecimal("105.00"), new BigDecimal("30.00"), 2, 1);
+        verify(transactionRollupDao).addToRollup(1L, RollupPeriod.MONTH, LocalDate.of(2024, 5, 1), 0,
+                new BigDecimal("105.00"), new BigDecimal("30.00"), 2, 1);
+        verify(transactionRollupDao, never()).insertEmptyRollup(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    public void recordCreatesThePeriodsThatHaveNoRowYetAndAddsToThem() {
+        // given - May has a row, 2 May doesn't until it is created
+        given(transactionRollupDao.addToRollup(eq(1L), eq(RollupPeriod.DAY), any(), anyInt(), any(), any(),
+                anyLong(), anyLong())).willReturn(0, 1);
+        given(transactionRollupDao.addToRollup(eq(1L), eq(RollupPeriod.MONTH), any(), anyInt(), any(), any(),
+                anyLong(), anyLong())).willReturn(1);
+
+        // when
+        sut.record(List.of(transaction(TransactionType.WITHDRAWAL, "30.00", MAY_2ND)));
+
+        // then
+        verify(transactionRollupDao).insertEmptyRollup(1L, "DAY", LocalDate.of(2024, 5, 2), 0);
+        verify(transactionRollupDao, times(2)).addToRollup(1L, RollupPeriod.DAY, LocalDate.of(2024, 5, 2), 0,
+                BigDecimal.ZERO, new BigDecimal("30.00"), 0, 1);
+        verify(transactionRollupDao, never()).insertEmptyRollup(any(), eq("MONTH"), any(), anyInt());
+    }
+
+    @Test
+    public void recordSlotDepositGoesToTheSlotsStripe() {
+        // given
+        given(transactionRollupDao.addToRollup(eq(1L), any(), any(), eq(4), any(), any(), anyLong(), anyLong()))
+                .willReturn(1);
+
+        // when
+        sut.recordSlotDeposit(transaction(TransactionType.DEPOSIT, "10.00", MAY_2ND), 3);
+
+        // then
+        verify(transactionRollupDao).addToRollup(1L, RollupPeriod.DAY, LocalDate.of(2024, 5, 2), 4,
+                new BigDecimal("10.00"), BigDecimal.ZERO, 1, 0);
+    }
+
+    @Test
+    public void getTotalsStartsFromTheMonthFromFallsIn() {
+        // when
+        sut.getTotals(1L, RollupPeriod.MONTH, LocalDate.of(2024, 5, 15), LocalDate.of(2024, 7, 1));
+
+        // then
+        verify(transactionRollupDao).findTotals(1L, RollupPeriod.MONTH, LocalDate.of(2024, 5, 1),
+                LocalDate.of(2024, 7, 1));
+    }
+
+    @Test
+    public void getTotalsRejectsAnEmptyRange() {
+        // when & then
+        assertThatThrownBy(() -> sut.getTotals(1L, RollupPeriod.DAY, LocalDate.of(2024, 5, 1),
+                LocalDate.of(2024, 5, 1)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("from must be before to.");
+        verifyNoInteractions(transactionRollupDao);
+    }
+
+    private Transaction transaction(TransactionType type, String amount, LocalDateTime createdTimestamp) {
+        final Transaction transaction = Transaction.Builder.create()
+                .withAmount(new BigDecimal(amount))
+                .withType(type)
+                .withCurrency(Currency.GBP)
+                .withAccount(account)
+                .build();
+        transaction.setCreatedTimestamp(createdTimestamp);
+        return transaction;
+    }
+}
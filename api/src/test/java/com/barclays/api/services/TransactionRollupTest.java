@@ -0,0 +1,192 @@
+package com.barclays.api.services;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.barclays.api.TestData;
+import com.barclays.api.dao.AccountDao;
+import com.barclays.api.dao.BalanceSlotDao;
+import com.barclays.api.dao.PeriodTotal;
+import com.barclays.api.dao.TransactionDao;
+import com.barclays.api.dao.TransactionRollupDao;
+import com.barclays.api.dao.UserDao;
+import com.barclays.api.domain.Account;
+import com.barclays.api.domain.Transaction;
+import com.barclays.api.domain.User;
+import com.barclays.api.domain.enums.RollupPeriod;
+import com.barclays.api.domain.enums.TransactionType;
+
+/**
+ * Rollups kept by postings and rebuilt from transactions, read back through
+ * the summary query.
+ */
+@SpringBootTest
+public class TransactionRollupTest {
+
+    @Autowired
+    private TransactionRollupService sut;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private AccountDao accountDao;
+
+    @Autowired
+    private BalanceSlotDao balanceSlotDao;
+
+    @Autowired
+    private TransactionDao transactionDao;
+
+    @Autowired
+    private TransactionRollupDao transactionRollupDao;
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final TestData testData = new TestData();
+    private User user;
+
+    @BeforeEach
+    public void setup() {
+        user = userDao.save(TestData.newUser());
+    }
+
+    @Test
+    public void postingsKeepTheDayAndMonthRollupsCurrent() {
+        // given
+        final Account account = newAccount(null);
+        final Account striped = newAccount(4);
+        final LocalDate today = LocalDate.now();
+
+        // when
+        ledgerService.post(testData.posting(account, TransactionType.DEPOSIT, "100.00"));
+        ledgerService.post(testData.posting(account, TransactionType.WITHDRAWAL, "30.00"));
+        ledgerService.postBatch(List.of(testData.posting(account, TransactionType.DEPOSIT, "5.00"),
+                testData.posting(account, TransactionType.DEPOSIT, "7.00")), true);
+        for (int i = 0; i < 3; i++) {
+            ledgerService.postStriped(testData.posting(striped, TransactionType.DEPOSIT, "10.00"));
+        }
+        ledgerService.postStriped(testData.posting(striped, TransactionType.WITHDRAWAL, "4.00"));
+
+        // then
+        for (RollupPeriod period : RollupPeriod.values()) {
+            assertTotals(sut.getTotals(account.getId(), period, today, today.plusDays(1)),
+                    period.startOf(today), "112.00", "30.00", 3, 1);
+            assertTotals(sut.getTotals(striped.getId(), period, today, today.plusDays(1)),
+                    period.startOf(today), "30.00", "4.00", 3, 1);
+        }
+    }
+
+    @Test
+    public void rebuildWritesTheRollupsTheTransactionsAddUpTo() {
+        // given - history inserted without rollups, either side of midnight on 1 April
+        final Account account = newAccount(null);
+        insert(account, TransactionType.DEPOSIT, "50.00", LocalDateTime.of(2024, 3, 31, 23, 59));
+        insert(account, TransactionType.WITHDRAWAL, "20.00", LocalDateTime.of(2024, 4, 1, 0, 0));
+        insert(account, TransactionType.DEPOSIT, "5.00", LocalDateTime.of(2024, 4, 1, 12, 0));
+        // and one posted with its rollups already in place
+        final Account posted = newAccount(null);
+        ledgerService.post(testData.posting(posted, TransactionType.DEPOSIT, "60.00"));
+        final LocalDate today = LocalDate.now();
+
+        // when - small chunks over several workers
+        final long written = new TransactionRollupRebuild(accountDao, balanceSlotDao, transactionDao,
+                transactionRollupDao, transactionManager, false, 3, 2).rebuild();
+
+        // then
+        assertThat(written).isGreaterThanOrEqualTo(6);
+        final LocalDate march31 = LocalDate.of(2024, 3, 31);
+        final LocalDate april1 = LocalDate.of(2024, 4, 1);
+        final List<PeriodTotal> days = sut.getTotals(account.getId(), RollupPeriod.DAY, march31, april1.plusDays(1));
+        assertThat(days).hasSize(2);
+        assertTotals(days.subList(0, 1), march31, "50.00", "0.00", 1, 0);
+        assertTotals(days.subList(1, 2), april1, "5.00", "20.00", 1, 1);
+
+        final List<PeriodTotal> months = sut.getTotals(account.getId(), RollupPeriod.MONTH, march31, april1.plusDays(1));
+        assertThat(months).hasSize(2);
+        assertTotals(months.subList(0, 1), LocalDate.of(2024, 3, 1), "50.00", "0.00", 1, 0);
+        assertTotals(months.subList(1, 2), april1, "5.00", "20.00", 1, 1);
+
+        // and nothing was counted twice
+        assertTotals(sut.getTotals(posted.getId(), RollupPeriod.DAY, today, today.plusDays(1)),
+                today, "60.00", "0.00", 1, 0);
+    }
+
+    @Test
+    public void racingFirstPostingsOfAPeriodAreAllCounted() throws Exception {
+        // given - writers that hold no account lock, as legacy posting doesn't
+        final Account account = newAccount(null);
+        final LocalDateTime createdTimestamp = LocalDateTime.of(2024, 6, 1, 9, 0);
+        final int writers = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(writers);
+        final List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            final Transaction deposit = testData.posting(account, TransactionType.DEPOSIT, "1.00", createdTimestamp);
+            results.add(executor.submit(() -> {
+                start.await();
+                sut.record(List.of(deposit));
+                return null;
+            }));
+        }
+
+        // when
+        start.countDown();
+        try {
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // then
+        final LocalDate june1 = createdTimestamp.toLocalDate();
+        assertTotals(sut.getTotals(account.getId(), RollupPeriod.DAY, june1, june1.plusDays(1)),
+                june1, "8.00", "0.00", writers, 0);
+        assertTotals(sut.getTotals(account.getId(), RollupPeriod.MONTH, june1, june1.plusDays(1)),
+                june1, "8.00", "0.00", writers, 0);
+    }
+
+    private static void assertTotals(List<PeriodTotal> totals, LocalDate periodStart, String deposits,
+            String withdrawals, long depositCount, long withdrawalCount) {
+        assertThat(totals).hasSize(1);
+        final PeriodTotal total = totals.get(0);
+        assertThat(total.getPeriodStart()).isEqualTo(periodStart);
+        assertThat(total.getDeposits()).isEqualByComparingTo(new BigDecimal(deposits));
+        assertThat(total.getWithdrawals()).isEqualByComparingTo(new BigDecimal(withdrawals));
+        assertThat(total.getDepositCount()).isEqualTo(depositCount);
+        assertThat(total.getWithdrawalCount()).isEqualTo(withdrawalCount);
+    }
+
+    private Account newAccount(Integer balanceSlots) {
+        return accountService.createAccount(TestData.newAccount(user, new BigDecimal("1000.00"))
+                .withBalanceSlots(balanceSlots)
+                .build());
+    }
+
+    private void insert(Account account, TransactionType type, String amount, LocalDateTime createdTimestamp) {
+        transactionDao.insert(testData.posting(account, type, amount, createdTimestamp));
+    }
+}
@@ -1,6 +1,7 @@
 package com.barclays.api.services;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 
@@ -26,21 +27,30 @@ import com.barclays.api.domain.User;
 import com.barclays.api.domain.enums.AccountType;
 import com.barclays.api.domain.enums.Currency;
 import com.barclays.api.domain.enums.TransactionType;
+import com.barclays.api.domain.page.TransactionCursor;
+import com.barclays.api.domain.page.TransactionFilter;
+import com.barclays.api.domain.page.TransactionPage;
+import com.barclays.api.domain.view.TransactionView;
 
 @ExtendWith(MockitoExtension.class)
 public class TransactionServiceUnitTest {
 
+    private static final LocalDateTime PAGE_START = LocalDateTime.of(2024, 1, 1, 9, 0);
+
     private TransactionService sut;
 
     @Mock
     private TransactionDao transactionDao;
 
+    @Mock
+    private TransactionRollupService transactionRollupService;
+
     private User testUser;
     private Account testAccount;
 
     @BeforeEach
     public void setup() {
-        sut = new TransactionService(transactionDao);
+        sut = new TransactionService(transactionDao, transactionRollupService, 3);
         
         // Create test fixtures
         final Address address = Address.Builder.create()
@@ -88,7 +98,9 @@ public class TransactionServiceUnitTest {
         // then
         assertThat(result).isNotNull();
         assertThat(testAccount.getBalance()).isEqualTo(new BigDecimal("1100.00"));
+        assertThat(depositTransaction.getBalanceAfter()).isEqualTo(new BigDecimal("1100.00"));
         verify(transactionDao, times(1)).save(depositTransaction);
+        verify(transactionRollupService, times(1)).record(List.of(depositTransaction));
         verifyNoMoreInteractions(transactionDao);
     }
 
@@ -111,6 +123,7 @@ public class TransactionServiceUnitTest {
         // then
         assertThat(result).isNotNull();
         assertThat(testAccount.getBalance()).isEqualTo(new BigDecimal("800.00"));
+        assertThat(withdrawalTransaction.getBalanceAfter()).isEqualTo(new BigDecimal("800.00"));
         verify(transactionDao, times(1)).save(withdrawalTransaction);
         verifyNoMoreInteractions(transactionDao);
     }
@@ -134,7 +147,7 @@ public class TransactionServiceUnitTest {
         // Verify balance remains unchanged
         assertThat(testAccount.getBalance()).isEqualTo(new BigDecimal("1000.00"));
         verify(transactionDao, times(0)).save(any(Transaction.class));
-        verifyNoMoreInteractions(transactionDao);
+        verifyNoMoreInteractions(transactionDao, transactionRollupService);
     }
 
     @Test
@@ -234,4 +247,80 @@ public class TransactionServiceUnitTest {
         verify(transactionDao, times(1)).findByAccountId(accountId);
         verifyNoMoreInteractions(transactionDao);
     }
+
+    @Test
+    public void getTransactionPageReadsOnePastTheLimitAndReturnsACursorToTheLastTransaction() {
+        // given
+        final List<TransactionView> rows = Arrays.asList(paged("tan-1", 0), paged("tan-2", 1), paged("tan-3", 2));
+        given(transactionDao.findViewPage(1L, TransactionFilter.none(), null, 3)).willReturn(rows);
+
+        // when
+        TransactionPage result = sut.getTransactionPage(1L, TransactionFilter.none(), null, 2);
+
+        // then
+        assertThat(result.getTransactions()).containsExactly(rows.get(0), rows.get(1));
+        assertThat(result.getNextCursor()).isEqualTo(new TransactionCursor(PAGE_START.plusSeconds(1), "tan-2"));
+    }
+
+    @Test
+    public void getTransactionPageStartsAfterTheCursorAndDefaultsToTheMaximumPageSize() {
+        // given
+        final TransactionCursor after = new TransactionCursor(PAGE_START, "tan-1");
+        final TransactionFilter filter = TransactionFilter.Builder.create().withType(TransactionType.DEPOSIT).build();
+        final List<TransactionView> rows = Arrays.asList(paged("tan-2", 1));
+        given(transactionDao.findViewPage(1L, filter, after, 4)).willReturn(rows);
+
+        // when
+        TransactionPage result = sut.getTransactionPage(1L, filter, after, null);
+
+        // then
+        assertThat(result.getTransactions()).containsExactly(rows.get(0));
+        assertThat(result.hasNext()).isFalse();
+    }
+
+    @Test
+    public void getTransactionPageRejectsALimitAboveTheMaximum() {
+        // when & then
+        assertThatThrownBy(() -> sut.getTransactionPage(1L, TransactionFilter.none(), null, 4))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Page size must be between 1 and 3.");
+        verifyNoMoreInteractions(transactionDao);
+    }
+
+    @Test
+    public void getTransactionPageWithoutALimitOrAMaximumReturnsEveryTransaction() {
+        // given
+        final TransactionService uncapped = new TransactionService(transactionDao, transactionRollupService, 0);
+        final List<TransactionView> rows = Arrays.asList(paged("tan-1", 0), paged("tan-2", 1), paged("tan-3", 2),
+                paged("tan-4", 3));
+        given(transactionDao.findViewPage(1L, TransactionFilter.none(), null, 0)).willReturn(rows);
+
+        // when
+        TransactionPage result = uncapped.getTransactionPage(1L, TransactionFilter.none(), null, null);
+
+        // then
+        assertThat(result.getTransactions()).isEqualTo(rows);
+        assertThat(result.hasNext()).isFalse();
+    }
+
+    @Test
+    public void getTransactionPageWithoutAMaximumTakesAnyPositiveLimit() {
+        // given
+        final TransactionService uncapped = new TransactionService(transactionDao, transactionRollupService, 0);
+        given(transactionDao.findViewPage(1L, TransactionFilter.none(), null, 5001)).willReturn(List.of());
+
+        // when
+        TransactionPage result = uncapped.getTransactionPage(1L, TransactionFilter.none(), null, 5000);
+
+        // then
+        assertThat(result.getTransactions()).isEmpty();
+        assertThatThrownBy(() -> uncapped.getTransactionPage(1L, TransactionFilter.none(), null, 0))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Page size must be at least 1.");
+    }
+
+    private TransactionView paged(String id, int second) {
+        return new TransactionView(id, id, new BigDecimal("10.00"), Currency.GBP, TransactionType.DEPOSIT, null,
+                PAGE_START.plusSeconds(second));
+    }
 }
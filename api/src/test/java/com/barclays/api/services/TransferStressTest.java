@@ -0,0 +1,151 @@
+package com.barclays.api.services;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.barclays.api.TestData;
+import com.barclays.api.dao.AccountDao;
+import com.barclays.api.dao.TransactionDao;
+import com.barclays.api.dao.UserDao;
+import com.barclays.api.domain.Account;
+import com.barclays.api.domain.Transaction;
+import com.barclays.api.domain.User;
+import com.barclays.api.domain.enums.Currency;
+import com.barclays.api.domain.enums.TransactionType;
+
+/**
+ * Many threads moving money at random between a handful of accounts, so
+ * nearly every transfer has an opposing one in flight. Any deadlock or lock
+ * timeout surfaces as an unexpected exception; lost or duplicated updates
+ * show up in the total.
+ */
+@SpringBootTest
+public class TransferStressTest {
+
+    private static final int THREADS = 32;
+    private static final int ACCOUNTS = 5;
+    private static final int TRANSFERS = 2000;
+
+    @Autowired
+    private LedgerService sut;
+
+    @Autowired
+    private AccountDao accountDao;
+
+    @Autowired
+    private TransactionDao transactionDao;
+
+    @Autowired
+    private UserDao userDao;
+
+    private ExecutorService executor;
+    private User user;
+
+    @BeforeEach
+    public void setup() {
+        executor = Executors.newFixedThreadPool(THREADS);
+
+        user = userDao.save(TestData.newUser());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void randomConcurrentTransfersConserveMoneyWithoutDeadlocking() throws Exception {
+        // given
+        final List<Account> accounts = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts.add(newAccount(new BigDecimal("500.00")));
+        }
+        final AtomicInteger completed = new AtomicInteger();
+        final AtomicInteger refused = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+
+        // when
+        final List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final Random random = new Random(t);
+            workers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < TRANSFERS / THREADS; i++) {
+                    final int from = random.nextInt(ACCOUNTS);
+                    final int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+                    final BigDecimal amount = BigDecimal.valueOf(1 + random.nextInt(20000), 2);
+                    try {
+                        sut.transfer(leg(accounts.get(from), TransactionType.WITHDRAWAL, amount),
+                                leg(accounts.get(to), TransactionType.DEPOSIT, amount));
+                        completed.incrementAndGet();
+                    } catch (IllegalArgumentException ex) {
+                        // insufficient funds - the only failure allowed
+                        refused.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> worker : workers) {
+            // rethrows anything other than a refusal, e.g. a deadlock victim
+            worker.get(120, TimeUnit.SECONDS);
+        }
+
+        // then - money only moved around
+        BigDecimal total = BigDecimal.ZERO;
+        int legs = 0;
+        for (Account account : accounts) {
+            final Account reloaded = accountDao.findById(account.getId()).get();
+            assertThat(reloaded.getBalance().signum()).isGreaterThanOrEqualTo(0);
+            total = total.add(reloaded.getBalance());
+
+            // every balance is exactly what its own legs add up to
+            BigDecimal fromLegs = new BigDecimal("500.00");
+            final List<Transaction> transactions = transactionDao.findByAccountId(account.getId());
+            for (Transaction transaction : transactions) {
+                fromLegs = fromLegs.add(LedgerService.signedAmount(transaction));
+            }
+            assertThat(reloaded.getBalance()).isEqualByComparingTo(fromLegs);
+            legs += transactions.size();
+        }
+        assertThat(total).isEqualByComparingTo(new BigDecimal("500.00").multiply(BigDecimal.valueOf(ACCOUNTS)));
+        assertThat(completed.get() + refused.get()).isEqualTo(TRANSFERS / THREADS * THREADS);
+        assertThat(completed.get()).isGreaterThan(0);
+        assertThat(legs).isEqualTo(completed.get() * 2);
+    }
+
+    private Account newAccount(BigDecimal balance) {
+        return accountDao.save(TestData.newAccount(user, balance).build());
+    }
+
+    private Transaction leg(Account account, TransactionType type, BigDecimal amount) {
+        final String id = UUID.randomUUID().toString();
+        final Transaction transaction = Transaction.Builder.create()
+                .withTransactionId(id)
+                .withAmount(amount)
+                .withType(type)
+                .withCurrency(Currency.GBP)
+                .withUser(user)
+                .withAccount(account)
+                .build();
+        transaction.setId(id);
+        return transaction;
+    }
+}
@@ -0,0 +1,80 @@
+package com.barclays.api.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.barclays.api.TestData;
+import com.barclays.api.dao.UserDao;
+import com.barclays.api.domain.User;
+
+/**
+ * Principal lookups served from {@link UserCache}, and the unique index
+ * behind them. Rows are changed behind the cache's back with plain SQL to
+ * tell a cached read from one that went to H2.
+ */
+@SpringBootTest
+public class UserLookupTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private String email;
+
+    @BeforeEach
+    public void setup() {
+        email = TestData.newEmail();
+    }
+
+    @Test
+    public void repeatLookupsOfAPrincipalNeverReachTheDatabase() {
+        // given
+        final User user = userService.saveUser(TestData.newUser(email));
+        userService.findByEmail(email);
+
+        // when
+        jdbcTemplate.update("UPDATE users SET name = ? WHERE id = ?", "Renamed", user.getId());
+        final User cached = userService.findByEmail(email);
+
+        // then
+        assertThat(cached.getId()).isEqualTo(user.getId());
+        assertThat(cached.getName()).isEqualTo("Test User");
+        assertThat(cached.getAddress().getPostcode()).isEqualTo("TE1 2ST");
+    }
+
+    @Test
+    public void savingAUserDropsItsCachedLookup() {
+        // given
+        final User user = userService.saveUser(TestData.newUser(email));
+        final User read = userService.findByEmail(email);
+
+        // when
+        read.setName("Renamed");
+        userService.saveUser(read);
+
+        // then
+        assertThat(userService.findByEmail(email).getName()).isEqualTo("Renamed");
+        assertThat(userService.findByEmail(email).getId()).isEqualTo(user.getId());
+    }
+
+    @Test
+    public void aSecondUserWithTheSameEmailIsRejectedByTheUniqueIndex() {
+        // given
+        userDao.save(TestData.newUser(email));
+
+        // when & then
+        assertThatThrownBy(() -> userDao.save(TestData.newUser(email)))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+}
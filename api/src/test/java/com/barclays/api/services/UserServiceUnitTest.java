@@ -1,5 +1,7 @@
 package com.barclays.api.services;
 
+import java.util.Optional;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,6 +14,7 @@ import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.BDDMockito.given;
 import org.mockito.Mock;
 import static org.mockito.Mockito.only;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -20,6 +23,8 @@ import com.barclays.api.dao.UserDao;
 import com.barclays.api.domain.Address;
 import com.barclays.api.domain.User;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 @ExtendWith(MockitoExtension.class)
 public class UserServiceUnitTest {
 
@@ -30,7 +35,7 @@ public class UserServiceUnitTest {
 
     @BeforeEach
     public void setup() {
-        sut = new UserService(userCrudRepository);
+        sut = new UserService(userCrudRepository, new UserCache(100, 60_000, new SimpleMeterRegistry()));
     }
 
     @Test
@@ -72,7 +77,7 @@ public class UserServiceUnitTest {
 
         // then
         assertThat(result).isNotNull();
-        assertThat(result).isSameAs(expectedUser);
+        assertThat(result).isNotSameAs(expectedUser).usingRecursiveComparison().isEqualTo(expectedUser);
         assertThat(result.getEmail()).isEqualTo(email);
 
         verify(userCrudRepository, only()).findByEmail(eq(email));
@@ -98,6 +103,57 @@ public class UserServiceUnitTest {
         verifyNoMoreInteractions(userCrudRepository);
     }
 
+    @Test
+    public void findByEmailReadsAUserOnceUntilItIsSaved() {
+        // test fixtures
+        final User user = User.Builder.create()
+                .withName("Test User")
+                .withEmail("test@example.com")
+                .build();
+        user.setId(1L);
+
+        // given
+        given(userCrudRepository.findByEmail("test@example.com")).willReturn(user);
+        given(userCrudRepository.findById(1L)).willReturn(Optional.of(user));
+        given(userCrudRepository.save(any(User.class))).willReturn(user);
+
+        // when
+        sut.findByEmail("test@example.com");
+        sut.findByEmail("test@example.com");
+        sut.saveUser(user);
+        sut.findByEmail("test@example.com");
+
+        // then
+        verify(userCrudRepository, times(2)).findByEmail("test@example.com");
+    }
+
+    @Test
+    public void saveUserDropsTheEmailAUserIsMovingAwayFrom() {
+        // test fixtures
+        final User before = User.Builder.create()
+                .withName("Test User")
+                .withEmail("old@example.com")
+                .build();
+        before.setId(1L);
+        final User after = User.Builder.create()
+                .withName("Test User")
+                .withEmail("new@example.com")
+                .build();
+        after.setId(1L);
+
+        // given
+        given(userCrudRepository.findByEmail("old@example.com")).willReturn(before, (User) null);
+        given(userCrudRepository.findById(1L)).willReturn(Optional.of(before));
+        given(userCrudRepository.save(any(User.class))).willReturn(after);
+        sut.findByEmail("old@example.com");
+
+        // when
+        sut.saveUser(after);
+
+        // then
+        assertThat(sut.findByEmail("old@example.com")).isNull();
+    }
+
     @Test
     public void saveUserWithNullUserThrowsAnException() {
         // test fixtures